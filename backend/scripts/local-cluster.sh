@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# Runs a distributed crawl cluster of separate JVMs on this machine, talking over loopback.
+#
+#   scripts/local-cluster.sh [nodes] [first port]
+#
+# Starts nodes (default 3) on ports 8081, 8082, ... with the in-memory graph store; logs go to
+# target/cluster/. Start a crawl on any of them, which then coordinates it:
+#
+#   curl -X POST 'http://127.0.0.1:8081/api/cluster/start?startUrl=https://www.northeastern.edu'
+#   curl http://127.0.0.1:8081/api/cluster/crawls/{jobId}
+#
+# Ctrl-C stops every node.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+NODES=${1:-3}
+FIRST_PORT=${2:-8081}
+JAR=target/webcrawler-0.0.1-SNAPSHOT.jar
+
+if [ ! -f "$JAR" ]; then
+    mvn -B -q package -DskipTests
+fi
+mkdir -p target/cluster
+
+MEMBERS=""
+for ((i = 0; i < NODES; i++)); do
+    MEMBERS="${MEMBERS:+$MEMBERS,}http://127.0.0.1:$((FIRST_PORT + i))"
+done
+
+PIDS=()
+trap 'kill "${PIDS[@]}" 2>/dev/null' EXIT
+for ((i = 0; i < NODES; i++)); do
+    PORT=$((FIRST_PORT + i))
+    java -jar "$JAR" \
+        --server.port="$PORT" \
+        --graph.store=memory \
+        --crawler.cluster.nodes="$MEMBERS" \
+        --crawler.cluster.self="http://127.0.0.1:$PORT" \
+        > "target/cluster/node-$PORT.log" 2>&1 &
+    PIDS+=($!)
+    echo "Node http://127.0.0.1:$PORT (pid $!), log in target/cluster/node-$PORT.log"
+done
+wait
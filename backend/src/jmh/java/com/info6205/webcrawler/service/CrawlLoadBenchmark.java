@@ -0,0 +1,240 @@
+package com.info6205.webcrawler.service;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * End-to-end crawl throughput against a {@link SyntheticSite}, across a
+ * matrix of execution modes, fetch-in-flight caps, thread counts and
+ * per-host rate limits. Every configuration
+ * crawls the same site from page 0 with a fresh {@link WebCrawlerService},
+ * and its pages per second, fetch latency percentiles (from the
+ * {@code crawler.fetch} timer) and peak sampled heap are printed and written
+ * to a CSV. The site is served from the same JVM, so the heap includes its
+ * small share.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec@crawl-load}, passing
+ * settings as {@code key=value} pairs in {@code -Dload.args}, e.g.
+ * {@code -Dload.args="pages=5000 threads=8,32 rates=10,50"}. Fixed against
+ * virtual threads at 1k, 10k and 50k fetches in flight is
+ * {@code -Dload.args="pages=100000 hosts=1000 executionModes=fixed,virtual maxInFlight=1000,10000,50000"}.
+ * See {@link #DEFAULTS} for the keys.
+ */
+public final class CrawlLoadBenchmark {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        // Site
+        DEFAULTS.put("pages", "2000");
+        DEFAULTS.put("hosts", "16");
+        DEFAULTS.put("fanOut", "10");
+        DEFAULTS.put("pageKb", "16");
+        DEFAULTS.put("latencyMs", "20");
+        DEFAULTS.put("latencyP99Ms", "200");
+        DEFAULTS.put("errorRate", "0.01");
+        DEFAULTS.put("seed", "42");
+        // Crawler, one run per executionModes x maxInFlight x threads x rates combination
+        DEFAULTS.put("executionModes", "fixed");
+        // crawler.maxInFlight; 0 means one fetch per pool thread
+        DEFAULTS.put("maxInFlight", "0");
+        DEFAULTS.put("threads", "4,16,64");
+        DEFAULTS.put("rates", "5,20,100");
+        DEFAULTS.put("perHostInFlight", "4");
+        DEFAULTS.put("fetcher", "httpclient");
+        // crawler.adaptive.enabled; adjustments are counted in the CSV
+        DEFAULTS.put("adaptive", "false");
+        // Unrecorded crawls before the matrix, to warm up the JIT
+        DEFAULTS.put("warmup", "1");
+        DEFAULTS.put("out", "target/crawl-load.csv");
+    }
+
+    private static final String[] HEADER = {
+            "pages", "hosts", "fan_out", "page_kb", "latency_ms", "latency_p99_ms", "error_rate",
+            "execution_mode", "max_in_flight", "threads", "rate_limit", "adaptive", "pages_fetched", "errors", "adjustments", "duration_ms", "pages_per_sec",
+            "fetch_p50_ms", "fetch_p99_ms", "peak_heap_mb"
+    };
+
+    private CrawlLoadBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Expected key=value with a key among " + DEFAULTS.keySet()
+                        + ", got " + arg);
+            }
+            settings.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int pages = Integer.parseInt(settings.get("pages"));
+        int pageKb = Integer.parseInt(settings.get("pageKb"));
+        List<String> modes = new ArrayList<>();
+        for (String mode : settings.get("executionModes").split(",")) {
+            modes.add(CrawlExecutors.parseMode(mode).name().toLowerCase(Locale.ROOT));
+        }
+        List<Integer> inFlightCaps = new ArrayList<>();
+        for (String cap : settings.get("maxInFlight").split(",")) {
+            inFlightCaps.add(Integer.parseInt(cap.trim()));
+        }
+        List<Integer> threadCounts = new ArrayList<>();
+        for (String threads : settings.get("threads").split(",")) {
+            threadCounts.add(Integer.parseInt(threads.trim()));
+        }
+        List<Double> rates = new ArrayList<>();
+        for (String rate : settings.get("rates").split(",")) {
+            rates.add(Double.parseDouble(rate.trim()));
+        }
+
+        Path out = Path.of(settings.get("out"));
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        try (SyntheticSite site = new SyntheticSite(pages, Integer.parseInt(settings.get("hosts")),
+                Integer.parseInt(settings.get("fanOut")), pageKb * 1024,
+                Double.parseDouble(settings.get("latencyMs")), Double.parseDouble(settings.get("latencyP99Ms")),
+                Double.parseDouble(settings.get("errorRate")), Long.parseLong(settings.get("seed")));
+                CSVPrinter csv = new CSVPrinter(new FileWriter(out.toFile()),
+                        CSVFormat.DEFAULT.builder().setHeader(HEADER).build())) {
+            site.start();
+            for (int i = 0; i < Integer.parseInt(settings.get("warmup")); i++) {
+                crawl(site, settings, modes.get(0), inFlightCaps.get(0), threadCounts.get(0), rates.get(0));
+            }
+            List<Run> runs = new ArrayList<>();
+            for (String mode : modes) {
+                for (int inFlight : inFlightCaps) {
+                    for (int threads : threadCounts) {
+                        for (double rate : rates) {
+                            Run run = crawl(site, settings, mode, inFlight, threads, rate);
+                            runs.add(run);
+                            csv.printRecord(pages, settings.get("hosts"), settings.get("fanOut"), pageKb,
+                                    settings.get("latencyMs"), settings.get("latencyP99Ms"),
+                                    settings.get("errorRate"), mode, inFlight, threads, rate,
+                                    settings.get("adaptive"), run.pagesFetched, run.errors, run.adjustments,
+                                    run.durationMillis, run.pagesPerSecond(), run.p50Millis, run.p99Millis,
+                                    run.peakHeapBytes >> 20);
+                            csv.flush();
+                        }
+                    }
+                }
+            }
+            // After all runs, as the crawler itself prints to stdout while it runs
+            System.out.printf("%8s %10s %8s %10s %8s %7s %9s %10s %10s %10s %10s%n", "mode", "in flight",
+                    "threads", "rate/host", "pages", "errors", "seconds", "pages/s", "p50 ms", "p99 ms", "peak MB");
+            for (Run run : runs) {
+                System.out.printf("%8s %10d %8d %10.1f %8d %7d %9.2f %10.1f %10.1f %10.1f %10d%n", run.mode,
+                        run.maxInFlight, run.threads, run.rate, run.pagesFetched, run.errors,
+                        run.durationMillis / 1000.0, run.pagesPerSecond(), run.p50Millis, run.p99Millis,
+                        run.peakHeapBytes >> 20);
+            }
+        }
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    private static Run crawl(SyntheticSite site, Map<String, String> settings, String mode, int maxInFlight,
+            int threads, double rate) throws InterruptedException, IOException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!"crawler.fetch".equals(id.getName())) {
+                    return config;
+                }
+                // Percentiles over the whole run rather than the default two-minute window
+                return DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.99)
+                        .expiry(Duration.ofDays(1))
+                        .bufferLength(1)
+                        .build()
+                        .merge(config);
+            }
+        });
+        // Deep enough that depth never stops the crawl before the site is covered
+        WebCrawlerService crawler = new WebCrawlerService(threads, 64, rate, new InMemoryGraphStore(""),
+                new PageRankCalculator());
+        ReflectionTestUtils.setField(crawler, "meterRegistry", registry);
+        ReflectionTestUtils.setField(crawler, "maxPages", site.getPages());
+        ReflectionTestUtils.setField(crawler, "perHostInFlight", Integer.parseInt(settings.get("perHostInFlight")));
+        ReflectionTestUtils.setField(crawler, "fetcherType", settings.get("fetcher"));
+        ReflectionTestUtils.setField(crawler, "executionMode", mode);
+        ReflectionTestUtils.setField(crawler, "maxInFlight", maxInFlight);
+        ReflectionTestUtils.setField(crawler, "adaptiveEnabled", Boolean.parseBoolean(settings.get("adaptive")));
+        ReflectionTestUtils.setField(crawler, "heapSampleMs", 100L);
+        System.gc();
+        try {
+            CrawlJob job = crawler.submitCrawl(site.url(0));
+            job.awaitResult();
+            if (job.getStatus() != CrawlJob.Status.SUCCEEDED) {
+                throw new IOException("Crawl " + job.getId() + " ended " + job.getStatus());
+            }
+
+            Run run = new Run();
+            run.mode = mode;
+            run.maxInFlight = maxInFlight;
+            run.threads = threads;
+            run.rate = rate;
+            run.pagesFetched = (long) registry.get("crawler.pages.fetched").counter().count();
+            for (Counter errors : registry.find("crawler.errors").counters()) {
+                run.errors += (long) errors.count();
+            }
+            for (Counter adjustments : registry.find("crawler.adaptive.adjustments").counters()) {
+                run.adjustments += (long) adjustments.count();
+            }
+            run.durationMillis = job.tracker.getDurationMillis();
+            HistogramSnapshot fetches = registry.get("crawler.fetch").timer().takeSnapshot();
+            for (ValueAtPercentile percentile : fetches.percentileValues()) {
+                if (percentile.percentile() == 0.5) {
+                    run.p50Millis = percentile.value(TimeUnit.MILLISECONDS);
+                } else {
+                    run.p99Millis = percentile.value(TimeUnit.MILLISECONDS);
+                }
+            }
+            run.peakHeapBytes = job.tracker.getPeakMemoryUsed();
+            return run;
+        } finally {
+            crawler.shutdown();
+        }
+    }
+
+    private static final class Run {
+
+        String mode;
+        int maxInFlight;
+        int threads;
+        double rate;
+        long pagesFetched;
+        long errors;
+        long adjustments;
+        long durationMillis;
+        double p50Millis;
+        double p99Millis;
+        long peakHeapBytes;
+
+        double pagesPerSecond() {
+            return durationMillis > 0 ? pagesFetched * 1000.0 / durationMillis : 0;
+        }
+    }
+}
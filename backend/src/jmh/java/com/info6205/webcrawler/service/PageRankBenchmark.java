@@ -0,0 +1,114 @@
+package com.info6205.webcrawler.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.info6205.webcrawler.service.pagerank.CsrGraph;
+import com.info6205.webcrawler.service.pagerank.PageRankResult;
+
+/**
+ * {@link PageRankCalculator} on power-law crawl graphs: building the CSR form
+ * from the graph store's adjacency map, and solving it with each solver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PageRankBenchmark {
+
+    // Average out-links per page
+    private static final int MEAN_OUT_DEGREE = 8;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int nodes;
+
+    @Param({"legacy", "parallel"})
+    public String solver;
+
+    private List<String> urls;
+    private Map<String, List<String>> graph;
+    private CsrGraph csr;
+    private PageRankCalculator calculator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        urls = new ArrayList<>(nodes);
+        graph = powerLawGraph(nodes, new Random(6205), urls);
+        csr = CsrGraph.build(urls, graph);
+        calculator = new PageRankCalculator(solver, 0.85, 1e-6, 100, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        calculator.shutdown();
+    }
+
+    @Benchmark
+    public CsrGraph buildCsr() {
+        return CsrGraph.build(urls, graph);
+    }
+
+    @Benchmark
+    public PageRankResult solve() {
+        return calculator.computePageRankResult(csr);
+    }
+
+    /**
+     * A crawl-like graph grown by preferential attachment: each new page
+     * links to pages picked in proportion to the links they already have,
+     * so in-degrees follow a power law. Out-degrees are geometric around
+     * {@link #MEAN_OUT_DEGREE}, and a tenth of the pages link nowhere.
+     */
+    static Map<String, List<String>> powerLawGraph(int size, Random random, List<String> urls) {
+        for (int i = 0; i < size; i++) {
+            urls.add("https://host" + (i % 97) + ".example.edu/page/" + i);
+        }
+        Map<String, List<String>> graph = new HashMap<>(size * 2);
+        // Every link target so far, once per link, plus each page once so new pages can be found
+        int[] targets = new int[size * (MEAN_OUT_DEGREE + 2)];
+        int targetCount = 0;
+        Set<Integer> picked = new LinkedHashSet<>();
+        for (int page = 0; page < size; page++) {
+            targets[targetCount++] = page;
+            if (page == 0 || random.nextInt(10) == 0) {
+                continue;
+            }
+            int outDegree = 1 + (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - 1.0 / MEAN_OUT_DEGREE));
+            picked.clear();
+            for (int link = 0; link < outDegree && targetCount < targets.length; link++) {
+                picked.add(targets[random.nextInt(targetCount)]);
+            }
+            List<String> links = new ArrayList<>(picked.size());
+            for (int target : picked) {
+                links.add(urls.get(target));
+                if (targetCount < targets.length) {
+                    targets[targetCount++] = target;
+                }
+            }
+            graph.put(urls.get(page), links);
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,190 @@
+package com.info6205.webcrawler.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A generated web site served from loopback, for crawling without the
+ * internet. Page {@code i} of {@code pages} is {@code /page/i} on host
+ * {@code 127.0.0.(i % hosts + 1)}, each host with its own server, so the
+ * crawler's per-host politeness applies as it would across real sites.
+ *
+ * <p>Everything about a page is derived from the seed and its number, so
+ * the same settings always serve the same site: its links (two to pages
+ * further down a binary tree, so every page is reachable within a few hops
+ * of page 0, and the rest skewed towards low page numbers, giving popular
+ * pages), its filler text up to the page weight, whether it fails with a
+ * 500, and how long the response is held back. Latencies are log-normal,
+ * set by their median and 99th percentile.
+ */
+final class SyntheticSite implements AutoCloseable {
+
+    /** Standard normal quantile of 0.99. */
+    private static final double Z_99 = 2.326;
+
+    private static final String[] WORDS = {
+            "campus", "student", "faculty", "course", "library", "semester", "graduate", "lecture",
+            "laboratory", "admission", "schedule", "seminar", "department", "alumni", "scholarship",
+            "curriculum", "project", "report", "network", "archive", "program", "research", "event"
+    };
+
+    private final int pages;
+    private final int hosts;
+    private final int fanOut;
+    private final int pageBytes;
+    private final double medianLatencyMs;
+    private final double latencySigma;
+    private final double errorRate;
+    private final long seed;
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final int[] ports;
+    private final ExecutorService handlers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "synthetic-site");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * @param fanOut          links on every page
+     * @param pageBytes       approximate size of every page
+     * @param p99LatencyMs    99th percentile of the response delay; at or
+     *                        below the median, every response takes the median
+     * @param errorRate       fraction of pages answered with a 500
+     */
+    SyntheticSite(int pages, int hosts, int fanOut, int pageBytes, double medianLatencyMs, double p99LatencyMs,
+            double errorRate, long seed) {
+        this.pages = pages;
+        this.hosts = Math.max(1, Math.min(hosts, 254));
+        this.fanOut = fanOut;
+        this.pageBytes = pageBytes;
+        this.medianLatencyMs = medianLatencyMs;
+        this.latencySigma = medianLatencyMs > 0 && p99LatencyMs > medianLatencyMs
+                ? Math.log(p99LatencyMs / medianLatencyMs) / Z_99 : 0;
+        this.errorRate = errorRate;
+        this.seed = seed;
+        this.ports = new int[this.hosts];
+    }
+
+    void start() throws IOException {
+        for (int host = 0; host < hosts; host++) {
+            // All of 127.0.0.0/8 is loopback on Linux; elsewhere only 127.0.0.1 may be bound
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0." + (host + 1), 0), 1024);
+            server.createContext("/", this::handle);
+            server.setExecutor(handlers);
+            server.start();
+            ports[host] = server.getAddress().getPort();
+            servers.add(server);
+        }
+    }
+
+    String url(int page) {
+        int host = page % hosts;
+        return "http://127.0.0." + (host + 1) + ":" + ports[host] + "/page/" + page;
+    }
+
+    int getPages() {
+        return pages;
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        servers.forEach(server -> server.stop(0));
+        handlers.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            int page = pageOf(exchange.getRequestURI().getPath());
+            if (page < 0) {
+                // robots.txt among others: nothing here, so everything is allowed
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            SplittableRandom random = new SplittableRandom(seed * 31 + page);
+            delay(random);
+            if (random.nextDouble() < errorRate) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            byte[] body = render(page, random).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private int pageOf(String path) {
+        if (!path.startsWith("/page/")) {
+            return -1;
+        }
+        try {
+            int page = Integer.parseInt(path.substring("/page/".length()));
+            return page < pages ? page : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void delay(SplittableRandom random) {
+        if (medianLatencyMs <= 0) {
+            return;
+        }
+        double millis = medianLatencyMs * Math.exp(latencySigma * random.nextGaussian());
+        try {
+            Thread.sleep((long) millis, (int) ((millis % 1) * 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String render(int page, SplittableRandom random) {
+        StringBuilder html = new StringBuilder(pageBytes + 256);
+        html.append("<!DOCTYPE html><html><head><title>Page ").append(page)
+                .append("</title></head><body><h1>Page ").append(page).append("</h1><ul>");
+        for (int i = 0; i < fanOut; i++) {
+            html.append("<li><a href=\"").append(url(linkTarget(page, i, random))).append("\">link ")
+                    .append(i).append("</a></li>");
+        }
+        html.append("</ul>");
+        // Filler differs from page to page, so near-duplicate detection sees distinct pages
+        while (html.length() < pageBytes) {
+            html.append("<p>");
+            for (int i = 0; i < 40; i++) {
+                html.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            html.append("</p>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private int linkTarget(int page, int link, SplittableRandom random) {
+        if (link < 2) {
+            int child = 2 * page + 1 + link;
+            if (child < pages) {
+                return child;
+            }
+        }
+        double r = random.nextDouble();
+        return (int) (r * r * pages);
+    }
+}
@@ -0,0 +1,94 @@
+package com.info6205.webcrawler.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.info6205.webcrawler.service.url.UrlClassifier;
+
+/**
+ * {@link WebCrawlerService#calculatePriority} and the classifier behind it,
+ * one link per operation, over a corpus of links as found on crawled pages
+ * ({@code fixtures/urls.txt}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlPriorityBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Corpus {
+
+        String[] urls;
+        WebCrawlerService crawler;
+        CrawlJob job;
+        UrlClassifier classifier;
+
+        @Setup
+        public void setUp() throws IOException {
+            urls = loadUrls().toArray(new String[0]);
+            crawler = new WebCrawlerService(1, 3, 0, new InMemoryGraphStore(""), new PageRankCalculator());
+            job = new CrawlJob("benchmark", "https://www.northeastern.edu/");
+            classifier = UrlClassifier.defaults();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        String next(String[] urls) {
+            String url = urls[next];
+            next = next + 1 == urls.length ? 0 : next + 1;
+            return url;
+        }
+    }
+
+    @Benchmark
+    public int calculatePriority(Corpus corpus, Cursor cursor) {
+        return corpus.crawler.calculatePriority(corpus.job, cursor.next(corpus.urls));
+    }
+
+    /**
+     * As the crawl's workers call it, all recording blacklisted links in the
+     * same job's sets.
+     */
+    @Benchmark
+    @Threads(4)
+    public int calculatePriorityContended(Corpus corpus, Cursor cursor) {
+        return corpus.crawler.calculatePriority(corpus.job, cursor.next(corpus.urls));
+    }
+
+    @Benchmark
+    public int classify(Corpus corpus, Cursor cursor) {
+        return corpus.classifier.classify(cursor.next(corpus.urls)).getPriority();
+    }
+
+    static List<String> loadUrls() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                UrlPriorityBenchmark.class.getResourceAsStream("/fixtures/urls.txt"), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+/**
+ * The seen-set and the host scheduler as the crawl's workers use them, from
+ * several threads at once: workers adding the links they found, most of them
+ * already seen, while the dispatcher takes tasks out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontierContentionBenchmark {
+
+    private static final int DISTINCT_URLS = 1 << 20;
+    private static final int HOSTS = 64;
+    // Tasks kept queued in the scheduler; adds beyond this are skipped
+    private static final int MAX_QUEUED = 100_000;
+
+    private static final String[] URLS = new String[DISTINCT_URLS];
+
+    static {
+        for (int i = 0; i < DISTINCT_URLS; i++) {
+            URLS[i] = "https://host" + (i % HOSTS) + ".example.edu/section/" + (i / HOSTS) + "/page.html";
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Seen {
+
+        @Param({"string", "fingerprint", "bloom"})
+        public String type;
+
+        SeenSet seen;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            seen = SeenSets.create(SeenSets.parseType(type), DISTINCT_URLS, 0.001, false);
+        }
+    }
+
+    @State(Scope.Group)
+    public static class Scheduler {
+
+        HostScheduler scheduler;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            scheduler = new HostScheduler(0, 0, Comparator.comparingInt(UrlTask::getPriority));
+        }
+    }
+
+    /**
+     * Queues-if-new of a random link, as workers do for every link on a page.
+     */
+    @Benchmark
+    @Threads(8)
+    public boolean seenSetAdd(Seen state) {
+        return state.seen.add(URLS[ThreadLocalRandom.current().nextInt(DISTINCT_URLS)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean seenSetContains(Seen state) {
+        return state.seen.contains(URLS[ThreadLocalRandom.current().nextInt(DISTINCT_URLS)]);
+    }
+
+    @Benchmark
+    @Group("scheduler")
+    @GroupThreads(6)
+    public void schedulerAdd(Scheduler state) {
+        if (state.scheduler.size() < MAX_QUEUED) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            state.scheduler.add(new UrlTask(URLS[random.nextInt(DISTINCT_URLS)], 1, random.nextInt(30)));
+        }
+    }
+
+    @Benchmark
+    @Group("scheduler")
+    @GroupThreads(2)
+    public UrlTask schedulerPollAndRelease(Scheduler state) throws InterruptedException {
+        UrlTask task = state.scheduler.poll(0, TimeUnit.MILLISECONDS, null);
+        if (task != null) {
+            state.scheduler.release(task);
+        }
+        return task;
+    }
+}
@@ -0,0 +1,58 @@
+package com.info6205.webcrawler.service.parse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Link extraction from the stored pages in {@code fixtures/}: a university
+ * home page heavy on navigation, a long news article with a base href, and
+ * an A-Z index of 1500 links.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkExtractionBenchmark {
+
+    @Param({"university-home.html", "news-article.html", "link-directory.html"})
+    public String fixture;
+
+    @Param({"jsoup", "streaming"})
+    public String extractor;
+
+    private byte[] page;
+    private String pageUrl;
+    private LinkExtractor linkExtractor;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = LinkExtractionBenchmark.class.getResourceAsStream("/fixtures/" + fixture)) {
+            page = in.readAllBytes();
+        }
+        pageUrl = "https://www.example.edu/" + fixture;
+        linkExtractor = "jsoup".equals(extractor) ? new JsoupLinkExtractor() : new StreamingLinkExtractor();
+    }
+
+    /**
+     * Links and the SimHash of the text, as the crawl parses every page.
+     */
+    @Benchmark
+    public ParsedPage parse() throws IOException {
+        return linkExtractor.parse(page, null, pageUrl);
+    }
+}
@@ -0,0 +1,127 @@
+package com.info6205.webcrawler.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.ClusterCrawl;
+import com.info6205.webcrawler.service.ClusterService;
+
+/**
+ * Distributed crawls. {@code /start} and {@code /crawls} are for clients of
+ * the node coordinating a crawl; {@code /jobs} is what the nodes call on
+ * each other.
+ */
+@RestController
+@RequestMapping("/api/cluster")
+public class ClusterController {
+
+    private final ClusterService clusterService;
+
+    public ClusterController(ClusterService clusterService) {
+        this.clusterService = clusterService;
+    }
+
+    /**
+     * Starts a crawl over all nodes, coordinated by this one; its progress
+     * and ranking are under {@code /crawls/{jobId}}.
+     */
+    @PostMapping("/start")
+    public ResponseEntity<Map<String, Object>> startCrawl(@RequestParam String startUrl) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(clusterService.submitCrawl(startUrl).toStatus());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/crawls/{jobId}")
+    public ResponseEntity<Map<String, Object>> crawlStatus(@PathVariable String jobId) {
+        ClusterCrawl crawl = clusterService.getCrawl(jobId);
+        return crawl != null ? ResponseEntity.ok(crawl.toStatus()) : unknownJob(jobId);
+    }
+
+    /**
+     * The ranking of a finished crawl over all nodes' pages, or its status
+     * with 409 while it has none yet.
+     */
+    @GetMapping("/crawls/{jobId}/results")
+    public ResponseEntity<Map<String, Object>> crawlResults(@PathVariable String jobId) {
+        ClusterCrawl crawl = clusterService.getCrawl(jobId);
+        if (crawl == null) {
+            return unknownJob(jobId);
+        }
+        Map<String, Object> result = crawl.getResult();
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.status(HttpStatus.CONFLICT).body(crawl.toStatus());
+    }
+
+    @PostMapping("/crawls/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelCrawl(@PathVariable String jobId) {
+        ClusterCrawl crawl = clusterService.getCrawl(jobId);
+        if (crawl == null) {
+            return unknownJob(jobId);
+        }
+        HttpStatus status = clusterService.cancelCrawl(jobId) ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(crawl.toStatus());
+    }
+
+    @PostMapping("/jobs/{jobId}/start")
+    public ResponseEntity<Map<String, Object>> startPartition(@PathVariable String jobId,
+            @RequestParam String startUrl) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(clusterService.startPartition(jobId, startUrl).toStatus());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Links found by another node on this node's hosts; 404 until the crawl
+     * has started here, and the sender tries again.
+     */
+    @PostMapping("/jobs/{jobId}/links")
+    public ResponseEntity<Map<String, Object>> forwardedLinks(@PathVariable String jobId,
+            @RequestBody List<UrlTask> links) {
+        return clusterService.acceptLinks(jobId, links)
+                ? ResponseEntity.ok(Map.of("received", links.size())) : unknownJob(jobId);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> partitionState(@PathVariable String jobId) {
+        Map<String, Object> state = clusterService.partitionState(jobId);
+        return state != null ? ResponseEntity.ok(state) : unknownJob(jobId);
+    }
+
+    @PostMapping("/jobs/{jobId}/stop")
+    public ResponseEntity<Map<String, Object>> stopPartition(@PathVariable String jobId) {
+        return clusterService.stopPartition(jobId)
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("job_id", jobId)) : unknownJob(jobId);
+    }
+
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelPartition(@PathVariable String jobId) {
+        return clusterService.cancelPartition(jobId)
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("job_id", jobId)) : unknownJob(jobId);
+    }
+
+    @GetMapping("/jobs/{jobId}/graph")
+    public ResponseEntity<Map<String, Object>> partitionGraph(@PathVariable String jobId) {
+        Map<String, Object> graph = clusterService.partitionGraph(jobId);
+        return graph != null ? ResponseEntity.ok(graph) : unknownJob(jobId);
+    }
+
+    private static ResponseEntity<Map<String, Object>> unknownJob(String jobId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No crawl job " + jobId));
+    }
+}
@@ -0,0 +1,52 @@
+package com.info6205.webcrawler.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.info6205.webcrawler.service.CrawlEventStream;
+
+/**
+ * Frames crawl events for the response body, either as server-sent events
+ * ({@code event:} and {@code data:} lines) or as newline-delimited JSON with
+ * the event name in an {@code event} field.
+ */
+class CrawlEventWriter implements CrawlEventStream.Sink {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final OutputStream out;
+    private final ObjectMapper objectMapper;
+    private final boolean ndjson;
+
+    CrawlEventWriter(OutputStream out, ObjectMapper objectMapper, boolean ndjson) {
+        this.out = out;
+        this.objectMapper = objectMapper;
+        this.ndjson = ndjson;
+    }
+
+    @Override
+    public void send(String event, Map<String, Object> data) throws IOException {
+        if (ndjson) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("event", event);
+            line.putAll(data);
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write(NEWLINE);
+        } else {
+            out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+            // Jackson escapes line breaks in strings, so the JSON stays on one data line
+            out.write(objectMapper.writeValueAsBytes(data));
+            out.write(NEWLINE);
+            out.write(NEWLINE);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -1,37 +1,165 @@
 package com.info6205.webcrawler.controller;
 
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.info6205.webcrawler.service.Neo4jService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.info6205.webcrawler.service.CrawlEventStream;
+import com.info6205.webcrawler.service.CrawlJob;
+import com.info6205.webcrawler.service.GraphStore;
 import com.info6205.webcrawler.service.WebCrawlerService;
 
 @RestController
 @RequestMapping("/api/crawler")
 public class WebCrawlerController {
 
+    private static final Logger logger = LogManager.getLogger(WebCrawlerController.class);
+
     private final WebCrawlerService crawlerService;
-    private final Neo4jService neo4jService;
+    private final GraphStore graphStore;
+    private final ObjectMapper objectMapper;
 
-    public WebCrawlerController(WebCrawlerService crawlerService, Neo4jService neo4jService) {
+    public WebCrawlerController(WebCrawlerService crawlerService, GraphStore graphStore, ObjectMapper objectMapper) {
         this.crawlerService = crawlerService;
-        this.neo4jService = neo4jService;
+        this.graphStore = graphStore;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Queues a crawl and answers at once with its job id; progress and the
+     * ranking are under {@code /jobs/{jobId}}.
+     */
     @PostMapping("/start")
     public ResponseEntity<Map<String, Object>> startCrawl(@RequestParam String startUrl) {
+        CrawlJob job = crawlerService.submitCrawl(startUrl);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toStatus());
+    }
+
+    @PostMapping("/resume")
+    public ResponseEntity<Map<String, Object>> resumeCrawl(@RequestParam(required = false) String jobId) {
         try {
-            Map<String, Object> result = crawlerService.startCrawl(startUrl);
-            System.out.println(result);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            System.out.println(e);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(crawlerService.submitResume(jobId).toStatus());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         }
-        return null;
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<Map<String, Object>>> jobs() {
+        return ResponseEntity.ok(crawlerService.getJobs().stream().map(CrawlJob::toStatus).collect(Collectors.toList()));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> jobStatus(@PathVariable String jobId) {
+        CrawlJob job = crawlerService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job.toStatus()) : unknownJob(jobId);
+    }
+
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String jobId) {
+        CrawlJob job = crawlerService.getJob(jobId);
+        if (job == null) {
+            return unknownJob(jobId);
+        }
+        if (!crawlerService.cancelJob(jobId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(job.toStatus());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toStatus());
+    }
+
+    /**
+     * The ranking of a finished job, or its status with 409 while it has
+     * none yet.
+     */
+    @GetMapping("/jobs/{jobId}/results")
+    public ResponseEntity<Map<String, Object>> jobResults(@PathVariable String jobId) {
+        CrawlJob job = crawlerService.getJob(jobId);
+        if (job == null) {
+            return unknownJob(jobId);
+        }
+        Map<String, Object> result = job.getResult();
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.status(HttpStatus.CONFLICT).body(job.toStatus());
+    }
+
+    /**
+     * Streams a job's events as they happen, then its ranking row by row;
+     * see {@link CrawlEventStream#writeTo}. Server-sent events by default,
+     * NDJSON with {@code format=ndjson} or an {@code application/x-ndjson}
+     * Accept header.
+     */
+    @GetMapping("/jobs/{jobId}/events")
+    public ResponseEntity<StreamingResponseBody> jobEvents(@PathVariable String jobId,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+            throws JsonProcessingException {
+        CrawlEventStream stream = crawlerService.openEventStream(jobId);
+        if (stream == null) {
+            byte[] error = objectMapper.writeValueAsBytes(unknownJob(jobId).getBody());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write(error));
+        }
+        boolean ndjson = format != null ? "ndjson".equalsIgnoreCase(format)
+                : accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        StreamingResponseBody body = out -> {
+            try (stream) {
+                stream.writeTo(new CrawlEventWriter(out, objectMapper, ndjson));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while streaming events of crawl job {}", jobId);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    /**
+     * A page of the last computed ranking, of job {@code jobId} or else of
+     * the latest crawl ranked, served from memory; 404 if nothing has been
+     * ranked yet.
+     */
+    @GetMapping("/ranks")
+    public ResponseEntity<Map<String, Object>> ranking(@RequestParam(required = false) String jobId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "0") double minRank) {
+        Map<String, Object> page = crawlerService.getRankingPage(jobId, offset, limit, minRank);
+        return page != null ? ResponseEntity.ok(page)
+                : ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No ranking computed yet"));
+    }
+
+    @GetMapping("/ranks/interim")
+    public ResponseEntity<Map<String, Object>> interimRanking(@RequestParam(required = false) String jobId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(jobId != null
+                ? crawlerService.getInterimRanking(jobId, limit) : crawlerService.getInterimRanking(limit));
+    }
+
+    @GetMapping("/stats/graph-writes")
+    public ResponseEntity<Map<String, Object>> graphWriteStats() {
+        return ResponseEntity.ok(crawlerService.getGraphWriteStats());
+    }
+
+    private static ResponseEntity<Map<String, Object>> unknownJob(String jobId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No crawl job " + jobId));
     }
 }
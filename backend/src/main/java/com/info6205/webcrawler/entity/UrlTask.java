@@ -1,12 +1,18 @@
 package com.info6205.webcrawler.entity;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 public class UrlTask {
 
     private final String url;
     private final int depth;
     private final int priority;
 
-    public UrlTask(String url, int depth, int priority) {
+    // Tasks travel as JSON between the nodes of a distributed crawl
+    @JsonCreator
+    public UrlTask(@JsonProperty("url") String url, @JsonProperty("depth") int depth,
+            @JsonProperty("priority") int priority) {
         this.url = url;
         this.depth = depth;
         this.priority = priority;
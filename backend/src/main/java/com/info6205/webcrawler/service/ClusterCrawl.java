@@ -0,0 +1,148 @@
+package com.info6205.webcrawler.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import com.info6205.webcrawler.service.pagerank.Ranking;
+
+/**
+ * A distributed crawl as its coordinator sees it: the status of the whole
+ * crawl, the last state each node reported, their counters summed up and,
+ * once every node has finished, the ranking of all their pages together.
+ * Every node runs its share as a {@link CrawlJob} with the same id.
+ */
+public class ClusterCrawl {
+
+    // Counters of the node states that are summed over the cluster
+    private static final List<String> TOTALS = List.of("urls_crawled", "urls_queued", "fetches_in_flight",
+            "links_forwarded", "links_received", "links_pending");
+
+    private final String id;
+    private final String startUrl;
+    private final List<String> nodes;
+    private final Instant createdAt = Instant.now();
+    private volatile CrawlJob.Status status = CrawlJob.Status.QUEUED;
+    private volatile Instant finishedAt;
+    private volatile boolean cancelRequested;
+    private volatile Map<String, Map<String, Object>> nodeStates = Map.of();
+    private volatile Map<String, Object> result;
+    private volatile Ranking ranking;
+    private volatile Throwable failure;
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    ClusterCrawl(String id, String startUrl, List<String> nodes) {
+        this.id = id;
+        this.startUrl = startUrl;
+        this.nodes = nodes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStartUrl() {
+        return startUrl;
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public CrawlJob.Status getStatus() {
+        return status;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * The ranking once the crawl has finished, otherwise null.
+     */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    public Ranking getRanking() {
+        return ranking;
+    }
+
+    /**
+     * Waits for the crawl to finish and returns its result.
+     *
+     * @throws IllegalStateException if the crawl failed
+     */
+    public Map<String, Object> awaitResult() throws InterruptedException {
+        finished.await();
+        if (status == CrawlJob.Status.FAILED) {
+            throw new IllegalStateException("Distributed crawl " + id + " failed: " + failure, failure);
+        }
+        return result;
+    }
+
+    /**
+     * Id, status, each node's last reported state and the cluster totals.
+     */
+    public Map<String, Object> toStatus() {
+        Map<String, Map<String, Object>> states = nodeStates;
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("job_id", id);
+        fields.put("status", status.name().toLowerCase(Locale.ROOT));
+        fields.put("start_url", startUrl);
+        fields.put("created_at", createdAt.toString());
+        fields.put("finished_at", finishedAt != null ? finishedAt.toString() : null);
+        fields.put("totals", totals(states));
+        fields.put("nodes", states);
+        if (failure != null) {
+            fields.put("error", failure.toString());
+        }
+        return fields;
+    }
+
+    boolean cancel() {
+        if (status.isFinished()) {
+            return false;
+        }
+        cancelRequested = true;
+        return true;
+    }
+
+    void markRunning() {
+        status = CrawlJob.Status.RUNNING;
+    }
+
+    void setNodeStates(Map<String, Map<String, Object>> states) {
+        nodeStates = states;
+    }
+
+    Map<String, Map<String, Object>> getNodeStates() {
+        return nodeStates;
+    }
+
+    void finish(CrawlJob.Status finalStatus, Map<String, Object> finalResult, Ranking finalRanking, Throwable cause) {
+        result = finalResult;
+        ranking = finalRanking;
+        failure = cause;
+        finishedAt = Instant.now();
+        status = finalStatus;
+        finished.countDown();
+    }
+
+    static Map<String, Object> totals(Map<String, Map<String, Object>> states) {
+        Map<String, Object> totals = new LinkedHashMap<>();
+        for (String counter : TOTALS) {
+            long sum = 0;
+            for (Map<String, Object> state : states.values()) {
+                if (state.get(counter) instanceof Number number) {
+                    sum += number.longValue();
+                }
+            }
+            totals.put(counter, sum);
+        }
+        return totals;
+    }
+}
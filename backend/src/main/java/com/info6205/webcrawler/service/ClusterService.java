@@ -0,0 +1,413 @@
+package com.info6205.webcrawler.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.cluster.ClusterTransport;
+import com.info6205.webcrawler.service.cluster.CrawlPartition;
+import com.info6205.webcrawler.service.cluster.HashRing;
+import com.info6205.webcrawler.service.cluster.HttpClusterTransport;
+import com.info6205.webcrawler.service.cluster.LinkForwarder;
+import com.info6205.webcrawler.service.frontier.HostScheduler;
+import com.info6205.webcrawler.service.pagerank.PageRankResult;
+import com.info6205.webcrawler.service.pagerank.Ranking;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Distributed crawling over several instances of this application, listed
+ * in {@code crawler.cluster.nodes}. Hosts are spread over the nodes by a
+ * {@link HashRing}; each node crawls its own hosts as a {@link CrawlJob}
+ * with its own frontier and seen-set, and forwards the links it finds on
+ * other nodes' hosts to their owners in batches.
+ *
+ * <p>Whichever node a distributed crawl is started on coordinates it. It
+ * starts the crawl on every node and polls their states. The crawl has
+ * ended when two polls in a row find every node idle, as many links
+ * received as forwarded, and no counter changed in between. It then stops
+ * the nodes, merges their graphs and ranks them, and meanwhile sums the
+ * nodes' counters for its status.
+ */
+@Service
+public class ClusterService {
+
+    private static final Logger logger = LogManager.getLogger(ClusterService.class);
+
+    private final WebCrawlerService crawlerService;
+    private final PageRankCalculator pageRankCalculator;
+
+    // Base URLs of all nodes, this one included, e.g. http://10.0.0.1:8080; empty to crawl on this node alone
+    @Value("${crawler.cluster.nodes:}")
+    private String clusterNodes = "";
+
+    // This node's base URL, as written in crawler.cluster.nodes
+    @Value("${crawler.cluster.self:}")
+    private String self = "";
+
+    // Points per node on the hash ring; more spread the hosts more evenly
+    @Value("${crawler.cluster.virtualNodes:64}")
+    private int virtualNodes = 64;
+
+    // Links forwarded to another node in one request
+    @Value("${crawler.cluster.batchSize:500}")
+    private int batchSize = 500;
+
+    @Value("${crawler.cluster.flushIntervalMs:200}")
+    private long flushIntervalMs = 200;
+
+    // How often the coordinator polls the nodes' states
+    @Value("${crawler.cluster.pollIntervalMs:500}")
+    private long pollIntervalMs = 500;
+
+    // A node that does not answer for this long fails the crawl
+    @Value("${crawler.cluster.nodeTimeoutMs:30000}")
+    private long nodeTimeoutMs = 30000;
+
+    private volatile HashRing ring;
+    private volatile ClusterTransport transport;
+    private final Map<String, ClusterCrawl> crawls = new ConcurrentHashMap<>();
+    private ExecutorService coordinators;
+
+    public ClusterService(WebCrawlerService crawlerService, PageRankCalculator pageRankCalculator) {
+        this.crawlerService = crawlerService;
+        this.pageRankCalculator = pageRankCalculator;
+    }
+
+    public boolean isEnabled() {
+        return !clusterNodes.isBlank();
+    }
+
+    /**
+     * Starts a crawl from {@code startUrl} on every node, coordinated by
+     * this one, and returns at once.
+     *
+     * @throws IllegalStateException if no cluster is configured
+     */
+    public ClusterCrawl submitCrawl(String startUrl) {
+        HashRing nodes = ring();
+        ClusterCrawl crawl = new ClusterCrawl(UUID.randomUUID().toString(), startUrl, nodes.getNodes());
+        crawls.put(crawl.getId(), crawl);
+        coordinators().execute(() -> coordinate(crawl));
+        logger.info("Started distributed crawl {} of {} on {} nodes", crawl.getId(), startUrl,
+                nodes.getNodes().size());
+        return crawl;
+    }
+
+    public ClusterCrawl getCrawl(String jobId) {
+        return crawls.get(jobId);
+    }
+
+    public boolean cancelCrawl(String jobId) {
+        ClusterCrawl crawl = crawls.get(jobId);
+        return crawl != null && crawl.cancel();
+    }
+
+    /**
+     * Starts this node's share of crawl {@code jobId}, unless it already
+     * runs here.
+     *
+     * @throws IllegalStateException if no cluster is configured
+     */
+    public synchronized CrawlJob startPartition(String jobId, String startUrl) {
+        CrawlJob job = crawlerService.getJob(jobId);
+        if (job != null) {
+            return job;
+        }
+        HashRing nodes = ring();
+        // The coordinator ranks on this node's pages alone, so they are kept apart
+        job = new CrawlJob(jobId, startUrl, null, new InMemoryGraphStore(""));
+        job.partition = new CrawlPartition(nodes, self,
+                new LinkForwarder(jobId, transport(), batchSize, flushIntervalMs));
+        return crawlerService.submit(job);
+    }
+
+    /**
+     * Takes links forwarded by another node.
+     *
+     * @return false if crawl {@code jobId} has not started on this node yet
+     */
+    public boolean acceptLinks(String jobId, List<UrlTask> links) {
+        CrawlJob job = crawlerService.getJob(jobId);
+        return job != null && crawlerService.acceptForwardedLinks(job, links);
+    }
+
+    /**
+     * This node's progress on crawl {@code jobId} and its link counters, or
+     * null if it does not run here.
+     */
+    public Map<String, Object> partitionState(String jobId) {
+        CrawlJob job = crawlerService.getJob(jobId);
+        CrawlPartition partition = job != null ? job.partition : null;
+        if (partition == null) {
+            return null;
+        }
+        Map<String, Object> state = job.toStatus();
+        state.put("node", partition.getSelf());
+        HostScheduler scheduler = job.scheduler;
+        boolean idle = job.getStatus().isFinished() || job.getStatus() == CrawlJob.Status.RUNNING
+                && scheduler != null && partition.isIdle() && job.activeTasks.get() == 0 && scheduler.isEmpty();
+        state.put("idle", idle);
+        state.put("links_forwarded", partition.getForwarder().getSent());
+        state.put("links_received", partition.getReceived());
+        state.put("links_pending", partition.getForwarder().getPending());
+        return state;
+    }
+
+    public boolean stopPartition(String jobId) {
+        CrawlJob job = crawlerService.getJob(jobId);
+        if (job == null || job.partition == null) {
+            return false;
+        }
+        job.partition.stop();
+        return true;
+    }
+
+    public boolean cancelPartition(String jobId) {
+        CrawlJob job = crawlerService.getJob(jobId);
+        if (job == null || job.partition == null) {
+            return false;
+        }
+        crawlerService.cancelJob(jobId);
+        return true;
+    }
+
+    /**
+     * The pages this node crawled for {@code jobId} and their out-links, or
+     * null if it does not run here.
+     */
+    public Map<String, Object> partitionGraph(String jobId) {
+        CrawlJob job = crawlerService.getJob(jobId);
+        if (job == null || job.partition == null) {
+            return null;
+        }
+        Map<String, Object> graph = new LinkedHashMap<>();
+        graph.put("nodes", job.graph.getNodes().stream()
+                .filter(node -> !job.duplicateOf.containsKey(node)).toList());
+        graph.put("graph", WebCrawlerService.collapseDuplicates(job.graph.getGraph(), job.duplicateOf));
+        return graph;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        crawls.values().forEach(ClusterCrawl::cancel);
+        if (coordinators != null) {
+            coordinators.shutdownNow();
+        }
+    }
+
+    private void coordinate(ClusterCrawl crawl) {
+        crawl.markRunning();
+        List<String> nodes = crawl.getNodes();
+        try {
+            for (String node : nodes) {
+                transport().start(node, crawl.getId(), crawl.getStartUrl());
+            }
+            Map<String, Long> lastAnswers = new HashMap<>();
+            nodes.forEach(node -> lastAnswers.put(node, System.currentTimeMillis()));
+            List<Long> previous = null;
+            while (!crawl.isCancelRequested()) {
+                Thread.sleep(pollIntervalMs);
+                Map<String, Map<String, Object>> states = pollStates(crawl, lastAnswers);
+                crawl.setNodeStates(states);
+                List<Long> counters = quiescentCounters(nodes, states);
+                if (counters != null && counters.equals(previous)) {
+                    break;
+                }
+                previous = counters;
+            }
+
+            for (String node : nodes) {
+                try {
+                    if (crawl.isCancelRequested()) {
+                        transport().cancel(node, crawl.getId());
+                    } else {
+                        transport().stop(node, crawl.getId());
+                    }
+                } catch (IOException e) {
+                    logger.warn("Cannot end distributed crawl {} on {}: {}", crawl.getId(), node, e.getMessage());
+                }
+            }
+            awaitNodesFinished(crawl, lastAnswers);
+            rank(crawl);
+        } catch (IOException e) {
+            logger.error("Distributed crawl {} failed: {}", crawl.getId(), e.getMessage());
+            for (String node : nodes) {
+                try {
+                    transport().cancel(node, crawl.getId());
+                } catch (IOException ignored) {
+                    // The node is gone or never started
+                }
+            }
+            crawl.finish(CrawlJob.Status.FAILED, null, null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            crawl.finish(CrawlJob.Status.CANCELLED, null, null, e);
+        } catch (RuntimeException e) {
+            logger.error("Distributed crawl {} failed", crawl.getId(), e);
+            crawl.finish(CrawlJob.Status.FAILED, null, null, e);
+        }
+    }
+
+    /**
+     * The state of every node that answered.
+     *
+     * @throws IOException if a node has not answered for longer than
+     *                     {@code crawler.cluster.nodeTimeoutMs}
+     */
+    private Map<String, Map<String, Object>> pollStates(ClusterCrawl crawl, Map<String, Long> lastAnswers)
+            throws IOException {
+        Map<String, Map<String, Object>> states = new LinkedHashMap<>();
+        for (String node : crawl.getNodes()) {
+            try {
+                states.put(node, transport().state(node, crawl.getId()));
+                lastAnswers.put(node, System.currentTimeMillis());
+            } catch (IOException e) {
+                if (System.currentTimeMillis() - lastAnswers.get(node) > nodeTimeoutMs) {
+                    throw new IOException("Node " + node + " has not answered for " + nodeTimeoutMs + " ms", e);
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Every node's counters, in node order, if all nodes answered, are idle
+     * and have received as many links as were forwarded; otherwise null.
+     */
+    private static List<Long> quiescentCounters(List<String> nodes, Map<String, Map<String, Object>> states) {
+        List<Long> counters = new ArrayList<>();
+        long forwarded = 0;
+        long received = 0;
+        for (String node : nodes) {
+            Map<String, Object> state = states.get(node);
+            if (state == null || !Boolean.TRUE.equals(state.get("idle"))) {
+                return null;
+            }
+            long sent = counter(state, "links_forwarded");
+            long taken = counter(state, "links_received");
+            forwarded += sent;
+            received += taken;
+            counters.addAll(Arrays.asList(sent, taken, counter(state, "urls_crawled")));
+        }
+        return forwarded == received ? counters : null;
+    }
+
+    private void awaitNodesFinished(ClusterCrawl crawl, Map<String, Long> lastAnswers)
+            throws IOException, InterruptedException {
+        while (true) {
+            Map<String, Map<String, Object>> states = pollStates(crawl, lastAnswers);
+            crawl.setNodeStates(states);
+            boolean finished = states.size() == crawl.getNodes().size() && states.values().stream()
+                    .map(state -> String.valueOf(state.get("status")).toUpperCase(Locale.ROOT))
+                    .allMatch(status -> CrawlJob.Status.valueOf(status).isFinished());
+            if (finished) {
+                return;
+            }
+            Thread.sleep(pollIntervalMs);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rank(ClusterCrawl crawl) throws IOException {
+        // Every page is crawled by exactly one node, so the nodes' graphs do not overlap
+        Set<String> pages = new LinkedHashSet<>();
+        Map<String, List<String>> graph = new HashMap<>();
+        for (String node : crawl.getNodes()) {
+            Map<String, Object> part = transport().graph(node, crawl.getId());
+            pages.addAll((List<String>) part.get("nodes"));
+            graph.putAll((Map<String, List<String>>) part.get("graph"));
+        }
+        List<String> nodes = new ArrayList<>(pages);
+        Map<String, Double> pageRanks;
+        PageRankResult rankStats;
+        synchronized (pageRankCalculator) {
+            pageRanks = pageRankCalculator.computePageRank(nodes, graph);
+            rankStats = pageRankCalculator.getLastResult();
+        }
+        Ranking ranking = Ranking.build(crawl.getId(), pageRanks, nodes, graph);
+
+        boolean cancelled = crawl.isCancelRequested();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", cancelled ? "cancelled" : "success");
+        response.put("job_id", crawl.getId());
+        response.put("timestamp", ZonedDateTime.now().toString());
+        response.put("total_urls_crawled", nodes.size());
+        response.put("totals", ClusterCrawl.totals(crawl.getNodeStates()));
+        response.put("nodes", crawl.getNodeStates());
+        if (rankStats != null) {
+            response.put("pagerank_iterations", rankStats.getIterations());
+            response.put("pagerank_residual", rankStats.getResidual());
+        }
+        response.put("data", ranking.rows(0, ranking.size(), Double.NEGATIVE_INFINITY));
+        crawl.finish(cancelled ? CrawlJob.Status.CANCELLED : CrawlJob.Status.SUCCEEDED, response, ranking, null);
+    }
+
+    private static long counter(Map<String, Object> state, String name) {
+        return state.get(name) instanceof Number number ? number.longValue() : 0;
+    }
+
+    private HashRing ring() {
+        HashRing current = ring;
+        if (current == null) {
+            if (!isEnabled()) {
+                throw new IllegalStateException("No cluster configured in crawler.cluster.nodes");
+            }
+            List<String> nodes = Arrays.stream(clusterNodes.split(","))
+                    .map(String::trim)
+                    .filter(node -> !node.isEmpty())
+                    .toList();
+            if (!nodes.contains(self)) {
+                throw new IllegalStateException("crawler.cluster.self must be one of crawler.cluster.nodes");
+            }
+            current = new HashRing(nodes, virtualNodes);
+            ring = current;
+        }
+        return current;
+    }
+
+    private ClusterTransport transport() {
+        ClusterTransport current = transport;
+        if (current == null) {
+            synchronized (this) {
+                current = transport;
+                if (current == null) {
+                    current = new HttpClusterTransport(new ObjectMapper(), Duration.ofMillis(nodeTimeoutMs));
+                    transport = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private synchronized ExecutorService coordinators() {
+        if (coordinators == null) {
+            coordinators = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "cluster-coordinator");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return coordinators;
+    }
+}
@@ -0,0 +1,164 @@
+package com.info6205.webcrawler.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.frontier.FrontierSnapshot;
+import com.info6205.webcrawler.service.frontier.SeenSet;
+import com.info6205.webcrawler.service.frontier.SeenSets;
+
+/**
+ * Crawl state needed to continue a crawl: the tasks still to fetch (including
+ * the ones in flight), the seen-set and the counters.
+ *
+ * <p>A checkpoint is a directory holding a gzipped {@code state.bin} and any
+ * spilled frontier segments it refers to.
+ */
+final class CrawlCheckpoint {
+
+    static final String STATE_FILE = "state.bin";
+
+    private static final int MAGIC = 0x574b4350; // "WKCP"
+    private static final int FORMAT_VERSION = 1;
+
+    private final String startUrl;
+    private final int dispatched;
+    private final int urlsCrawled;
+    private final Instant createdAt;
+    private final FrontierSnapshot frontier;
+    private final SeenSet seen;
+    // Where the checkpoint was read from; spilled segments resolve against it
+    private Path directory;
+
+    CrawlCheckpoint(String startUrl, int dispatched, int urlsCrawled, Instant createdAt,
+            FrontierSnapshot frontier, SeenSet seen) {
+        this.startUrl = startUrl;
+        this.dispatched = dispatched;
+        this.urlsCrawled = urlsCrawled;
+        this.createdAt = createdAt;
+        this.frontier = frontier;
+        this.seen = seen;
+    }
+
+    String getStartUrl() {
+        return startUrl;
+    }
+
+    int getDispatched() {
+        return dispatched;
+    }
+
+    int getUrlsCrawled() {
+        return urlsCrawled;
+    }
+
+    Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    FrontierSnapshot getFrontier() {
+        return frontier;
+    }
+
+    SeenSet getSeen() {
+        return seen;
+    }
+
+    /**
+     * Feeds every saved task to {@code consumer}, in-flight ones first.
+     */
+    void forEachTask(FrontierSnapshot.TaskConsumer consumer) throws IOException {
+        frontier.forEach(directory, consumer);
+    }
+
+    /**
+     * Writes {@code state.bin} into {@code directory}, next to the segment
+     * files the frontier snapshot linked there.
+     */
+    void write(Path directory) throws IOException {
+        Path temp = directory.resolve(STATE_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(createdAt.toEpochMilli());
+            writeString(out, startUrl);
+            out.writeInt(dispatched);
+            out.writeInt(urlsCrawled);
+
+            out.writeInt(frontier.getTasks().size());
+            for (UrlTask task : frontier.getTasks()) {
+                out.writeInt(task.getDepth());
+                out.writeInt(task.getPriority());
+                writeString(out, task.getUrl());
+            }
+            out.writeInt(frontier.getSegments().size());
+            for (FrontierSnapshot.SegmentRef segment : frontier.getSegments()) {
+                writeString(out, segment.getFile());
+                out.writeInt(segment.getSkip());
+                out.writeInt(segment.getCount());
+            }
+
+            SeenSets.write(seen, out);
+        }
+        Files.move(temp, directory.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static CrawlCheckpoint read(Path directory) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(directory.resolve(STATE_FILE)))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a crawl checkpoint: " + directory);
+            }
+            Instant createdAt = Instant.ofEpochMilli(in.readLong());
+            String startUrl = readString(in);
+            int dispatched = in.readInt();
+            int urlsCrawled = in.readInt();
+
+            int taskCount = in.readInt();
+            List<UrlTask> tasks = new ArrayList<>(taskCount);
+            for (int i = 0; i < taskCount; i++) {
+                int depth = in.readInt();
+                int priority = in.readInt();
+                tasks.add(new UrlTask(readString(in), depth, priority));
+            }
+            int segmentCount = in.readInt();
+            List<FrontierSnapshot.SegmentRef> segments = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                segments.add(new FrontierSnapshot.SegmentRef(readString(in), in.readInt(), in.readInt()));
+            }
+
+            SeenSet seen = SeenSets.read(in);
+            CrawlCheckpoint checkpoint = new CrawlCheckpoint(startUrl, dispatched, urlsCrawled, createdAt,
+                    new FrontierSnapshot(tasks, segments), seen);
+            checkpoint.directory = directory;
+            return checkpoint;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,136 @@
+package com.info6205.webcrawler.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Directory of numbered crawl checkpoints.
+ *
+ * <p>A checkpoint is assembled in a staging directory and renamed into place
+ * once {@code state.bin} is complete, so a crash mid-write never replaces the
+ * last good checkpoint. Only the newest {@code keep} checkpoints are kept.
+ */
+final class CrawlCheckpointStore {
+
+    private static final Logger logger = LogManager.getLogger(CrawlCheckpointStore.class);
+
+    private static final String PREFIX = "checkpoint-";
+    private static final String STAGING_PREFIX = ".staging-";
+
+    private final Path root;
+    private final int keep;
+
+    CrawlCheckpointStore(Path root, int keep) {
+        this.root = root;
+        this.keep = Math.max(1, keep);
+    }
+
+    /**
+     * Creates an empty directory to assemble the next checkpoint in.
+     */
+    Path stage() throws IOException {
+        Files.createDirectories(root);
+        return Files.createTempDirectory(root, STAGING_PREFIX);
+    }
+
+    /**
+     * Writes {@code checkpoint} into {@code staging} and publishes it as the
+     * newest checkpoint.
+     */
+    Path commit(Path staging, CrawlCheckpoint checkpoint) throws IOException {
+        checkpoint.write(staging);
+        List<Path> existing = checkpoints();
+        long next = existing.isEmpty() ? 1 : sequenceOf(existing.get(existing.size() - 1)) + 1;
+        Path target = root.resolve(String.format("%s%012d", PREFIX, next));
+        Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+
+        existing.add(target);
+        for (int i = 0; i < existing.size() - keep; i++) {
+            delete(existing.get(i));
+        }
+        return target;
+    }
+
+    /**
+     * The newest checkpoint that can be read, or null if there is none.
+     */
+    CrawlCheckpoint loadLatest() {
+        List<Path> existing;
+        try {
+            existing = checkpoints();
+        } catch (IOException e) {
+            logger.error("Cannot list checkpoints in {}: {}", root, e.getMessage());
+            return null;
+        }
+        for (int i = existing.size() - 1; i >= 0; i--) {
+            try {
+                return CrawlCheckpoint.read(existing.get(i));
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable checkpoint {}: {}", existing.get(i), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * When the newest checkpoint was written, or null if there is none.
+     */
+    Instant latestCommitTime() {
+        try {
+            List<Path> existing = checkpoints();
+            return existing.isEmpty() ? null : Files.getLastModifiedTime(
+                    existing.get(existing.size() - 1).resolve(CrawlCheckpoint.STATE_FILE)).toInstant();
+        } catch (IOException e) {
+            logger.error("Cannot list checkpoints in {}: {}", root, e.getMessage());
+            return null;
+        }
+    }
+
+    void discard(Path staging) {
+        if (staging != null) {
+            delete(staging);
+        }
+    }
+
+    private List<Path> checkpoints() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> entries = Files.list(root)) {
+            List<Path> result = new ArrayList<>();
+            entries.filter(path -> path.getFileName().toString().startsWith(PREFIX))
+                    .filter(path -> Files.exists(path.resolve(CrawlCheckpoint.STATE_FILE)))
+                    .sorted(Comparator.comparingLong(CrawlCheckpointStore::sequenceOf))
+                    .forEach(result::add);
+            return result;
+        }
+    }
+
+    private static long sequenceOf(Path checkpoint) {
+        return Long.parseLong(checkpoint.getFileName().toString().substring(PREFIX.length()));
+    }
+
+    private static void delete(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Failed to delete checkpoint {}: {}", directory, e.getMessage());
+        }
+    }
+}
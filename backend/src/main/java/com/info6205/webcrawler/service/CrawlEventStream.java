@@ -0,0 +1,165 @@
+package com.info6205.webcrawler.service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.info6205.webcrawler.service.pagerank.Ranking;
+
+/**
+ * One client's feed of a {@link CrawlJob}: what the crawl does as it happens,
+ * throughput stats at a fixed interval, and once the job has finished its
+ * ranking, one row per event.
+ *
+ * <p>The crawl hands events over without blocking. A client that falls more
+ * than {@code capacity} events behind misses page events, counted as
+ * {@code events_dropped} in the stats, rather than slowing the crawl down.
+ * Events are written one at a time, so neither the feed nor the ranking is
+ * ever serialized as a whole.
+ */
+public class CrawlEventStream implements AutoCloseable {
+
+    /**
+     * Writes events to the client, in order, from a single thread.
+     */
+    public interface Sink {
+
+        void send(String event, Map<String, Object> data) throws IOException;
+
+        /**
+         * Called after stats, when the stream has caught up with the crawl,
+         * and every thousand ranking rows.
+         */
+        void flush() throws IOException;
+    }
+
+    static final int RANK_FLUSH_ROWS = 1000;
+
+    // Queued by the job when it finishes, to wake the writer up
+    private static final Event FINISHED = new Event("finished", Map.of());
+
+    private final CrawlJob job;
+    private final BlockingQueue<Event> queue;
+    private final long statsIntervalNanos;
+    private final AtomicLong dropped = new AtomicLong();
+
+    CrawlEventStream(CrawlJob job, int capacity, long statsIntervalMillis) {
+        this.job = job;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.statsIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, statsIntervalMillis));
+    }
+
+    void offer(String event, Map<String, Object> data) {
+        if (!queue.offer(new Event(event, data))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    void jobFinished() {
+        queue.offer(FINISHED);
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes the job's events to {@code sink} until it has finished, then its
+     * ranking. Returns at once with the ranking if it had already finished.
+     * The events are: {@code job} first, then {@code status}, {@code page},
+     * {@code edges} and {@code stats} while it runs, {@code finished},
+     * {@code summary} and one {@code rank} per page, and {@code end}.
+     */
+    public void writeTo(Sink sink) throws IOException, InterruptedException {
+        sink.send("job", job.toStatus());
+        sink.flush();
+        long startedAt = System.nanoTime();
+        long lastStatsAt = startedAt;
+        long lastCrawled = job.tracker.getUrlsCrawled();
+        while (true) {
+            long wait = lastStatsAt + statsIntervalNanos - System.nanoTime();
+            Event event = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+            if (event != null && event != FINISHED) {
+                sink.send(event.name, event.data);
+            }
+            long now = System.nanoTime();
+            if (now - lastStatsAt >= statsIntervalNanos) {
+                long crawled = job.tracker.getUrlsCrawled();
+                sink.send("stats", stats(crawled, (crawled - lastCrawled) * 1e9 / (now - lastStatsAt), now - startedAt));
+                lastStatsAt = now;
+                lastCrawled = crawled;
+                sink.flush();
+            }
+            // Status before queue: events are published before the job finishes
+            boolean finished = job.getStatus().isFinished();
+            if (queue.isEmpty()) {
+                if (finished) {
+                    break;
+                }
+                sink.flush();
+            }
+        }
+        long now = System.nanoTime();
+        long crawled = job.tracker.getUrlsCrawled();
+        sink.send("stats", stats(crawled, (crawled - lastCrawled) * 1e9 / Math.max(1, now - lastStatsAt),
+                now - startedAt));
+        sink.send("finished", job.toStatus());
+        writeRanking(sink);
+    }
+
+    @Override
+    public void close() {
+        job.closeEventStream(this);
+    }
+
+    private void writeRanking(Sink sink) throws IOException {
+        Map<String, Object> result = job.getResult();
+        Ranking ranking = job.getRanking();
+        int ranked = 0;
+        if (result != null) {
+            Map<String, Object> summary = new LinkedHashMap<>(result);
+            summary.remove("data");
+            sink.send("summary", summary);
+        }
+        if (result != null && ranking != null) {
+            // All of it, even when crawler.ranking.responseLimit cut the response short
+            for (int node : ranking.top(ranking.size())) {
+                Map<String, Object> rank = ranking.row(node);
+                rank.put("position", ++ranked);
+                sink.send("rank", rank);
+                if (ranked % RANK_FLUSH_ROWS == 0) {
+                    sink.flush();
+                }
+            }
+        }
+        sink.send("end", Map.of("job_id", job.getId(), "ranked", ranked));
+        sink.flush();
+    }
+
+    private Map<String, Object> stats(long crawled, double pagesPerSecond, long elapsedNanos) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("urls_crawled", crawled);
+        stats.put("pages_per_second", pagesPerSecond);
+        Map<String, Object> status = job.toStatus();
+        stats.put("urls_queued", status.get("urls_queued"));
+        stats.put("fetches_in_flight", status.get("fetches_in_flight"));
+        stats.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        stats.put("events_dropped", dropped.get());
+        return stats;
+    }
+
+    private static final class Event {
+
+        private final String name;
+        private final Map<String, Object> data;
+
+        private Event(String name, Map<String, Object> data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
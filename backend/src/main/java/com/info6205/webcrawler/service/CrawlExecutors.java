@@ -0,0 +1,70 @@
+package com.info6205.webcrawler.service;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Creates the executor that runs URL tasks for one crawl.
+ *
+ * <p>{@code fixed} is the original fixed-size platform thread pool.
+ * {@code virtual} runs every task on its own virtual thread, so a fetch
+ * blocked on a socket only holds a small heap-allocated stack. How many
+ * fetches run at once is then capped by the crawler's in-flight permits, not
+ * by the pool size. The project still targets Java 17, so the virtual
+ * executor is looked up reflectively. On a pre-21 runtime it falls back to
+ * an unbounded thread-per-task pool with the same permit-based limit.
+ */
+final class CrawlExecutors {
+
+    private static final Logger logger = LogManager.getLogger(CrawlExecutors.class);
+
+    enum Mode {
+        FIXED, VIRTUAL
+    }
+
+    private CrawlExecutors() {
+    }
+
+    static Mode parseMode(String mode) {
+        return mode == null || mode.isBlank() ? Mode.FIXED : Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    static ExecutorService create(Mode mode, int threadPoolSize) {
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+            if (virtual != null) {
+                return virtual;
+            }
+            logger.warn("Virtual threads need Java 21+, running {} on a cached platform thread pool",
+                    Runtime.version());
+            return Executors.newCachedThreadPool();
+        }
+        return Executors.newFixedThreadPool(threadPoolSize);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        Method factory = findVirtualFactory();
+        if (factory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Could not create virtual thread executor: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Method findVirtualFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
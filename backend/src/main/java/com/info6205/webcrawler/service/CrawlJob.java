@@ -0,0 +1,299 @@
+package com.info6205.webcrawler.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.info6205.webcrawler.service.cluster.CrawlPartition;
+import com.info6205.webcrawler.service.dedup.SimHashIndex;
+import com.info6205.webcrawler.service.fetch.ContentTypeLearner;
+import com.info6205.webcrawler.service.fetch.Fetcher;
+import com.info6205.webcrawler.service.frontier.Frontier;
+import com.info6205.webcrawler.service.frontier.HostScheduler;
+import com.info6205.webcrawler.service.frontier.SeenSet;
+import com.info6205.webcrawler.service.pagerank.IncrementalPageRank;
+import com.info6205.webcrawler.service.pagerank.Ranking;
+import com.info6205.webcrawler.service.parse.LinkExtractor;
+import com.info6205.webcrawler.service.robots.RobotsCache;
+import com.info6205.webcrawler.service.throttle.AdaptiveThrottle;
+import com.info6205.webcrawler.service.url.UrlCanonicalizer;
+
+/**
+ * One crawl run by {@link WebCrawlerService}: its id, status and result, and
+ * all the state the crawl works on. Crawls running side by side share only
+ * the fetch budget, the robots.txt cache and the graph store they write to.
+ *
+ * <p>A crawl is ranked on the pages it stored in the graph store. When other
+ * crawls wrote to the store while it ran, or it was not cleared first, the
+ * ranking keeps only those pages; a page both crawls fetched is in both. The
+ * ranks kept in the store are those of the last crawl ranked. A resumed
+ * crawl continues the graph kept in the store, which a new crawl does not
+ * clear while there is a checkpoint to resume from.
+ */
+public class CrawlJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        CANCELLED,
+        FAILED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    // URLs of each report list shown in the status
+    private static final int REPORTED_URLS = 100;
+
+    private final String id;
+    private final String startUrl;
+    private final Instant createdAt = Instant.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile boolean cancelRequested;
+    private volatile Map<String, Object> result;
+    // Set when the job's ranking is computed
+    volatile Ranking ranking;
+    private volatile Throwable failure;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final List<CrawlEventStream> eventStreams = new CopyOnWriteArrayList<>();
+
+    // Set when the job is created
+    final CrawlCheckpoint checkpoint;
+    // Graph only this job writes to, for a node's share of a distributed crawl; null otherwise
+    final GraphStore graph;
+    final CrawlerPerformanceTracker tracker = new CrawlerPerformanceTracker();
+
+    // Set up by WebCrawlerService when the job starts running
+    volatile HostScheduler scheduler;
+    volatile Frontier frontier;
+    // URLs already queued or fetched; a link is queued at most once per crawl
+    volatile SeenSet visitedUrls;
+    // Links as written in pages, before canonicalization, to report fetches saved
+    volatile SeenSet distinctRawLinks;
+    volatile long seenBaseline;
+    volatile UrlCanonicalizer canonicalizer;
+    volatile IncrementalPageRank incrementalRanker;
+    volatile ExecutorService threadPool;
+    volatile Fetcher fetcher;
+    volatile LinkExtractor linkExtractor;
+    volatile ContentTypeLearner contentTypeLearner;
+    volatile SimHashIndex simHashIndex;
+    volatile RobotsCache robots;
+    volatile CrawlCheckpointStore checkpointStore;
+    // Set before the job runs when it is one node's share of a distributed crawl
+    volatile CrawlPartition partition;
+    // Set when crawler.adaptive.enabled adapts the job's concurrency and rates
+    volatile AdaptiveThrottle throttle;
+    // Set when another crawl wrote to the graph store while this one ran, or it held older pages
+    volatile boolean sharedGraph;
+    // Pages this job wrote to the graph store
+    volatile SeenSet storedPages;
+
+    final Map<String, String> duplicateOf = new ConcurrentHashMap<>();
+    // URLs the classifier put on its report lists, see UrlClassifier.Record
+    final Set<String> blacklistedUrls = ConcurrentHashMap.newKeySet();
+    final Set<String> lowPriorityUrls = ConcurrentHashMap.newKeySet();
+    // Hosts whose Crawl-delay was passed to the scheduler
+    final Set<String> crawlDelayHosts = ConcurrentHashMap.newKeySet();
+    final AtomicInteger dispatched = new AtomicInteger();
+    final AtomicInteger activeTasks = new AtomicInteger();
+    private final Object tasksDone = new Object();
+    final AtomicLong pagesFingerprinted = new AtomicLong();
+    final AtomicLong nearDuplicates = new AtomicLong();
+    final AtomicLong downloadsRejected = new AtomicLong();
+    final AtomicLong nonHtmlSkipped = new AtomicLong();
+    final AtomicLong robotsDisallowed = new AtomicLong();
+    final ReadWriteLock enqueueLock = new ReentrantReadWriteLock();
+
+    public CrawlJob(String id, String startUrl) {
+        this(id, startUrl, null, null);
+    }
+
+    CrawlJob(String id, String startUrl, CrawlCheckpoint checkpoint, GraphStore graph) {
+        this.id = id;
+        this.startUrl = startUrl;
+        this.checkpoint = checkpoint;
+        this.graph = graph;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStartUrl() {
+        return startUrl;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * Asks the crawl to stop dispatching. It then ranks the pages fetched so
+     * far and finishes as {@link Status#CANCELLED}. Returns false if it had
+     * already finished.
+     */
+    public boolean cancel() {
+        if (status.isFinished()) {
+            return false;
+        }
+        cancelRequested = true;
+        return true;
+    }
+
+    /**
+     * The ranking response, or null until the job has finished with one.
+     * Cancelled jobs have the ranking of what they fetched.
+     */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    /**
+     * The ranking behind {@link #getResult()}, or null until it is computed.
+     */
+    public Ranking getRanking() {
+        return ranking;
+    }
+
+    /**
+     * Waits for the job to finish and returns its result.
+     *
+     * @throws IllegalStateException if the crawl failed
+     */
+    public Map<String, Object> awaitResult() throws InterruptedException {
+        finished.await();
+        if (status == Status.FAILED) {
+            throw new IllegalStateException("Crawl job " + id + " failed: " + failure, failure);
+        }
+        return result;
+    }
+
+    /**
+     * Counts a task taken off {@link #activeTasks} once its page is processed
+     * or has failed.
+     */
+    void taskDone() {
+        if (activeTasks.decrementAndGet() == 0) {
+            synchronized (tasksDone) {
+                tasksDone.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until every dispatched task is done.
+     */
+    void awaitTasksDone() throws InterruptedException {
+        synchronized (tasksDone) {
+            while (activeTasks.get() > 0) {
+                tasksDone.wait();
+            }
+        }
+    }
+
+    /**
+     * Id, status, timestamps and progress counters, for the job endpoints.
+     */
+    public Map<String, Object> toStatus() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("job_id", id);
+        fields.put("status", status.name().toLowerCase(Locale.ROOT));
+        fields.put("start_url", startUrl);
+        fields.put("created_at", createdAt.toString());
+        fields.put("started_at", startedAt != null ? startedAt.toString() : null);
+        fields.put("finished_at", finishedAt != null ? finishedAt.toString() : null);
+        fields.put("urls_crawled", tracker.getUrlsCrawled());
+        HostScheduler currentScheduler = scheduler;
+        fields.put("urls_queued", currentScheduler != null ? currentScheduler.size() : 0);
+        fields.put("fetches_in_flight", activeTasks.get());
+        AdaptiveThrottle currentThrottle = throttle;
+        if (currentThrottle != null) {
+            fields.put("fetch_limit", currentThrottle.getConcurrency());
+            fields.put("hosts_throttled", currentThrottle.getThrottledHosts());
+        }
+        fields.put("blacklisted_urls", reported(blacklistedUrls));
+        fields.put("low_priority_urls", reported(lowPriorityUrls));
+        if (failure != null) {
+            fields.put("error", failure.toString());
+        }
+        return fields;
+    }
+
+    /**
+     * Count of a report list and, sorted, its first {@value #REPORTED_URLS}
+     * URLs.
+     */
+    private static Map<String, Object> reported(Set<String> urls) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("count", urls.size());
+        report.put("urls", urls.stream().sorted().limit(REPORTED_URLS).toList());
+        return report;
+    }
+
+    /**
+     * Starts a feed of this job's events; close it when the client is gone.
+     */
+    CrawlEventStream openEventStream(int capacity, long statsIntervalMillis) {
+        CrawlEventStream stream = new CrawlEventStream(this, capacity, statsIntervalMillis);
+        eventStreams.add(stream);
+        return stream;
+    }
+
+    void closeEventStream(CrawlEventStream stream) {
+        eventStreams.remove(stream);
+    }
+
+    /**
+     * True if anyone is listening, so events need not be built otherwise.
+     */
+    boolean hasEventStreams() {
+        return !eventStreams.isEmpty();
+    }
+
+    void publish(String event, Map<String, Object> data) {
+        for (CrawlEventStream stream : eventStreams) {
+            stream.offer(event, data);
+        }
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+        if (hasEventStreams()) {
+            publish("status", toStatus());
+        }
+    }
+
+    void finish(Status finalStatus, Map<String, Object> finalResult, Throwable cause) {
+        result = finalResult;
+        failure = cause;
+        finishedAt = Instant.now();
+        status = finalStatus;
+        finished.countDown();
+        eventStreams.forEach(CrawlEventStream::jobFinished);
+    }
+}
@@ -0,0 +1,220 @@
+package com.info6205.webcrawler.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import com.info6205.webcrawler.service.frontier.HostScheduler;
+import com.info6205.webcrawler.service.throttle.AdaptiveThrottle;
+import com.info6205.webcrawler.service.throttle.AimdLimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Live instruments of all crawl jobs, published through Actuator (for
+ * example at {@code /actuator/prometheus}). Each stage of a page has a
+ * latency timer with a percentile histogram: the wait for a host's rate
+ * limit, the fetch, the parse, link classification and the graph write.
+ * Frontier depth, fetches in flight and running jobs are gauges, and errors
+ * are counted by type. Each move of an adaptive throttle is counted by
+ * scope, control and direction.
+ *
+ * <p>Heap is read by a background sampler, which also keeps the peak of
+ * every running job's {@link CrawlerPerformanceTracker}, rather than on
+ * every page.
+ */
+public class CrawlMetrics {
+
+    final Timer rateLimitWait;
+    final Timer fetch;
+    final Timer parse;
+    final Timer classify;
+    final Timer graphWrite;
+    final Counter bytesDownloaded;
+    final Counter pagesFetched;
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+    private final Map<String, Counter> adjustments = new ConcurrentHashMap<>();
+    private final AtomicLong heapUsed = new AtomicLong();
+    private ScheduledExecutorService heapSampler;
+
+    public CrawlMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.rateLimitWait = stageTimer("crawler.ratelimit.wait", "Time a fetchable task waited for its host's rate limit");
+        this.fetch = stageTimer("crawler.fetch", "Time from sending a request to having the page, or failing");
+        this.parse = stageTimer("crawler.parse", "Time to parse a page and extract its links");
+        this.classify = stageTimer("crawler.classify", "Time to prioritize a page's links");
+        this.graphWrite = stageTimer("crawler.graph.write", "Time to write or queue a page's links for the graph");
+        this.bytesDownloaded = Counter.builder("crawler.bytes.downloaded")
+                .baseUnit("bytes")
+                .description("Response bytes downloaded")
+                .register(registry);
+        this.pagesFetched = Counter.builder("crawler.pages.fetched")
+                .description("Pages fetched, whatever their status")
+                .register(registry);
+    }
+
+    /**
+     * Publishes the frontier depth, fetches in flight and running crawls of
+     * {@code jobs}, read whenever the registry is scraped.
+     */
+    void bindJobs(Supplier<Collection<CrawlJob>> jobs) {
+        Gauge.builder("crawler.frontier.depth", () -> frontierDepth(jobs.get()))
+                .description("URLs queued across running crawls")
+                .register(registry);
+        Gauge.builder("crawler.tasks.inflight", () -> tasksInFlight(jobs.get()))
+                .description("Fetches and page processing in flight across running crawls")
+                .register(registry);
+        Gauge.builder("crawler.jobs.running", () -> jobs.get().stream()
+                        .filter(job -> job.getStatus() == CrawlJob.Status.RUNNING).count())
+                .register(registry);
+        Gauge.builder("crawler.adaptive.inflight.limit", () -> throttled(jobs.get(), AdaptiveThrottle::getConcurrency))
+                .description("Fetches in flight the adaptive throttles of running crawls allow")
+                .register(registry);
+        Gauge.builder("crawler.adaptive.hosts.throttled", () -> throttled(jobs.get(), AdaptiveThrottle::getThrottledHosts))
+                .description("Hosts held below their starting concurrency or rate")
+                .register(registry);
+        Gauge.builder("crawler.heap.sampled", heapUsed, AtomicLong::get)
+                .baseUnit("bytes")
+                .description("Heap in use at the last sample")
+                .register(registry);
+    }
+
+    /**
+     * Samples the heap every {@code intervalMillis} and feeds it to the
+     * trackers of the running {@code jobs}.
+     */
+    synchronized void startHeapSampler(long intervalMillis, Supplier<Collection<CrawlJob>> jobs) {
+        if (heapSampler != null || intervalMillis <= 0) {
+            return;
+        }
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        heapSampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heapSampler.scheduleAtFixedRate(() -> {
+            long used = memory.getHeapMemoryUsage().getUsed();
+            heapUsed.set(used);
+            for (CrawlJob job : jobs.get()) {
+                if (job.getStatus() == CrawlJob.Status.RUNNING) {
+                    job.tracker.recordHeapUsed(used);
+                }
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void shutdown() {
+        if (heapSampler != null) {
+            heapSampler.shutdownNow();
+            heapSampler = null;
+        }
+    }
+
+    void recordError(String type) {
+        errors.computeIfAbsent(type, key -> Counter.builder("crawler.errors")
+                .tag("type", key)
+                .description("Failed fetches and pages, by type")
+                .register(registry)).increment();
+    }
+
+    /**
+     * Counts a fetch that failed without a response.
+     */
+    void recordFetchFailure(Throwable error) {
+        recordError(isTimeout(error) ? "timeout" : "network");
+    }
+
+    /**
+     * Counts a move of an adaptive throttle in {@code scope}, see
+     * {@link AdaptiveThrottle}.
+     */
+    void recordAdjustment(String scope, AimdLimit.Adjustment adjustment) {
+        String key = scope + ":" + adjustment;
+        adjustments.computeIfAbsent(key, ignored -> {
+            String[] parts = adjustment.name().toLowerCase(Locale.ROOT).split("_");
+            return Counter.builder("crawler.adaptive.adjustments")
+                    .tag("scope", scope)
+                    .tag("control", parts[0])
+                    .tag("direction", parts[1])
+                    .description("Moves of the adaptive concurrency and rate limits")
+                    .register(registry);
+        }).increment();
+    }
+
+    static boolean isTimeout(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof HttpTimeoutException || cause instanceof SocketTimeoutException
+                || cause instanceof TimeoutException;
+    }
+
+    /**
+     * Error type of an unsuccessful HTTP status.
+     */
+    static String statusErrorType(int status) {
+        if (status == 429) {
+            return "http_429";
+        }
+        if (status >= 500) {
+            return "http_5xx";
+        }
+        return status >= 400 ? "http_4xx" : "http_" + (status / 100) + "xx";
+    }
+
+    private Timer stageTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static double frontierDepth(Collection<CrawlJob> jobs) {
+        long total = 0;
+        for (CrawlJob job : jobs) {
+            HostScheduler scheduler = job.scheduler;
+            if (job.getStatus() == CrawlJob.Status.RUNNING && scheduler != null) {
+                total += scheduler.size();
+            }
+        }
+        return total;
+    }
+
+    private static double throttled(Collection<CrawlJob> jobs, ToIntFunction<AdaptiveThrottle> value) {
+        long total = 0;
+        for (CrawlJob job : jobs) {
+            AdaptiveThrottle throttle = job.throttle;
+            if (job.getStatus() == CrawlJob.Status.RUNNING && throttle != null) {
+                total += value.applyAsInt(throttle);
+            }
+        }
+        return total;
+    }
+
+    private static double tasksInFlight(Collection<CrawlJob> jobs) {
+        long total = 0;
+        for (CrawlJob job : jobs) {
+            if (job.getStatus() == CrawlJob.Status.RUNNING) {
+                total += job.activeTasks.get();
+            }
+        }
+        return total;
+    }
+}
@@ -3,28 +3,29 @@ package com.info6205.webcrawler.service;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
-import java.lang.management.MemoryMXBean;
-import java.lang.management.MemoryUsage;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.stereotype.Component;
 
-@Component
+/**
+ * Throughput and peak heap of one crawl job, logged when it ends and, if a
+ * path is given, appended to a metrics CSV. Live per-stage numbers are in {@link CrawlMetrics},
+ * whose heap sampler also feeds the peak here.
+ */
 public class CrawlerPerformanceTracker {
 
     private static final Logger logger = LogManager.getLogger(CrawlerPerformanceTracker.class);
-    private static final String CSV_FILE_PATH = "crawler_performance_metrics.csv";
 
     private Instant startTime;
     private Instant endTime;
     private final AtomicInteger urlsCrawled = new AtomicInteger(0);
-    private long peakMemoryUsed = 0;
+    private final AtomicLong peakMemoryUsed = new AtomicLong();
     private int threadPoolSize;
     private int maxDepth;
     private String startUrl;
@@ -35,24 +36,61 @@ public class CrawlerPerformanceTracker {
         this.startUrl = startUrl;
         this.urlsCrawled.set(0);
         this.startTime = Instant.now();
-        this.peakMemoryUsed = 0;
+        this.endTime = null;
+        this.peakMemoryUsed.set(0);
+        sampleHeap();
+    }
+
+    /**
+     * Carries the count over from a checkpoint when a crawl is resumed.
+     */
+    public void restoreUrlsCrawled(int count) {
+        urlsCrawled.set(count);
+    }
+
+    public int getUrlsCrawled() {
+        return urlsCrawled.get();
     }
 
     public void incrementUrlsCrawled() {
         urlsCrawled.incrementAndGet();
-        updateMemoryUsage();
     }
 
-    private void updateMemoryUsage() {
-        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
-        MemoryUsage heapUsage = memoryMXBean.getHeapMemoryUsage();
-        peakMemoryUsed = Math.max(peakMemoryUsed, heapUsage.getUsed());
+    /**
+     * Takes a heap sample into the peak; called by the heap sampler while
+     * the crawl runs.
+     */
+    public void recordHeapUsed(long bytes) {
+        peakMemoryUsed.accumulateAndGet(bytes, Math::max);
+    }
+
+    public long getPeakMemoryUsed() {
+        return peakMemoryUsed.get();
+    }
+
+    /**
+     * Time from the start of tracking to its end, or to now while the crawl
+     * runs.
+     */
+    public long getDurationMillis() {
+        Instant end = endTime != null ? endTime : Instant.now();
+        return startTime != null ? Duration.between(startTime, end).toMillis() : 0;
+    }
+
+    private void sampleHeap() {
+        recordHeapUsed(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
     }
 
-    public void endTracking() {
+    /**
+     * @param csvPath file a row is appended to, or null or blank for none
+     */
+    public void endTracking(String csvPath) {
         this.endTime = Instant.now();
+        sampleHeap();
         logPerformanceMetrics();
-        writeMetricsToCsv();
+        if (csvPath != null && !csvPath.isBlank()) {
+            writeMetricsToCsv(csvPath);
+        }
     }
 
     private void logPerformanceMetrics() {
@@ -66,14 +104,21 @@ public class CrawlerPerformanceTracker {
         logger.info("Total URLs Crawled: {}", urlsCrawled.get());
         logger.info("Total Crawl Duration: {} ms", duration);
         logger.info("URLs Crawled per Second: {:.2f}", urlsPerSecond);
-        logger.info("Peak Memory Used: {} MB", peakMemoryUsed / (1024 * 1024));
+        logger.info("Peak Memory Used: {} MB", peakMemoryUsed.get() / (1024 * 1024));
     }
 
-    private void writeMetricsToCsv() {
+    private void writeMetricsToCsv(String csvPath) {
         long duration = Duration.between(startTime, endTime).toMillis();
         double urlsPerSecond = (urlsCrawled.get() * 1000.0) / duration;
 
-        try (@SuppressWarnings("deprecation") CSVPrinter csvPrinter = new CSVPrinter(new FileWriter(CSV_FILE_PATH, true),
+        // Jobs finishing together append to the same file
+        synchronized (CrawlerPerformanceTracker.class) {
+            writeCsvRow(csvPath, duration, urlsPerSecond);
+        }
+    }
+
+    private void writeCsvRow(String csvPath, long duration, double urlsPerSecond) {
+        try (@SuppressWarnings("deprecation") CSVPrinter csvPrinter = new CSVPrinter(new FileWriter(csvPath, true),
                 CSVFormat.DEFAULT.withHeader(
                         "StartTimestamp",
                         "StartUrl",
@@ -93,7 +138,7 @@ public class CrawlerPerformanceTracker {
                     urlsCrawled.get(),
                     duration,
                     String.format("%.2f", urlsPerSecond),
-                    peakMemoryUsed / (1024 * 1024)
+                    peakMemoryUsed.get() / (1024 * 1024)
             );
         } catch (IOException e) {
             logger.error("Error writing to CSV: {}", e.getMessage());
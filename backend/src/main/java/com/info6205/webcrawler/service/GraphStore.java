@@ -0,0 +1,36 @@
+package com.info6205.webcrawler.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage for the crawl graph: pages, the links between them and their
+ * PageRank. The implementation is picked with the {@code graph.store}
+ * property ({@code neo4j} or {@code memory}).
+ */
+public interface GraphStore {
+
+    void createNode(String url);
+
+    void addEdge(String fromUrl, String toUrl);
+
+    /**
+     * Stores a batch of pages (the keys) and their out-links in one go. All
+     * pages in the batch exist before any of the links are added.
+     */
+    void writeBatch(Map<String, ? extends Collection<String>> linksByPage);
+
+    List<String> getNodes();
+
+    /**
+     * Adjacency lists of the stored links between pages.
+     */
+    Map<String, List<String>> getGraph();
+
+    void updatePageRank(Map<String, Double> pageRanks);
+
+    Map<String, Double> getPageRanks();
+
+    void clearGraph();
+}
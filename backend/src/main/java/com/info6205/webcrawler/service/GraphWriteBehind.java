@@ -0,0 +1,242 @@
+package com.info6205.webcrawler.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind stage between the crawler workers and the {@link GraphStore}.
+ *
+ * <p>Workers hand over a page and its links with {@link #enqueuePage}, which
+ * only blocks when the bounded queue is full. Dedicated writer threads drain
+ * the queue into batches of up to {@code batchSize} rows (or whatever arrived
+ * within {@code flushIntervalMs}) and write each batch with a single
+ * {@link GraphStore#writeBatch} call (one UNWIND transaction on Neo4j). Rank updates go through the same queue.
+ */
+@Component
+@ConditionalOnProperty(name = "graph.writeBehind.enabled", havingValue = "true")
+public class GraphWriteBehind {
+
+    private static final Logger logger = LogManager.getLogger(GraphWriteBehind.class);
+
+    private final GraphStore graphStore;
+    private final BlockingQueue<Write> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final List<Thread> writers = new ArrayList<>();
+
+    private final Object drained = new Object();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile boolean running = true;
+
+    @Autowired
+    public GraphWriteBehind(GraphStore graphStore,
+            @Value("${graph.writeBehind.batchSize:1000}") int batchSize,
+            @Value("${graph.writeBehind.flushIntervalMs:200}") long flushIntervalMs,
+            @Value("${graph.writeBehind.queueCapacity:2000}") int queueCapacity,
+            @Value("${graph.writeBehind.writerThreads:1}") int writerThreads) {
+        this.graphStore = graphStore;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < writerThreads; i++) {
+            Thread writer = new Thread(this::runWriter, "graph-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    /**
+     * Queues a crawled page and its out-links. Blocks while the queue is full,
+     * which slows the crawler down to the rate the store can absorb.
+     */
+    public void enqueuePage(String url, Collection<String> links) throws InterruptedException {
+        put(new Write(url, List.copyOf(links), null));
+    }
+
+    public void enqueuePageRanks(Map<String, Double> pageRanks) throws InterruptedException {
+        List<Map.Entry<String, Double>> chunk = new ArrayList<>(batchSize);
+        for (Map.Entry<String, Double> entry : pageRanks.entrySet()) {
+            chunk.add(Map.entry(entry.getKey(), entry.getValue()));
+            if (chunk.size() == batchSize) {
+                put(new Write(null, List.of(), chunk));
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            put(new Write(null, List.of(), chunk));
+        }
+    }
+
+    /**
+     * Waits until every write queued so far has been flushed. Meant for the
+     * end of a crawl, when no more pages are being queued.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (drained) {
+            while (pending.get() > 0) {
+                drained.wait(flushIntervalMs);
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long flushes = flushCount.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queue_depth", queue.size());
+        stats.put("pending_writes", pending.get());
+        stats.put("rows_written", rowsWritten.get());
+        stats.put("flushes", flushes);
+        stats.put("failed_flushes", failedFlushes.get());
+        stats.put("last_flush_ms", lastFlushNanos / 1_000_000.0);
+        stats.put("avg_flush_ms", flushes == 0 ? 0.0 : totalFlushNanos.get() / 1_000_000.0 / flushes);
+        stats.put("max_flush_ms", maxFlushNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flush();
+        running = false;
+        for (Thread writer : writers) {
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void put(Write write) throws InterruptedException {
+        pending.incrementAndGet();
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            completed(1);
+            throw e;
+        }
+    }
+
+    private void runWriter() {
+        List<Write> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Write first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                int rows = first.rows();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (rows < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Write next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    rows += next.rows();
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                // Interrupted while collecting: the batch has not been written yet
+                write(batch);
+                if (!running) {
+                    break;
+                }
+            } finally {
+                completed(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Write> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, List<String>> linksByPage = new LinkedHashMap<>();
+        Map<String, Double> ranks = new HashMap<>();
+        int rows = 0;
+        for (Write write : batch) {
+            if (write.url != null) {
+                linksByPage.put(write.url, write.links);
+                rows += 1 + write.links.size();
+            }
+            if (write.ranks != null) {
+                write.ranks.forEach(entry -> ranks.put(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!linksByPage.isEmpty()) {
+                graphStore.writeBatch(linksByPage);
+            }
+            if (!ranks.isEmpty()) {
+                graphStore.updatePageRank(ranks);
+            }
+            rowsWritten.addAndGet(rows + ranks.size());
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            logger.error("Failed to flush {} graph writes: {}", batch.size(), e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        lastFlushNanos = elapsed;
+        totalFlushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        flushCount.incrementAndGet();
+    }
+
+    private void completed(int writes) {
+        if (writes > 0 && pending.addAndGet(-writes) == 0) {
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * One queued unit: a page with its links, or a chunk of rank updates.
+     */
+    private static final class Write {
+
+        private final String url;
+        private final List<String> links;
+        private final List<Map.Entry<String, Double>> ranks;
+
+        Write(String url, List<String> links, List<Map.Entry<String, Double>> ranks) {
+            this.url = url;
+            this.links = links;
+            this.ranks = ranks;
+        }
+
+        int rows() {
+            return (url != null ? 1 + links.size() : 0) + (ranks != null ? ranks.size() : 0);
+        }
+    }
+}
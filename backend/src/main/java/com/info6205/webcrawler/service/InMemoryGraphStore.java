@@ -0,0 +1,387 @@
+package com.info6205.webcrawler.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * {@link GraphStore} that keeps the crawl graph in the JVM, so crawls, tests
+ * and benchmarks can run without a Neo4j server.
+ *
+ * <p>Every URL seen as a page or link target gets an int id. Out-links are
+ * stored as per-node int arrays and ranks in a {@code double[]}, so an edge
+ * costs four bytes once both URLs are known. Links to URLs that have not been
+ * stored as pages yet are kept, and they show up in {@link #getGraph()} once
+ * the target page is stored.
+ *
+ * <p>When {@code graph.store.path} is set, the graph is loaded from that file
+ * on startup and written back through a memory-mapped buffer on shutdown,
+ * and every {@code graph.store.persistIntervalMs} in between if it changed.
+ */
+@Service
+@ConditionalOnProperty(name = "graph.store", havingValue = "memory")
+public class InMemoryGraphStore implements GraphStore {
+
+    private static final Logger logger = LogManager.getLogger(InMemoryGraphStore.class);
+
+    private static final int MAGIC = 0x574b4753; // "WKGS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int[] NO_LINKS = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // One persist at a time, as they all write the same temporary file
+    private final Object persistLock = new Object();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final Path persistPath;
+    private final ScheduledExecutorService persister;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> urls = new ArrayList<>();
+    private final BitSet pages = new BitSet();
+    private int[][] outLinks = new int[64][];
+    private int[] outSize = new int[64];
+    private double[] ranks = unranked(64);
+
+    public InMemoryGraphStore(String persistPath) {
+        this(persistPath, 0);
+    }
+
+    /**
+     * @param persistIntervalMs how often a changed graph is written to
+     *                          {@code persistPath}; 0 or less only writes it
+     *                          on {@link #persist()} and shutdown
+     */
+    @Autowired
+    public InMemoryGraphStore(@Value("${graph.store.path:}") String persistPath,
+            @Value("${graph.store.persistIntervalMs:60000}") long persistIntervalMs) {
+        this.persistPath = persistPath == null || persistPath.isBlank() ? null : Path.of(persistPath);
+        if (this.persistPath != null && Files.exists(this.persistPath)) {
+            load(this.persistPath);
+        }
+        if (this.persistPath != null && persistIntervalMs > 0) {
+            persister = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "graph-store-persister");
+                thread.setDaemon(true);
+                return thread;
+            });
+            persister.scheduleWithFixedDelay(() -> {
+                if (dirty.get()) {
+                    persist();
+                }
+            }, persistIntervalMs, persistIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            persister = null;
+        }
+    }
+
+    @Override
+    public void createNode(String url) {
+        lock.writeLock().lock();
+        try {
+            pages.set(idFor(url));
+            dirty.set(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addEdge(String fromUrl, String toUrl) {
+        lock.writeLock().lock();
+        try {
+            int from = idFor(fromUrl);
+            int to = idFor(toUrl);
+            for (int e = 0; e < outSize[from]; e++) {
+                if (outLinks[from][e] == to) {
+                    return;
+                }
+            }
+            append(from, to);
+            dirty.set(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void writeBatch(Map<String, ? extends Collection<String>> linksByPage) {
+        lock.writeLock().lock();
+        try {
+            for (String url : linksByPage.keySet()) {
+                pages.set(idFor(url));
+            }
+            for (Map.Entry<String, ? extends Collection<String>> entry : linksByPage.entrySet()) {
+                int from = ids.get(entry.getKey());
+                Set<Integer> existing = new HashSet<>();
+                for (int e = 0; e < outSize[from]; e++) {
+                    existing.add(outLinks[from][e]);
+                }
+                for (String link : entry.getValue()) {
+                    int to = idFor(link);
+                    if (existing.add(to)) {
+                        append(from, to);
+                    }
+                }
+            }
+            dirty.set(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> getNodes() {
+        lock.readLock().lock();
+        try {
+            List<String> nodes = new ArrayList<>(pages.cardinality());
+            for (int id = pages.nextSetBit(0); id >= 0; id = pages.nextSetBit(id + 1)) {
+                nodes.add(urls.get(id));
+            }
+            return nodes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getGraph() {
+        lock.readLock().lock();
+        try {
+            Map<String, List<String>> graph = new HashMap<>();
+            for (int id = pages.nextSetBit(0); id >= 0; id = pages.nextSetBit(id + 1)) {
+                List<String> targets = null;
+                for (int e = 0; e < outSize[id]; e++) {
+                    int to = outLinks[id][e];
+                    if (pages.get(to)) {
+                        if (targets == null) {
+                            targets = new ArrayList<>(outSize[id]);
+                        }
+                        targets.add(urls.get(to));
+                    }
+                }
+                if (targets != null) {
+                    graph.put(urls.get(id), targets);
+                }
+            }
+            return graph;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void updatePageRank(Map<String, Double> pageRanks) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Double> entry : pageRanks.entrySet()) {
+                Integer id = ids.get(entry.getKey());
+                if (id != null && pages.get(id)) {
+                    ranks[id] = entry.getValue();
+                }
+            }
+            dirty.set(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Double> getPageRanks() {
+        lock.readLock().lock();
+        try {
+            Map<String, Double> result = new HashMap<>();
+            for (int id = pages.nextSetBit(0); id >= 0; id = pages.nextSetBit(id + 1)) {
+                if (!Double.isNaN(ranks[id])) {
+                    result.put(urls.get(id), ranks[id]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clearGraph() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            urls.clear();
+            pages.clear();
+            outLinks = new int[64][];
+            outSize = new int[64];
+            ranks = unranked(64);
+            dirty.set(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the periodic writes and writes the graph a last time.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (persister != null) {
+            persister.shutdownNow();
+        }
+        persist();
+    }
+
+    /**
+     * Writes the graph to {@code graph.store.path}, if configured. The file is
+     * written next to the target and moved into place, so a crash never leaves
+     * a half-written graph behind.
+     */
+    public void persist() {
+        if (persistPath == null) {
+            return;
+        }
+        synchronized (persistLock) {
+            lock.readLock().lock();
+            try {
+                // Changes made while the file is written mark the graph dirty again
+                dirty.set(false);
+                write();
+            } catch (IOException e) {
+                dirty.set(true);
+                logger.error("Failed to persist graph to {}: {}", persistPath, e.getMessage());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the graph through a mapped temporary file. Callers hold the read
+     * lock and the persist lock.
+     */
+    private void write() throws IOException {
+        byte[][] encoded = new byte[urls.size()][];
+        long size = 4L * 3;
+        for (int id = 0; id < encoded.length; id++) {
+            encoded[id] = urls.get(id).getBytes(StandardCharsets.UTF_8);
+            size += 4 + encoded[id].length + 1 + 8 + 4 + 4L * outSize[id];
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("graph of " + size + " bytes is too large");
+        }
+
+        Path temp = persistPath.resolveSibling(persistPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(encoded.length);
+            for (int id = 0; id < encoded.length; id++) {
+                buffer.putInt(encoded[id].length).put(encoded[id]);
+                buffer.put((byte) (pages.get(id) ? 1 : 0)).putDouble(ranks[id]);
+                buffer.putInt(outSize[id]);
+                for (int e = 0; e < outSize[id]; e++) {
+                    buffer.putInt(outLinks[id][e]);
+                }
+            }
+            buffer.force();
+        }
+        Files.move(temp, persistPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.warn("Ignoring {}: not a graph store file", path);
+                return;
+            }
+            int count = buffer.getInt();
+            ensureCapacity(count);
+            for (int id = 0; id < count; id++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                String url = new String(bytes, StandardCharsets.UTF_8);
+                ids.put(url, id);
+                urls.add(url);
+                pages.set(id, buffer.get() == 1);
+                ranks[id] = buffer.getDouble();
+                int degree = buffer.getInt();
+                outLinks[id] = new int[degree];
+                for (int e = 0; e < degree; e++) {
+                    outLinks[id][e] = buffer.getInt();
+                }
+                outSize[id] = degree;
+            }
+            logger.info("Loaded {} pages from {}", pages.cardinality(), path);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to load graph from {}: {}", path, e.getMessage());
+            clearGraph();
+        }
+    }
+
+    private int idFor(String url) {
+        Integer id = ids.get(url);
+        if (id != null) {
+            return id;
+        }
+        int next = urls.size();
+        ensureCapacity(next + 1);
+        urls.add(url);
+        ids.put(url, next);
+        outLinks[next] = NO_LINKS;
+        return next;
+    }
+
+    private void append(int from, int to) {
+        int degree = outSize[from];
+        if (outLinks[from].length == degree) {
+            outLinks[from] = Arrays.copyOf(outLinks[from], Math.max(4, degree * 2));
+        }
+        outLinks[from][degree] = to;
+        outSize[from] = degree + 1;
+    }
+
+    private static double[] unranked(int capacity) {
+        double[] values = new double[capacity];
+        Arrays.fill(values, Double.NaN);
+        return values;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ranks.length) {
+            return;
+        }
+        int capacity = Math.max(required, ranks.length * 2);
+        int oldCapacity = ranks.length;
+        outLinks = Arrays.copyOf(outLinks, capacity);
+        outSize = Arrays.copyOf(outSize, capacity);
+        ranks = Arrays.copyOf(ranks, capacity);
+        Arrays.fill(ranks, oldCapacity, capacity, Double.NaN);
+    }
+}
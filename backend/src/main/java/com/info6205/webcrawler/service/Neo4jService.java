@@ -1,6 +1,7 @@
 package com.info6205.webcrawler.service;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,10 +12,14 @@ import org.neo4j.driver.GraphDatabase;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 @Service
-public class Neo4jService {
+@ConditionalOnProperty(name = "graph.store", havingValue = "neo4j", matchIfMissing = true)
+public class Neo4jService implements GraphStore {
+
+    private static final int RANK_BATCH_SIZE = 5_000;
 
     private final Driver neo4jDriver;
 
@@ -24,6 +29,7 @@ public class Neo4jService {
         this.neo4jDriver = createNeo4jDriver(uri, username, password);
     }
 
+    @Override
     public void createNode(String url) {
         try (Session session = neo4jDriver.session()) {
             session.run(
@@ -35,6 +41,7 @@ public class Neo4jService {
         }
     }
 
+    @Override
     public void addEdge(String fromUrl, String toUrl) {
         try (Session session = neo4jDriver.session()) {
             session.run(
@@ -47,6 +54,36 @@ public class Neo4jService {
         }
     }
 
+    /**
+     * Writes a batch of pages and links in one transaction: every node is
+     * merged before any edge is matched, so links between pages in the same
+     * batch are kept.
+     */
+    @Override
+    public void writeBatch(Map<String, ? extends Collection<String>> linksByPage) {
+        if (linksByPage.isEmpty()) {
+            return;
+        }
+        List<String> urls = new ArrayList<>(linksByPage.keySet());
+        List<Map<String, Object>> edges = new ArrayList<>();
+        linksByPage.forEach((from, links) -> links.forEach(to -> edges.add(Map.of("from", from, "to", to))));
+
+        try (Session session = neo4jDriver.session()) {
+            session.executeWriteWithoutResult(tx -> {
+                tx.run("UNWIND $urls AS url "
+                        + "MERGE (n:Page {url: url}) ON CREATE SET n.visited = false",
+                        Map.of("urls", urls));
+                if (!edges.isEmpty()) {
+                    tx.run("UNWIND $edges AS edge "
+                            + "MATCH (a:Page {url: edge.from}), (b:Page {url: edge.to}) "
+                            + "MERGE (a)-[:LINKS_TO]->(b)",
+                            Map.of("edges", edges));
+                }
+            });
+        }
+    }
+
+    @Override
     public List<String> getNodes() {
         try (Session session = neo4jDriver.session()) {
             Result result = session.run("MATCH (n:Page) RETURN n.url AS url");
@@ -57,6 +94,7 @@ public class Neo4jService {
         }
     }
 
+    @Override
     public Map<String, List<String>> getGraph() {
         try (Session session = neo4jDriver.session()) {
             Result result = session.run(
@@ -73,19 +111,45 @@ public class Neo4jService {
         }
     }
 
+    @Override
     public void updatePageRank(Map<String, Double> pageRanks) {
+        List<Map<String, Object>> rows = new ArrayList<>(Math.min(pageRanks.size(), RANK_BATCH_SIZE));
         try (Session session = neo4jDriver.session()) {
             for (Map.Entry<String, Double> entry : pageRanks.entrySet()) {
-                session.run(
-                        "MATCH (n:Page {url: $url}) SET n.pageRank = $rank",
-                        Map.of("url", entry.getKey(), "rank", entry.getValue())
-                );
+                rows.add(Map.of("url", entry.getKey(), "rank", entry.getValue()));
+                if (rows.size() == RANK_BATCH_SIZE) {
+                    runRankBatch(session, rows);
+                    rows = new ArrayList<>(RANK_BATCH_SIZE);
+                }
+            }
+            if (!rows.isEmpty()) {
+                runRankBatch(session, rows);
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    private void runRankBatch(Session session, List<Map<String, Object>> rows) {
+        session.run(
+                "UNWIND $ranks AS row MATCH (n:Page {url: row.url}) SET n.pageRank = row.rank",
+                Map.of("ranks", rows)
+        );
+    }
+
+    @Override
+    public Map<String, Double> getPageRanks() {
+        try (Session session = neo4jDriver.session()) {
+            Result result = session.run(
+                    "MATCH (n:Page) WHERE n.pageRank IS NOT NULL RETURN n.url AS url, n.pageRank AS rank"
+            );
+            Map<String, Double> ranks = new HashMap<>();
+            result.stream().forEach(record -> ranks.put(record.get("url").asString(), record.get("rank").asDouble()));
+            return ranks;
+        }
+    }
+
+    @Override
     public void clearGraph() {
         try (Session session = neo4jDriver.session()) {
             session.run("MATCH ()-[r]->() DELETE r");
@@ -1,61 +1,206 @@
 package com.info6205.webcrawler.service;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.info6205.webcrawler.service.pagerank.CsrGraph;
+import com.info6205.webcrawler.service.pagerank.IncrementalPageRank;
+import com.info6205.webcrawler.service.pagerank.PageRankResult;
+import com.info6205.webcrawler.service.pagerank.ParallelPageRankSolver;
+
+import jakarta.annotation.PreDestroy;
+
 @Component
 public class PageRankCalculator {
 
+    private static final Logger logger = LogManager.getLogger(PageRankCalculator.class);
+
     private static final int MAX_ITERATIONS = 20;
     private static final double CONVERGENCE_THRESHOLD = 1e-5;
 
+    /**
+     * LEGACY keeps the original undamped iteration (dangling rank dropped, then
+     * renormalized). PARALLEL is the damped, dangling-aware ForkJoin solver.
+     */
+    public enum Solver {
+        LEGACY, PARALLEL
+    }
+
+    private final Solver solver;
+    private final double damping;
+    private final int maxIterations;
+    private final double convergenceThreshold;
+    private final ForkJoinPool pool;
+    private final ParallelPageRankSolver parallelSolver;
+
+    private volatile PageRankResult lastResult;
+
+    public PageRankCalculator() {
+        this("legacy", 0.85, CONVERGENCE_THRESHOLD, MAX_ITERATIONS, 1);
+    }
+
+    @Autowired
+    public PageRankCalculator(
+            @Value("${pagerank.solver:legacy}") String solver,
+            @Value("${pagerank.damping:0.85}") double damping,
+            @Value("${pagerank.tolerance:1e-5}") double convergenceThreshold,
+            @Value("${pagerank.maxIterations:20}") int maxIterations,
+            @Value("${pagerank.parallelism:0}") int parallelism) {
+        this.solver = Solver.valueOf(solver.trim().toUpperCase(Locale.ROOT));
+        this.damping = damping;
+        this.maxIterations = maxIterations;
+        this.convergenceThreshold = convergenceThreshold;
+        if (this.solver == Solver.PARALLEL) {
+            int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            this.pool = new ForkJoinPool(threads);
+            this.parallelSolver = new ParallelPageRankSolver(damping, convergenceThreshold, maxIterations, pool);
+        } else {
+            this.pool = null;
+            this.parallelSolver = null;
+        }
+    }
+
     public Map<String, Double> computePageRank(List<String> nodes, Map<String, List<String>> graph) {
-        int totalNodes = nodes.size();
+        CsrGraph csr = CsrGraph.build(nodes, graph);
+        return csr.toRankMap(computePageRank(csr));
+    }
+
+    /**
+     * Same as {@link #computePageRank(List, Map)}, but the parallel solver
+     * warm-starts from {@code initialRanks} (for example the vector kept by an
+     * {@link IncrementalPageRank} during the crawl). Nodes missing from it start
+     * at the average rank. The legacy solver always starts cold.
+     */
+    public Map<String, Double> computePageRank(List<String> nodes, Map<String, List<String>> graph,
+            Map<String, Double> initialRanks) {
+        CsrGraph csr = CsrGraph.build(nodes, graph);
+        double[] initial = null;
+        if (initialRanks != null && !initialRanks.isEmpty() && csr.size() > 0) {
+            initial = new double[csr.size()];
+            double fallback = 1.0 / csr.size();
+            for (int node = 0; node < csr.size(); node++) {
+                initial[node] = initialRanks.getOrDefault(csr.url(node), fallback);
+            }
+        }
+        return csr.toRankMap(computePageRankResult(csr, initial).getRanks());
+    }
+
+    public double[] computePageRank(CsrGraph csr) {
+        return computePageRankResult(csr).getRanks();
+    }
+
+    public PageRankResult computePageRankResult(CsrGraph csr) {
+        return computePageRankResult(csr, null);
+    }
+
+    /**
+     * Runs the configured solver and keeps the iteration count and final
+     * residual around for reporting.
+     */
+    public PageRankResult computePageRankResult(CsrGraph csr, double[] initial) {
+        long start = System.nanoTime();
+        PageRankResult result = solver == Solver.PARALLEL ? parallelSolver.solve(csr, initial) : computeLegacy(csr);
+        lastResult = result;
+        logger.info("PageRank ({}) over {} nodes / {} edges: {} iterations, residual {}, {} ms",
+                solver, csr.size(), csr.edgeCount(), result.getIterations(), result.getResidual(),
+                (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Creates a rank maintainer for one crawl, using the configured damping
+     * factor so its vector is a good warm start for the parallel solver.
+     */
+    public IncrementalPageRank newIncrementalRanker(double epsilon) {
+        return new IncrementalPageRank(damping, epsilon);
+    }
+
+    /**
+     * Result of the most recent solve, or null if nothing has been ranked yet.
+     */
+    public PageRankResult getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * Runs the power iteration over a prebuilt CSR graph. Each iteration is a
+     * single pass over the reverse adjacency and reuses the same two rank
+     * vectors, so nothing is allocated inside the loop.
+     */
+    private PageRankResult computeLegacy(CsrGraph csr) {
+        int totalNodes = csr.size();
+        if (totalNodes == 0) {
+            return new PageRankResult(new double[0], 0, 0.0, true);
+        }
         double initialRank = 1.0 / totalNodes;
 
         // Initialize ranks
-        Map<String, Double> ranks = new HashMap<>();
-        for (String node : nodes) {
-            ranks.put(node, initialRank);
-        }
+        double[] ranks = new double[totalNodes];
+        double[] newRanks = new double[totalNodes];
+        Arrays.fill(ranks, initialRank);
+
+        int[] inOffsets = csr.inOffsets();
+        int[] inSources = csr.inSources();
+        int[] outDegree = csr.outDegrees();
 
         // Start iterations
-        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
-            Map<String, Double> newRanks = new HashMap<>();
-            double diff = 0.0;
+        int iteration = 0;
+        double diff = Double.MAX_VALUE;
+        while (iteration < maxIterations) {
+            diff = 0.0;
+            iteration++;
 
-            for (String node : nodes) {
+            for (int node = 0; node < totalNodes; node++) {
                 double rankSum = 0.0;
 
                 // Calculate rank contribution from in-neighbors
-                for (String neighbor : getInNeighbors(node, graph)) {
-                    rankSum += ranks.get(neighbor) / getOutDegree(neighbor, graph);
+                for (int e = inOffsets[node]; e < inOffsets[node + 1]; e++) {
+                    int neighbor = inSources[e];
+                    rankSum += ranks[neighbor] / outDegree[neighbor];
                 }
 
                 // Update rank
-                newRanks.put(node, rankSum);
-                diff += Math.abs(newRanks.get(node) - ranks.get(node));
+                newRanks[node] = rankSum;
+                diff += Math.abs(rankSum - ranks[node]);
             }
 
             // Check for convergence
+            double[] swap = ranks;
             ranks = newRanks;
-            if (diff < CONVERGENCE_THRESHOLD) {
+            newRanks = swap;
+            if (diff < convergenceThreshold) {
                 break;
             }
         }
 
         // Normalize ranks to sum to 1
-        double totalRank = ranks.values().stream().mapToDouble(Double::doubleValue).sum();
-        for (Map.Entry<String, Double> entry : ranks.entrySet()) {
-            ranks.put(entry.getKey(), entry.getValue() / totalRank);
+        double totalRank = 0.0;
+        for (double rank : ranks) {
+            totalRank += rank;
         }
+        for (int node = 0; node < totalNodes; node++) {
+            ranks[node] = ranks[node] / totalRank;
+        }
+
+        return new PageRankResult(ranks, iteration, diff, diff < convergenceThreshold);
+    }
 
-        return ranks;
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
     }
 
     List<String> getInNeighbors(String node, Map<String, List<String>> graph) {
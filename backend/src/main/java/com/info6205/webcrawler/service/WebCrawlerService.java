@@ -1,322 +1,1531 @@
 package com.info6205.webcrawler.service;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.google.common.util.concurrent.RateLimiter;
 import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.cluster.CrawlPartition;
+import com.info6205.webcrawler.service.dedup.SimHashIndex;
+import com.info6205.webcrawler.service.fetch.ContentGate;
+import com.info6205.webcrawler.service.fetch.ContentTypeLearner;
+import com.info6205.webcrawler.service.fetch.FetchResult;
+import com.info6205.webcrawler.service.fetch.Fetcher;
+import com.info6205.webcrawler.service.fetch.HttpClientFetcher;
+import com.info6205.webcrawler.service.fetch.JsoupFetcher;
+import com.info6205.webcrawler.service.frontier.FingerprintSeenSet;
+import com.info6205.webcrawler.service.frontier.Frontier;
+import com.info6205.webcrawler.service.frontier.FrontierSnapshot;
+import com.info6205.webcrawler.service.frontier.HostScheduler;
+import com.info6205.webcrawler.service.frontier.SeenSet;
+import com.info6205.webcrawler.service.frontier.SeenSets;
+import com.info6205.webcrawler.service.frontier.SpillingFrontier;
+import com.info6205.webcrawler.service.pagerank.IncrementalPageRank;
+import com.info6205.webcrawler.service.pagerank.PageRankResult;
+import com.info6205.webcrawler.service.pagerank.Ranking;
+import com.info6205.webcrawler.service.parse.JsoupLinkExtractor;
+import com.info6205.webcrawler.service.parse.ParsedPage;
+import com.info6205.webcrawler.service.parse.StreamingLinkExtractor;
+import com.info6205.webcrawler.service.robots.RobotsCache;
+import com.info6205.webcrawler.service.robots.RobotsRules;
+import com.info6205.webcrawler.service.throttle.AdaptiveThrottle;
+import com.info6205.webcrawler.service.throttle.AimdLimit;
+import com.info6205.webcrawler.service.url.UrlCanonicalizer;
+import com.info6205.webcrawler.service.url.UrlClassifier;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs crawls as {@link CrawlJob}s. Each job has its own frontier, seen-set
+ * and worker pool, so several can run at once; together they stay within one
+ * fetch budget ({@code crawler.jobs.maxInFlight}). They write to one graph
+ * store, and each is ranked on the pages it stored itself.
+ */
 @Service
 public class WebCrawlerService {
 
     private static final Logger logger = LogManager.getLogger(WebCrawlerService.class);
+    // How long a node's share of a distributed crawl keeps trying to hand over its last links
+    private static final long PARTITION_DRAIN_MILLIS = 30_000;
+    // Share of a window's fetches that must time out before the whole crawl backs off
+    private static final double GLOBAL_OVERLOAD_SHARE = 0.1;
 
-    protected final ExecutorService threadPool;
-    private final RateLimiter rateLimiter;
-    private final PriorityBlockingQueue<UrlTask> queue;
-    private final Set<String> visitedUrls;
+    private final int threadPoolSize;
+    private final double rateLimit;
     private final int maxDepth;
 
-    private final Neo4jService neo4jService;
+    private final GraphStore graphStore;
     private final PageRankCalculator pageRankCalculator;
 
-    protected final List<String> blacklistedUrlsList = Collections.synchronizedList(new ArrayList<>());
-    protected final List<String> lowPriorityUrlsList = Collections.synchronizedList(new ArrayList<>());
+    private volatile UrlClassifier urlClassifier = UrlClassifier.defaults();
+
+    @Autowired(required = false)
+    private GraphWriteBehind graphWriteBehind;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+    private volatile CrawlMetrics metrics;
+
+    // How often the heap is sampled for the peak reported per crawl; 0 samples only at start and end
+    @Value("${crawler.metrics.heapSampleMs:500}")
+    private long heapSampleMs = 500;
+
+    // CSV each finished crawl appends its throughput to; empty writes none
+    @Value("${crawler.metrics.csvPath:}")
+    private String metricsCsvPath = "";
+
+    @Value("${pagerank.incremental:false}")
+    private boolean incrementalPageRank;
+
+    @Value("${pagerank.incremental.epsilon:1e-4}")
+    private double incrementalEpsilon;
+
+    @Value("${crawler.executionMode:fixed}")
+    private String executionMode = "fixed";
+
+    // Fetches allowed in flight at once; 0 means one per pool thread
+    @Value("${crawler.maxInFlight:0}")
+    private int maxInFlight;
+
+    // Fetches allowed in flight per host; 0 means no per-host limit
+    @Value("${crawler.perHostInFlight:2}")
+    private int perHostInFlight = 2;
+
+    @Value("${crawler.maxPages:500}")
+    private int maxPages = 500;
+
+    // Crawls running at once; later ones wait in the queued state
+    @Value("${crawler.jobs.maxConcurrent:4}")
+    private int jobsMaxConcurrent = 4;
+
+    // Fetches in flight across all crawls; 0 means as many as one crawl may have
+    @Value("${crawler.jobs.maxInFlight:0}")
+    private int jobsMaxInFlight;
+
+    // Finished jobs whose status and results are kept
+    @Value("${crawler.jobs.retained:20}")
+    private int jobsRetained = 20;
+
+    // Pages listed in a crawl's response, best first; 0 lists them all. The rest are paged from the ranking endpoint
+    @Value("${crawler.ranking.responseLimit:0}")
+    private int rankingResponseLimit;
+
+    // Events a streaming client may fall behind by before page events are dropped for it
+    @Value("${crawler.events.bufferSize:10000}")
+    private int eventBufferSize = 10000;
+
+    @Value("${crawler.events.statsIntervalMs:1000}")
+    private long eventStatsIntervalMs = 1000;
+
+    // string, fingerprint or bloom; see SeenSets
+    @Value("${crawler.seenSet:fingerprint}")
+    private String seenSetType = "fingerprint";
+
+    @Value("${crawler.seenSet.expectedUrls:100000}")
+    private int seenSetExpectedUrls = 100000;
+
+    @Value("${crawler.seenSet.falsePositiveRate:0.001}")
+    private double seenSetFalsePositiveRate = 0.001;
+
+    @Value("${crawler.seenSet.offHeap:false}")
+    private boolean seenSetOffHeap;
+
+    // memory keeps every queued task on the heap; spilling moves overflow to disk
+    @Value("${crawler.frontier:memory}")
+    private String frontierType = "memory";
+
+    @Value("${crawler.frontier.dir:}")
+    private String frontierDir = "";
+
+    @Value("${crawler.frontier.memoryBudgetMb:64}")
+    private long frontierMemoryBudgetMb = 64;
+
+    // 0 means no limit on segment files
+    @Value("${crawler.frontier.diskBudgetMb:0}")
+    private long frontierDiskBudgetMb;
+
+    // Tasks held in the per-host queues before the rest wait in the frontier
+    @Value("${crawler.frontier.maxBufferedTasks:10000}")
+    private int frontierMaxBufferedTasks = 10000;
+
+    // Empty disables checkpoints; each job writes to a subdirectory named after it
+    @Value("${crawler.checkpoint.dir:}")
+    private String checkpointDir = "";
+
+    @Value("${crawler.checkpoint.intervalSeconds:30}")
+    private long checkpointIntervalSeconds = 30;
+
+    @Value("${crawler.checkpoint.keep:2}")
+    private int checkpointsKept = 2;
+
+    @Value("${crawler.canonical.enabled:true}")
+    private boolean canonicalizeUrls = true;
+
+    // Query parameters removed from URLs; a trailing * matches by prefix
+    @Value("${crawler.canonical.stripParams:utm_*,gclid,fbclid,msclkid,mc_cid,mc_eid,_ga,_hsenc,_hsmi}")
+    private String canonicalStripParams = String.join(",", UrlCanonicalizer.DEFAULT_STRIP_PARAMS);
+
+    @Value("${crawler.canonical.stripTrailingSlash:false}")
+    private boolean canonicalStripTrailingSlash;
+
+    @Value("${crawler.canonical.sortQuery:true}")
+    private boolean canonicalSortQuery = true;
+
+    // httpclient fetches asynchronously over pooled connections; jsoup holds a worker for each download
+    @Value("${crawler.fetcher:httpclient}")
+    private String fetcherType = "httpclient";
+
+    @Value("${crawler.fetch.connectTimeoutMs:10000}")
+    private int fetchConnectTimeoutMs = 10000;
+
+    @Value("${crawler.fetch.readTimeoutMs:30000}")
+    private int fetchReadTimeoutMs = 30000;
+
+    // Bodies are cut off after this many bytes and the rest is not downloaded
+    @Value("${crawler.fetch.maxBodyBytes:2097152}")
+    private int fetchMaxBodyBytes = 2 << 20;
+
+    @Value("${crawler.userAgent:Mozilla/5.0 (compatible; WebKrawler/1.0)}")
+    private String userAgent = "Mozilla/5.0 (compatible; WebKrawler/1.0)";
 
-    @Autowired
-    private CrawlerPerformanceTracker performanceTracker;
+    // Shared by all jobs so its connection pool is reused
+    private HttpClientFetcher httpClientFetcher;
+
+    // streaming scans the bytes for hrefs; jsoup builds the full DOM first
+    @Value("${crawler.linkExtractor:streaming}")
+    private String linkExtractorType = "streaming";
+
+    // Non-HTML responses after which a host directory or extension is skipped; 0 disables learning
+    @Value("${crawler.contentLearning.minSamples:5}")
+    private int contentLearningMinSamples = 5;
+
+    @Value("${crawler.contentLearning.maxPatterns:10000}")
+    private int contentLearningMaxPatterns = 10000;
+
+    @Value("${crawler.dedup.enabled:true}")
+    private boolean dedupEnabled = true;
+
+    // Bits two page fingerprints may differ in and still count as the same page
+    @Value("${crawler.dedup.maxDistance:3}")
+    private int dedupMaxDistance = 3;
+
+    // Pages with fewer word 3-shingles are too short to compare
+    @Value("${crawler.dedup.minShingles:50}")
+    private int dedupMinShingles = 50;
+
+    // Store a near duplicate as the page it duplicates instead of as a node of its own
+    @Value("${crawler.dedup.collapse:false}")
+    private boolean dedupCollapse;
+
+    @Value("${crawler.robots.enabled:true}")
+    private boolean robotsEnabled = true;
+
+    // Product token looked up in robots.txt User-agent lines
+    @Value("${crawler.robots.agent:WebKrawler}")
+    private String robotsAgent = "WebKrawler";
+
+    @Value("${crawler.robots.ttlMinutes:1440}")
+    private long robotsTtlMinutes = 1440;
+
+    @Value("${crawler.robots.maxHosts:10000}")
+    private int robotsMaxHosts = 10000;
+
+    // Longer Crawl-delay values are capped to this
+    @Value("${crawler.robots.maxCrawlDelayMs:30000}")
+    private long robotsMaxCrawlDelayMs = 30000;
+
+    // Adapts fetches in flight and fetch rates, per host and per crawl, to latency, timeouts and 429/503 answers
+    @Value("${crawler.adaptive.enabled:false}")
+    private boolean adaptiveEnabled;
+
+    // Bounds of a crawl's adaptive fetches in flight; a maximum of 0 means crawler.maxInFlight
+    @Value("${crawler.adaptive.minInFlight:4}")
+    private int adaptiveMinInFlight = 4;
+
+    @Value("${crawler.adaptive.maxInFlight:0}")
+    private int adaptiveMaxInFlight;
+
+    // Fetches in flight a host may grow to; 0 means crawler.perHostInFlight
+    @Value("${crawler.adaptive.maxHostInFlight:0}")
+    private int adaptiveMaxHostInFlight;
+
+    // Longest delay between fetch starts the adaptive rate slows down to
+    @Value("${crawler.adaptive.maxDelayMs:30000}")
+    private long adaptiveMaxDelayMs = 30000;
+
+    // How many times its usual latency a host may take before it gets fewer fetches in flight
+    @Value("${crawler.adaptive.latencyTolerance:2.0}")
+    private double adaptiveLatencyTolerance = 2.0;
+
+    // Share of the fetches in flight kept after an overload
+    @Value("${crawler.adaptive.backoff:0.5}")
+    private double adaptiveBackoff = 0.5;
+
+    // Shared by all jobs and kept until its entries expire
+    private RobotsCache robotsCache;
+
+    private final Map<String, CrawlJob> jobs = new ConcurrentHashMap<>();
+    // Served by the ranking endpoint until the next ranking is computed
+    private volatile Ranking lastRanking;
+    private ExecutorService jobRunner;
+    // Fetch permits shared by all jobs
+    private Semaphore fetchBudget;
 
     public WebCrawlerService(
             @Value("${crawler.threadPoolSize}") int threadPoolSize,
             @Value("${crawler.maxDepth}") int maxDepth,
             @Value("${crawler.rateLimit}") double rateLimit,
-            Neo4jService neo4jService,
+            GraphStore graphStore,
             PageRankCalculator pageRankCalculator) {
-        this.threadPool = Executors.newFixedThreadPool(threadPoolSize);
-        this.rateLimiter = RateLimiter.create(rateLimit);
-        this.queue = new PriorityBlockingQueue<>(10, Comparator.comparingInt(UrlTask::getPriority));
-        this.visitedUrls = Collections.synchronizedSet(new HashSet<>());
+        this.threadPoolSize = threadPoolSize;
+        this.rateLimit = rateLimit;
         this.maxDepth = maxDepth;
-        this.neo4jService = neo4jService;
+        this.graphStore = graphStore;
         this.pageRankCalculator = pageRankCalculator;
     }
 
+    /**
+     * Queues a crawl from {@code startUrl} and returns at once. It runs as
+     * soon as fewer than {@code crawler.jobs.maxConcurrent} crawls are
+     * running.
+     */
+    public CrawlJob submitCrawl(String startUrl) {
+        return submit(new CrawlJob(UUID.randomUUID().toString(), startUrl));
+    }
+
+    /**
+     * Queues a crawl continuing the newest checkpoint of job {@code jobId},
+     * or the newest checkpoint under {@code crawler.checkpoint.dir} if it is
+     * null. The graph in the graph store is kept, and pages fetched before
+     * the checkpoint are not fetched again; tasks that were in flight when it
+     * was taken are.
+     *
+     * @throws IllegalStateException if there is no checkpoint to resume from
+     */
+    public CrawlJob submitResume(String jobId) {
+        CrawlCheckpointStore store = jobId != null ? checkpointStore(jobId) : newestCheckpointStore();
+        CrawlCheckpoint checkpoint = store != null ? store.loadLatest() : null;
+        if (checkpoint == null) {
+            throw new IllegalStateException("No crawl checkpoint to resume from");
+        }
+        return submit(new CrawlJob(UUID.randomUUID().toString(), checkpoint.getStartUrl(), checkpoint, null));
+    }
+
+    /**
+     * Crawls from {@code startUrl} and waits for the ranking.
+     */
     public Map<String, Object> startCrawl(String startUrl) throws InterruptedException {
-        performanceTracker.startTracking(((ThreadPoolExecutor) threadPool).getCorePoolSize(), maxDepth, startUrl);
-        logger.info("Starting web crawl with starting URL: {}", startUrl);
+        return submitCrawl(startUrl).awaitResult();
+    }
+
+    /**
+     * Continues the newest checkpoint and waits for the ranking.
+     */
+    public Map<String, Object> resumeCrawl() throws InterruptedException {
+        return submitResume(null).awaitResult();
+    }
+
+    public CrawlJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Jobs still queued or running and the most recently finished ones,
+     * oldest first.
+     */
+    public List<CrawlJob> getJobs() {
+        List<CrawlJob> all = new ArrayList<>(jobs.values());
+        all.sort(Comparator.comparing(CrawlJob::getCreatedAt));
+        return all;
+    }
+
+    /**
+     * A feed of job {@code jobId}'s events and then its ranking, or null if
+     * there is no such job. Close it when the client goes away.
+     */
+    public CrawlEventStream openEventStream(String jobId) {
+        CrawlJob job = jobs.get(jobId);
+        return job != null ? job.openEventStream(eventBufferSize, eventStatsIntervalMs) : null;
+    }
+
+    /**
+     * Returns false if there is no such job or it has already finished.
+     */
+    public boolean cancelJob(String jobId) {
+        CrawlJob job = jobs.get(jobId);
+        if (job == null || !job.cancel()) {
+            return false;
+        }
+        logger.info("Cancelling crawl job {}", jobId);
+        return true;
+    }
 
-        // Clear existing Neo4j graph
-        neo4jService.clearGraph();
-        queue.add(new UrlTask(startUrl, 0, calculatePriority(startUrl)));
+    /**
+     * Registers the crawler's meters at startup, so they are scraped before
+     * the first crawl.
+     */
+    @PostConstruct
+    public void registerMetrics() {
+        metrics();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(CrawlJob::cancel);
+        if (metrics != null) {
+            metrics.shutdown();
+        }
+        ExecutorService runner;
+        synchronized (this) {
+            runner = jobRunner;
+        }
+        if (runner != null) {
+            runner.shutdown();
+        }
+    }
+
+    CrawlJob submit(CrawlJob job) {
+        pruneFinishedJobs();
+        jobs.put(job.getId(), job);
+        jobRunner().execute(() -> runJob(job));
+        logger.info("Queued crawl job {} for {}", job.getId(), job.getStartUrl());
+        return job;
+    }
 
-        while (true) {
-            UrlTask task = queue.poll(1, TimeUnit.SECONDS); // Wait for tasks to be added to the queue
-            if (task == null && threadPool.isTerminated()) {
-                break; // Exit if no tasks are pending and all threads are done
+    private void runJob(CrawlJob job) {
+        if (job.isCancelRequested()) {
+            job.finish(CrawlJob.Status.CANCELLED, null, null);
+            return;
+        }
+        job.markRunning();
+        try {
+            Map<String, Object> result = job.checkpoint != null ? resume(job) : start(job);
+            job.finish(job.isCancelRequested() ? CrawlJob.Status.CANCELLED : CrawlJob.Status.SUCCEEDED,
+                    result, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(CrawlJob.Status.CANCELLED, null, e);
+        } catch (RuntimeException e) {
+            logger.error("Crawl job {} failed", job.getId(), e);
+            job.finish(CrawlJob.Status.FAILED, null, e);
+        } finally {
+            if (!job.getStatus().isFinished()) {
+                job.finish(CrawlJob.Status.FAILED, null, null);
             }
-            if (task == null || task.getDepth() >= maxDepth || visitedUrls.contains(task.getUrl())) {
-                continue;
+        }
+    }
+
+    private Map<String, Object> start(CrawlJob job) throws InterruptedException {
+        job.storedPages = new FingerprintSeenSet(seenSetExpectedUrls);
+        synchronized (jobs) {
+            shareGraphStore(job);
+            // Clear the existing graph, unless other crawls are writing to it or may resume on it
+            if (!job.sharedGraph && newestCheckpointStore() == null) {
+                graphStore.clearGraph();
+            } else {
+                job.sharedGraph = true;
+            }
+        }
+        job.visitedUrls = SeenSets.create(SeenSets.parseType(seenSetType), seenSetExpectedUrls,
+                seenSetFalsePositiveRate, seenSetOffHeap);
+        job.incrementalRanker = incrementalPageRank ? pageRankCalculator.newIncrementalRanker(incrementalEpsilon) : null;
+        job.canonicalizer = newCanonicalizer();
+        job.distinctRawLinks = new FingerprintSeenSet(seenSetExpectedUrls);
+        job.distinctRawLinks.add(job.getStartUrl());
+        String startUrl = canonicalize(job, job.getStartUrl());
+        job.seenBaseline = 0;
+        job.scheduler = newScheduler(job);
+        job.visitedUrls.add(startUrl);
+        // In a distributed crawl only the node owning the start page's host fetches it
+        CrawlPartition partition = job.partition;
+        if (partition == null || partition.owns(startUrl)) {
+            job.scheduler.add(new UrlTask(startUrl, 0, calculatePriority(job, startUrl)));
+        }
+        return runCrawl(job, startUrl, 0, 0);
+    }
+
+    private Map<String, Object> resume(CrawlJob job) throws InterruptedException {
+        CrawlCheckpoint checkpoint = job.checkpoint;
+        logger.info("Resuming crawl of {} from checkpoint taken at {}: {} tasks queued, {} URLs seen",
+                checkpoint.getStartUrl(), checkpoint.getCreatedAt(), checkpoint.getFrontier().size(),
+                checkpoint.getSeen().size());
+
+        job.visitedUrls = checkpoint.getSeen();
+        // The pages stored before the checkpoint are the ones it had seen; other crawls' pages may be there too
+        job.storedPages = new FingerprintSeenSet(seenSetExpectedUrls);
+        shareGraphStore(job);
+        job.sharedGraph = true;
+        for (String node : graphStore.getNodes()) {
+            if (job.visitedUrls.contains(node)) {
+                job.storedPages.add(node);
+            }
+        }
+        // Incremental ranks are not checkpointed; the final ranks are computed from the stored graph
+        job.incrementalRanker = null;
+        job.canonicalizer = newCanonicalizer();
+        job.distinctRawLinks = new FingerprintSeenSet(seenSetExpectedUrls);
+        job.seenBaseline = job.visitedUrls.size();
+        job.scheduler = newScheduler(job);
+        try {
+            checkpoint.forEachTask(job.scheduler::add);
+        } catch (IOException e) {
+            closeFrontier(job);
+            throw new IllegalStateException("Cannot read checkpointed frontier: " + e.getMessage(), e);
+        }
+        return runCrawl(job, checkpoint.getStartUrl(), checkpoint.getDispatched(), checkpoint.getUrlsCrawled());
+    }
+
+    /**
+     * Marks {@code job} and every crawl running beside it as sharing the
+     * graph store, so each is ranked on its own pages only.
+     */
+    private void shareGraphStore(CrawlJob job) {
+        synchronized (jobs) {
+            for (CrawlJob other : jobs.values()) {
+                if (other != job && other.getStatus() == CrawlJob.Status.RUNNING) {
+                    other.sharedGraph = true;
+                    job.sharedGraph = true;
+                }
             }
-            if (task.getDepth() >= maxDepth || visitedUrls.contains(task.getUrl())) {
+        }
+    }
+
+    private Map<String, Object> runCrawl(CrawlJob job, String startUrl, int alreadyDispatched, int alreadyCrawled)
+            throws InterruptedException {
+        CrawlExecutors.Mode mode = CrawlExecutors.parseMode(executionMode);
+        int concurrency = crawlConcurrency();
+        job.threadPool = CrawlExecutors.create(mode, threadPoolSize);
+        job.fetcher = newFetcher(job);
+        job.linkExtractor = "jsoup".equalsIgnoreCase(linkExtractorType)
+                ? new JsoupLinkExtractor() : new StreamingLinkExtractor();
+        job.contentTypeLearner = contentLearningMinSamples > 0
+                ? new ContentTypeLearner(contentLearningMinSamples, contentLearningMaxPatterns) : null;
+        job.simHashIndex = dedupEnabled ? new SimHashIndex(dedupMaxDistance) : null;
+        job.robots = robotsEnabled ? robotsCache() : null;
+        job.checkpointStore = checkpointStore(job.getId());
+        HostScheduler scheduler = job.scheduler;
+        CrawlMetrics crawlMetrics = metrics();
+        job.throttle = adaptiveEnabled ? newThrottle(scheduler, concurrency, crawlMetrics) : null;
+        Semaphore fetchPermits = job.throttle != null ? job.throttle.getPermits() : new Semaphore(concurrency);
+        Semaphore budget = fetchBudget();
+
+        scheduler.setRateLimitWaitRecorder(nanos -> crawlMetrics.rateLimitWait.record(nanos, TimeUnit.NANOSECONDS));
+        CrawlerPerformanceTracker performanceTracker = job.tracker;
+        performanceTracker.startTracking(concurrency, maxDepth, startUrl);
+        performanceTracker.restoreUrlsCrawled(alreadyCrawled);
+        logger.info("Starting crawl job {} with starting URL: {} ({} mode, {} fetcher, {} fetches in flight)",
+                job.getId(), startUrl, mode, fetcherType, concurrency);
+
+        AtomicInteger dispatched = job.dispatched;
+        dispatched.set(alreadyDispatched);
+        ScheduledExecutorService checkpointer = startCheckpointing(job, startUrl);
+        while (!job.isCancelRequested()) {
+            // Wait for a task whose host may be fetched now
+            UrlTask task = scheduler.poll(1, TimeUnit.SECONDS,
+                    candidate -> candidate.getDepth() < maxDepth && !isLearnedNonHtml(job, candidate.getUrl()));
+            CrawlPartition partition = job.partition;
+            if (task == null) {
+                if (job.activeTasks.get() == 0 && scheduler.isEmpty()) {
+                    if (partition == null) {
+                        break; // Exit if no tasks are pending and all fetches are done
+                    }
+                    // Other nodes may still send links; the coordinator ends a distributed crawl
+                    partition.setIdle(true);
+                    if (partition.isStopped()) {
+                        break;
+                    }
+                }
                 continue;
             }
+            if (partition != null) {
+                partition.setIdle(false);
+            }
 
-            // TODO: remove in prod
-            if (visitedUrls.size() > 500) {
+            if (maxPages > 0 && dispatched.get() >= maxPages) {
+                scheduler.release(task);
                 break;
             }
 
-            visitedUrls.add(task.getUrl());
-            CompletableFuture.runAsync(() -> processUrl(task), threadPool)
-                    .exceptionally(e -> {
-                        logger.error("Error processing URL {}: {}", task.getUrl(), e.getMessage());
-                        return null;
+            if (!acquire(fetchPermits, job)) {
+                scheduler.release(task);
+                break;
+            }
+            if (!acquire(budget, job)) {
+                fetchPermits.release();
+                scheduler.release(task);
+                break;
+            }
+            dispatched.incrementAndGet();
+            job.activeTasks.incrementAndGet();
+            fetchAndProcess(job, task)
+                    .whenComplete((result, e) -> {
+                        if (e != null && !job.isCancelRequested()) {
+                            Throwable cause = e instanceof CompletionException && e.getCause() != null
+                                    ? e.getCause() : e;
+                            logger.warn("Failed to process URL {}: {}", task.getUrl(), cause.toString());
+                        }
+                        scheduler.release(task);
+                        budget.release();
+                        fetchPermits.release();
+                        job.taskDone();
                     });
         }
-        threadPool.shutdown();
+        // Pages already on their way are processed, also when the crawl was cancelled or hit maxPages;
+        // shutting the pool down under them would reject their processing and lose them
+        job.awaitTasksDone();
+        job.threadPool.shutdown();
         try {
-            threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            job.threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             logger.error("Thread pool termination interrupted: {}", e.getMessage());
         }
+        if (checkpointer != null) {
+            checkpointer.shutdownNow();
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        CrawlPartition partition = job.partition;
+        if (partition != null) {
+            // Links arriving from now on are counted but no longer crawled
+            partition.stop();
+            if (job.isCancelRequested()) {
+                partition.close();
+            } else if (!partition.getForwarder().drain(PARTITION_DRAIN_MILLIS)) {
+                logger.warn("Crawl job {} ended with {} links it could not forward", job.getId(),
+                        partition.getForwarder().getPending());
+            }
+        }
 
-        performanceTracker.endTracking();
-        // Print blacklisted and low priority URLs
-        System.out.println("********Blacklisted URLs:********");
-        blacklistedUrlsList.forEach(System.out::println);
+        if (graphWriteBehind != null) {
+            graphWriteBehind.flush();
+            logger.info("Graph writes flushed: {}", graphWriteBehind.getStats());
+        }
 
-        System.out.println("********Low Priority URLs:********");
-        lowPriorityUrlsList.forEach(System.out::println);
+        closeFrontier(job);
+        logger.info("Seen-set ({}) holds {} URLs in about {} KB; canonicalization saved {} fetches", seenSetType,
+                job.visitedUrls.size(), job.visitedUrls.memoryBytes() / 1024, getFetchesSaved(job));
+        logger.info("Content gate stopped {} downloads at the headers; {} URLs skipped by {} learned non-HTML patterns",
+                job.downloadsRejected.get(), job.nonHtmlSkipped.get(),
+                job.contentTypeLearner != null ? job.contentTypeLearner.learnedCount() : 0);
+        logger.info("{} of {} fingerprinted pages were near duplicates", job.nearDuplicates.get(),
+                job.pagesFingerprinted.get());
+        if (job.robots != null) {
+            logger.info("robots.txt disallowed {} URLs; rules cached for {} hosts, {} Crawl-delays applied",
+                    job.robotsDisallowed.get(), job.robots.size(), job.crawlDelayHosts.size());
+        }
+        performanceTracker.endTracking(metricsCsvPath);
+        logger.info("{} blacklisted and {} low priority URLs found", job.blacklistedUrls.size(),
+                job.lowPriorityUrls.size());
+        logger.debug("Blacklisted URLs: {}", job.blacklistedUrls);
+        logger.debug("Low priority URLs: {}", job.lowPriorityUrls);
 
-        return calculatePageRankResponse();
+        // A node's share of a distributed crawl is ranked by the coordinator, with everyone else's
+        return partition != null ? partitionResponse(job) : calculatePageRankResponse(job);
     }
 
-    void processUrl(UrlTask task) {
-        performanceTracker.incrementUrlsCrawled();
-        System.out.println("********\nProcessing URL\n********" + task.getUrl());
-        rateLimiter.acquire();
+    /**
+     * Takes a permit, giving up if the job is cancelled while waiting.
+     */
+    private static boolean acquire(Semaphore permits, CrawlJob job) throws InterruptedException {
+        while (!permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+            if (job.isCancelRequested()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Downloads {@code task} and parses it on the job's worker pool. With
+     * the httpclient fetcher no worker is held while waiting on the network,
+     * so fetches in flight are bounded by {@code crawler.maxInFlight} rather
+     * than the pool size. A host's robots.txt is fetched before its first
+     * page, again without holding a worker.
+     */
+    CompletableFuture<Void> fetchAndProcess(CrawlJob job, UrlTask task) {
+        RobotsCache robots = job.robots;
+        CompletableFuture<RobotsRules> rules = robots != null
+                ? robots.rulesFor(task.getUrl()) : CompletableFuture.completedFuture(RobotsRules.ALLOW_ALL);
+        return rules.thenCompose(hostRules -> {
+            if (!hostRules.isAllowed(task.getUrl())) {
+                job.robotsDisallowed.incrementAndGet();
+                logger.info("Skipped URL {}: disallowed by robots.txt", task.getUrl());
+                publishPage(job, task, null, "disallowed");
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            applyCrawlDelay(job, task.getUrl(), hostRules);
+            job.tracker.incrementUrlsCrawled();
+            logger.debug("Processing URL {}", task.getUrl());
+            CrawlMetrics crawlMetrics = metrics();
+            long fetchStart = System.nanoTime();
+            return job.fetcher.fetch(task.getUrl())
+                    .whenComplete((result, error) -> {
+                        long fetchNanos = System.nanoTime() - fetchStart;
+                        recordFetch(crawlMetrics, fetchNanos, result, error);
+                        adapt(job.throttle, task.getUrl(), fetchNanos, result, error);
+                    })
+                    .thenAcceptAsync(result -> processPage(job, task, result), job.threadPool);
+        });
+    }
+
+    void processPage(CrawlJob job, UrlTask task, FetchResult result) {
+        CrawlMetrics crawlMetrics = metrics();
+        if (result.isRedirect()) {
+            followRedirect(job, task, result);
+            return;
+        }
+        if (!result.isSuccess()) {
+            logger.warn("Failed to process URL {}: HTTP {}", task.getUrl(), result.getStatus());
+            publishPage(job, task, result, "failed");
+            return;
+        }
+        ContentTypeLearner learner = job.contentTypeLearner;
+        boolean html = result.getRejection() != ContentGate.Rejection.NOT_HTML
+                && ContentGate.isHtml(result.getContentType());
+        if (learner != null) {
+            learner.record(task.getUrl(), html);
+        }
+        if (result.getRejection() != null || !html) {
+            job.downloadsRejected.incrementAndGet();
+            logger.warn("Skipped URL {}: {} ({})", task.getUrl(),
+                    result.getRejection() != null ? result.getRejection() : ContentGate.Rejection.NOT_HTML,
+                    result.getContentType());
+            publishPage(job, task, result, "skipped");
+            return;
+        }
         try {
-            Document doc = Jsoup.connect(task.getUrl()).get();
-            Elements links = doc.select("a[href]");
-            Set<String> extractedLinks = links.stream()
-                    .map(link -> link.attr("abs:href"))
+            long parseStart = System.nanoTime();
+            ParsedPage page;
+            try {
+                page = job.linkExtractor.parse(result.getBody(), result.getCharset(), result.getUrl());
+            } finally {
+                crawlMetrics.parse.record(System.nanoTime() - parseStart, TimeUnit.NANOSECONDS);
+            }
+            Set<String> rawLinks = page.getLinks().stream()
                     .filter(link -> link.startsWith("http"))
                     .collect(Collectors.toSet());
+            UrlCanonicalizer canonicalizer = job.canonicalizer;
+            Map<String, String> canonicalLinks = new HashMap<>();
+            for (String link : rawLinks) {
+                canonicalLinks.put(link, canonicalizer != null ? canonicalizer.canonicalize(link) : link);
+            }
+            Set<String> extractedLinks = new HashSet<>(canonicalLinks.values());
+            String original = nearDuplicateOf(job, task.getUrl(), page);
+            if (original != null && dedupCollapse) {
+                // The page it duplicates already has these links. It is stored as an alias
+                // linking only there, so links stored before it was spotted still arrive
+                job.duplicateOf.put(task.getUrl(), original);
+                storePage(job, task, result, "duplicate", Set.of(original), 0);
+                return;
+            }
+            if (dedupCollapse && !job.duplicateOf.isEmpty()) {
+                extractedLinks = extractedLinks.stream()
+                        .map(link -> job.duplicateOf.getOrDefault(link, link))
+                        .collect(Collectors.toSet());
+            }
 
-            for (String link : extractedLinks) {
-                if (!visitedUrls.contains(link)) {
-                    queue.add(new UrlTask(link, task.getDepth() + 1, calculatePriority(link)));
+            int queued = 0;
+            CrawlPartition partition = job.partition;
+            // A near duplicate's links were already expanded from the page it duplicates
+            if (original == null && task.getDepth() + 1 < maxDepth) {
+                // A link must never be seen without being queued in a checkpoint, see checkpoint()
+                long classifyNanos = 0;
+                job.enqueueLock.readLock().lock();
+                try {
+                    for (Map.Entry<String, String> link : canonicalLinks.entrySet()) {
+                        long classifyStart = System.nanoTime();
+                        int priority = calculatePriority(job, link.getValue());
+                        classifyNanos += System.nanoTime() - classifyStart;
+                        if (isSkipped(job, link.getValue(), priority)) {
+                            continue;
+                        }
+                        job.distinctRawLinks.add(link.getKey());
+                        if (enqueue(job, partition, new UrlTask(link.getValue(), task.getDepth() + 1, priority))) {
+                            queued++;
+                        }
+                    }
+                } finally {
+                    job.enqueueLock.readLock().unlock();
                 }
+                crawlMetrics.classify.record(classifyNanos, TimeUnit.NANOSECONDS);
             }
 
-            neo4jService.createNode(task.getUrl());
-            for (String link : extractedLinks) {
-                neo4jService.addEdge(task.getUrl(), link);
-            }
+            storePage(job, task, result, original != null ? "duplicate" : "parsed", extractedLinks, queued);
         } catch (IOException e) {
+            crawlMetrics.recordError("parse");
             logger.warn("Failed to process URL {}: {}", task.getUrl(), e.getMessage());
+            publishPage(job, task, result, "failed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while processing {}", task.getUrl());
         }
     }
 
-    protected Map<String, Object> calculatePageRankResponse() {
-        List<String> nodes = neo4jService.getNodes();
-        Map<String, List<String>> graph = neo4jService.getGraph();
-        Map<String, Double> pageRanks = pageRankCalculator.computePageRank(nodes, graph);
-        neo4jService.updatePageRank(pageRanks);
-
-        List<Map<String, Object>> resultData = pageRanks.entrySet().stream()
-                .map(entry -> {
-                    String url = entry.getKey();
-                    Double rank = entry.getValue();
-                    int inDegree = (int) nodes.stream().filter(node -> graph.getOrDefault(node, new ArrayList<>()).contains(url)).count();
-                    return Map.<String, Object>of("url", url, "rank", rank, "in_degree", inDegree);
-                })
-                .sorted(Comparator.comparingDouble((Map<String, Object> m) -> (Double) m.get("rank")).reversed()) // Sort by rank descending
-                .collect(Collectors.toList());
+    /**
+     * Stores {@code task}'s page with its links in the graph and the
+     * incremental ranks, and tells the event streams.
+     */
+    private void storePage(CrawlJob job, UrlTask task, FetchResult result, String outcome, Set<String> links,
+            int queued) throws InterruptedException {
+        long writeStart = System.nanoTime();
+        job.storedPages.add(task.getUrl());
+        if (job.graph != null) {
+            job.graph.writeBatch(Map.of(task.getUrl(), links));
+        }
+        if (graphWriteBehind != null) {
+            graphWriteBehind.enqueuePage(task.getUrl(), links);
+        } else {
+            graphStore.createNode(task.getUrl());
+            for (String link : links) {
+                graphStore.addEdge(task.getUrl(), link);
+            }
+        }
+        metrics().graphWrite.record(System.nanoTime() - writeStart, TimeUnit.NANOSECONDS);
 
-        return Map.of(
-                "status", "success",
-                "timestamp", ZonedDateTime.now().toString(),
-                "total_urls_crawled", nodes.size(),
-                "data", resultData
-        );
-    }
-
-    private static final Set<String> BLACKLISTED_URLS = Set.of(
-            "https://www.creativebookmark.com/",
-            "https://www.ffupdate.org",
-            "https://www.ad-tracker.example",
-            "https://www.popup-ads-site.net",
-            "https://www.bannerads.org",
-            "https://nu.outsystemsenterprise.com/FSD/",
-            "https://www.instagram.com/northeastern/",
-            "https://www.northeastern.edu/charlotte/",
-            "https://geo.northeastern.edu/blog/country/hong-kong/",
-            "https://www.tiktok.com/@northeasternu",
-            "https://research.northeastern.edu/cognitive-and-brain-health/",
-            "https://www.facebook.com",
-            "https://www.twitter.com",
-            "https://www.instagram.com",
-            "https://www.fonts.googleapis.com",
-            "https://www.google.com",
-            "https://www.youtube.com",
-            "https://www.googletagmanager.com",
-            "https://www.fonts.gstatic.com",
-            "https://www.linkedin.com",
-            "https://www.gmpg.org",
-            "https://www.maps.google.com",
-            "https://www.ajax.googleapis.com",
-            "https://www.play.google.com",
-            "https://www.youtu.be",
-            "https://www.en.wikipedia.org",
-            "https://www.cdnjs.cloudflare.com",
-            "https://www.github.com",
-            "https://www.wordpress.org",
-            "https://www.plus.google.com",
-            "https://www.pinterest.com",
-            "https://www.drive.google.com",
-            "https://www.support.google.com",
-            "https://www.docs.google.com",
-            "https://www.goo.gl",
-            "https://www.bit.ly",
-            "https://www.developers.google.com",
-            "https://www.vimeo.com",
-            "https://www.policies.google.com",
-            "https://www.amazon.com",
-            "https://www.creativecommons.org",
-            "https://www.itunes.apple.com",
-            "https://www.tiktok.com",
-            "https://www.apps.apple.com",
-            "https://www.medium.com",
-            "https://www.flickr.com",
-            "https://www.secure.gravatar.com",
-            "https://www.accounts.google.com",
-            "https://www.cloudflare.com",
-            "https://www.soundcloud.com",
-            "https://www.open.spotify.com",
-            "https://www.gstatic.com",
-            "https://www.sites.google.com",
-            "https://www.ec.europa.eu",
-            "https://www.lh3.googleusercontent.com",
-            "https://www.t.me",
-            "https://www.cdn.jsdelivr.net",
-            "https://www.ncbi.nlm.nih.gov",
-            "https://www.microsoft.com",
-            "https://www.google-analytics.com",
-            "https://www.paypal.com",
-            "https://www.vk.com",
-            "https://www.podcasts.apple.com",
-            "https://www.w3.org",
-            "https://www.x.com",
-            "https://www.player.vimeo.com",
-            "https://www.tinyurl.com",
-            "https://www.reddit.com",
-            "https://www.who.int",
-            "https://www.forms.gle",
-            "https://www.linktr.ee",
-            "https://www.nytimes.com",
-            "https://www.support.apple.com",
-            "https://www.slideshare.net",
-            "https://www.code.jquery.com",
-            "https://www.mail.google.com",
-            "https://www.twitch.tv",
-            "https://www.amazon.co.uk",
-            "https://www.meetup.com",
-            "https://www.patreon.com",
-            "https://www.mozilla.org",
-            "https://www.api.whatsapp.com",
-            "https://www.apple.com",
-            "https://www.dropbox.com",
-            "https://www.maps.googleapis.com",
-            "https://www.forbes.com",
-            "https://www.amazon.de",
-            "https://www.theguardian.com",
-            "https://www.maps.app.goo.gl",
-            "https://www.support.microsoft.com",
-            "https://www.bing.com",
-            "https://www.s3.amazonaws.com",
-            "https://www.de.wikipedia.org",
-            "https://www.news.google.com",
-            "https://www.wa.me",
-            "https://www.ftc.gov"
-    );
+        IncrementalPageRank ranker = job.incrementalRanker;
+        if (ranker != null) {
+            ranker.addPage(task.getUrl(), links);
+        }
 
-    int calculatePriority(String url) {
+        if (job.hasEventStreams()) {
+            publishPage(job, task, result, outcome);
+            Map<String, Object> edges = new LinkedHashMap<>();
+            edges.put("from", task.getUrl());
+            edges.put("to", links);
+            edges.put("queued", queued);
+            job.publish("edges", edges);
+        }
+    }
 
-        // Ignore blacklisted URLs
-        for (String blacklistedUrl : BLACKLISTED_URLS) {
-            if (url.contains(blacklistedUrl)) {
-                synchronized (blacklistedUrlsList) {
-                    if (!blacklistedUrlsList.contains(url)) {
-                        blacklistedUrlsList.add(url);
-                    }
-                }
-                return Integer.MAX_VALUE;
+    /**
+     * Treats a redirect as a page with one link, to its target. The target is
+     * queued at the redirect's own depth, so it is canonicalized, checked
+     * against robots.txt and scheduled for its host like any other URL, and
+     * the seen set ends redirect loops.
+     */
+    private void followRedirect(CrawlJob job, UrlTask task, FetchResult result) {
+        String target;
+        try {
+            target = canonicalize(job, URI.create(task.getUrl()).resolve(result.getLocation().strip()).toString());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Failed to process URL {}: bad redirect to {}", task.getUrl(), result.getLocation());
+            publishPage(job, task, result, "failed");
+            return;
+        }
+        if (!target.startsWith("http")) {
+            publishPage(job, task, result, "failed");
+            return;
+        }
+        target = job.duplicateOf.getOrDefault(target, target);
+        if (target.equals(task.getUrl())) {
+            // Canonicalization undid the redirect, e.g. /about to /about/ with trailing slashes stripped
+            logger.warn("Failed to process URL {}: redirects to itself once canonical ({})", task.getUrl(),
+                    result.getLocation());
+            publishPage(job, task, result, "failed");
+            return;
+        }
+        int priority = calculatePriority(job, target);
+        boolean queued = false;
+        if (!isSkipped(job, target, priority)) {
+            job.enqueueLock.readLock().lock();
+            try {
+                queued = enqueue(job, job.partition, new UrlTask(target, task.getDepth(), priority));
+            } finally {
+                job.enqueueLock.readLock().unlock();
             }
         }
-        // Ignore dark web URLs
-        if (url.contains(".onion")) {
-            return Integer.MAX_VALUE;
+        logger.debug("URL {} redirects to {}", task.getUrl(), target);
+        try {
+            storePage(job, task, result, "redirected", Set.of(target), queued ? 1 : 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while processing {}", task.getUrl());
+        }
+    }
+
+    /**
+     * True for a link that is never fetched, so must not take frontier space:
+     * blacklisted, of a learned non-HTML pattern, or disallowed by robots.txt.
+     */
+    private boolean isSkipped(CrawlJob job, String url, int priority) {
+        return priority == UrlClassifier.SKIP || isLearnedNonHtml(job, url) || isDisallowedByRobots(job, url);
+    }
+
+    /**
+     * Queues {@code next} if its URL was not seen yet, or forwards it to the
+     * node owning its host. Callers hold the job's enqueue read lock. True if
+     * it was queued here.
+     */
+    private static boolean enqueue(CrawlJob job, CrawlPartition partition, UrlTask next) {
+        if (!job.visitedUrls.add(next.getUrl())) {
+            return false;
+        }
+        // Remembered as seen here too, so a link is forwarded to its owner only once
+        if (partition != null && !partition.owns(next.getUrl())) {
+            partition.forward(next);
+            return false;
+        }
+        job.scheduler.add(next);
+        return true;
+    }
+
+    private static void recordFetch(CrawlMetrics crawlMetrics, long fetchNanos, FetchResult result, Throwable error) {
+        crawlMetrics.fetch.record(fetchNanos, TimeUnit.NANOSECONDS);
+        if (error != null) {
+            crawlMetrics.recordFetchFailure(error);
+            return;
+        }
+        crawlMetrics.pagesFetched.increment();
+        if (result.getBody() != null) {
+            crawlMetrics.bytesDownloaded.increment(result.getBody().length);
+        }
+        if (!result.isSuccess() && !result.isRedirect()) {
+            crawlMetrics.recordError(CrawlMetrics.statusErrorType(result.getStatus()));
+        }
+    }
+
+    /**
+     * Feeds a fetch's outcome to the job's adaptive throttle. Failures other
+     * than timeouts (refused connections, unknown hosts) say nothing about
+     * load and are left out.
+     */
+    private static void adapt(AdaptiveThrottle throttle, String url, long fetchNanos, FetchResult result,
+            Throwable error) {
+        if (throttle == null) {
+            return;
+        }
+        if (error == null) {
+            throttle.onResponse(HostScheduler.hostOf(url), fetchNanos, result.getStatus());
+        } else if (CrawlMetrics.isTimeout(error)) {
+            throttle.onTimeout(HostScheduler.hostOf(url));
         }
+    }
+
+    /**
+     * Throttle starting from the configured fetches in flight and rates, which
+     * stay the ceiling unless {@code crawler.adaptive.maxInFlight} or
+     * {@code crawler.adaptive.maxHostInFlight} allow more.
+     */
+    private AdaptiveThrottle newThrottle(HostScheduler scheduler, int concurrency, CrawlMetrics crawlMetrics) {
+        // A slowed rate starts at half the configured one, and at most 10 fetches per second
+        long minDelay = Math.max(100, rateLimit > 0 ? (long) (2000 / rateLimit) : 0);
+        AimdLimit global = new AimdLimit(concurrency, Math.min(adaptiveMinInFlight, concurrency),
+                Math.max(adaptiveMaxInFlight, concurrency), minDelay, adaptiveMaxDelayMs, adaptiveLatencyTolerance,
+                adaptiveBackoff, GLOBAL_OVERLOAD_SHARE);
+        int hostConcurrency = perHostInFlight > 0 ? perHostInFlight : global.getConcurrency();
+        int maxHostConcurrency = Math.max(adaptiveMaxHostInFlight, hostConcurrency);
+        return new AdaptiveThrottle(scheduler, rateLimit, global,
+                () -> new AimdLimit(hostConcurrency, 1, maxHostConcurrency, minDelay, adaptiveMaxDelayMs,
+                        adaptiveLatencyTolerance, adaptiveBackoff, 0),
+                crawlMetrics::recordAdjustment);
+    }
 
-        if (url.matches(".*\\.(jpg|jpeg|png|gif|bmp|mp4|avi|mkv|mov|wmv|flv|webm)$")) {
-            synchronized (lowPriorityUrlsList) {
-                if (!lowPriorityUrlsList.contains(url)) {
-                    lowPriorityUrlsList.add(url);
+    /**
+     * Live metrics of all jobs, registered with the application's meter
+     * registry, or a private one when there is none.
+     */
+    CrawlMetrics metrics() {
+        CrawlMetrics current = metrics;
+        if (current == null) {
+            synchronized (this) {
+                current = metrics;
+                if (current == null) {
+                    current = new CrawlMetrics(meterRegistry != null ? meterRegistry : new SimpleMeterRegistry());
+                    current.bindJobs(jobs::values);
+                    current.startHeapSampler(heapSampleMs, jobs::values);
+                    metrics = current;
                 }
             }
-            return 20;
         }
+        return current;
+    }
 
-        if (url.contains("facebook.com") || url.contains("twitter.com") || url.contains("instagram.com") || url.contains("tiktok.com")) {
-            synchronized (blacklistedUrlsList) {
-                if (!blacklistedUrlsList.contains(url)) {
-                    blacklistedUrlsList.add(url);
-                }
+    /**
+     * Tells the job's event streams that {@code task} was fetched, or skipped
+     * before fetching if {@code result} is null, and what came of it.
+     */
+    private static void publishPage(CrawlJob job, UrlTask task, FetchResult result, String outcome) {
+        if (!job.hasEventStreams()) {
+            return;
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("url", task.getUrl());
+        page.put("depth", task.getDepth());
+        page.put("status", result != null ? result.getStatus() : null);
+        page.put("bytes", result != null && result.getBody() != null ? result.getBody().length : 0);
+        page.put("outcome", outcome);
+        job.publish("page", page);
+    }
+
+    /**
+     * URL of an earlier page of this crawl whose text is nearly the same as
+     * {@code page}'s, or null if there is none or the page is too short to
+     * tell.
+     */
+    private String nearDuplicateOf(CrawlJob job, String url, ParsedPage page) {
+        SimHashIndex index = job.simHashIndex;
+        if (index == null || page.getShingleCount() < dedupMinShingles) {
+            return null;
+        }
+        job.pagesFingerprinted.incrementAndGet();
+        String original = index.findOrAdd(page.getSimHash(), url);
+        if (original != null) {
+            job.nearDuplicates.incrementAndGet();
+            logger.info("{} is a near duplicate of {}", url, original);
+        }
+        return original;
+    }
+
+    /**
+     * True if {@code url} matches a pattern that has only served non-HTML
+     * this crawl; such URLs are neither queued nor fetched.
+     */
+    private boolean isLearnedNonHtml(CrawlJob job, String url) {
+        ContentTypeLearner learner = job.contentTypeLearner;
+        if (learner != null && learner.isNonHtml(url)) {
+            job.nonHtmlSkipped.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * True if robots.txt rules already fetched for {@code url}'s host
+     * disallow it. Rules that are not here yet are only fetched once one of
+     * the host's URLs is dispatched, which checks it again, so links to
+     * hosts this crawl never visits cost no robots.txt download.
+     */
+    private boolean isDisallowedByRobots(CrawlJob job, String url) {
+        RobotsCache robots = job.robots;
+        if (robots == null) {
+            return false;
+        }
+        RobotsRules rules = robots.getIfLoaded(url);
+        if (rules != null && !rules.isAllowed(url)) {
+            job.robotsDisallowed.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Spaces fetches from {@code url}'s host by its robots.txt Crawl-delay,
+     * unless {@code crawler.rateLimit} already spaces them further.
+     */
+    private void applyCrawlDelay(CrawlJob job, String url, RobotsRules rules) {
+        long delay = rules.getCrawlDelayMillis();
+        if (delay <= 0) {
+            return;
+        }
+        String host = HostScheduler.hostOf(url);
+        if (job.crawlDelayHosts.add(host)) {
+            delay = Math.min(delay, robotsMaxCrawlDelayMs);
+            if (rateLimit > 0) {
+                delay = Math.max(delay, (long) (1000 / rateLimit));
+            }
+            job.scheduler.setHostDelay(host, delay);
+            logger.info("Fetching {} at most once every {} ms as its robots.txt asks", host, delay);
+        }
+    }
+
+    private synchronized RobotsCache robotsCache() {
+        if (robotsCache == null) {
+            // robots.txt is read wherever its redirects lead, so it needs a fetcher of its own that follows them
+            HttpClientFetcher robotsFetcher = new HttpClientFetcher(Duration.ofMillis(fetchConnectTimeoutMs),
+                    Duration.ofMillis(fetchReadTimeoutMs), fetchMaxBodyBytes, userAgent,
+                    new ContentGate(fetchMaxBodyBytes), true);
+            robotsCache = new RobotsCache(robotsFetcher, robotsAgent,
+                    Duration.ofMinutes(robotsTtlMinutes), robotsMaxHosts);
+        }
+        return robotsCache;
+    }
+
+    private Fetcher newFetcher(CrawlJob job) {
+        if ("jsoup".equalsIgnoreCase(fetcherType)) {
+            return new JsoupFetcher(job.threadPool, fetchReadTimeoutMs, fetchMaxBodyBytes, userAgent);
+        }
+        if (!"httpclient".equalsIgnoreCase(fetcherType)) {
+            logger.warn("Unknown crawler.fetcher '{}', using httpclient", fetcherType);
+        }
+        return sharedHttpClientFetcher();
+    }
+
+    private synchronized HttpClientFetcher sharedHttpClientFetcher() {
+        if (httpClientFetcher == null) {
+            httpClientFetcher = new HttpClientFetcher(Duration.ofMillis(fetchConnectTimeoutMs),
+                    Duration.ofMillis(fetchReadTimeoutMs), fetchMaxBodyBytes, userAgent);
+        }
+        return httpClientFetcher;
+    }
+
+    private int crawlConcurrency() {
+        return maxInFlight > 0 ? maxInFlight : threadPoolSize;
+    }
+
+    private synchronized Semaphore fetchBudget() {
+        if (fetchBudget == null) {
+            // By default as many as one crawl may have, including what its adaptive limit may grow to
+            int crawlCeiling = adaptiveEnabled ? Math.max(adaptiveMaxInFlight, crawlConcurrency()) : crawlConcurrency();
+            // Fair, so a crawl started later gets permits in turn with the ones already running
+            fetchBudget = new Semaphore(jobsMaxInFlight > 0 ? jobsMaxInFlight : crawlCeiling, true);
+        }
+        return fetchBudget;
+    }
+
+    private synchronized ExecutorService jobRunner() {
+        if (jobRunner == null) {
+            AtomicInteger threads = new AtomicInteger();
+            jobRunner = Executors.newFixedThreadPool(Math.max(1, jobsMaxConcurrent), runnable -> {
+                Thread thread = new Thread(runnable, "crawl-job-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return jobRunner;
+    }
+
+    /**
+     * Drops the oldest finished jobs beyond {@code crawler.jobs.retained}.
+     */
+    private void pruneFinishedJobs() {
+        List<CrawlJob> finished = getJobs().stream()
+                .filter(job -> job.getStatus().isFinished())
+                .collect(Collectors.toList());
+        for (int i = 0; i < finished.size() - jobsRetained; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+
+    private CrawlCheckpointStore checkpointStore(String jobId) {
+        return checkpointDir.isBlank() ? null
+                : new CrawlCheckpointStore(Path.of(checkpointDir).resolve(jobId), checkpointsKept);
+    }
+
+    /**
+     * Store of the job that checkpointed last. Checkpoints written straight
+     * into {@code crawler.checkpoint.dir}, before crawls had job ids, count
+     * too.
+     */
+    private CrawlCheckpointStore newestCheckpointStore() {
+        if (checkpointDir.isBlank()) {
+            return null;
+        }
+        Path root = Path.of(checkpointDir);
+        List<CrawlCheckpointStore> stores = new ArrayList<>();
+        stores.add(new CrawlCheckpointStore(root, checkpointsKept));
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> entries = Files.list(root)) {
+                entries.filter(Files::isDirectory)
+                        .forEach(dir -> stores.add(new CrawlCheckpointStore(dir, checkpointsKept)));
+            } catch (IOException e) {
+                logger.error("Cannot list checkpoint directories in {}: {}", root, e.getMessage());
+            }
+        }
+        CrawlCheckpointStore newest = null;
+        Instant newestTime = null;
+        for (CrawlCheckpointStore store : stores) {
+            Instant time = store.latestCommitTime();
+            if (time != null && (newestTime == null || time.isAfter(newestTime))) {
+                newest = store;
+                newestTime = time;
             }
-            return 20;
         }
+        return newest;
+    }
+
+    private ScheduledExecutorService startCheckpointing(CrawlJob job, String startUrl) {
+        CrawlCheckpointStore store = job.checkpointStore;
+        if (store == null || checkpointIntervalSeconds <= 0) {
+            return null;
+        }
+        ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crawl-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(() -> checkpoint(job, store, startUrl),
+                checkpointIntervalSeconds, checkpointIntervalSeconds, TimeUnit.SECONDS);
+        return checkpointer;
+    }
 
-        if (url.contains("ad") || url.contains("ads") || url.contains("tracker") || url.contains("banner")) {
-            synchronized (lowPriorityUrlsList) {
-                if (!lowPriorityUrlsList.contains(url)) {
-                    lowPriorityUrlsList.add(url);
+    /**
+     * Copies the crawl state and writes it out. Link expansion is held off
+     * only while the frontier and seen-set are copied, so no URL can be in the
+     * seen-set copy without also being in the frontier copy; encoding and
+     * disk writes happen after workers are released.
+     */
+    void checkpoint(CrawlJob job, CrawlCheckpointStore store, String startUrl) {
+        Path staging = null;
+        try {
+            staging = store.stage();
+            FrontierSnapshot frontierSnapshot;
+            SeenSet seen;
+            int crawled;
+            job.enqueueLock.writeLock().lock();
+            try {
+                frontierSnapshot = job.scheduler.snapshot(staging);
+                seen = job.visitedUrls.copy();
+                crawled = job.tracker.getUrlsCrawled();
+            } finally {
+                job.enqueueLock.writeLock().unlock();
+            }
+            long start = System.nanoTime();
+            Path written = store.commit(staging, new CrawlCheckpoint(startUrl, job.dispatched.get(), crawled,
+                    Instant.now(), frontierSnapshot, seen));
+            logger.info("Checkpoint {}: {} tasks, {} URLs seen, written in {} ms", written, frontierSnapshot.size(),
+                    seen.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to write crawl checkpoint: {}", e.getMessage());
+            store.discard(staging);
+        }
+    }
+
+    /**
+     * Replaces the bundled URL rules with the ones in {@code path}, if set.
+     */
+    @Value("${crawler.urlRules:}")
+    void setUrlRules(String path) throws IOException {
+        if (path != null && !path.isBlank()) {
+            urlClassifier = UrlClassifier.load(Path.of(path));
+            logger.info("Loaded {} URL rules from {}", urlClassifier.ruleCount(), path);
+        }
+    }
+
+    private UrlCanonicalizer newCanonicalizer() {
+        if (!canonicalizeUrls) {
+            return null;
+        }
+        List<String> stripParams = Arrays.stream(canonicalStripParams.split(","))
+                .map(String::strip)
+                .filter(param -> !param.isEmpty())
+                .collect(Collectors.toList());
+        return new UrlCanonicalizer(stripParams, canonicalStripTrailingSlash, canonicalSortQuery);
+    }
+
+    private static String canonicalize(CrawlJob job, String url) {
+        UrlCanonicalizer canonicalizer = job.canonicalizer;
+        return canonicalizer != null ? canonicalizer.canonicalize(url) : url;
+    }
+
+    /**
+     * Fetches avoided because URL variants collapsed into one canonical URL:
+     * distinct links as written minus distinct canonical URLs queued.
+     */
+    static long getFetchesSaved(CrawlJob job) {
+        SeenSet raw = job.distinctRawLinks;
+        SeenSet visited = job.visitedUrls;
+        return raw == null || visited == null ? 0 : Math.max(0, raw.size() - (visited.size() - job.seenBaseline));
+    }
+
+    private HostScheduler newScheduler(CrawlJob job) {
+        Frontier overflow = null;
+        if ("spilling".equalsIgnoreCase(frontierType)) {
+            try {
+                overflow = new SpillingFrontier(frontierDir.isBlank() ? null : Path.of(frontierDir),
+                        frontierMemoryBudgetMb << 20, frontierDiskBudgetMb << 20);
+            } catch (IOException e) {
+                logger.error("Cannot create spilling frontier, keeping the frontier in memory: {}", e.getMessage());
+            }
+        }
+        job.frontier = overflow;
+        // crawler.rateLimit is the fetch rate allowed per host, not across the whole crawl
+        return new HostScheduler(rateLimit, perHostInFlight,
+                Comparator.comparingInt(UrlTask::getPriority), overflow, frontierMaxBufferedTasks);
+    }
+
+    private static void closeFrontier(CrawlJob job) {
+        Frontier current = job.frontier;
+        if (current instanceof SpillingFrontier spilling) {
+            logger.info("Frontier spilled {} tasks to disk, dropped {}", spilling.getSpilledCount(),
+                    spilling.getDroppedCount());
+        }
+        if (current != null) {
+            current.close();
+        }
+        job.frontier = null;
+    }
+
+    /**
+     * Queues links other nodes of a distributed crawl found on this node's
+     * hosts, unless they were seen before. Once this node's part of the
+     * crawl has ended they are only counted.
+     *
+     * @return false if the job has not started here yet, so the sender
+     *         should try again
+     */
+    boolean acceptForwardedLinks(CrawlJob job, List<UrlTask> tasks) {
+        CrawlPartition partition = job.partition;
+        HostScheduler scheduler = job.scheduler;
+        SeenSet seen = job.visitedUrls;
+        if (partition == null || (!job.getStatus().isFinished() && (scheduler == null || seen == null))) {
+            return false;
+        }
+        if (!partition.isStopped() && !job.getStatus().isFinished()) {
+            job.enqueueLock.readLock().lock();
+            try {
+                for (UrlTask task : tasks) {
+                    if (seen.add(task.getUrl())) {
+                        scheduler.add(task);
+                    }
                 }
+            } finally {
+                job.enqueueLock.readLock().unlock();
             }
-            return 20;
         }
+        partition.recordReceived(tasks.size());
+        return true;
+    }
+
+    private Map<String, Object> partitionResponse(CrawlJob job) {
+        CrawlPartition partition = job.partition;
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", job.isCancelRequested() ? "cancelled" : "success");
+        response.put("job_id", job.getId());
+        response.put("node", partition.getSelf());
+        response.put("timestamp", ZonedDateTime.now().toString());
+        response.put("total_urls_crawled", job.graph.getNodes().size());
+        response.put("links_forwarded", partition.getForwarder().getSent());
+        response.put("links_received", partition.getReceived());
+        return response;
+    }
 
-        if (url.endsWith(".edu") || url.endsWith(".gov")) {
-            return 1;
+    /**
+     * Ranks every page in the graph store, whichever crawls stored them.
+     */
+    protected Map<String, Object> calculatePageRankResponse() {
+        return rankingResponse(graphStore, null);
+    }
+
+    Map<String, Object> calculatePageRankResponse(CrawlJob job) {
+        return rankingResponse(job.graph != null ? job.graph : graphStore, job);
+    }
+
+    private Map<String, Object> rankingResponse(GraphStore graphSource, CrawlJob job) {
+        List<String> nodes = graphSource.getNodes();
+        Map<String, List<String>> graph = graphSource.getGraph();
+        if (job != null && job.graph == null && job.sharedGraph) {
+            // Leave out the pages only the crawls sharing the store fetched
+            SeenSet stored = job.storedPages;
+            nodes = nodes.stream().filter(stored::contains).collect(Collectors.toList());
+            graph = graph.entrySet().stream().filter(entry -> stored.contains(entry.getKey()))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        }
+        if (job != null && !job.duplicateOf.isEmpty()) {
+            nodes = nodes.stream().filter(node -> !job.duplicateOf.containsKey(node)).collect(Collectors.toList());
+            graph = collapseDuplicates(graph, job.duplicateOf);
+        }
+        // Warm-start from the ranks maintained during the crawl when we have them
+        IncrementalPageRank ranker = job != null ? job.incrementalRanker : null;
+        Map<String, Double> pageRanks;
+        PageRankResult rankStats;
+        // The calculator keeps the stats of its last run, so crawls finishing together take turns
+        synchronized (pageRankCalculator) {
+            pageRanks = ranker != null
+                    ? pageRankCalculator.computePageRank(nodes, graph, ranker.snapshot())
+                    : pageRankCalculator.computePageRank(nodes, graph);
+            rankStats = pageRankCalculator.getLastResult();
+        }
+        if (graphWriteBehind != null) {
+            try {
+                graphWriteBehind.enqueuePageRanks(pageRanks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while queueing PageRank updates");
+            }
+        } else {
+            graphStore.updatePageRank(pageRanks);
         }
 
-        if (url.contains("research") || url.contains("science")) {
-            return 5;
+        Ranking ranking = Ranking.build(job != null ? job.getId() : null, pageRanks, nodes, graph);
+        lastRanking = ranking;
+        if (job != null) {
+            job.ranking = ranking;
+        }
+        List<Map<String, Object>> resultData = ranking.rows(0,
+                rankingResponseLimit > 0 ? rankingResponseLimit : ranking.size(), Double.NEGATIVE_INFINITY);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", job != null && job.isCancelRequested() ? "cancelled" : "success");
+        if (job != null) {
+            response.put("job_id", job.getId());
+        }
+        response.put("timestamp", ZonedDateTime.now().toString());
+        response.put("total_urls_crawled", nodes.size());
+        if (job != null) {
+            response.put("fetches_saved_by_canonicalization", getFetchesSaved(job));
+            long fingerprinted = job.pagesFingerprinted.get();
+            long duplicates = job.nearDuplicates.get();
+            response.put("near_duplicate_pages", duplicates);
+            response.put("near_duplicate_rate", fingerprinted > 0 ? (double) duplicates / fingerprinted : 0.0);
+        }
+        if (rankStats != null) {
+            response.put("pagerank_iterations", rankStats.getIterations());
+            response.put("pagerank_residual", rankStats.getResidual());
+        }
+        response.put("data", resultData);
+        return response;
+    }
+
+    /**
+     * {@code graph} without the aliases of collapsed near duplicates, and with
+     * the links to them pointed at the pages they duplicate. Pages stored
+     * before a duplicate was found still link to its alias.
+     */
+    static Map<String, List<String>> collapseDuplicates(Map<String, List<String>> graph,
+            Map<String, String> duplicateOf) {
+        if (duplicateOf.isEmpty()) {
+            return graph;
+        }
+        Map<String, List<String>> collapsed = new HashMap<>(Math.max(16, graph.size() * 2));
+        for (Map.Entry<String, List<String>> entry : graph.entrySet()) {
+            if (duplicateOf.containsKey(entry.getKey())) {
+                continue;
+            }
+            List<String> targets = entry.getValue();
+            if (targets.stream().anyMatch(duplicateOf::containsKey)) {
+                targets = targets.stream().map(target -> duplicateOf.getOrDefault(target, target))
+                        .distinct().collect(Collectors.toList());
+            }
+            collapsed.put(entry.getKey(), targets);
+        }
+        return collapsed;
+    }
+
+    /**
+     * The last ranking computed for job {@code jobId}, or the last one
+     * computed for any crawl if it is null. Null if there is none.
+     */
+    public Ranking getRanking(String jobId) {
+        if (jobId == null) {
+            return lastRanking;
+        }
+        CrawlJob job = jobs.get(jobId);
+        return job != null ? job.getRanking() : null;
+    }
+
+    /**
+     * Rows {@code offset} to {@code offset + limit} of a computed ranking
+     * (see {@link #getRanking(String)}) ranked at least {@code minRank}, or
+     * null if there is no such ranking. Nothing is ranked again.
+     */
+    public Map<String, Object> getRankingPage(String jobId, int offset, int limit, double minRank) {
+        Ranking ranking = getRanking(jobId);
+        if (ranking == null) {
+            return null;
+        }
+        List<Map<String, Object>> rows = ranking.rows(offset, limit, minRank);
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).put("position", Math.max(0, offset) + i + 1);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", "success");
+        if (ranking.getJobId() != null) {
+            response.put("job_id", ranking.getJobId());
+        }
+        response.put("computed_at", ranking.getComputedAt().toString());
+        response.put("total_pages", ranking.size());
+        response.put("matching_pages", ranking.countAtLeast(minRank));
+        response.put("offset", Math.max(0, offset));
+        response.put("limit", limit);
+        response.put("data", rows);
+        return response;
+    }
+
+    /**
+     * Interim ranking of the most recently started crawl that is still
+     * running, see {@link #getInterimRanking(String, int)}.
+     */
+    public Map<String, Object> getInterimRanking(int limit) {
+        CrawlJob latest = null;
+        for (CrawlJob job : getJobs()) {
+            if (job.getStatus() == CrawlJob.Status.RUNNING) {
+                latest = job;
+            }
+        }
+        return getInterimRanking(latest != null ? latest.getId() : null, limit);
+    }
+
+    /**
+     * Interim ranking of the pages job {@code jobId} has processed so far, as
+     * maintained by its incremental ranker. Empty when incremental ranking is
+     * disabled or there is no such job.
+     */
+    public Map<String, Object> getInterimRanking(String jobId, int limit) {
+        CrawlJob job = jobId != null ? jobs.get(jobId) : null;
+        IncrementalPageRank ranker = job != null ? job.incrementalRanker : null;
+        List<Map<String, Object>> resultData = new ArrayList<>();
+        if (ranker != null) {
+            ranker.top(limit).forEach((url, rank) -> resultData.add(Map.of("url", url, "rank", rank)));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", ranker != null ? "success" : "unavailable");
+        if (job != null) {
+            response.put("job_id", job.getId());
+        }
+        response.put("timestamp", ZonedDateTime.now().toString());
+        response.put("pages_ranked", ranker != null ? ranker.size() : 0);
+        response.put("data", resultData);
+        return response;
+    }
+
+    /**
+     * Queue depth and flush latency of the graph write-behind stage, or an
+     * empty map when writes go straight to the database.
+     */
+    public Map<String, Object> getGraphWriteStats() {
+        return graphWriteBehind != null ? graphWriteBehind.getStats() : Map.of();
+    }
+
+    int calculatePriority(String url) {
+        return urlClassifier.classify(url).getPriority();
+    }
+
+    /**
+     * Priority of {@code url}, adding it to {@code job}'s blacklisted or low
+     * priority URLs if its rule asks for it.
+     */
+    int calculatePriority(CrawlJob job, String url) {
+        UrlClassifier.Result result = urlClassifier.classify(url);
+        if (result.getRecord() == UrlClassifier.Record.BLACKLIST) {
+            job.blacklistedUrls.add(url);
+        } else if (result.getRecord() == UrlClassifier.Record.LOW_PRIORITY) {
+            job.lowPriorityUrls.add(url);
         }
-        // Default priority
-        return 10;
+        return result.getPriority();
     }
 }
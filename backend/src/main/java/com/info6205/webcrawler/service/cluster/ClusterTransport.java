@@ -0,0 +1,46 @@
+package com.info6205.webcrawler.service.cluster;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+/**
+ * Calls from one crawler node to another, addressed by the node's base URL
+ * as listed in {@code crawler.cluster.nodes}. Each call fails with an
+ * {@link IOException} if the node cannot be reached or refuses it.
+ */
+public interface ClusterTransport {
+
+    /**
+     * Starts node {@code node}'s part of crawl {@code jobId}; starting it
+     * again does nothing.
+     */
+    void start(String node, String jobId, String startUrl) throws IOException;
+
+    /**
+     * Hands links to the node owning their hosts. Refused while the node has
+     * not started the crawl yet, so the sender keeps them and tries again.
+     */
+    void sendLinks(String node, String jobId, List<UrlTask> links) throws IOException;
+
+    /**
+     * The node's progress on the crawl, whether it is idle and how many
+     * links it has forwarded and received.
+     */
+    Map<String, Object> state(String node, String jobId) throws IOException;
+
+    /**
+     * Ends the node's part of the crawl once the whole cluster is idle.
+     */
+    void stop(String node, String jobId) throws IOException;
+
+    void cancel(String node, String jobId) throws IOException;
+
+    /**
+     * The pages the node crawled and their out-links, as {@code nodes} and
+     * {@code graph}.
+     */
+    Map<String, Object> graph(String node, String jobId) throws IOException;
+}
@@ -0,0 +1,94 @@
+package com.info6205.webcrawler.service.cluster;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.frontier.HostScheduler;
+
+/**
+ * One node's share of a distributed crawl: the hosts the ring gives it,
+ * which it alone fetches, keeping their frontier and seen-set, and the
+ * forwarder for links to everyone else's hosts.
+ *
+ * <p>The node's crawl loop only ends when {@link #stop} is called, which the
+ * coordinator does once every node is idle and every forwarded link has
+ * been received; running out of local work is not enough, as other nodes
+ * may still send some.
+ */
+public class CrawlPartition implements AutoCloseable {
+
+    private final HashRing ring;
+    private final String self;
+    private final LinkForwarder forwarder;
+    private final AtomicLong received = new AtomicLong();
+    private volatile boolean idle;
+    private volatile boolean stopped;
+
+    public CrawlPartition(HashRing ring, String self, LinkForwarder forwarder) {
+        this.ring = ring;
+        this.self = self;
+        this.forwarder = forwarder;
+    }
+
+    public boolean owns(String url) {
+        return self.equals(ownerOf(url));
+    }
+
+    public String ownerOf(String url) {
+        return ring.ownerOf(HostScheduler.hostOf(url));
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * Sends {@code task} to the node owning its host.
+     */
+    public void forward(UrlTask task) {
+        forwarder.forward(ownerOf(task.getUrl()), task);
+    }
+
+    public LinkForwarder getForwarder() {
+        return forwarder;
+    }
+
+    /**
+     * Counts links taken from other nodes, once they are queued or dropped.
+     */
+    public void recordReceived(int links) {
+        received.addAndGet(links);
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Set by the crawl loop when it has nothing queued or in flight, and
+     * cleared as soon as it takes a task.
+     */
+    public void setIdle(boolean idle) {
+        this.idle = idle;
+    }
+
+    /**
+     * True if the crawl loop is out of work and no links wait to be sent.
+     */
+    public boolean isIdle() {
+        return idle && forwarder.getPending() == 0;
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public void close() {
+        forwarder.close();
+    }
+}
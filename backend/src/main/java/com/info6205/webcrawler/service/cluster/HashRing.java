@@ -0,0 +1,55 @@
+package com.info6205.webcrawler.service.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Consistent hashing of hosts onto crawler nodes. Every node is placed on
+ * the ring at {@code virtualNodes} points, and a host belongs to the first
+ * node point at or after the host's hash. Adding or removing a node only
+ * moves the hosts of the ring segments it gains or loses, about one node's
+ * share, and every node computes the same owners from the same node list.
+ */
+public final class HashRing {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final List<String> nodes;
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        this.nodes = List.copyOf(new ArrayList<>(nodes));
+        int points = Math.max(1, virtualNodes);
+        for (String node : this.nodes) {
+            for (int i = 0; i < points; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * The node that crawls {@code host}.
+     */
+    public String ownerOf(String host) {
+        Map.Entry<Long, String> point = ring.ceilingEntry(hash(host));
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    private static long hash(String key) {
+        return HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+}
@@ -0,0 +1,103 @@
+package com.info6205.webcrawler.service.cluster;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.info6205.webcrawler.entity.UrlTask;
+
+/**
+ * {@link ClusterTransport} over the nodes' {@code /api/cluster} endpoints,
+ * with JSON bodies.
+ */
+public class HttpClusterTransport implements ClusterTransport {
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {
+    };
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+
+    public HttpClusterTransport(ObjectMapper objectMapper, Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        // HTTP/1.1 keeps one connection per request in flight, which suits small, frequent calls
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public void start(String node, String jobId, String startUrl) throws IOException {
+        send(post(node, "/api/cluster/jobs/" + jobId + "/start?startUrl="
+                + URLEncoder.encode(startUrl, StandardCharsets.UTF_8), HttpRequest.BodyPublishers.noBody()));
+    }
+
+    @Override
+    public void sendLinks(String node, String jobId, List<UrlTask> links) throws IOException {
+        send(post(node, "/api/cluster/jobs/" + jobId + "/links",
+                HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(links))));
+    }
+
+    @Override
+    public Map<String, Object> state(String node, String jobId) throws IOException {
+        return objectMapper.readValue(send(get(node, "/api/cluster/jobs/" + jobId)), MAP);
+    }
+
+    @Override
+    public void stop(String node, String jobId) throws IOException {
+        send(post(node, "/api/cluster/jobs/" + jobId + "/stop", HttpRequest.BodyPublishers.noBody()));
+    }
+
+    @Override
+    public void cancel(String node, String jobId) throws IOException {
+        send(post(node, "/api/cluster/jobs/" + jobId + "/cancel", HttpRequest.BodyPublishers.noBody()));
+    }
+
+    @Override
+    public Map<String, Object> graph(String node, String jobId) throws IOException {
+        return objectMapper.readValue(send(get(node, "/api/cluster/jobs/" + jobId + "/graph")), MAP);
+    }
+
+    private HttpRequest get(String node, String path) {
+        return request(node, path).GET().build();
+    }
+
+    private HttpRequest post(String node, String path, HttpRequest.BodyPublisher body) {
+        return request(node, path)
+                .header("Content-Type", "application/json")
+                .POST(body)
+                .build();
+    }
+
+    private HttpRequest.Builder request(String node, String path) {
+        String base = node.endsWith("/") ? node.substring(0, node.length() - 1) : node;
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(timeout);
+    }
+
+    private byte[] send(HttpRequest request) throws IOException {
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted calling " + request.uri());
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("HTTP " + response.statusCode() + " from " + request.uri());
+        }
+        return response.body();
+    }
+}
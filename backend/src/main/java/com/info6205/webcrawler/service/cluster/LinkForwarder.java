@@ -0,0 +1,154 @@
+package com.info6205.webcrawler.service.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+/**
+ * Batches the links a node finds on hosts owned by other nodes and sends
+ * them to their owners: as soon as a node's batch is full, and otherwise
+ * every {@code flushIntervalMillis}. Sending happens on one background
+ * thread. A batch the owner refuses or cannot take is kept and sent again
+ * with the next flush, so links are not lost while a node starts up.
+ *
+ * <p>{@link #getSent()} counts links the owners acknowledged; with the
+ * owners' received counts it tells the coordinator whether any links are
+ * still on their way.
+ */
+public class LinkForwarder implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(LinkForwarder.class);
+
+    private final String jobId;
+    private final ClusterTransport transport;
+    private final int batchSize;
+    private final Map<String, List<UrlTask>> batches = new HashMap<>();
+    private final ScheduledExecutorService sender;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    // Links buffered or being sent
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failedSends = new AtomicLong();
+
+    public LinkForwarder(String jobId, ClusterTransport transport, int batchSize, long flushIntervalMillis) {
+        this.jobId = jobId;
+        this.transport = transport;
+        this.batchSize = Math.max(1, batchSize);
+        this.sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "link-forwarder-" + jobId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender.scheduleWithFixedDelay(this::flush, flushIntervalMillis, Math.max(1, flushIntervalMillis),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues {@code task} for node {@code node}.
+     */
+    public void forward(String node, UrlTask task) {
+        boolean full;
+        pending.incrementAndGet();
+        synchronized (batches) {
+            List<UrlTask> batch = batches.computeIfAbsent(node, key -> new ArrayList<>());
+            batch.add(task);
+            full = batch.size() >= batchSize;
+        }
+        if (full) {
+            requestFlush();
+        }
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getPending() {
+        return pending.get();
+    }
+
+    public long getFailedSends() {
+        return failedSends.get();
+    }
+
+    /**
+     * Sends what is left, trying for up to {@code timeoutMillis}, and stops
+     * the background thread.
+     *
+     * @return false if links were still unsent when time ran out
+     */
+    public boolean drain(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (pending.get() > 0 && System.currentTimeMillis() < deadline) {
+            requestFlush();
+            Thread.sleep(50);
+        }
+        close();
+        return pending.get() == 0;
+    }
+
+    @Override
+    public void close() {
+        sender.shutdownNow();
+    }
+
+    private void requestFlush() {
+        if (flushQueued.compareAndSet(false, true)) {
+            try {
+                sender.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushQueued.set(false);
+            }
+        }
+    }
+
+    private void flush() {
+        flushQueued.set(false);
+        Map<String, List<UrlTask>> due;
+        synchronized (batches) {
+            if (batches.isEmpty()) {
+                return;
+            }
+            due = new HashMap<>(batches);
+            batches.clear();
+        }
+        for (Map.Entry<String, List<UrlTask>> batch : due.entrySet()) {
+            List<UrlTask> links = batch.getValue();
+            for (int from = 0; from < links.size(); from += batchSize) {
+                List<UrlTask> chunk = links.subList(from, Math.min(links.size(), from + batchSize));
+                try {
+                    transport.sendLinks(batch.getKey(), jobId, chunk);
+                    sent.addAndGet(chunk.size());
+                    pending.addAndGet(-chunk.size());
+                } catch (IOException | RuntimeException e) {
+                    if (failedSends.getAndIncrement() % 100 == 0) {
+                        logger.warn("Cannot forward {} links of crawl job {} to {}, will retry: {}",
+                                links.size() - from, jobId, batch.getKey(), e.getMessage());
+                    }
+                    requeue(batch.getKey(), links.subList(from, links.size()));
+                    break;
+                }
+            }
+        }
+    }
+
+    private void requeue(String node, List<UrlTask> links) {
+        synchronized (batches) {
+            List<UrlTask> batch = batches.computeIfAbsent(node, key -> new ArrayList<>());
+            batch.addAll(0, links);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.info6205.webcrawler.service.dedup;
+
+/**
+ * Builds the 64-bit SimHash of a text from its word 3-shingles. Texts that
+ * share most of their shingles get fingerprints a few bits apart, so near
+ * duplicates can be found by Hamming distance.
+ *
+ * <p>Text is fed as bytes in one or more pieces. Words are runs of ASCII
+ * letters and digits, compared case-insensitively, and of non-ASCII bytes,
+ * so UTF-8 text splits into the same words as its ASCII punctuation
+ * suggests. A word never continues from one piece into the next.
+ */
+public final class SimHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int[] weights = new int[64];
+    private long word = FNV_OFFSET;
+    private boolean inWord;
+    private long previous;
+    private long beforePrevious;
+    private int words;
+    private int shingles;
+
+    public void update(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int c = bytes[i];
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c < 0) {
+                word = (word ^ (c & 0xff)) * FNV_PRIME;
+                inWord = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                word = (word ^ (c | 0x20)) * FNV_PRIME;
+                inWord = true;
+            } else if (inWord) {
+                endWord();
+            }
+        }
+        if (inWord) {
+            endWord();
+        }
+    }
+
+    /**
+     * Number of shingles hashed so far; fingerprints of very short texts say
+     * little about similarity.
+     */
+    public int shingleCount() {
+        return shingles;
+    }
+
+    public long value() {
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private void endWord() {
+        long current = word;
+        word = FNV_OFFSET;
+        inWord = false;
+        if (++words >= 3) {
+            long shingle = mix(beforePrevious * 0x9e3779b97f4a7c15L + previous * 0xc2b2ae3d27d4eb4fL + current);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += (int) ((shingle >>> bit) & 1L) * 2 - 1;
+            }
+            shingles++;
+        }
+        beforePrevious = previous;
+        previous = current;
+    }
+
+    /**
+     * MurmurHash3's 64-bit finalizer.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
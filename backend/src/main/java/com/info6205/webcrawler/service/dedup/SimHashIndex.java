@@ -0,0 +1,97 @@
+package com.info6205.webcrawler.service.dedup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds fingerprints within {@code maxDistance} bits of one seen before.
+ *
+ * <p>The 64 bits are split into {@code maxDistance + 1} bands. Two
+ * fingerprints that differ in at most {@code maxDistance} bits agree exactly
+ * on at least one band, so each band is a hash table from band value to the
+ * fingerprints with that value, and only those candidates are compared bit
+ * by bit.
+ */
+public class SimHashIndex {
+
+    private final int maxDistance;
+    private final int[] bandShift;
+    private final long[] bandMask;
+    private final Map<Long, int[]>[] bands;
+
+    private long[] fingerprints = new long[1024];
+    private String[] urls = new String[1024];
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public SimHashIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > 15) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and 15");
+        }
+        this.maxDistance = maxDistance;
+        int bandCount = maxDistance + 1;
+        this.bandShift = new int[bandCount];
+        this.bandMask = new long[bandCount];
+        this.bands = new Map[bandCount];
+        int shift = 0;
+        for (int band = 0; band < bandCount; band++) {
+            int width = 64 / bandCount + (band < 64 % bandCount ? 1 : 0);
+            bandShift[band] = shift;
+            bandMask[band] = width == 64 ? -1L : (1L << width) - 1;
+            bands[band] = new HashMap<>();
+            shift += width;
+        }
+    }
+
+    /**
+     * Returns the URL of an earlier page whose fingerprint is within
+     * {@code maxDistance} bits of {@code fingerprint}, or adds this page and
+     * returns null if there is none.
+     */
+    public synchronized String findOrAdd(long fingerprint, String url) {
+        for (int band = 0; band < bands.length; band++) {
+            int[] candidates = bands[band].get(bandKey(fingerprint, band));
+            if (candidates == null) {
+                continue;
+            }
+            for (int c = 1; c <= candidates[0]; c++) {
+                int id = candidates[c];
+                if (SimHash.distance(fingerprints[id], fingerprint) <= maxDistance) {
+                    return urls[id];
+                }
+            }
+        }
+        add(fingerprint, url);
+        return null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void add(long fingerprint, String url) {
+        if (size == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, size * 2);
+            urls = Arrays.copyOf(urls, size * 2);
+        }
+        int id = size++;
+        fingerprints[id] = fingerprint;
+        urls[id] = url;
+        for (int band = 0; band < bands.length; band++) {
+            // Bucket layout: count, then ids
+            int[] bucket = bands[band].get(bandKey(fingerprint, band));
+            if (bucket == null) {
+                bucket = new int[2];
+            } else if (bucket[0] + 1 == bucket.length) {
+                bucket = Arrays.copyOf(bucket, bucket.length * 2);
+            }
+            bucket[++bucket[0]] = id;
+            bands[band].put(bandKey(fingerprint, band), bucket);
+        }
+    }
+
+    private long bandKey(long fingerprint, int band) {
+        return (fingerprint >>> bandShift[band]) & bandMask[band];
+    }
+}
@@ -0,0 +1,57 @@
+package com.info6205.webcrawler.service.fetch;
+
+import java.util.Locale;
+
+/**
+ * Decides from the response headers alone whether a page body is worth
+ * downloading, so images, videos and oversized files are abandoned before
+ * their bodies are read.
+ */
+public class ContentGate {
+
+    public enum Rejection {
+        NOT_HTML,
+        TOO_LARGE
+    }
+
+    private final long maxContentLength;
+
+    /**
+     * @param maxContentLength bodies declared longer than this are rejected;
+     *                         0 or less means no limit
+     */
+    public ContentGate(long maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * Null if the body should be downloaded. Only successful responses are
+     * gated.
+     *
+     * @param contentLength declared Content-Length, or -1 if unknown
+     */
+    public Rejection check(int status, String contentType, long contentLength) {
+        if (status < 200 || status >= 300) {
+            return null;
+        }
+        if (!isHtml(contentType)) {
+            return Rejection.NOT_HTML;
+        }
+        if (maxContentLength > 0 && contentLength > maxContentLength) {
+            return Rejection.TOO_LARGE;
+        }
+        return null;
+    }
+
+    /**
+     * Same types Jsoup accepts by default; a missing content type counts as
+     * HTML.
+     */
+    public static boolean isHtml(String contentType) {
+        if (contentType == null) {
+            return true;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("xml");
+    }
+}
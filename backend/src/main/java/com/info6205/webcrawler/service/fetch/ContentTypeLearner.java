@@ -0,0 +1,133 @@
+package com.info6205.webcrawler.service.fetch;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Learns URL patterns that only ever serve non-HTML, so later URLs matching
+ * them can be dropped without a request.
+ *
+ * <p>Every fetched URL counts towards two patterns on its host: its first
+ * path directory ({@code cdn.example.com/media/}) and its file extension
+ * ({@code example.com *.pdf}). A pattern is learned once it has had
+ * {@code minSamples} non-HTML responses and no HTML one; a single HTML
+ * response rules it out for the rest of the crawl. Counters are kept for at
+ * most {@code maxPatterns} patterns, least recently updated first out.
+ */
+public class ContentTypeLearner {
+
+    private static final int MAX_EXTENSION_LENGTH = 8;
+
+    private final int minSamples;
+    private final Map<String, Counts> counts;
+    private final Set<String> learned = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param minSamples non-HTML responses needed before a pattern is learned
+     */
+    public ContentTypeLearner(int minSamples, int maxPatterns) {
+        this.minSamples = Math.max(1, minSamples);
+        this.counts = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Counts> eldest) {
+                return size() > maxPatterns;
+            }
+        };
+    }
+
+    /**
+     * Records what {@code url} turned out to serve.
+     */
+    public void record(String url, boolean html) {
+        String[] patterns = patternsOf(url);
+        if (patterns == null) {
+            return;
+        }
+        synchronized (counts) {
+            for (String pattern : patterns) {
+                if (pattern == null) {
+                    continue;
+                }
+                Counts patternCounts = counts.computeIfAbsent(pattern, key -> new Counts());
+                if (html) {
+                    patternCounts.sawHtml = true;
+                    learned.remove(pattern);
+                } else if (!patternCounts.sawHtml && ++patternCounts.nonHtml >= minSamples) {
+                    learned.add(pattern);
+                }
+            }
+        }
+    }
+
+    /**
+     * True if {@code url} matches a pattern learned to serve only non-HTML.
+     */
+    public boolean isNonHtml(String url) {
+        if (learned.isEmpty()) {
+            return false;
+        }
+        String[] patterns = patternsOf(url);
+        if (patterns == null) {
+            return false;
+        }
+        for (String pattern : patterns) {
+            if (pattern != null && learned.contains(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int learnedCount() {
+        return learned.size();
+    }
+
+    /**
+     * Directory and extension patterns of {@code url}, either of which may
+     * be null, or null if it has no host.
+     */
+    static String[] patternsOf(String url) {
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd < 0) {
+            return null;
+        }
+        int hostStart = schemeEnd + 3;
+        int pathStart = hostStart;
+        while (pathStart < url.length() && "/?#".indexOf(url.charAt(pathStart)) < 0) {
+            pathStart++;
+        }
+        if (pathStart == hostStart) {
+            return null;
+        }
+        String host = url.substring(hostStart, pathStart).toLowerCase(Locale.ROOT);
+        int pathEnd = pathStart;
+        while (pathEnd < url.length() && url.charAt(pathEnd) != '?' && url.charAt(pathEnd) != '#') {
+            pathEnd++;
+        }
+
+        String directory = null;
+        if (pathStart < pathEnd) {
+            int second = url.indexOf('/', pathStart + 1);
+            if (second > pathStart + 1 && second < pathEnd) {
+                directory = host + url.substring(pathStart, second + 1);
+            }
+        }
+        String extension = null;
+        int lastSlash = url.lastIndexOf('/', pathEnd - 1);
+        int dot = url.lastIndexOf('.', pathEnd - 1);
+        if (lastSlash >= pathStart && dot > lastSlash + 1 && pathEnd - dot - 1 <= MAX_EXTENSION_LENGTH
+                && pathEnd - dot > 1) {
+            extension = host + " *" + url.substring(dot, pathEnd).toLowerCase(Locale.ROOT);
+        }
+        return new String[] {directory, extension};
+    }
+
+    private static final class Counts {
+
+        private int nonHtml;
+        private boolean sawHtml;
+    }
+}
@@ -0,0 +1,107 @@
+package com.info6205.webcrawler.service.fetch;
+
+/**
+ * Response to a fetch: final URL after redirects, status, content type and
+ * the body bytes, which stop at the fetcher's size limit. The body is empty
+ * when the {@link ContentGate} rejected the response. A fetcher that does not
+ * follow redirects reports them with their {@link #getLocation() target}.
+ */
+public class FetchResult {
+
+    private final String url;
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+    private final boolean truncated;
+    private final ContentGate.Rejection rejection;
+    private final String location;
+
+    public FetchResult(String url, int status, String contentType, byte[] body, boolean truncated) {
+        this(url, status, contentType, body, truncated, null);
+    }
+
+    public FetchResult(String url, int status, String contentType, byte[] body, boolean truncated,
+            ContentGate.Rejection rejection) {
+        this(url, status, contentType, body, truncated, rejection, null);
+    }
+
+    public FetchResult(String url, int status, String contentType, byte[] body, boolean truncated,
+            ContentGate.Rejection rejection, String location) {
+        this.url = url;
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+        this.truncated = truncated;
+        this.rejection = rejection;
+        this.location = location;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * The Content-Type header, or null if the server sent none.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * True if the body was cut off at the size limit.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Why the content gate stopped the body from being downloaded, or null if
+     * it was downloaded. A rejected result has an empty body.
+     */
+    public ContentGate.Rejection getRejection() {
+        return rejection;
+    }
+
+    public boolean isSuccess() {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * The Location header, as sent, or null if the server sent none.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * True for a 3xx response pointing somewhere else; 304 Not Modified has
+     * no target.
+     */
+    public boolean isRedirect() {
+        return status >= 300 && status < 400 && status != 304 && location != null;
+    }
+
+    /**
+     * Charset named in the content type, or null to let the parser detect it.
+     */
+    public String getCharset() {
+        if (contentType == null) {
+            return null;
+        }
+        for (String part : contentType.split(";")) {
+            String trimmed = part.strip();
+            if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                return trimmed.substring(8).replace("\"", "").strip();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.info6205.webcrawler.service.fetch;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Downloads pages. Non-2xx responses complete normally with their status;
+ * network failures and timeouts complete the future exceptionally.
+ */
+public interface Fetcher {
+
+    CompletableFuture<FetchResult> fetch(String url);
+}
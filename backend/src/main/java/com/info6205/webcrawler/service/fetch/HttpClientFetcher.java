@@ -0,0 +1,111 @@
+package com.info6205.webcrawler.service.fetch;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * {@link Fetcher} on {@link HttpClient}. Requests are sent asynchronously,
+ * so waiting on the network does not hold a crawler worker, and the client
+ * keeps connections alive and multiplexes requests to the same host over
+ * HTTP/2 where the server supports it (HTTP/1.1 otherwise).
+ *
+ * <p>Each request is bounded by {@code readTimeout} from send to the end of
+ * the headers, and again from the headers to the end of the body. Bodies are
+ * cut off at {@code maxBodyBytes} without downloading the rest. Responses the {@link ContentGate} rejects from their
+ * headers are cancelled before any of the body is read.
+ *
+ * <p>Redirects are only followed when asked to. The crawl reads them as
+ * links instead, so their targets pass through canonicalization, robots.txt
+ * and the per-host scheduler like any other URL.
+ */
+public class HttpClientFetcher implements Fetcher {
+
+    // Deadlines of the bodies being read, shared by every fetcher
+    private static final ScheduledThreadPoolExecutor BODY_DEADLINES = newDeadlineTimer();
+
+    private final HttpClient client;
+    private final Duration readTimeout;
+    private final long maxBodyBytes;
+    private final String userAgent;
+    private final ContentGate gate;
+
+    public HttpClientFetcher(Duration connectTimeout, Duration readTimeout, long maxBodyBytes, String userAgent) {
+        this(connectTimeout, readTimeout, maxBodyBytes, userAgent, new ContentGate(maxBodyBytes));
+    }
+
+    /**
+     * @param gate checks response headers before the body is read; null reads
+     *             every body
+     */
+    public HttpClientFetcher(Duration connectTimeout, Duration readTimeout, long maxBodyBytes, String userAgent,
+            ContentGate gate) {
+        this(connectTimeout, readTimeout, maxBodyBytes, userAgent, gate, false);
+    }
+
+    /**
+     * @param gate            checks response headers before the body is read;
+     *                        null reads every body
+     * @param followRedirects follow redirects and report where they ended;
+     *                        otherwise a redirect is the result
+     */
+    public HttpClientFetcher(Duration connectTimeout, Duration readTimeout, long maxBodyBytes, String userAgent,
+            ContentGate gate, boolean followRedirects) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(followRedirects ? HttpClient.Redirect.NORMAL : HttpClient.Redirect.NEVER)
+                .connectTimeout(connectTimeout)
+                .build();
+        this.readTimeout = readTimeout;
+        this.maxBodyBytes = maxBodyBytes;
+        this.userAgent = userAgent;
+        this.gate = gate;
+    }
+
+    @Override
+    public CompletableFuture<FetchResult> fetch(String url) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(readTimeout)
+                    .header("User-Agent", userAgent)
+                    .header("Accept", "text/html,application/xhtml+xml;q=0.9,*/*;q=0.1")
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return client.sendAsync(request, this::subscriberFor)
+                .thenApply(response -> new FetchResult(response.uri().toString(), response.statusCode(),
+                        response.headers().firstValue("Content-Type").orElse(null),
+                        response.body().bytes, response.body().truncated, response.body().rejection,
+                        response.headers().firstValue("Location").orElse(null)));
+    }
+
+    private LimitedBodySubscriber subscriberFor(HttpResponse.ResponseInfo info) {
+        if (gate != null) {
+            ContentGate.Rejection rejection = gate.check(info.statusCode(),
+                    info.headers().firstValue("Content-Type").orElse(null),
+                    info.headers().firstValueAsLong("Content-Length").orElse(-1));
+            if (rejection != null) {
+                return LimitedBodySubscriber.rejecting(rejection);
+            }
+        }
+        return new LimitedBodySubscriber(maxBodyBytes, BODY_DEADLINES, readTimeout);
+    }
+
+    private static ScheduledThreadPoolExecutor newDeadlineTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "fetch-body-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most bodies arrive in time; their cancelled deadlines must not pile up in the queue
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
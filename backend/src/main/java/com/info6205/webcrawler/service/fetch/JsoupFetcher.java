@@ -0,0 +1,79 @@
+package com.info6205.webcrawler.service.fetch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+/**
+ * {@link Fetcher} on Jsoup's blocking connection, run on {@code executor}.
+ * Each fetch holds an executor thread for the whole download. Jsoup reads
+ * the body lazily, so responses the {@link ContentGate} rejects are closed
+ * after the headers. Like {@link HttpClientFetcher}, it reports redirects
+ * instead of following them.
+ */
+public class JsoupFetcher implements Fetcher {
+
+    private final Executor executor;
+    private final int timeoutMillis;
+    private final int maxBodyBytes;
+    private final String userAgent;
+    private final ContentGate gate;
+
+    public JsoupFetcher(Executor executor, int timeoutMillis, int maxBodyBytes, String userAgent) {
+        this(executor, timeoutMillis, maxBodyBytes, userAgent, new ContentGate(maxBodyBytes));
+    }
+
+    /**
+     * @param gate checks response headers before the body is read; null reads
+     *             every body
+     */
+    public JsoupFetcher(Executor executor, int timeoutMillis, int maxBodyBytes, String userAgent,
+            ContentGate gate) {
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.maxBodyBytes = maxBodyBytes;
+        this.userAgent = userAgent;
+        this.gate = gate;
+    }
+
+    @Override
+    public CompletableFuture<FetchResult> fetch(String url) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Connection.Response response = Jsoup.connect(url)
+                        .userAgent(userAgent)
+                        .timeout(timeoutMillis)
+                        .maxBodySize(maxBodyBytes)
+                        .ignoreHttpErrors(true)
+                        .ignoreContentType(true)
+                        .followRedirects(false)
+                        .execute();
+                ContentGate.Rejection rejection = gate == null ? null : gate.check(response.statusCode(),
+                        response.contentType(), contentLength(response));
+                if (rejection != null) {
+                    response.bodyStream().close();
+                    return new FetchResult(response.url().toString(), response.statusCode(),
+                            response.contentType(), new byte[0], false, rejection);
+                }
+                byte[] body = response.bodyAsBytes();
+                return new FetchResult(response.url().toString(), response.statusCode(), response.contentType(),
+                        body, body.length >= maxBodyBytes, null, response.header("Location"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private static long contentLength(Connection.Response response) {
+        try {
+            String header = response.header("Content-Length");
+            return header != null ? Long.parseLong(header.strip()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
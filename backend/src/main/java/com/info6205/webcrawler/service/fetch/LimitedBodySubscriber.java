@@ -0,0 +1,135 @@
+package com.info6205.webcrawler.service.fetch;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects a response body up to {@code maxBytes}, then cancels the rest of
+ * the download. A rejecting subscriber cancels before reading anything. A
+ * body that has not arrived within its timeout fails with an
+ * {@link HttpTimeoutException} and is cancelled, so a server trickling bytes
+ * cannot hold a fetch forever.
+ */
+final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<LimitedBodySubscriber.Body> {
+
+    /**
+     * Bytes received, whether the body went past the limit, and why it was
+     * not read at all if it was rejected.
+     */
+    static final class Body {
+
+        final byte[] bytes;
+        final boolean truncated;
+        final ContentGate.Rejection rejection;
+
+        Body(byte[] bytes, boolean truncated, ContentGate.Rejection rejection) {
+            this.bytes = bytes;
+            this.truncated = truncated;
+            this.rejection = rejection;
+        }
+    }
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final CompletableFuture<Body> result = new CompletableFuture<>();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final long maxBytes;
+    private final ContentGate.Rejection rejection;
+    private final ScheduledExecutorService timer;
+    private final Duration timeout;
+    private volatile Flow.Subscription subscription;
+
+    LimitedBodySubscriber(long maxBytes) {
+        this(maxBytes, null, null, null);
+    }
+
+    /**
+     * @param timer   runs the deadline of the body
+     * @param timeout time from the headers to the end of the body
+     */
+    LimitedBodySubscriber(long maxBytes, ScheduledExecutorService timer, Duration timeout) {
+        this(maxBytes, null, timer, timeout);
+    }
+
+    private LimitedBodySubscriber(long maxBytes, ContentGate.Rejection rejection, ScheduledExecutorService timer,
+            Duration timeout) {
+        this.maxBytes = maxBytes;
+        this.rejection = rejection;
+        this.timer = timer;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Subscriber that cancels the body as soon as it starts, without reading
+     * any of it.
+     */
+    static LimitedBodySubscriber rejecting(ContentGate.Rejection rejection) {
+        return new LimitedBodySubscriber(0, rejection, null, null);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (rejection != null) {
+            subscription.cancel();
+            result.complete(new Body(EMPTY, false, rejection));
+            return;
+        }
+        if (timer != null) {
+            ScheduledFuture<?> deadline = timer.schedule(this::expire, timeout.toNanos(), TimeUnit.NANOSECONDS);
+            result.whenComplete((body, error) -> deadline.cancel(false));
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        if (result.isDone()) {
+            return;
+        }
+        for (ByteBuffer item : items) {
+            int room = (int) Math.min(Integer.MAX_VALUE, maxBytes - buffer.size());
+            int take = Math.min(room, item.remaining());
+            byte[] chunk = new byte[take];
+            item.get(chunk);
+            buffer.write(chunk, 0, take);
+            if (item.hasRemaining()) {
+                subscription.cancel();
+                result.complete(new Body(buffer.toByteArray(), true, null));
+                return;
+            }
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        result.complete(new Body(buffer.toByteArray(), false, null));
+    }
+
+    private void expire() {
+        if (result.completeExceptionally(new HttpTimeoutException("Body not received within " + timeout))) {
+            subscription.cancel();
+        }
+    }
+
+    @Override
+    public CompletionStage<Body> getBody() {
+        return result;
+    }
+}
@@ -0,0 +1,346 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Scalable Bloom filter over URLs.
+ *
+ * <p>Starts with one filter sized for {@code expectedUrls} at half the target
+ * false-positive rate. When a filter is full a new one is added with four
+ * times the capacity and half the previous rate, so the overall rate stays
+ * under {@code falsePositiveRate} however far the crawl grows (Almeida et al.,
+ * "Scalable Bloom Filters"). At 1% that is roughly 10 bits per URL.
+ *
+ * <p>A false positive makes the crawler skip a URL it never fetched; it never
+ * causes a page to be fetched twice. {@link #add} checks and sets a URL's
+ * bits under one of {@value #LOCK_STRIPES} locks picked by its hash, so
+ * concurrent adds of the same URL cannot both succeed, while adds of other
+ * URLs mostly go ahead in parallel. With {@code offHeap} the bit arrays live
+ * in direct buffers outside the Java heap.
+ */
+public class BloomSeenSet implements SeenSet {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    private static final int GROWTH = 4;
+    private static final double TIGHTENING = 0.5;
+    // Picked by the top 6 bits of the first hash
+    private static final int LOCK_STRIPES = 64;
+
+    private final boolean offHeap;
+    private final CopyOnWriteArrayList<Filter> filters = new CopyOnWriteArrayList<>();
+    private final AtomicLong size = new AtomicLong();
+    private final Object[] locks = newLocks();
+
+    public BloomSeenSet(int expectedUrls, double falsePositiveRate, boolean offHeap) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1): " + falsePositiveRate);
+        }
+        this.offHeap = offHeap;
+        filters.add(new Filter(Math.max(1024, expectedUrls), falsePositiveRate * TIGHTENING, offHeap));
+    }
+
+    private BloomSeenSet(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public boolean add(String url) {
+        long[] hashes = hashes(url);
+        // An add of the same URL sees the bits set here in whichever filter was current
+        synchronized (locks[(int) (hashes[0] >>> 58)]) {
+            Filter current = filters.get(filters.size() - 1);
+            if (current.count.get() >= current.capacity) {
+                // Wait for the next filter instead of overfilling this one while it is allocated
+                grow(current);
+                current = filters.get(filters.size() - 1);
+            }
+            for (Filter filter : filters) {
+                if (filter != current && filter.mightContain(hashes[0], hashes[1])) {
+                    return false;
+                }
+            }
+            if (!current.put(hashes[0], hashes[1])) {
+                return false;
+            }
+            size.incrementAndGet();
+            current.count.incrementAndGet();
+            return true;
+        }
+    }
+
+    @Override
+    public boolean contains(String url) {
+        long[] hashes = hashes(url);
+        for (Filter filter : filters) {
+            if (filter.mightContain(hashes[0], hashes[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Filter filter : filters) {
+            bytes += filter.bits.words() * 8L;
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized SeenSet copy() {
+        BloomSeenSet copy = new BloomSeenSet(offHeap);
+        for (Filter filter : filters) {
+            Filter filterCopy = new Filter(filter.capacity, filter.falsePositiveRate, offHeap);
+            for (long w = 0; w < filter.bits.words(); w++) {
+                filterCopy.bits.setWord(w, filter.bits.getWord(w));
+            }
+            filterCopy.count.set(filter.count.get());
+            copy.filters.add(filterCopy);
+        }
+        copy.size.set(size.get());
+        return copy;
+    }
+
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException {
+        List<Filter> snapshot = List.copyOf(filters);
+        out.writeBoolean(offHeap);
+        out.writeLong(size.get());
+        out.writeInt(snapshot.size());
+        for (Filter filter : snapshot) {
+            out.writeInt(filter.capacity);
+            out.writeDouble(filter.falsePositiveRate);
+            out.writeLong(filter.count.get());
+            out.writeLong(filter.bits.words());
+            for (long w = 0; w < filter.bits.words(); w++) {
+                out.writeLong(filter.bits.getWord(w));
+            }
+        }
+    }
+
+    static BloomSeenSet readFrom(DataInputStream in) throws IOException {
+        BloomSeenSet seen = new BloomSeenSet(in.readBoolean());
+        seen.size.set(in.readLong());
+        int filterCount = in.readInt();
+        for (int i = 0; i < filterCount; i++) {
+            Filter filter = new Filter(in.readInt(), in.readDouble(), seen.offHeap);
+            filter.count.set(in.readLong());
+            long words = in.readLong();
+            if (words != filter.bits.words()) {
+                throw new IOException("Bloom filter size mismatch: " + words + " != " + filter.bits.words());
+            }
+            for (long w = 0; w < words; w++) {
+                filter.bits.setWord(w, in.readLong());
+            }
+            seen.filters.add(filter);
+        }
+        return seen;
+    }
+
+    int filterCount() {
+        return filters.size();
+    }
+
+    private synchronized void grow(Filter full) {
+        if (filters.get(filters.size() - 1) == full) {
+            filters.add(new Filter((long) full.capacity * GROWTH, full.falsePositiveRate * TIGHTENING, offHeap));
+        }
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private static long[] hashes(String url) {
+        byte[] hash = HASH.hashString(url, StandardCharsets.UTF_8).asBytes();
+        ByteBuffer buffer = ByteBuffer.wrap(hash).order(ByteOrder.LITTLE_ENDIAN);
+        return new long[]{buffer.getLong(), buffer.getLong()};
+    }
+
+    /**
+     * One fixed-size Bloom filter using Kirsch-Mitzenmacher double hashing.
+     */
+    private static final class Filter {
+
+        private final int capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashCount;
+        private final BitArray bits;
+        private final AtomicLong count = new AtomicLong();
+
+        Filter(long capacity, double falsePositiveRate, boolean offHeap) {
+            double ln2 = Math.log(2);
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            long words = Math.max(1, (optimalBits + 63) >>> 6);
+            this.capacity = (int) Math.min(Integer.MAX_VALUE, capacity);
+            this.falsePositiveRate = falsePositiveRate;
+            this.bits = offHeap ? new DirectBitArray(words) : new HeapBitArray(words);
+            this.bitCount = bits.words() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+        }
+
+        boolean mightContain(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashCount; i++) {
+                if (!bits.get((combined & Long.MAX_VALUE) % bitCount)) {
+                    return false;
+                }
+                combined += h2;
+            }
+            return true;
+        }
+
+        /**
+         * Sets the URL's bits. Returns true if any of them was clear.
+         */
+        boolean put(long h1, long h2) {
+            boolean changed = false;
+            long combined = h1;
+            for (int i = 0; i < hashCount; i++) {
+                changed |= bits.set((combined & Long.MAX_VALUE) % bitCount);
+                combined += h2;
+            }
+            return changed;
+        }
+    }
+
+    private interface BitArray {
+
+        boolean get(long index);
+
+        /**
+         * Sets the bit atomically. Returns true if it was clear.
+         */
+        boolean set(long index);
+
+        long words();
+
+        long getWord(long word);
+
+        void setWord(long word, long value);
+    }
+
+    private static final class HeapBitArray implements BitArray {
+
+        private final AtomicLongArray data;
+
+        HeapBitArray(long words) {
+            if (words > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Bloom filter too large: " + words + " words");
+            }
+            this.data = new AtomicLongArray((int) words);
+        }
+
+        @Override
+        public boolean get(long index) {
+            return (data.get((int) (index >>> 6)) & (1L << index)) != 0;
+        }
+
+        @Override
+        public boolean set(long index) {
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = data.get(word);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+            } while (!data.compareAndSet(word, current, current | mask));
+            return true;
+        }
+
+        @Override
+        public long words() {
+            return data.length();
+        }
+
+        @Override
+        public long getWord(long word) {
+            return data.get((int) word);
+        }
+
+        @Override
+        public void setWord(long word, long value) {
+            data.set((int) word, value);
+        }
+    }
+
+    private static final class DirectBitArray implements BitArray {
+
+        private static final VarHandle LONGS =
+                MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+        private final ByteBuffer data;
+        private final long words;
+
+        DirectBitArray(long words) {
+            if (words > Integer.MAX_VALUE / 8) {
+                throw new IllegalArgumentException("Bloom filter too large: " + words + " words");
+            }
+            this.words = words;
+            this.data = ByteBuffer.allocateDirect((int) words * 8);
+        }
+
+        @Override
+        public boolean get(long index) {
+            long current = (long) LONGS.getVolatile(data, (int) (index >>> 6) * 8);
+            return (current & (1L << index)) != 0;
+        }
+
+        @Override
+        public boolean set(long index) {
+            int offset = (int) (index >>> 6) * 8;
+            long mask = 1L << index;
+            long current;
+            do {
+                current = (long) LONGS.getVolatile(data, offset);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+            } while (!LONGS.compareAndSet(data, offset, current, current | mask));
+            return true;
+        }
+
+        @Override
+        public long words() {
+            return words;
+        }
+
+        @Override
+        public long getWord(long word) {
+            return (long) LONGS.getVolatile(data, (int) word * 8);
+        }
+
+        @Override
+        public void setWord(long word, long value) {
+            LONGS.setVolatile(data, (int) word * 8, value);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Seen-set storing a 64-bit fingerprint per URL instead of the URL itself.
+ *
+ * <p>Fingerprints live in lock-striped open-addressing {@code long[]} tables
+ * (linear probing, at most half full), so a URL costs 16 to 32 bytes
+ * whatever its length. Each stripe has its own lock, so workers only contend
+ * when they hit the same stripe. Two different URLs share a fingerprint with
+ * probability around {@code n / 2^64}, which is negligible at crawl sizes.
+ */
+public class FingerprintSeenSet implements SeenSet {
+
+    private static final HashFunction FINGERPRINT = Hashing.farmHashFingerprint64();
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public FingerprintSeenSet(int expectedUrls) {
+        int perStripe = Math.max(16, Integer.highestOneBit(Math.max(1, expectedUrls / STRIPES)) * 4);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    public static long fingerprint(String url) {
+        long fingerprint = FINGERPRINT.hashString(url, StandardCharsets.UTF_8).asLong();
+        // 0 marks an empty slot
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    @Override
+    public boolean add(String url) {
+        long fingerprint = fingerprint(url);
+        return stripeFor(fingerprint).add(fingerprint);
+    }
+
+    @Override
+    public boolean contains(String url) {
+        long fingerprint = fingerprint(url);
+        return stripeFor(fingerprint).contains(fingerprint);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.capacity() * 8L;
+        }
+        return bytes;
+    }
+
+    @Override
+    public SeenSet copy() {
+        FingerprintSeenSet copy = new FingerprintSeenSet(0);
+        for (int i = 0; i < STRIPES; i++) {
+            copy.stripes[i] = stripes[i].copy();
+        }
+        return copy;
+    }
+
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(STRIPES);
+        for (Stripe stripe : stripes) {
+            stripe.writeTo(out);
+        }
+    }
+
+    static FingerprintSeenSet readFrom(DataInputStream in) throws IOException {
+        int stripeCount = in.readInt();
+        if (stripeCount != STRIPES) {
+            throw new IOException("Unexpected fingerprint stripe count " + stripeCount);
+        }
+        FingerprintSeenSet seen = new FingerprintSeenSet(0);
+        for (int i = 0; i < STRIPES; i++) {
+            int count = in.readInt();
+            for (int j = 0; j < count; j++) {
+                long fingerprint = in.readLong();
+                seen.stripeFor(fingerprint).add(fingerprint);
+            }
+        }
+        return seen;
+    }
+
+    private Stripe stripeFor(long fingerprint) {
+        // The top bits pick the stripe; the low bits pick the slot inside it
+        return stripes[(int) (fingerprint >>> 58) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+
+        private long[] table;
+        private int size;
+
+        Stripe(int capacity) {
+            this.table = new long[capacity];
+        }
+
+        synchronized boolean add(long fingerprint) {
+            if ((size + 1) * 2 > table.length) {
+                resize();
+            }
+            if (insert(table, fingerprint)) {
+                size++;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean contains(long fingerprint) {
+            int mask = table.length - 1;
+            for (int slot = (int) fingerprint & mask; ; slot = (slot + 1) & mask) {
+                long current = table[slot];
+                if (current == 0) {
+                    return false;
+                }
+                if (current == fingerprint) {
+                    return true;
+                }
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int capacity() {
+            return table.length;
+        }
+
+        synchronized Stripe copy() {
+            Stripe copy = new Stripe(table.length);
+            System.arraycopy(table, 0, copy.table, 0, table.length);
+            copy.size = size;
+            return copy;
+        }
+
+        synchronized void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            for (long fingerprint : table) {
+                if (fingerprint != 0) {
+                    out.writeLong(fingerprint);
+                }
+            }
+        }
+
+        private void resize() {
+            long[] grown = new long[table.length * 2];
+            for (long fingerprint : table) {
+                if (fingerprint != 0) {
+                    insert(grown, fingerprint);
+                }
+            }
+            table = grown;
+        }
+
+        private static boolean insert(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            for (int slot = (int) fingerprint & mask; ; slot = (slot + 1) & mask) {
+                long current = table[slot];
+                if (current == 0) {
+                    table[slot] = fingerprint;
+                    return true;
+                }
+                if (current == fingerprint) {
+                    return false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+/**
+ * Queue of URL tasks waiting to be fetched, handed out best priority first
+ * (lowest {@link UrlTask#getPriority()} value). Tasks of equal priority come
+ * out in the order they were added. Implementations are thread-safe.
+ */
+public interface Frontier extends AutoCloseable {
+
+    /**
+     * Queues {@code task}. Returns false if it was dropped, e.g. because a
+     * storage budget is exhausted.
+     */
+    boolean add(UrlTask task);
+
+    /**
+     * Removes and returns the best task, or null if the frontier is empty.
+     */
+    UrlTask poll();
+
+    long size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void clear();
+
+    /**
+     * Copies the queued tasks without removing them. Implementations that
+     * keep tasks in files may link those files into {@code directory}
+     * instead of reading them.
+     */
+    FrontierSnapshot snapshot(Path directory) throws IOException;
+
+    /**
+     * Releases any resources held outside the heap.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,97 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+/**
+ * Point-in-time copy of queued tasks: the ones that were on the heap, plus
+ * references to spilled segment files that were linked into the snapshot
+ * directory, so spilled tasks are not read back at snapshot time.
+ */
+public final class FrontierSnapshot {
+
+    private final List<UrlTask> tasks;
+    private final List<SegmentRef> segments;
+
+    public FrontierSnapshot(List<UrlTask> tasks, List<SegmentRef> segments) {
+        this.tasks = tasks;
+        this.segments = segments;
+    }
+
+    public static FrontierSnapshot empty() {
+        return new FrontierSnapshot(new ArrayList<>(), new ArrayList<>());
+    }
+
+    public List<UrlTask> getTasks() {
+        return tasks;
+    }
+
+    public List<SegmentRef> getSegments() {
+        return segments;
+    }
+
+    public long size() {
+        long size = tasks.size();
+        for (SegmentRef segment : segments) {
+            size += segment.getCount();
+        }
+        return size;
+    }
+
+    /**
+     * Feeds every task, heap tasks first, to {@code consumer}. Segment paths
+     * are resolved against {@code directory}.
+     */
+    public void forEach(Path directory, TaskConsumer consumer) throws IOException {
+        for (UrlTask task : tasks) {
+            consumer.accept(task);
+        }
+        for (SegmentRef segment : segments) {
+            SpillingFrontier.readSegment(directory.resolve(segment.getFile()), segment.getSkip(),
+                    segment.getCount(), consumer);
+        }
+    }
+
+    void merge(FrontierSnapshot other) {
+        tasks.addAll(other.tasks);
+        segments.addAll(other.segments);
+    }
+
+    /**
+     * {@code count} records of a segment file after the first {@code skip}.
+     */
+    public static final class SegmentRef {
+
+        private final String file;
+        private final int skip;
+        private final int count;
+
+        public SegmentRef(String file, int skip, int count) {
+            this.file = file;
+            this.skip = skip;
+            this.count = count;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public int getSkip() {
+            return skip;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    @FunctionalInterface
+    public interface TaskConsumer {
+
+        void accept(UrlTask task) throws IOException;
+    }
+}
@@ -0,0 +1,450 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+/**
+ * Politeness scheduler that hands out URL tasks one host at a time.
+ *
+ * <p>Every host has its own priority queue of tasks, a minimum interval
+ * between fetch starts and a cap on concurrent fetches. Hosts that have work
+ * and a free slot sit in a heap ordered by the time they may fetch next, so
+ * {@link #poll} always returns work for a host that may fetch right now. A
+ * slow or strict host only delays its own queue, and aggregate throughput
+ * grows with the number of distinct hosts.
+ *
+ * <p>A task handed out by {@link #poll} holds one of its host's concurrency
+ * slots until it is passed back to {@link #release}.
+ *
+ * <p>When built with a {@link Frontier}, at most {@code maxBufferedTasks}
+ * tasks sit in the per-host queues (Mercator's back queues). Anything beyond
+ * that waits in the frontier, which hands tasks back best priority first as
+ * the host queues drain.
+ */
+public class HostScheduler {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final PriorityQueue<HostQueue> readyHeap =
+            new PriorityQueue<>(Comparator.comparingLong((HostQueue host) -> host.nextFetchNanos));
+    // Hosts left with no work before their interval ended, by when it ends; see retire()
+    private final PriorityQueue<IdleHost> idleHosts =
+            new PriorityQueue<>(Comparator.comparingLong((IdleHost idle) -> idle.untilNanos));
+    private final Comparator<UrlTask> taskOrder;
+    private final Frontier frontier;
+    private final int maxBufferedTasks;
+
+    private volatile long defaultIntervalNanos;
+    private volatile int defaultMaxConcurrency;
+    private volatile LongConsumer rateLimitWaitRecorder;
+    // Tasks in the host queues; the rest of the pending ones are the frontier's size
+    private int buffered;
+
+    /**
+     * @param ratePerHost        fetches per second allowed to start per host;
+     *                           0 or less means no rate limit
+     * @param concurrencyPerHost fetches allowed in flight per host; 0 or less
+     *                           means no limit
+     */
+    public HostScheduler(double ratePerHost, int concurrencyPerHost, Comparator<UrlTask> taskOrder) {
+        this(ratePerHost, concurrencyPerHost, taskOrder, null, 0);
+    }
+
+    /**
+     * @param frontier         holds tasks beyond {@code maxBufferedTasks}; null
+     *                         keeps every task in the host queues
+     * @param maxBufferedTasks tasks allowed in the host queues at once
+     */
+    public HostScheduler(double ratePerHost, int concurrencyPerHost, Comparator<UrlTask> taskOrder,
+            Frontier frontier, int maxBufferedTasks) {
+        this.defaultIntervalNanos = intervalNanos(ratePerHost);
+        this.defaultMaxConcurrency = concurrencyPerHost > 0 ? concurrencyPerHost : Integer.MAX_VALUE;
+        this.taskOrder = taskOrder;
+        this.frontier = frontier;
+        this.maxBufferedTasks = Math.max(1, maxBufferedTasks);
+    }
+
+    public void add(UrlTask task) {
+        lock.lock();
+        try {
+            if (frontier != null && (buffered >= maxBufferedTasks || !frontier.isEmpty())) {
+                // Keep the frontier's priority order: once it holds work, new tasks queue behind it
+                frontier.add(task);
+                return;
+            }
+            if (buffer(task)) {
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to {@code timeout} for a task whose host may fetch now. Tasks
+     * rejected by {@code accept} (already visited, too deep, ...) are dropped
+     * without using up the host's rate or concurrency.
+     */
+    public UrlTask poll(long timeout, TimeUnit unit, Predicate<UrlTask> accept) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        // Time spent waiting for a host's interval while there was work for it
+        long rateLimitWait = 0;
+        lock.lockInterruptibly();
+        try {
+            evictIdle(System.nanoTime());
+            while (true) {
+                long now = System.nanoTime();
+                HostQueue head = readyHeap.peek();
+                if (head != null && head.nextFetchNanos <= now) {
+                    readyHeap.poll();
+                    head.inHeap = false;
+                    UrlTask task = takeAccepted(head, accept);
+                    if (task != null) {
+                        head.active++;
+                        head.inFlight.add(task);
+                        head.nextFetchNanos = now + head.intervalNanos();
+                    } else {
+                        retire(head, now);
+                    }
+                    schedule(head);
+                    refill();
+                    if (task != null) {
+                        LongConsumer recorder = rateLimitWaitRecorder;
+                        if (recorder != null) {
+                            recorder.accept(rateLimitWait);
+                        }
+                        return task;
+                    }
+                    continue;
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    return null;
+                }
+                long wait = head == null ? remaining : Math.min(remaining, head.nextFetchNanos - now);
+                changed.awaitNanos(wait);
+                if (head != null) {
+                    rateLimitWait += System.nanoTime() - now;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called with how long {@link #poll} waited for host rate limits before
+     * handing out each task, 0 if it did not.
+     */
+    public void setRateLimitWaitRecorder(LongConsumer recorder) {
+        this.rateLimitWaitRecorder = recorder;
+    }
+
+    /**
+     * Frees the host slot held by a task returned from {@link #poll}.
+     */
+    public void release(UrlTask task) {
+        lock.lock();
+        try {
+            HostQueue queue = hosts.get(hostOf(task.getUrl()));
+            if (queue == null) {
+                return;
+            }
+            queue.active = Math.max(0, queue.active - 1);
+            for (int i = 0; i < queue.inFlight.size(); i++) {
+                if (queue.inFlight.get(i) == task) {
+                    queue.inFlight.remove(i);
+                    break;
+                }
+            }
+            if (schedule(queue)) {
+                changed.signal();
+            }
+            long now = System.nanoTime();
+            retire(queue, now);
+            evictIdle(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Overrides the minimum delay between fetch starts for one host, e.g. from
+     * a robots.txt Crawl-delay.
+     */
+    public void setHostDelay(String host, long delayMillis) {
+        lock.lock();
+        try {
+            HostQueue queue = hosts.computeIfAbsent(host, HostQueue::new);
+            queue.intervalOverride = TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Slows one host down below its rate and Crawl-delay while it is
+     * overloaded; 0 lifts the backoff again.
+     */
+    public void setHostBackoff(String host, long delayMillis) {
+        lock.lock();
+        try {
+            HostQueue queue = hosts.computeIfAbsent(host, HostQueue::new);
+            queue.backoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+            retire(queue, System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Overrides the fetches allowed in flight for one host; 0 or less goes
+     * back to the default.
+     */
+    public void setHostConcurrency(String host, int maxConcurrency) {
+        lock.lock();
+        try {
+            HostQueue queue = hosts.computeIfAbsent(host, HostQueue::new);
+            queue.concurrencyOverride = maxConcurrency > 0 ? maxConcurrency : -1;
+            if (schedule(queue)) {
+                changed.signal();
+            }
+            retire(queue, System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setDefaultRate(double ratePerHost) {
+        defaultIntervalNanos = intervalNanos(ratePerHost);
+    }
+
+    public void setDefaultConcurrency(int concurrencyPerHost) {
+        defaultMaxConcurrency = concurrencyPerHost > 0 ? concurrencyPerHost : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Tasks queued and not yet handed out. Tasks the frontier loses, e.g. to
+     * an unreadable segment file, no longer count.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            long queued = buffered + (frontier != null ? frontier.size() : 0);
+            return (int) Math.min(Integer.MAX_VALUE, queued);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int hostCount() {
+        lock.lock();
+        try {
+            return hosts.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies every task that has not been released yet: the ones handed out by
+     * {@link #poll} first, then the queued ones. Spilled frontier segments are
+     * linked into {@code directory}.
+     */
+    public FrontierSnapshot snapshot(Path directory) throws IOException {
+        lock.lock();
+        try {
+            List<UrlTask> tasks = new ArrayList<>(buffered);
+            for (HostQueue queue : hosts.values()) {
+                tasks.addAll(queue.inFlight);
+            }
+            for (HostQueue queue : hosts.values()) {
+                tasks.addAll(queue.tasks);
+            }
+            FrontierSnapshot snapshot = new FrontierSnapshot(tasks, new ArrayList<>());
+            if (frontier != null) {
+                snapshot.merge(frontier.snapshot(directory));
+            }
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            hosts.clear();
+            readyHeap.clear();
+            idleHosts.clear();
+            buffered = 0;
+            if (frontier != null) {
+                frontier.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lower-cased host of {@code url}, or the URL itself if it has no host.
+     */
+    public static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    private UrlTask takeAccepted(HostQueue queue, Predicate<UrlTask> accept) {
+        UrlTask task;
+        while ((task = queue.tasks.poll()) != null) {
+            buffered--;
+            if (accept == null || accept.test(task)) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds {@code task} to its host queue. Returns true if that made the host
+     * ready.
+     */
+    private boolean buffer(UrlTask task) {
+        HostQueue queue = hosts.computeIfAbsent(hostOf(task.getUrl()), HostQueue::new);
+        queue.tasks.add(task);
+        buffered++;
+        return schedule(queue);
+    }
+
+    /**
+     * Moves tasks from the frontier into the host queues while there is room.
+     */
+    private void refill() {
+        if (frontier == null) {
+            return;
+        }
+        while (buffered < maxBufferedTasks) {
+            UrlTask task = frontier.poll();
+            if (task == null) {
+                return;
+            }
+            buffer(task);
+        }
+    }
+
+    /**
+     * Puts {@code queue} in the ready heap if it has work and a free slot.
+     * Returns true if it was added.
+     */
+    private boolean schedule(HostQueue queue) {
+        if (queue.inHeap || queue.tasks.isEmpty() || queue.active >= queue.maxConcurrency()) {
+            return false;
+        }
+        queue.inHeap = true;
+        readyHeap.add(queue);
+        return true;
+    }
+
+    /**
+     * Forgets {@code queue} if it has no work, fetches in flight or
+     * overrides, once its interval has ended; a host that came back too soon
+     * would otherwise skip it.
+     */
+    private void retire(HostQueue queue, long now) {
+        if (!queue.isIdle()) {
+            return;
+        }
+        if (queue.nextFetchNanos <= now) {
+            hosts.remove(queue.host, queue);
+        } else {
+            idleHosts.add(new IdleHost(queue, queue.nextFetchNanos));
+        }
+    }
+
+    /**
+     * Forgets the hosts retired before their interval ended, once it has, if
+     * they are still idle.
+     */
+    private void evictIdle(long now) {
+        IdleHost idle;
+        while ((idle = idleHosts.peek()) != null && idle.untilNanos <= now) {
+            idleHosts.poll();
+            if (idle.queue.isIdle() && idle.queue.nextFetchNanos <= now) {
+                hosts.remove(idle.queue.host, idle.queue);
+            }
+        }
+    }
+
+    private static long intervalNanos(double ratePerSecond) {
+        return ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond) : 0L;
+    }
+
+    private final class HostQueue {
+
+        private final String host;
+        private final PriorityQueue<UrlTask> tasks = new PriorityQueue<>(8, taskOrder);
+        private long nextFetchNanos = System.nanoTime();
+        private int active;
+        private final List<UrlTask> inFlight = new ArrayList<>(2);
+        private boolean inHeap;
+        private long intervalOverride = -1;
+        private int concurrencyOverride = -1;
+        private long backoffNanos;
+
+        HostQueue(String host) {
+            this.host = host;
+        }
+
+        long intervalNanos() {
+            long interval = intervalOverride >= 0 ? Math.max(intervalOverride, defaultIntervalNanos) : defaultIntervalNanos;
+            return Math.max(interval, backoffNanos);
+        }
+
+        int maxConcurrency() {
+            return concurrencyOverride > 0 ? concurrencyOverride : defaultMaxConcurrency;
+        }
+
+        boolean hasOverrides() {
+            return intervalOverride >= 0 || concurrencyOverride > 0 || backoffNanos > 0;
+        }
+
+        boolean isIdle() {
+            return active == 0 && tasks.isEmpty() && !hasOverrides();
+        }
+    }
+
+    private static final class IdleHost {
+
+        private final HostQueue queue;
+        private final long untilNanos;
+
+        IdleHost(HostQueue queue, long untilNanos) {
+            this.queue = queue;
+            this.untilNanos = untilNanos;
+        }
+    }
+}
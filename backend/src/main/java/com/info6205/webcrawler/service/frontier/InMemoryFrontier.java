@@ -0,0 +1,58 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+/**
+ * Unbounded heap-only {@link Frontier} with one FIFO queue per priority level.
+ */
+public class InMemoryFrontier implements Frontier {
+
+    private final TreeMap<Integer, ArrayDeque<UrlTask>> levels = new TreeMap<>();
+    private long size;
+
+    @Override
+    public synchronized boolean add(UrlTask task) {
+        levels.computeIfAbsent(task.getPriority(), p -> new ArrayDeque<>()).add(task);
+        size++;
+        return true;
+    }
+
+    @Override
+    public synchronized UrlTask poll() {
+        Map.Entry<Integer, ArrayDeque<UrlTask>> best = levels.firstEntry();
+        if (best == null) {
+            return null;
+        }
+        UrlTask task = best.getValue().poll();
+        if (best.getValue().isEmpty()) {
+            levels.remove(best.getKey());
+        }
+        size--;
+        return task;
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized FrontierSnapshot snapshot(Path directory) {
+        FrontierSnapshot snapshot = FrontierSnapshot.empty();
+        for (ArrayDeque<UrlTask> level : levels.values()) {
+            snapshot.getTasks().addAll(level);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public synchronized void clear() {
+        levels.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Set of URLs the crawler has already dispatched. Implementations are safe
+ * for concurrent use.
+ */
+public interface SeenSet {
+
+    /**
+     * Marks {@code url} as seen. Returns true if it was not seen before.
+     * Probabilistic implementations may return false for a URL they never saw
+     * (a false positive), but never true for one they did.
+     */
+    boolean add(String url);
+
+    boolean contains(String url);
+
+    long size();
+
+    /**
+     * Approximate bytes held by the set, for reporting.
+     */
+    long memoryBytes();
+
+    /**
+     * Point-in-time copy, for checkpointing while the crawl keeps adding.
+     */
+    SeenSet copy();
+
+    /**
+     * Writes the set's contents; read back with {@link SeenSets#read}, which
+     * expects the type tag {@link SeenSets#write} puts in front.
+     */
+    void writeTo(DataOutputStream out) throws IOException;
+}
@@ -0,0 +1,75 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Creates the {@link SeenSet} selected by {@code crawler.seenSet}.
+ */
+public final class SeenSets {
+
+    public enum Type {
+        STRING, FINGERPRINT, BLOOM
+    }
+
+    private SeenSets() {
+    }
+
+    public static Type parseType(String value) {
+        if (value == null || value.isBlank()) {
+            return Type.FINGERPRINT;
+        }
+        return Type.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public static SeenSet create(Type type, int expectedUrls, double falsePositiveRate, boolean offHeap) {
+        switch (type) {
+            case STRING:
+                return new StringSeenSet();
+            case BLOOM:
+                return new BloomSeenSet(expectedUrls, falsePositiveRate, offHeap);
+            case FINGERPRINT:
+            default:
+                return new FingerprintSeenSet(expectedUrls);
+        }
+    }
+
+    /**
+     * Writes a type tag followed by the set's contents.
+     */
+    public static void write(SeenSet seen, DataOutputStream out) throws IOException {
+        out.writeByte(typeOf(seen).ordinal());
+        seen.writeTo(out);
+    }
+
+    public static SeenSet read(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        if (tag >= Type.values().length) {
+            throw new IOException("Unknown seen-set type " + tag);
+        }
+        switch (Type.values()[tag]) {
+            case STRING:
+                return StringSeenSet.readFrom(in);
+            case BLOOM:
+                return BloomSeenSet.readFrom(in);
+            case FINGERPRINT:
+            default:
+                return FingerprintSeenSet.readFrom(in);
+        }
+    }
+
+    private static Type typeOf(SeenSet seen) {
+        if (seen instanceof StringSeenSet) {
+            return Type.STRING;
+        }
+        if (seen instanceof BloomSeenSet) {
+            return Type.BLOOM;
+        }
+        if (seen instanceof FingerprintSeenSet) {
+            return Type.FINGERPRINT;
+        }
+        throw new IllegalArgumentException("Cannot serialize " + seen.getClass().getName());
+    }
+}
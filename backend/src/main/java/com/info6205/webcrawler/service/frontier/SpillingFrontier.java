@@ -0,0 +1,378 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+/**
+ * {@link Frontier} that holds a bounded number of tasks on the heap and spills
+ * the rest to disk.
+ *
+ * <p>Every priority level has an in-memory hot queue and a chain of
+ * append-only segment files. A task goes to the hot queue while the shared
+ * heap budget allows it and the level has nothing on disk. Otherwise it is
+ * appended to the level's newest segment, so each level stays FIFO. When a
+ * level's hot queue runs dry it is refilled from its oldest segment, and a
+ * segment file is deleted once it has been read. {@link #poll} always serves
+ * the best level that has work in memory or on disk, so spilling never
+ * changes the priority order.
+ *
+ * <p>With a disk budget set, tasks that would grow the segment files past it
+ * are dropped and counted.
+ */
+public class SpillingFrontier implements Frontier {
+
+    private static final Logger logger = LogManager.getLogger(SpillingFrontier.class);
+
+    // Rough heap cost of a queued UrlTask besides its URL characters
+    private static final int TASK_OVERHEAD_BYTES = 64;
+    private static final int RECORD_HEADER_BYTES = 12;
+    private static final int REFILL_BATCH = 1024;
+    private static final long SEGMENT_BYTES = 4L << 20;
+
+    private final Path directory;
+    private final boolean ownsDirectory;
+    private final long memoryBudgetBytes;
+    private final long diskBudgetBytes;
+
+    private final TreeMap<Integer, Level> levels = new TreeMap<>();
+    private long size;
+    private long hotBytes;
+    private long diskBytes;
+    private long segmentSequence;
+    private long spilled;
+    private long dropped;
+
+    /**
+     * @param directory         where segment files go; null for a fresh
+     *                          temporary directory removed on {@link #close}
+     * @param memoryBudgetBytes approximate heap allowed for queued tasks
+     * @param diskBudgetBytes   bytes allowed in segment files; 0 or less
+     *                          means no limit
+     */
+    public SpillingFrontier(Path directory, long memoryBudgetBytes, long diskBudgetBytes) throws IOException {
+        this.ownsDirectory = directory == null;
+        this.directory = directory == null ? Files.createTempDirectory("frontier") : Files.createDirectories(directory);
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.diskBudgetBytes = diskBudgetBytes;
+    }
+
+    @Override
+    public synchronized boolean add(UrlTask task) {
+        Level level = levels.computeIfAbsent(task.getPriority(), Level::new);
+        long cost = heapCost(task);
+        if (level.diskRecords == 0 && hotBytes + cost <= memoryBudgetBytes) {
+            level.hot.add(task);
+            hotBytes += cost;
+            size++;
+            return true;
+        }
+        byte[] url = task.getUrl().getBytes(StandardCharsets.UTF_8);
+        long recordBytes = RECORD_HEADER_BYTES + url.length;
+        if (diskBudgetBytes > 0 && diskBytes + recordBytes > diskBudgetBytes) {
+            dropped++;
+            return false;
+        }
+        try {
+            level.append(task, url);
+            diskBytes += recordBytes;
+            spilled++;
+            size++;
+            return true;
+        } catch (IOException e) {
+            dropped++;
+            logger.error("Failed to spill {} to disk: {}", task.getUrl(), e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized UrlTask poll() {
+        Iterator<Map.Entry<Integer, Level>> entries = levels.entrySet().iterator();
+        while (entries.hasNext()) {
+            Level level = entries.next().getValue();
+            if (level.hot.isEmpty() && level.diskRecords > 0) {
+                refill(level);
+            }
+            UrlTask task = level.hot.poll();
+            if (task != null) {
+                hotBytes -= heapCost(task);
+                size--;
+                return task;
+            }
+            if (level.diskRecords == 0) {
+                level.close();
+                entries.remove();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Copies the hot queues and hard-links every segment file into
+     * {@code directory} (copying when links are not supported). Segments are
+     * append-only and never rewritten, so the links stay valid after this
+     * frontier reads and deletes its own copies.
+     */
+    @Override
+    public synchronized FrontierSnapshot snapshot(Path snapshotDirectory) throws IOException {
+        Files.createDirectories(snapshotDirectory);
+        FrontierSnapshot snapshot = FrontierSnapshot.empty();
+        for (Level level : levels.values()) {
+            snapshot.getTasks().addAll(level.hot);
+            level.roll();
+            if (level.reading != null) {
+                snapshot.getSegments().add(new FrontierSnapshot.SegmentRef(link(level.reading, snapshotDirectory),
+                        level.readingTotal - level.readingRemaining, level.readingRemaining));
+            }
+            for (Segment segment : level.closedSegments) {
+                snapshot.getSegments().add(new FrontierSnapshot.SegmentRef(link(segment.path, snapshotDirectory),
+                        0, segment.records));
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reads {@code count} records of a segment file after skipping the first
+     * {@code skip}.
+     */
+    static void readSegment(Path file, int skip, int count, FrontierSnapshot.TaskConsumer consumer)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            for (int i = 0; i < skip + count; i++) {
+                UrlTask task = readRecord(in);
+                if (i >= skip) {
+                    consumer.accept(task);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (Level level : levels.values()) {
+            level.close();
+        }
+        levels.clear();
+        size = 0;
+        hotBytes = 0;
+        diskBytes = 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        clear();
+        if (ownsDirectory) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                logger.warn("Failed to remove frontier directory {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    public synchronized long getHotBytes() {
+        return hotBytes;
+    }
+
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public synchronized long getSpilledCount() {
+        return spilled;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    private void refill(Level level) {
+        int loaded = 0;
+        try {
+            while (level.diskRecords > 0 && loaded < REFILL_BATCH
+                    && (loaded == 0 || hotBytes < memoryBudgetBytes)) {
+                UrlTask task = level.read();
+                diskBytes -= RECORD_HEADER_BYTES + task.getUrl().getBytes(StandardCharsets.UTF_8).length;
+                level.hot.add(task);
+                hotBytes += heapCost(task);
+                loaded++;
+            }
+        } catch (IOException e) {
+            // The rest of the segment is unreadable; count it as dropped and move on
+            logger.error("Failed to read frontier segment {}: {}", level.reading, e.getMessage());
+            dropped += level.readingRemaining;
+            size -= level.readingRemaining;
+            level.diskRecords -= level.readingRemaining;
+            level.finishReading();
+        }
+    }
+
+    private static String link(Path segment, Path snapshotDirectory) throws IOException {
+        Path target = snapshotDirectory.resolve(segment.getFileName());
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, segment);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(segment, target);
+        }
+        return target.getFileName().toString();
+    }
+
+    private static UrlTask readRecord(DataInputStream in) throws IOException {
+        int depth = in.readInt();
+        int priority = in.readInt();
+        byte[] url = new byte[in.readInt()];
+        in.readFully(url);
+        return new UrlTask(new String(url, StandardCharsets.UTF_8), depth, priority);
+    }
+
+    private static long heapCost(UrlTask task) {
+        return TASK_OVERHEAD_BYTES + task.getUrl().length();
+    }
+
+    /**
+     * Hot queue and segment files of one priority level.
+     */
+    private final class Level {
+
+        private final int priority;
+        private final ArrayDeque<UrlTask> hot = new ArrayDeque<>();
+        private final ArrayDeque<Segment> closedSegments = new ArrayDeque<>();
+        private long diskRecords;
+
+        private Segment writing;
+        private DataOutputStream out;
+
+        private Path reading;
+        private DataInputStream in;
+        private int readingTotal;
+        private int readingRemaining;
+
+        Level(int priority) {
+            this.priority = priority;
+        }
+
+        void append(UrlTask task, byte[] url) throws IOException {
+            if (out == null) {
+                writing = new Segment(directory.resolve("p" + priority + "-" + (segmentSequence++) + ".seg"));
+                out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(writing.path)));
+            }
+            out.writeInt(task.getDepth());
+            out.writeInt(task.getPriority());
+            out.writeInt(url.length);
+            out.write(url);
+            writing.records++;
+            writing.bytes += RECORD_HEADER_BYTES + url.length;
+            diskRecords++;
+            if (writing.bytes >= SEGMENT_BYTES) {
+                roll();
+            }
+        }
+
+        UrlTask read() throws IOException {
+            if (in == null) {
+                if (closedSegments.isEmpty()) {
+                    roll();
+                }
+                Segment next = closedSegments.poll();
+                if (next == null) {
+                    throw new IOException("no segment to read for priority " + priority);
+                }
+                reading = next.path;
+                readingTotal = next.records;
+                readingRemaining = next.records;
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(reading)));
+            }
+            UrlTask task = readRecord(in);
+            diskRecords--;
+            if (--readingRemaining == 0) {
+                finishReading();
+            }
+            return task;
+        }
+
+        void finishReading() {
+            closeQuietly(in);
+            deleteQuietly(reading);
+            in = null;
+            reading = null;
+            readingTotal = 0;
+            readingRemaining = 0;
+        }
+
+        void close() {
+            if (in != null) {
+                finishReading();
+            }
+            if (out != null) {
+                closeQuietly(out);
+                deleteQuietly(writing.path);
+                out = null;
+                writing = null;
+            }
+            for (Segment segment : closedSegments) {
+                deleteQuietly(segment.path);
+            }
+            closedSegments.clear();
+            hot.clear();
+            diskRecords = 0;
+        }
+
+        private void roll() throws IOException {
+            if (out != null) {
+                out.close();
+                closedSegments.add(writing);
+                out = null;
+                writing = null;
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private int records;
+        private long bytes;
+
+        Segment(Path path) {
+            this.path = path;
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            logger.warn("Failed to close frontier segment: {}", e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete frontier segment {}: {}", path, e.getMessage());
+        }
+    }
+}
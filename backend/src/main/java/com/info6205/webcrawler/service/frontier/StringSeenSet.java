@@ -0,0 +1,74 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exact seen-set holding the full URL strings.
+ */
+public class StringSeenSet implements SeenSet {
+
+    // Rough per-entry cost of a ConcurrentHashMap node plus a String header
+    private static final int ENTRY_OVERHEAD = 80;
+
+    private final Set<String> urls = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean add(String url) {
+        return urls.add(url);
+    }
+
+    @Override
+    public boolean contains(String url) {
+        return urls.contains(url);
+    }
+
+    @Override
+    public long size() {
+        return urls.size();
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (String url : urls) {
+            bytes += ENTRY_OVERHEAD + url.length();
+        }
+        return bytes;
+    }
+
+    @Override
+    public SeenSet copy() {
+        StringSeenSet copy = new StringSeenSet();
+        copy.urls.addAll(urls);
+        return copy;
+    }
+
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException {
+        List<String> snapshot = new ArrayList<>(urls);
+        out.writeInt(snapshot.size());
+        for (String url : snapshot) {
+            byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static StringSeenSet readFrom(DataInputStream in) throws IOException {
+        StringSeenSet seen = new StringSeenSet();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            seen.urls.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return seen;
+    }
+}
@@ -0,0 +1,165 @@
+package com.info6205.webcrawler.service.pagerank;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, int-indexed view of the crawl graph stored as a compressed sparse
+ * row (CSR) reverse adjacency. The in-neighbors of node {@code v} are
+ * {@code inSources[inOffsets[v] .. inOffsets[v + 1])}, so a PageRank iteration
+ * is a single pass over {@code inSources}.
+ */
+public final class CsrGraph {
+
+    private final String[] urls;
+    private final Map<String, Integer> index;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] outDegree;
+    private final int[] linkedOutDegree;
+
+    private CsrGraph(String[] urls, Map<String, Integer> index, int[] inOffsets, int[] inSources,
+            int[] outDegree, int[] linkedOutDegree) {
+        this.urls = urls;
+        this.index = index;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.outDegree = outDegree;
+        this.linkedOutDegree = linkedOutDegree;
+    }
+
+    /**
+     * Builds the CSR form of {@code graph} restricted to {@code nodes}.
+     * Out-degrees count every listed link (as {@code getOutDegree} does), while
+     * an in-edge is only recorded once per (source, target) pair and only when
+     * both ends are known nodes.
+     */
+    public static CsrGraph build(List<String> nodes, Map<String, List<String>> graph) {
+        int n = nodes.size();
+        String[] urls = new String[n];
+        Map<String, Integer> index = new HashMap<>(Math.max(16, n * 2));
+        for (String node : nodes) {
+            if (!index.containsKey(node)) {
+                urls[index.size()] = node;
+                index.put(node, index.size());
+            }
+        }
+        n = index.size();
+        if (n < urls.length) {
+            urls = Arrays.copyOf(urls, n);
+        }
+
+        int[] outDegree = new int[n];
+        int[] linkedOutDegree = new int[n];
+        int[] inCounts = new int[n + 1];
+        int edgeCount = 0;
+        int[] stamp = new int[n];
+        Arrays.fill(stamp, -1);
+
+        // First pass: out-degrees and de-duplicated in-degree counts
+        for (int u = 0; u < n; u++) {
+            List<String> targets = graph.getOrDefault(urls[u], Collections.emptyList());
+            outDegree[u] = targets.size();
+            for (String target : targets) {
+                Integer v = index.get(target);
+                if (v != null && stamp[v] != u) {
+                    stamp[v] = u;
+                    inCounts[v + 1]++;
+                    linkedOutDegree[u]++;
+                    edgeCount++;
+                }
+            }
+        }
+
+        int[] inOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] = inOffsets[v] + inCounts[v + 1];
+        }
+
+        // Second pass: fill in-neighbor slots
+        int[] cursor = Arrays.copyOf(inOffsets, n);
+        int[] inSources = new int[edgeCount];
+        Arrays.fill(stamp, -1);
+        for (int u = 0; u < n; u++) {
+            for (String target : graph.getOrDefault(urls[u], Collections.emptyList())) {
+                Integer v = index.get(target);
+                if (v != null && stamp[v] != u) {
+                    stamp[v] = u;
+                    inSources[cursor[v]++] = u;
+                }
+            }
+        }
+
+        return new CsrGraph(urls, index, inOffsets, inSources, outDegree, linkedOutDegree);
+    }
+
+    public int size() {
+        return urls.length;
+    }
+
+    public int edgeCount() {
+        return inSources.length;
+    }
+
+    public String url(int node) {
+        return urls[node];
+    }
+
+    /**
+     * Returns the node id of {@code url}, or -1 if it is not part of the graph.
+     */
+    public int indexOf(String url) {
+        Integer node = index.get(url);
+        return node == null ? -1 : node;
+    }
+
+    public int outDegree(int node) {
+        return outDegree[node];
+    }
+
+    /**
+     * Number of distinct out-links that point at nodes inside this graph. A
+     * node whose linked out-degree is zero is dangling.
+     */
+    public int linkedOutDegree(int node) {
+        return linkedOutDegree[node];
+    }
+
+    public int inDegree(int node) {
+        return inOffsets[node + 1] - inOffsets[node];
+    }
+
+    /*
+     * Raw CSR arrays for the solvers' inner loops. Callers must treat them as
+     * read-only.
+     */
+    public int[] inOffsets() {
+        return inOffsets;
+    }
+
+    public int[] inSources() {
+        return inSources;
+    }
+
+    public int[] outDegrees() {
+        return outDegree;
+    }
+
+    public int[] linkedOutDegrees() {
+        return linkedOutDegree;
+    }
+
+    /**
+     * Maps a rank vector indexed by node id back to URLs.
+     */
+    public Map<String, Double> toRankMap(double[] ranks) {
+        Map<String, Double> result = new HashMap<>(Math.max(16, urls.length * 2));
+        for (int i = 0; i < urls.length; i++) {
+            result.put(urls[i], ranks[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,263 @@
+package com.info6205.webcrawler.service.pagerank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Keeps an approximate PageRank vector up to date while the crawl graph grows.
+ *
+ * <p>Ranks are maintained as the solution of the linear system
+ * {@code (I - dM) x = (1 - d) 1}, where {@code M} is the column-stochastic link
+ * matrix without dangling patches. Once normalized, that solution is the same
+ * damped PageRank (with dangling rank spread uniformly) that
+ * {@link ParallelPageRankSolver} computes. Alongside the estimate {@code x} we
+ * keep the residual {@code r = (1 - d) 1 - (I - dM) x}:
+ * <ul>
+ * <li>a new page starts with {@code x = 0}, {@code r = 1 - d};</li>
+ * <li>new out-links from {@code u} only change {@code r} at {@code u}'s old
+ * and new targets, because only column {@code u} of {@code M} changes;</li>
+ * <li>a push at {@code u} moves {@code r[u]} into {@code x[u]} and hands
+ * {@code d * r[u] / outDegree(u)} to each out-neighbor.</li>
+ * </ul>
+ * After every update we push only from nodes whose residual exceeds
+ * {@code epsilon}, so the work stays local to the part of the graph that
+ * changed.
+ *
+ * <p>The node set is the pages that have been processed. A link to a page
+ * that has not been processed yet is parked and attached when that page
+ * arrives, which mirrors the store only keeping edges between existing nodes.
+ */
+public class IncrementalPageRank {
+
+    private static final int[] NO_EDGES = new int[0];
+
+    private final double damping;
+    private final double epsilon;
+
+    private final Map<String, Integer> index = new HashMap<>();
+    private final List<String> urls = new ArrayList<>();
+    private final Map<String, List<Integer>> pendingInLinks = new HashMap<>();
+
+    private int[][] outLinks = new int[16][];
+    private int[] outSize = new int[16];
+    private double[] estimate = new double[16];
+    private double[] residual = new double[16];
+    private boolean[] queued = new boolean[16];
+    private int[] workQueue = new int[16];
+    private int queueHead;
+    private int queueTail;
+
+    private long pushes;
+
+    public IncrementalPageRank(double damping, double epsilon) {
+        if (damping < 0 || damping >= 1) {
+            throw new IllegalArgumentException("Damping factor must be in [0, 1): " + damping);
+        }
+        this.damping = damping;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Records a processed page and its out-links, then pushes residuals until
+     * every node is back under {@code epsilon}.
+     */
+    public synchronized void addPage(String url, Collection<String> links) {
+        int u = nodeFor(url);
+
+        List<Integer> waiting = pendingInLinks.remove(url);
+        if (waiting != null) {
+            for (int source : waiting) {
+                appendLinks(source, new int[]{u}, 1);
+            }
+        }
+
+        Set<Integer> known = new HashSet<>();
+        for (int e = 0; e < outSize[u]; e++) {
+            known.add(outLinks[u][e]);
+        }
+        int[] targets = new int[links.size()];
+        int count = 0;
+        for (String link : links) {
+            Integer v = index.get(link);
+            if (v != null) {
+                if (known.add(v)) {
+                    targets[count++] = v;
+                }
+            } else {
+                List<Integer> sources = pendingInLinks.computeIfAbsent(link, k -> new ArrayList<>(2));
+                if (sources.isEmpty() || sources.get(sources.size() - 1) != u) {
+                    sources.add(u);
+                }
+            }
+        }
+        if (count > 0) {
+            appendLinks(u, targets, count);
+        }
+        drain();
+    }
+
+    /**
+     * Current ranks of the processed pages, normalized to sum to 1.
+     */
+    public synchronized Map<String, Double> snapshot() {
+        int n = urls.size();
+        double total = 0.0;
+        for (int i = 0; i < n; i++) {
+            total += estimate[i];
+        }
+        Map<String, Double> ranks = new HashMap<>(Math.max(16, n * 2));
+        for (int i = 0; i < n; i++) {
+            ranks.put(urls.get(i), total > 0 ? estimate[i] / total : 1.0 / n);
+        }
+        return ranks;
+    }
+
+    /**
+     * The {@code limit} highest ranked pages, best first, selected with a
+     * bounded min-heap rather than sorting everything.
+     */
+    public synchronized Map<String, Double> top(int limit) {
+        int n = urls.size();
+        double total = 0.0;
+        for (int i = 0; i < n; i++) {
+            total += estimate[i];
+        }
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, limit),
+                (a, b) -> Double.compare(estimate[a], estimate[b]));
+        for (int i = 0; i < n && limit > 0; i++) {
+            if (heap.size() < limit) {
+                heap.add(i);
+            } else if (estimate[i] > estimate[heap.peek()]) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        Integer[] best = heap.toArray(new Integer[0]);
+        Arrays.sort(best, (a, b) -> Double.compare(estimate[b], estimate[a]));
+        Map<String, Double> ranks = new LinkedHashMap<>();
+        for (int node : best) {
+            ranks.put(urls.get(node), total > 0 ? estimate[node] / total : 1.0 / n);
+        }
+        return ranks;
+    }
+
+    public synchronized int size() {
+        return urls.size();
+    }
+
+    public synchronized long getPushCount() {
+        return pushes;
+    }
+
+    private int nodeFor(String url) {
+        Integer existing = index.get(url);
+        if (existing != null) {
+            return existing;
+        }
+        int node = urls.size();
+        ensureCapacity(node + 1);
+        urls.add(url);
+        index.put(url, node);
+        outLinks[node] = NO_EDGES;
+        residual[node] = 1.0 - damping;
+        enqueue(node);
+        return node;
+    }
+
+    /**
+     * Adds {@code count} new out-links to {@code u} and corrects the residuals
+     * of its old and new targets for the change in column {@code u} of M.
+     */
+    private void appendLinks(int u, int[] targets, int count) {
+        int oldDegree = outSize[u];
+        int newDegree = oldDegree + count;
+        double mass = damping * estimate[u];
+
+        if (mass != 0.0 && oldDegree > 0) {
+            double correction = mass / newDegree - mass / oldDegree;
+            for (int e = 0; e < oldDegree; e++) {
+                addResidual(outLinks[u][e], correction);
+            }
+        }
+
+        if (outLinks[u].length < newDegree) {
+            outLinks[u] = Arrays.copyOf(outLinks[u], Math.max(newDegree, outLinks[u].length * 2));
+        }
+        for (int i = 0; i < count; i++) {
+            outLinks[u][oldDegree + i] = targets[i];
+            if (mass != 0.0) {
+                addResidual(targets[i], mass / newDegree);
+            }
+        }
+        outSize[u] = newDegree;
+    }
+
+    private void drain() {
+        while (queueHead != queueTail) {
+            int u = workQueue[queueHead];
+            queueHead = (queueHead + 1) % workQueue.length;
+            queued[u] = false;
+
+            double r = residual[u];
+            if (Math.abs(r) <= epsilon) {
+                continue;
+            }
+            estimate[u] += r;
+            residual[u] = 0.0;
+            pushes++;
+
+            int degree = outSize[u];
+            if (degree > 0) {
+                double share = damping * r / degree;
+                int[] targets = outLinks[u];
+                for (int e = 0; e < degree; e++) {
+                    addResidual(targets[e], share);
+                }
+            }
+        }
+    }
+
+    private void addResidual(int node, double delta) {
+        residual[node] += delta;
+        if (!queued[node] && Math.abs(residual[node]) > epsilon) {
+            enqueue(node);
+        }
+    }
+
+    private void enqueue(int node) {
+        int capacity = workQueue.length;
+        int used = (queueTail - queueHead + capacity) % capacity;
+        if (used + 1 >= capacity) {
+            int[] grown = new int[capacity * 2];
+            for (int i = 0; i < used; i++) {
+                grown[i] = workQueue[(queueHead + i) % capacity];
+            }
+            workQueue = grown;
+            queueHead = 0;
+            queueTail = used;
+        }
+        workQueue[queueTail] = node;
+        queueTail = (queueTail + 1) % workQueue.length;
+        queued[node] = true;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= estimate.length) {
+            return;
+        }
+        int capacity = Math.max(required, estimate.length * 2);
+        outLinks = Arrays.copyOf(outLinks, capacity);
+        outSize = Arrays.copyOf(outSize, capacity);
+        estimate = Arrays.copyOf(estimate, capacity);
+        residual = Arrays.copyOf(residual, capacity);
+        queued = Arrays.copyOf(queued, capacity);
+    }
+}
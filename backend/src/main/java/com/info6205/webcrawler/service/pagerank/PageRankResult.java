@@ -0,0 +1,38 @@
+package com.info6205.webcrawler.service.pagerank;
+
+/**
+ * Rank vector produced by a solver together with how it got there.
+ */
+public final class PageRankResult {
+
+    private final double[] ranks;
+    private final int iterations;
+    private final double residual;
+    private final boolean converged;
+
+    public PageRankResult(double[] ranks, int iterations, double residual, boolean converged) {
+        this.ranks = ranks;
+        this.iterations = iterations;
+        this.residual = residual;
+        this.converged = converged;
+    }
+
+    public double[] getRanks() {
+        return ranks;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * L1 distance between the last two rank vectors.
+     */
+    public double getResidual() {
+        return residual;
+    }
+
+    public boolean isConverged() {
+        return converged;
+    }
+}
@@ -0,0 +1,223 @@
+package com.info6205.webcrawler.service.pagerank;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Damped PageRank power iteration over a {@link CsrGraph}, split across a
+ * {@link ForkJoinPool}.
+ *
+ * <p>Nodes are cut into contiguous partitions holding roughly the same number
+ * of in-edges, so a few hub pages do not leave one worker doing most of the
+ * work. Every iteration runs two phases over the partitions: the first turns
+ * ranks into per-edge contributions and sums the rank held by dangling nodes,
+ * the second gathers contributions along the reverse adjacency and records the
+ * partition's L1 delta. Per-partition sums are merged in partition order, so
+ * the result does not depend on thread scheduling.
+ *
+ * <p>Dangling rank is spread evenly over all nodes instead of being dropped,
+ * so the vector keeps summing to 1 and needs no final renormalization.
+ */
+public class ParallelPageRankSolver {
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final double damping;
+    private final double tolerance;
+    private final int maxIterations;
+    private final ForkJoinPool pool;
+
+    public ParallelPageRankSolver(double damping, double tolerance, int maxIterations, ForkJoinPool pool) {
+        if (damping < 0 || damping >= 1) {
+            throw new IllegalArgumentException("Damping factor must be in [0, 1): " + damping);
+        }
+        this.damping = damping;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        this.pool = pool;
+    }
+
+    public PageRankResult solve(CsrGraph csr) {
+        return solve(csr, null);
+    }
+
+    /**
+     * Solves from {@code initial} (indexed like {@code csr}, rescaled to sum to
+     * 1) or from the uniform vector when it is null.
+     */
+    public PageRankResult solve(CsrGraph csr, double[] initial) {
+        int n = csr.size();
+        if (n == 0) {
+            return new PageRankResult(new double[0], 0, 0.0, true);
+        }
+
+        double[] ranks = new double[n];
+        if (initial != null && initial.length == n && sum(initial) > 0) {
+            double total = sum(initial);
+            for (int i = 0; i < n; i++) {
+                ranks[i] = initial[i] / total;
+            }
+        } else {
+            Arrays.fill(ranks, 1.0 / n);
+        }
+
+        Iteration state = new Iteration(csr, ranks, partition(csr, pool.getParallelism() * PARTITIONS_PER_THREAD));
+        int iteration = 0;
+        double residual = Double.MAX_VALUE;
+        while (iteration < maxIterations && residual >= tolerance) {
+            residual = state.step();
+            iteration++;
+        }
+        return new PageRankResult(state.ranks, iteration, residual, residual < tolerance);
+    }
+
+    /**
+     * Cuts node ids into at most {@code parts} ranges of roughly equal
+     * (in-edges + nodes) weight. Returns the range boundaries.
+     */
+    static int[] partition(CsrGraph csr, int parts) {
+        int n = csr.size();
+        parts = Math.max(1, Math.min(parts, n));
+        int[] inOffsets = csr.inOffsets();
+        long totalWeight = (long) csr.edgeCount() + n;
+
+        int[] bounds = new int[parts + 1];
+        int count = 1;
+        for (int v = 0; v < n && count < parts; v++) {
+            long weight = (long) inOffsets[v + 1] + v + 1;
+            if (weight * parts >= totalWeight * count) {
+                bounds[count++] = v + 1;
+            }
+        }
+        bounds[count] = n;
+        return Arrays.copyOf(bounds, count + 1);
+    }
+
+    private static double sum(double[] values) {
+        double total = 0.0;
+        for (double value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Buffers shared by the partition tasks of one solve.
+     */
+    private final class Iteration {
+
+        private final int[] inOffsets;
+        private final int[] inSources;
+        private final int[] linkedOutDegree;
+        private final int[] bounds;
+        private final double[] contributions;
+        private final double[] partials;
+        private double[] ranks;
+        private double[] next;
+        private double base;
+
+        Iteration(CsrGraph csr, double[] ranks, int[] bounds) {
+            this.inOffsets = csr.inOffsets();
+            this.inSources = csr.inSources();
+            this.linkedOutDegree = csr.linkedOutDegrees();
+            this.bounds = bounds;
+            this.contributions = new double[ranks.length];
+            this.partials = new double[bounds.length - 1];
+            this.ranks = ranks;
+            this.next = new double[ranks.length];
+        }
+
+        double step() {
+            int n = ranks.length;
+            run(true);
+            double dangling = mergePartials();
+            base = (1.0 - damping) / n + damping * dangling / n;
+
+            run(false);
+            double delta = mergePartials();
+
+            double[] swap = ranks;
+            ranks = next;
+            next = swap;
+            return delta;
+        }
+
+        private void run(boolean scatter) {
+            PartitionTask task = new PartitionTask(this, scatter, 0, partials.length);
+            if (partials.length == 1) {
+                task.compute();
+            } else {
+                pool.invoke(task);
+            }
+        }
+
+        private double mergePartials() {
+            double total = 0.0;
+            for (double partial : partials) {
+                total += partial;
+            }
+            return total;
+        }
+
+        void scatter(int part) {
+            double dangling = 0.0;
+            for (int u = bounds[part]; u < bounds[part + 1]; u++) {
+                int degree = linkedOutDegree[u];
+                if (degree == 0) {
+                    dangling += ranks[u];
+                    contributions[u] = 0.0;
+                } else {
+                    contributions[u] = ranks[u] / degree;
+                }
+            }
+            partials[part] = dangling;
+        }
+
+        void gather(int part) {
+            double delta = 0.0;
+            for (int v = bounds[part]; v < bounds[part + 1]; v++) {
+                double rankSum = 0.0;
+                for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+                    rankSum += contributions[inSources[e]];
+                }
+                double rank = base + damping * rankSum;
+                delta += Math.abs(rank - ranks[v]);
+                next[v] = rank;
+            }
+            partials[part] = delta;
+        }
+    }
+
+    private static final class PartitionTask extends RecursiveAction {
+
+        private final Iteration iteration;
+        private final boolean scatter;
+        private final int from;
+        private final int to;
+
+        PartitionTask(Iteration iteration, boolean scatter, int from, int to) {
+            this.iteration = iteration;
+            this.scatter = scatter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PartitionTask(iteration, scatter, from, mid),
+                        new PartitionTask(iteration, scatter, mid, to));
+                return;
+            }
+            for (int part = from; part < to; part++) {
+                if (scatter) {
+                    iteration.scatter(part);
+                } else {
+                    iteration.gather(part);
+                }
+            }
+        }
+    }
+}
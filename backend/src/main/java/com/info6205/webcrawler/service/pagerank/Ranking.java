@@ -0,0 +1,162 @@
+package com.info6205.webcrawler.service.pagerank;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * An immutable, computed ranking: each page's PageRank and in-degree, kept
+ * in arrays so it can be served page by page without ranking again.
+ * In-degrees are counted in one pass over the adjacency lists when the
+ * ranking is built, and the best pages are picked with a heap bounded by how
+ * many are asked for, so nothing is sorted in full unless all of it is.
+ * Equal ranks are ordered by node, so pages of a ranking never overlap.
+ */
+public final class Ranking {
+
+    private final String jobId;
+    private final Instant computedAt = Instant.now();
+    private final String[] urls;
+    private final double[] ranks;
+    private final int[] inDegrees;
+    // Higher rank first, then lower node
+    private final Comparator<Integer> bestFirst;
+
+    private Ranking(String jobId, String[] urls, double[] ranks, int[] inDegrees) {
+        this.jobId = jobId;
+        this.urls = urls;
+        this.ranks = ranks;
+        this.inDegrees = inDegrees;
+        this.bestFirst = (a, b) -> {
+            int byRank = Double.compare(ranks[b], ranks[a]);
+            return byRank != 0 ? byRank : Integer.compare(a, b);
+        };
+    }
+
+    /**
+     * Ranks {@code pageRanks}. The in-degree of a page is the number of
+     * {@code nodes} linking to it, each counted once however often it links.
+     *
+     * @param jobId the crawl the ranking is of, or null
+     */
+    public static Ranking build(String jobId, Map<String, Double> pageRanks, List<String> nodes,
+            Map<String, List<String>> graph) {
+        Map<String, Integer> index = new HashMap<>(Math.max(16, pageRanks.size() * 2));
+        String[] urls = new String[pageRanks.size()];
+        double[] ranks = new double[urls.length];
+        for (Map.Entry<String, Double> entry : pageRanks.entrySet()) {
+            int node = index.size();
+            urls[node] = entry.getKey();
+            ranks[node] = entry.getValue();
+            index.put(entry.getKey(), node);
+        }
+
+        int[] inDegrees = new int[urls.length];
+        Set<String> linked = new HashSet<>();
+        for (String source : nodes) {
+            linked.clear();
+            for (String target : graph.getOrDefault(source, Collections.emptyList())) {
+                Integer node = index.get(target);
+                if (node != null && linked.add(target)) {
+                    inDegrees[node]++;
+                }
+            }
+        }
+        return new Ranking(jobId, urls, ranks, inDegrees);
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Instant getComputedAt() {
+        return computedAt;
+    }
+
+    public int size() {
+        return urls.length;
+    }
+
+    public String url(int node) {
+        return urls[node];
+    }
+
+    public double rank(int node) {
+        return ranks[node];
+    }
+
+    public int inDegree(int node) {
+        return inDegrees[node];
+    }
+
+    /**
+     * The {@code limit} best-ranked nodes, best first.
+     */
+    public int[] top(int limit) {
+        int n = urls.length;
+        limit = Math.max(0, Math.min(limit, n));
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, limit), bestFirst.reversed());
+        for (int i = 0; i < n && limit > 0; i++) {
+            if (heap.size() < limit) {
+                heap.add(i);
+            } else if (bestFirst.compare(i, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        Integer[] best = heap.toArray(new Integer[0]);
+        Arrays.sort(best, bestFirst);
+        int[] nodes = new int[best.length];
+        for (int i = 0; i < best.length; i++) {
+            nodes[i] = best[i];
+        }
+        return nodes;
+    }
+
+    /**
+     * Pages ranked at least {@code minRank}.
+     */
+    public int countAtLeast(double minRank) {
+        int count = 0;
+        for (double rank : ranks) {
+            if (rank >= minRank) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Rows {@code offset} to {@code offset + limit} of the ranking, best
+     * first, leaving out pages ranked below {@code minRank}.
+     */
+    public List<Map<String, Object>> rows(int offset, int limit, double minRank) {
+        offset = Math.max(0, offset);
+        int[] best = top((int) Math.min(Integer.MAX_VALUE, (long) offset + Math.max(0, limit)));
+        List<Map<String, Object>> rows = new ArrayList<>(Math.max(0, best.length - offset));
+        for (int i = offset; i < best.length && ranks[best[i]] >= minRank; i++) {
+            rows.add(row(best[i]));
+        }
+        return rows;
+    }
+
+    /**
+     * A page's url, rank and in-degree, as in the ranking responses.
+     */
+    public Map<String, Object> row(int node) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("url", urls[node]);
+        row.put("rank", ranks[node]);
+        row.put("in_degree", inDegrees[node]);
+        return row;
+    }
+}
@@ -0,0 +1,186 @@
+package com.info6205.webcrawler.service.parse;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.internal.StringUtil;
+
+/**
+ * Resolves hrefs against one base URL with the same results as Jsoup's
+ * {@code abs:} attribute prefix.
+ *
+ * <p>Jsoup re-parses the base, strips control characters with a regex and
+ * rebuilds the URL for every href, which costs more than tokenizing the
+ * page. Most hrefs are plain printable ASCII, and for those the result is
+ * string concatenation plus dot-segment removal; everything else goes
+ * through Jsoup.
+ */
+final class HrefResolver {
+
+    private final String baseUrl;
+    private final URL base;
+    // Set only when the base itself is simple enough for the fast path
+    private final String origin;
+    private final String scheme;
+    private final String baseFile;
+    private final String basePath;
+    // Path of the base up to and including its last '/'
+    private final String baseDirectory;
+    // The URL parser leaves dot segments alone when the base has no path
+    private final boolean removesDots;
+
+    HrefResolver(String baseUrl) {
+        this.baseUrl = baseUrl;
+        URL parsed;
+        try {
+            parsed = new URL(baseUrl);
+        } catch (MalformedURLException e) {
+            parsed = null;
+        }
+        this.base = parsed;
+        boolean simple = parsed != null && isPlain(baseUrl) && parsed.toExternalForm().equals(baseUrl)
+                && ("http".equals(parsed.getProtocol()) || "https".equals(parsed.getProtocol()))
+                && parsed.getAuthority() != null && !parsed.getAuthority().isEmpty();
+        if (simple) {
+            String path = parsed.getPath().isEmpty() ? "/" : parsed.getPath();
+            this.scheme = parsed.getProtocol();
+            this.origin = scheme + "://" + parsed.getAuthority();
+            this.basePath = path;
+            this.baseFile = origin + parsed.getFile();
+            this.baseDirectory = path.substring(0, path.lastIndexOf('/') + 1);
+            this.removesDots = !parsed.getPath().isEmpty();
+        } else {
+            this.scheme = null;
+            this.origin = null;
+            this.basePath = null;
+            this.baseFile = null;
+            this.baseDirectory = null;
+            this.removesDots = false;
+        }
+    }
+
+    /**
+     * Absolute form of {@code href}, or empty if it cannot be resolved.
+     */
+    String resolve(String href) {
+        if (origin == null || href.isEmpty() || !isPlain(href)) {
+            return slowResolve(href);
+        }
+        char first = href.charAt(0);
+        boolean dotted = hasDotSegment(href);
+        if (first == '?' && !dotted) {
+            return origin + basePath + href;
+        }
+        if (first == '#' && !dotted) {
+            return baseFile + href;
+        }
+        if (href.startsWith("//")) {
+            boolean hasHost = href.length() > 2 && href.charAt(2) != '/';
+            return dotted || !hasHost ? slowResolve(href) : scheme + ":" + href;
+        }
+        if (href.startsWith("https://") || href.startsWith("http://")) {
+            return dotted ? slowResolve(href) : href;
+        }
+        // The URL parser only removes dot segments from paths relative to the base
+        if (first == '?' || first == '#' || (dotted && (first == '/' || !removesDots))
+                || (first != '/' && hasScheme(href))) {
+            return slowResolve(href);
+        }
+        String path = first == '/' ? href : baseDirectory + href;
+        if (dotted) {
+            path = removeDotSegments(path);
+            if (path == null) {
+                return slowResolve(href);
+            }
+        }
+        return origin + path;
+    }
+
+    private String slowResolve(String href) {
+        if (base != null) {
+            try {
+                return StringUtil.resolve(base, href).toExternalForm();
+            } catch (MalformedURLException | IllegalArgumentException e) {
+                // Hrefs such as javascript: and mailto: are handled below
+            }
+        }
+        return StringUtil.resolve(baseUrl, href);
+    }
+
+    /**
+     * Printable ASCII only: no whitespace, control characters, backslashes or
+     * characters a URL parser would encode or reject.
+     */
+    private static boolean isPlain(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c <= ' ' || c >= 0x7f || c == '\\' || c == '"' || c == '<' || c == '>' || c == '`'
+                    || c == '{' || c == '}' || c == '|' || c == '^') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasDotSegment(String href) {
+        return href.startsWith(".") || href.contains("/.");
+    }
+
+    /**
+     * Removes {@code .} and {@code ..} segments from an absolute path, or
+     * returns null if a {@code ..} would climb above the root, which the URL
+     * parser leaves in place.
+     */
+    private static String removeDotSegments(String path) {
+        int cut = path.length();
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '?' || path.charAt(i) == '#') {
+                cut = i;
+                break;
+            }
+        }
+        String[] segments = path.substring(0, cut).split("/", -1);
+        List<String> kept = new ArrayList<>(segments.length);
+        for (int i = 1; i < segments.length; i++) {
+            boolean last = i == segments.length - 1;
+            if (segments[i].equals(".")) {
+                if (last) {
+                    kept.add("");
+                }
+            } else if (segments[i].equals("..")) {
+                if (kept.isEmpty()) {
+                    return null;
+                }
+                kept.remove(kept.size() - 1);
+                if (last) {
+                    kept.add("");
+                }
+            } else {
+                kept.add(segments[i]);
+            }
+        }
+        StringBuilder normalized = new StringBuilder(path.length());
+        for (String segment : kept) {
+            normalized.append('/').append(segment);
+        }
+        if (normalized.length() == 0) {
+            normalized.append('/');
+        }
+        return normalized.append(path, cut, path.length()).toString();
+    }
+
+    private static boolean hasScheme(String href) {
+        for (int i = 0; i < href.length(); i++) {
+            char c = href.charAt(i);
+            if (c == ':') {
+                return true;
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package com.info6205.webcrawler.service.parse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import com.info6205.webcrawler.service.dedup.SimHash;
+
+/**
+ * {@link LinkExtractor} that parses the page into a Jsoup {@link Document}
+ * and selects {@code a[href]}. The text fingerprint is taken from the body
+ * text with character references decoded, so it can differ slightly from the
+ * streaming extractor's for the same page.
+ */
+public class JsoupLinkExtractor implements LinkExtractor {
+
+    @Override
+    public ParsedPage parse(byte[] body, String charset, String pageUrl) throws IOException {
+        Document doc = Jsoup.parse(new ByteArrayInputStream(body), charset, pageUrl);
+        Set<String> links = new HashSet<>();
+        for (Element link : doc.select("a[href]")) {
+            String target = link.attr("abs:href");
+            if (!target.isEmpty()) {
+                links.add(target);
+            }
+        }
+        SimHash text = new SimHash();
+        byte[] bodyText = doc.body().text().getBytes(StandardCharsets.UTF_8);
+        text.update(bodyText, 0, bodyText.length);
+        return new ParsedPage(links, text.value(), text.shingleCount());
+    }
+}
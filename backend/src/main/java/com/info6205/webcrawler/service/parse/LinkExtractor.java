@@ -0,0 +1,26 @@
+package com.info6205.webcrawler.service.parse;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Pulls the link targets, and a fingerprint of the text, out of a
+ * downloaded page.
+ */
+public interface LinkExtractor {
+
+    /**
+     * Absolute targets of the {@code <a href>} elements in {@code body},
+     * resolved against the page's {@code <base href>} if it has one and
+     * {@code pageUrl} otherwise, plus the SimHash of the text outside tags,
+     * scripts and styles. Hrefs that cannot be resolved are left out.
+     *
+     * @param charset charset from the Content-Type header, or null to detect
+     *                it from the page
+     */
+    ParsedPage parse(byte[] body, String charset, String pageUrl) throws IOException;
+
+    default Set<String> extractLinks(byte[] body, String charset, String pageUrl) throws IOException {
+        return parse(body, charset, pageUrl).getLinks();
+    }
+}
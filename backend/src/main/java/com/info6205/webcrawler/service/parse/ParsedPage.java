@@ -0,0 +1,38 @@
+package com.info6205.webcrawler.service.parse;
+
+import java.util.Set;
+
+/**
+ * What the crawler keeps from a page: its links and a SimHash of its text.
+ */
+public class ParsedPage {
+
+    private final Set<String> links;
+    private final long simHash;
+    private final int shingleCount;
+
+    public ParsedPage(Set<String> links, long simHash, int shingleCount) {
+        this.links = links;
+        this.simHash = simHash;
+        this.shingleCount = shingleCount;
+    }
+
+    public Set<String> getLinks() {
+        return links;
+    }
+
+    /**
+     * SimHash of the visible text, see
+     * {@link com.info6205.webcrawler.service.dedup.SimHash}.
+     */
+    public long getSimHash() {
+        return simHash;
+    }
+
+    /**
+     * Word 3-shingles the SimHash was built from.
+     */
+    public int getShingleCount() {
+        return shingleCount;
+    }
+}
@@ -0,0 +1,414 @@
+package com.info6205.webcrawler.service.parse;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.jsoup.parser.Parser;
+
+import com.info6205.webcrawler.service.dedup.SimHash;
+
+/**
+ * {@link LinkExtractor} that tokenizes the raw bytes once instead of
+ * building a DOM. Markup is ASCII in every charset a page can be decoded
+ * with here, so tags and attributes are found on the bytes directly and only
+ * the href values are decoded into strings. UTF-16 pages are transcoded to
+ * UTF-8 first.
+ *
+ * <p>Follows the parts of the HTML tokenizer that decide which hrefs a
+ * browser sees: comments and the contents of script, style, textarea and
+ * similar raw-text elements are skipped, the first value of a repeated
+ * attribute wins, and character references in values are decoded. The first
+ * {@code <base href>} applies to every link in the page, as it does in
+ * Jsoup. Without a header charset the page's {@code <meta>} charset in the
+ * first 5 KB is used, then UTF-8. The text between tags is hashed into the
+ * page's SimHash in the same pass, character references undecoded.
+ */
+public class StreamingLinkExtractor implements LinkExtractor {
+
+    private static final int CHARSET_SCAN_BYTES = 5 * 1024;
+
+    private static final int OTHER = 0;
+    private static final int ANCHOR = 1;
+    private static final int BASE = 2;
+    private static final int META = 3;
+    private static final int RAW_TEXT = 4;
+
+    private static final byte[] BASE_TAG = ascii("base");
+    private static final byte[] META_TAG = ascii("meta");
+    private static final byte[] HREF = ascii("href");
+    private static final byte[] CHARSET = ascii("charset");
+    private static final byte[] CONTENT = ascii("content");
+    private static final byte[][] RAW_TEXT_TAGS = {
+        ascii("script"), ascii("style"), ascii("textarea"), ascii("title"),
+        ascii("xmp"), ascii("iframe"), ascii("noembed"), ascii("noframes")
+    };
+
+    @Override
+    public ParsedPage parse(byte[] body, String charset, String pageUrl) {
+        Charset declared = lookup(charset);
+        int start = 0;
+        // A byte order mark overrides the header, as it does in browsers
+        if (body.length >= 3 && (body[0] & 0xff) == 0xef && (body[1] & 0xff) == 0xbb && (body[2] & 0xff) == 0xbf) {
+            declared = StandardCharsets.UTF_8;
+            start = 3;
+        } else if (body.length >= 2 && (body[0] & 0xff) == 0xfe && (body[1] & 0xff) == 0xff) {
+            declared = StandardCharsets.UTF_16BE;
+            start = 2;
+        } else if (body.length >= 2 && (body[0] & 0xff) == 0xff && (body[1] & 0xff) == 0xfe) {
+            declared = StandardCharsets.UTF_16LE;
+            start = 2;
+        }
+        if (declared != null && !isAsciiCompatible(declared)) {
+            body = new String(body, start, body.length - start, declared).getBytes(StandardCharsets.UTF_8);
+            declared = StandardCharsets.UTF_8;
+            start = 0;
+        }
+
+        Scanner scanner = new Scanner(body, start, declared == null);
+        scanner.run();
+        Charset decodeAs = declared != null ? declared
+                : scanner.metaCharset != null ? scanner.metaCharset : StandardCharsets.UTF_8;
+
+        String baseUrl = pageUrl;
+        if (scanner.baseStart >= 0) {
+            String resolved = new HrefResolver(pageUrl)
+                    .resolve(scanner.value(scanner.baseStart, scanner.baseEnd, decodeAs));
+            if (!resolved.isEmpty()) {
+                baseUrl = resolved;
+            }
+        }
+        HrefResolver resolver = new HrefResolver(baseUrl);
+        Set<String> links = new HashSet<>();
+        for (int h = 0; h < scanner.hrefCount; h++) {
+            String href = scanner.value(scanner.hrefs[2 * h], scanner.hrefs[2 * h + 1], decodeAs);
+            String target = resolver.resolve(href);
+            if (!target.isEmpty()) {
+                links.add(target);
+            }
+        }
+        return new ParsedPage(links, scanner.text.value(), scanner.text.shingleCount());
+    }
+
+    private static Charset lookup(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        try {
+            return Charset.forName(name.strip());
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return null;
+        }
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        String name = charset.name().toUpperCase(Locale.ROOT);
+        return !name.startsWith("UTF-16") && !name.startsWith("UTF-32") && !name.startsWith("ISO-2022");
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * One pass over a page, recording where the href and base values are and
+     * hashing the text.
+     */
+    private static final class Scanner {
+
+        private final byte[] b;
+        private final int end;
+        private final int charsetScanEnd;
+        private final int start;
+
+        private int[] hrefs = new int[64];
+        private int hrefCount;
+        private int baseStart = -1;
+        private int baseEnd = -1;
+        private Charset metaCharset;
+        private final SimHash text = new SimHash();
+
+        Scanner(byte[] body, int start, boolean detectCharset) {
+            this.b = body;
+            this.end = body.length;
+            this.start = start;
+            this.charsetScanEnd = detectCharset ? Math.min(end, start + CHARSET_SCAN_BYTES) : start;
+        }
+
+        void run() {
+            int i = start;
+            while (true) {
+                int lt = indexOf((byte) '<', i);
+                text.update(b, i, lt < 0 ? end : lt);
+                if (lt < 0 || lt + 1 >= end) {
+                    return;
+                }
+                i = lt + 1;
+                byte c = b[i];
+                if (c == '!') {
+                    i = startsWith(i, "!--") ? skipPast("-->", i + 3) : skipPast((byte) '>', i);
+                } else if (c == '/' || c == '?') {
+                    i = skipPast((byte) '>', i);
+                } else if (isLetter(c)) {
+                    i = tag(i);
+                }
+                // Anything else is a literal '<' in text
+            }
+        }
+
+        /**
+         * Reads the start tag whose name begins at {@code i} and returns the
+         * position after it (after the raw text, for raw-text elements).
+         */
+        private int tag(int i) {
+            int nameStart = i;
+            while (i < end && !isSpace(b[i]) && b[i] != '/' && b[i] != '>') {
+                i++;
+            }
+            int nameEnd = i;
+            int kind = kindOf(nameStart, nameEnd);
+            int valueStart = -1;
+            int valueEnd = -1;
+            boolean inCharsetScan = kind == META && nameStart < charsetScanEnd && metaCharset == null;
+
+            while (true) {
+                while (i < end && (isSpace(b[i]) || b[i] == '/')) {
+                    i++;
+                }
+                if (i >= end) {
+                    return end;
+                }
+                if (b[i] == '>') {
+                    i++;
+                    break;
+                }
+                int attrStart = i++;
+                while (i < end && !isSpace(b[i]) && b[i] != '/' && b[i] != '>' && b[i] != '=') {
+                    i++;
+                }
+                int attrEnd = i;
+                while (i < end && isSpace(b[i])) {
+                    i++;
+                }
+                // An attribute without a value has an empty one
+                int vStart = attrEnd;
+                int vEnd = attrEnd;
+                if (i < end && b[i] == '=') {
+                    i++;
+                    while (i < end && isSpace(b[i])) {
+                        i++;
+                    }
+                    if (i < end && (b[i] == '"' || b[i] == '\'')) {
+                        vStart = i + 1;
+                        int close = indexOf(b[i], vStart);
+                        vEnd = close < 0 ? end : close;
+                        i = close < 0 ? end : close + 1;
+                    } else {
+                        vStart = i;
+                        while (i < end && !isSpace(b[i]) && b[i] != '>') {
+                            i++;
+                        }
+                        vEnd = i;
+                    }
+                }
+                if ((kind == ANCHOR || kind == BASE) && valueStart < 0 && nameIs(attrStart, attrEnd, HREF)) {
+                    valueStart = vStart;
+                    valueEnd = vEnd;
+                } else if (inCharsetScan && nameIs(attrStart, attrEnd, CHARSET)) {
+                    metaCharset = charsetOf(value(vStart, vEnd, StandardCharsets.US_ASCII));
+                } else if (inCharsetScan && nameIs(attrStart, attrEnd, CONTENT)) {
+                    String content = value(vStart, vEnd, StandardCharsets.US_ASCII).toLowerCase(Locale.ROOT);
+                    int at = content.indexOf("charset=");
+                    if (at >= 0) {
+                        metaCharset = charsetOf(content.substring(at + 8).split("[;\\s]", 2)[0]);
+                    }
+                }
+            }
+
+            if (kind == ANCHOR && valueStart >= 0) {
+                if (2 * hrefCount + 2 > hrefs.length) {
+                    hrefs = Arrays.copyOf(hrefs, hrefs.length * 2);
+                }
+                hrefs[2 * hrefCount] = valueStart;
+                hrefs[2 * hrefCount + 1] = valueEnd;
+                hrefCount++;
+            } else if (kind == BASE && valueStart >= 0 && baseStart < 0) {
+                baseStart = valueStart;
+                baseEnd = valueEnd;
+            } else if (kind == RAW_TEXT) {
+                return endOfRawText(i, nameStart, nameEnd);
+            }
+            return i;
+        }
+
+        private int kindOf(int start, int stop) {
+            int length = stop - start;
+            if (length == 1 && (b[start] | 0x20) == 'a') {
+                return ANCHOR;
+            }
+            if (nameIs(start, stop, BASE_TAG)) {
+                return BASE;
+            }
+            if (nameIs(start, stop, META_TAG)) {
+                return META;
+            }
+            for (byte[] rawText : RAW_TEXT_TAGS) {
+                if (nameIs(start, stop, rawText)) {
+                    return RAW_TEXT;
+                }
+            }
+            return OTHER;
+        }
+
+        /**
+         * Position of the {@code </name} that closes a raw-text element.
+         */
+        private int endOfRawText(int i, int nameStart, int nameEnd) {
+            int length = nameEnd - nameStart;
+            while (true) {
+                int lt = indexOf((byte) '<', i);
+                if (lt < 0 || lt + 1 + length >= end) {
+                    return end;
+                }
+                if (b[lt + 1] == '/' && equalsIgnoreCase(lt + 2, nameStart, length)) {
+                    return lt;
+                }
+                i = lt + 1;
+            }
+        }
+
+        String value(int start, int stop, Charset charset) {
+            String value = new String(b, start, stop - start, charset);
+            return value.indexOf('&') >= 0 ? unescape(value) : value;
+        }
+
+        /**
+         * Decodes character references. {@code &amp;} and numeric references
+         * are by far the most common in hrefs and are decoded here; anything
+         * else goes to Jsoup, which sets up a whole tokenizer per call.
+         */
+        private static String unescape(String value) {
+            StringBuilder out = new StringBuilder(value.length());
+            int i = 0;
+            while (i < value.length()) {
+                char c = value.charAt(i);
+                if (c != '&') {
+                    out.append(c);
+                    i++;
+                    continue;
+                }
+                int semi = value.indexOf(';', i);
+                if (semi < 0) {
+                    return Parser.unescapeEntities(value, true);
+                }
+                String name = value.substring(i + 1, semi);
+                int codePoint = -1;
+                if (name.equals("amp")) {
+                    codePoint = '&';
+                } else if (name.equals("quot")) {
+                    codePoint = '"';
+                } else if (name.equals("lt")) {
+                    codePoint = '<';
+                } else if (name.equals("gt")) {
+                    codePoint = '>';
+                } else if (name.equals("apos")) {
+                    codePoint = '\'';
+                } else if (name.length() > 1 && name.charAt(0) == '#') {
+                    codePoint = codePointOf(name);
+                }
+                if (codePoint < 0) {
+                    return Parser.unescapeEntities(value, true);
+                }
+                out.appendCodePoint(codePoint);
+                i = semi + 1;
+            }
+            return out.toString();
+        }
+
+        private static int codePointOf(String numericRef) {
+            boolean hex = numericRef.charAt(1) == 'x' || numericRef.charAt(1) == 'X';
+            try {
+                int codePoint = Integer.parseInt(numericRef.substring(hex ? 2 : 1), hex ? 16 : 10);
+                return Character.isValidCodePoint(codePoint) && codePoint != 0 ? codePoint : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private static Charset charsetOf(String name) {
+            Charset charset = lookup(name.replace("\"", "").replace("'", ""));
+            // A page cannot really be UTF-16 if its meta tag was readable as ASCII
+            return charset != null && isAsciiCompatible(charset) ? charset : StandardCharsets.UTF_8;
+        }
+
+        private boolean nameIs(int start, int stop, byte[] lowerName) {
+            return stop - start == lowerName.length && equalsIgnoreCase(start, lowerName);
+        }
+
+        private boolean equalsIgnoreCase(int at, byte[] lowerName) {
+            for (int k = 0; k < lowerName.length; k++) {
+                if ((b[at + k] | 0x20) != lowerName[k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean equalsIgnoreCase(int at, int otherAt, int length) {
+            for (int k = 0; k < length; k++) {
+                if ((b[at + k] | 0x20) != (b[otherAt + k] | 0x20)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean startsWith(int at, String text) {
+            if (at + text.length() > end) {
+                return false;
+            }
+            for (int k = 0; k < text.length(); k++) {
+                if (b[at + k] != text.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(byte target, int from) {
+            for (int k = from; k < end; k++) {
+                if (b[k] == target) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        private int skipPast(byte target, int from) {
+            int at = indexOf(target, from);
+            return at < 0 ? end : at + 1;
+        }
+
+        private int skipPast(String text, int from) {
+            for (int k = from; k < end; k++) {
+                if (b[k] == text.charAt(0) && startsWith(k, text)) {
+                    return k + text.length();
+                }
+            }
+            return end;
+        }
+
+        private static boolean isLetter(byte c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+
+        private static boolean isSpace(byte c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.info6205.webcrawler.service.robots;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.info6205.webcrawler.service.fetch.FetchResult;
+import com.info6205.webcrawler.service.fetch.Fetcher;
+
+/**
+ * Compiled robots.txt rules per origin, fetched the first time an origin is
+ * looked up and kept for a TTL. At most {@code maxHosts} origins are kept,
+ * least recently used first out.
+ *
+ * <p>Concurrent lookups of an origin share one download. As RFC 9309 asks, a
+ * 4xx answer allows everything, while a 5xx, a 429 or an unreachable host
+ * disallows everything; those are retried after at most
+ * {@link #ERROR_TTL}.
+ */
+public class RobotsCache {
+
+    private static final Logger logger = LogManager.getLogger(RobotsCache.class);
+
+    static final Duration ERROR_TTL = Duration.ofMinutes(10);
+
+    private final Fetcher fetcher;
+    private final String agent;
+    private final long ttlNanos;
+    private final long errorTtlNanos;
+    private final Cache<String, Entry> entries;
+
+    /**
+     * @param agent product token matched against User-agent lines
+     */
+    public RobotsCache(Fetcher fetcher, String agent, Duration ttl, int maxHosts) {
+        this.fetcher = fetcher;
+        this.agent = agent;
+        this.ttlNanos = ttl.toNanos();
+        this.errorTtlNanos = Math.min(ttlNanos, ERROR_TTL.toNanos());
+        this.entries = CacheBuilder.newBuilder().maximumSize(Math.max(1, maxHosts)).build();
+    }
+
+    /**
+     * Rules for the origin of {@code url}, completing once its robots.txt
+     * has been fetched. Never completes exceptionally.
+     */
+    public CompletableFuture<RobotsRules> rulesFor(String url) {
+        String origin = originOf(url);
+        if (origin == null) {
+            return CompletableFuture.completedFuture(RobotsRules.ALLOW_ALL);
+        }
+        long now = System.nanoTime();
+        Entry entry = entries.getIfPresent(origin);
+        if (entry == null || entry.isExpired(now)) {
+            entry = entries.asMap().compute(origin,
+                    (key, old) -> old == null || old.isExpired(now) ? load(key) : old);
+        }
+        return entry.rules;
+    }
+
+    /**
+     * Rules for the origin of {@code url} if they are already here, or null
+     * if they are still being fetched, have expired or were never asked for.
+     * Never starts a fetch; that is left to {@link #rulesFor}.
+     */
+    public RobotsRules getIfLoaded(String url) {
+        String origin = originOf(url);
+        if (origin == null) {
+            return RobotsRules.ALLOW_ALL;
+        }
+        Entry entry = entries.getIfPresent(origin);
+        if (entry == null || entry.isExpired(System.nanoTime())) {
+            return null;
+        }
+        return entry.rules.getNow(null);
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    /**
+     * Lower-cased {@code scheme://authority} of {@code url}, or null if it
+     * has none.
+     */
+    static String originOf(String url) {
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd <= 0) {
+            return null;
+        }
+        int end = schemeEnd + 3;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        if (end == schemeEnd + 3) {
+            return null;
+        }
+        // toLowerCase returns the same string when nothing changes, which canonical URLs ensure
+        return url.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    private Entry load(String origin) {
+        Entry entry = new Entry();
+        CompletableFuture<FetchResult> download;
+        try {
+            download = fetcher.fetch(origin + "/robots.txt");
+        } catch (RuntimeException e) {
+            download = CompletableFuture.failedFuture(e);
+        }
+        entry.rules = download.handle((result, error) -> {
+            RobotsRules rules;
+            long ttl = errorTtlNanos;
+            if (error != null) {
+                logger.info("robots.txt of {} unreachable, not crawling it for now: {}", origin, error.toString());
+                rules = RobotsRules.DISALLOW_ALL;
+            } else if (result.getStatus() == 429 || result.getStatus() >= 500) {
+                logger.info("robots.txt of {} answered HTTP {}, not crawling it for now", origin, result.getStatus());
+                rules = RobotsRules.DISALLOW_ALL;
+            } else if (result.isSuccess() && result.getRejection() == null) {
+                rules = RobotsRules.parse(new String(result.getBody(), StandardCharsets.UTF_8), agent);
+                ttl = ttlNanos;
+            } else {
+                // Missing, or a body the fetcher would not download
+                rules = RobotsRules.ALLOW_ALL;
+                ttl = result.getStatus() >= 400 ? ttlNanos : errorTtlNanos;
+            }
+            entry.loadedAt = System.nanoTime();
+            entry.ttl = ttl;
+            return rules;
+        });
+        return entry;
+    }
+
+    private static final class Entry {
+
+        private volatile CompletableFuture<RobotsRules> rules;
+        private volatile long loadedAt;
+        // Negative while the fetch is running
+        private volatile long ttl = -1;
+
+        private boolean isExpired(long now) {
+            long entryTtl = ttl;
+            return entryTtl >= 0 && now - loadedAt > entryTtl;
+        }
+    }
+}
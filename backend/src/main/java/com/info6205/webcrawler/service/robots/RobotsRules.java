@@ -0,0 +1,275 @@
+package com.info6205.webcrawler.service.robots;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Allow and Disallow rules of one robots.txt group, compiled for matching
+ * against URLs.
+ *
+ * <p>As in RFC 9309, the longest pattern matching a URL's path decides, and
+ * Allow wins a tie. Plain path prefixes, which are nearly all rules, go into
+ * a trie walked once along the path, so a lookup touches at most as many
+ * characters as the longest prefix rule. Only patterns with {@code *} or a
+ * trailing {@code $} are matched one by one.
+ */
+public final class RobotsRules {
+
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(List.of(), List.of(), -1);
+    public static final RobotsRules DISALLOW_ALL = new RobotsRules(List.of("/"), List.of(false), -1);
+
+    private static final byte NONE = 0;
+    private static final byte DISALLOW = 1;
+    private static final byte ALLOW = 2;
+
+    private final Node root = new Node();
+    private final String[] wildcardPatterns;
+    private final boolean[] wildcardAllows;
+    private final int ruleCount;
+    private final long crawlDelayMillis;
+
+    RobotsRules(List<String> patterns, List<Boolean> allows, long crawlDelayMillis) {
+        List<String> wildcards = new ArrayList<>();
+        List<Boolean> wildcardAllowList = new ArrayList<>();
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            if (pattern.indexOf('*') >= 0 || pattern.endsWith("$")) {
+                wildcards.add(pattern);
+                wildcardAllowList.add(allows.get(p));
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < pattern.length(); i++) {
+                node = node.children.computeIfAbsent(pattern.charAt(i), c -> new Node());
+            }
+            // Allow wins over a Disallow of the same path
+            node.rule = (byte) Math.max(node.rule, allows.get(p) ? ALLOW : DISALLOW);
+        }
+        this.wildcardPatterns = wildcards.toArray(new String[0]);
+        this.wildcardAllows = new boolean[wildcards.size()];
+        for (int w = 0; w < wildcardAllows.length; w++) {
+            wildcardAllows[w] = wildcardAllowList.get(w);
+        }
+        this.ruleCount = patterns.size();
+        this.crawlDelayMillis = crawlDelayMillis;
+    }
+
+    /**
+     * Rules of the group in {@code robotsTxt} that applies to {@code agent}:
+     * the groups naming its product token, or the {@code *} groups if none
+     * does.
+     */
+    public static RobotsRules parse(String robotsTxt, String agent) {
+        String token = agent.toLowerCase(Locale.ROOT);
+        Group specific = new Group();
+        Group fallback = new Group();
+        boolean inAgentLines = false;
+        boolean forSpecific = false;
+        boolean forFallback = false;
+
+        for (String line : robotsTxt.split("\r\n|\r|\n")) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).strip().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).strip();
+            switch (key) {
+                case "user-agent" -> {
+                    // Consecutive User-agent lines share the rules that follow them
+                    if (!inAgentLines) {
+                        forSpecific = false;
+                        forFallback = false;
+                        inAgentLines = true;
+                    }
+                    String name = value.toLowerCase(Locale.ROOT);
+                    int version = name.indexOf('/');
+                    name = version >= 0 ? name.substring(0, version).strip() : name;
+                    if (name.equals("*")) {
+                        forFallback = true;
+                    } else if (name.equals(token)) {
+                        forSpecific = true;
+                        specific.seen = true;
+                    }
+                }
+                case "allow", "disallow" -> {
+                    inAgentLines = false;
+                    String pattern = normalize(value);
+                    if (pattern == null) {
+                        continue;
+                    }
+                    boolean allow = key.equals("allow");
+                    if (forSpecific) {
+                        specific.add(pattern, allow);
+                    }
+                    if (forFallback) {
+                        fallback.add(pattern, allow);
+                    }
+                }
+                case "crawl-delay" -> {
+                    inAgentLines = false;
+                    long delay = parseDelay(value);
+                    if (forSpecific) {
+                        specific.crawlDelayMillis = delay;
+                    }
+                    if (forFallback) {
+                        fallback.crawlDelayMillis = delay;
+                    }
+                }
+                default -> {
+                    // Sitemap and unknown lines neither belong to a group nor end one
+                }
+            }
+        }
+        Group group = specific.seen ? specific : fallback;
+        return new RobotsRules(group.patterns, group.allows, group.crawlDelayMillis);
+    }
+
+    /**
+     * True if {@code url} may be fetched. Only the path and query are
+     * matched; a URL without a path matches as {@code /}.
+     */
+    public boolean isAllowed(String url) {
+        if (ruleCount == 0) {
+            return true;
+        }
+        int schemeEnd = url.indexOf("://");
+        int pathStart = schemeEnd >= 0 ? schemeEnd + 3 : 0;
+        while (pathStart < url.length() && "/?#".indexOf(url.charAt(pathStart)) < 0) {
+            pathStart++;
+        }
+        int pathEnd = url.indexOf('#', pathStart);
+        pathEnd = pathEnd >= 0 ? pathEnd : url.length();
+
+        String path = url;
+        if (pathStart == pathEnd || url.charAt(pathStart) != '/') {
+            path = "/" + url.substring(pathStart, pathEnd);
+            pathStart = 0;
+            pathEnd = path.length();
+        }
+
+        int bestLength = -1;
+        boolean allowed = true;
+        Node node = root;
+        if (node.rule != NONE) {
+            bestLength = 0;
+            allowed = node.rule == ALLOW;
+        }
+        for (int i = pathStart; i < pathEnd; i++) {
+            node = node.children.get(path.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.rule != NONE) {
+                bestLength = i - pathStart + 1;
+                allowed = node.rule == ALLOW;
+            }
+        }
+        for (int w = 0; w < wildcardPatterns.length; w++) {
+            String pattern = wildcardPatterns[w];
+            if ((pattern.length() > bestLength || pattern.length() == bestLength && wildcardAllows[w])
+                    && matches(pattern, path, pathStart, pathEnd)) {
+                bestLength = pattern.length();
+                allowed = wildcardAllows[w];
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Crawl-delay of the group in milliseconds, or -1 if it has none.
+     */
+    public long getCrawlDelayMillis() {
+        return crawlDelayMillis;
+    }
+
+    public int ruleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * True if {@code pattern}, where {@code *} matches any run of characters
+     * and a trailing {@code $} anchors the end, matches a prefix of
+     * {@code text[from, to)}.
+     */
+    static boolean matches(String pattern, String text, int from, int to) {
+        boolean anchored = pattern.endsWith("$");
+        int patternEnd = anchored ? pattern.length() - 1 : pattern.length();
+        int p = 0;
+        int t = from;
+        int starPattern = -1;
+        int starText = -1;
+        while (true) {
+            if (p == patternEnd) {
+                if (!anchored || t == to) {
+                    return true;
+                }
+            } else if (pattern.charAt(p) == '*') {
+                starPattern = ++p;
+                starText = t;
+                continue;
+            } else if (t < to && pattern.charAt(p) == text.charAt(t)) {
+                p++;
+                t++;
+                continue;
+            }
+            // Let the last * swallow one more character and try again
+            if (starPattern < 0 || starText >= to) {
+                return false;
+            }
+            p = starPattern;
+            t = ++starText;
+        }
+    }
+
+    /**
+     * The rule path as matched, or null if the rule matches nothing.
+     */
+    private static String normalize(String value) {
+        if (value.isEmpty()) {
+            return null; // "Disallow:" with no path allows everything
+        }
+        String pattern = value.charAt(0) == '/' || value.charAt(0) == '*' ? value : "/" + value;
+        // A trailing * adds nothing to a prefix match
+        int end = pattern.length();
+        while (end > 1 && pattern.charAt(end - 1) == '*') {
+            end--;
+        }
+        return pattern.substring(0, end);
+    }
+
+    private static long parseDelay(String value) {
+        try {
+            double seconds = Double.parseDouble(value);
+            return seconds >= 0 ? Math.round(seconds * 1000) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Group {
+
+        private final List<String> patterns = new ArrayList<>();
+        private final List<Boolean> allows = new ArrayList<>();
+        private long crawlDelayMillis = -1;
+        private boolean seen;
+
+        private void add(String pattern, boolean allow) {
+            patterns.add(pattern);
+            allows.add(allow);
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private byte rule = NONE;
+    }
+}
@@ -0,0 +1,244 @@
+package com.info6205.webcrawler.service.throttle;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.info6205.webcrawler.service.frontier.HostScheduler;
+
+/**
+ * Adapts one crawl's fetch concurrency and rates to how the hosts answer.
+ *
+ * <p>Every host has an {@link AimdLimit} fed with its fetch latencies,
+ * 429 and 503 answers and timeouts. The limit's concurrency and delay go to
+ * the {@link HostScheduler} as that host's overrides, which are dropped
+ * again once the host is back where it started. A crawl-wide limit sees
+ * every response and timeout, but not one host's 429s and 503s. It sizes
+ * {@link #getPermits() the crawl's fetch permits}, and once those are down
+ * to their floor it slows the default rate of every host.
+ *
+ * <p>A host not fetched for a while is forgotten along with its overrides,
+ * so the limits kept stay bounded by the hosts crawled recently.
+ */
+public final class AdaptiveThrottle {
+
+    public static final String HOST = "host";
+    public static final String GLOBAL = "global";
+
+    private static final Logger logger = LogManager.getLogger(AdaptiveThrottle.class);
+
+    // Longer than the longest delay a host limit asks for, so a slowed host is not forgotten between fetches
+    static final long DEFAULT_IDLE_HOST_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final HostScheduler scheduler;
+    private final double ratePerHost;
+    private final AimdLimit global;
+    private final Supplier<AimdLimit> newHostLimit;
+    private final BiConsumer<String, AimdLimit.Adjustment> listener;
+    private final Map<String, HostLimit> hosts = new ConcurrentHashMap<>();
+    private final AtomicInteger throttledHosts = new AtomicInteger();
+    private final long idleHostNanos;
+    private final AtomicLong nextSweepNanos;
+    private final FetchPermits permits;
+    private int grantedPermits;
+
+    /**
+     * @param ratePerHost  the scheduler's configured fetches per second per
+     *                     host; 0 or less means no rate limit
+     * @param global       limit on the whole crawl
+     * @param newHostLimit creates the limit of a host on its first fetch
+     * @param listener     told of every adjustment, with {@link #HOST} or
+     *                     {@link #GLOBAL}
+     */
+    public AdaptiveThrottle(HostScheduler scheduler, double ratePerHost, AimdLimit global,
+            Supplier<AimdLimit> newHostLimit, BiConsumer<String, AimdLimit.Adjustment> listener) {
+        this(scheduler, ratePerHost, global, newHostLimit, listener, DEFAULT_IDLE_HOST_MILLIS);
+    }
+
+    /**
+     * @param idleHostMillis how long a host goes without a fetch before its
+     *                       limit is forgotten
+     */
+    AdaptiveThrottle(HostScheduler scheduler, double ratePerHost, AimdLimit global,
+            Supplier<AimdLimit> newHostLimit, BiConsumer<String, AimdLimit.Adjustment> listener,
+            long idleHostMillis) {
+        this.scheduler = scheduler;
+        this.ratePerHost = ratePerHost;
+        this.global = global;
+        this.newHostLimit = newHostLimit;
+        this.listener = listener;
+        this.grantedPermits = global.getConcurrency();
+        this.permits = new FetchPermits(grantedPermits);
+        this.idleHostNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleHostMillis));
+        this.nextSweepNanos = new AtomicLong(System.nanoTime() + idleHostNanos);
+    }
+
+    /**
+     * Fetch permits of the crawl, one per fetch in flight, resized as the
+     * crawl-wide limit moves.
+     */
+    public Semaphore getPermits() {
+        return permits;
+    }
+
+    /**
+     * Records a fetch of {@code host} answered with {@code status} after
+     * {@code latencyNanos}.
+     */
+    public void onResponse(String host, long latencyNanos, int status) {
+        if (status == 429 || status == 503) {
+            // One host turning requests away says nothing about the crawl as a whole
+            adjustHost(host, null);
+            return;
+        }
+        adjustHost(host, latencyNanos);
+        adjustGlobal(latencyNanos);
+    }
+
+    /**
+     * Records a fetch of {@code host} that timed out.
+     */
+    public void onTimeout(String host) {
+        adjustHost(host, null);
+        adjustGlobal(null);
+    }
+
+    /**
+     * Fetches the crawl-wide limit allows in flight.
+     */
+    public int getConcurrency() {
+        return global.getConcurrency();
+    }
+
+    /**
+     * Hosts held below their starting concurrency or rate.
+     */
+    public int getThrottledHosts() {
+        return throttledHosts.get();
+    }
+
+    /**
+     * Hosts whose limits are kept.
+     */
+    int getHostCount() {
+        return hosts.size();
+    }
+
+    private void adjustHost(String host, Long latencyNanos) {
+        long now = System.nanoTime();
+        long sweep = nextSweepNanos.get();
+        if (now - sweep >= 0 && nextSweepNanos.compareAndSet(sweep, now + idleHostNanos)) {
+            forgetIdleHosts(now);
+        }
+        while (true) {
+            HostLimit hostLimit = hosts.computeIfAbsent(host, key -> new HostLimit(newHostLimit.get()));
+            // Applied under the host's lock, so concurrent samples reach the scheduler in order
+            synchronized (hostLimit) {
+                // A limit forgotten meanwhile is replaced by a fresh one
+                if (hostLimit.forgotten) {
+                    continue;
+                }
+                hostLimit.lastUsedNanos = now;
+                AimdLimit limit = hostLimit.limit;
+                boolean wasThrottled = limit.isThrottled();
+                AimdLimit.Adjustment adjustment = latencyNanos != null
+                        ? limit.onResponse(latencyNanos) : limit.onOverload();
+                if (adjustment == AimdLimit.Adjustment.NONE) {
+                    return;
+                }
+                int concurrency = limit.getConcurrency();
+                scheduler.setHostConcurrency(host, concurrency != limit.getInitialConcurrency() ? concurrency : 0);
+                scheduler.setHostBackoff(host, limit.getDelayMillis());
+                if (wasThrottled != limit.isThrottled()) {
+                    throttledHosts.addAndGet(wasThrottled ? -1 : 1);
+                }
+                logger.debug("{} {}: {} in flight, {} ms between fetches", host, adjustment, concurrency,
+                        limit.getDelayMillis());
+                listener.accept(HOST, adjustment);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops the limits of hosts not fetched for {@code idleHostNanos}, and
+     * lifts the overrides of those still throttled.
+     */
+    private void forgetIdleHosts(long now) {
+        for (Map.Entry<String, HostLimit> entry : hosts.entrySet()) {
+            HostLimit hostLimit = entry.getValue();
+            synchronized (hostLimit) {
+                if (hostLimit.forgotten || now - hostLimit.lastUsedNanos < idleHostNanos) {
+                    continue;
+                }
+                hostLimit.forgotten = true;
+                hosts.remove(entry.getKey(), hostLimit);
+                if (hostLimit.limit.isThrottled()) {
+                    scheduler.setHostConcurrency(entry.getKey(), 0);
+                    scheduler.setHostBackoff(entry.getKey(), 0);
+                    throttledHosts.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void adjustGlobal(Long latencyNanos) {
+        synchronized (global) {
+            AimdLimit.Adjustment adjustment = latencyNanos != null
+                    ? global.onResponse(latencyNanos) : global.onOverload();
+            if (adjustment == AimdLimit.Adjustment.NONE) {
+                return;
+            }
+            int concurrency = global.getConcurrency();
+            permits.resize(concurrency - grantedPermits);
+            grantedPermits = concurrency;
+            long delay = global.getDelayMillis();
+            double rate = ratePerHost;
+            if (delay > 0) {
+                rate = ratePerHost > 0 ? Math.min(ratePerHost, 1000.0 / delay) : 1000.0 / delay;
+            }
+            scheduler.setDefaultRate(rate);
+            logger.info("Crawl {}: {} fetches in flight, {} fetches per second per host", adjustment, concurrency,
+                    rate > 0 ? String.format("%.2f", rate) : "unlimited");
+            listener.accept(GLOBAL, adjustment);
+        }
+    }
+
+    private static final class HostLimit {
+
+        private final AimdLimit limit;
+        private long lastUsedNanos = System.nanoTime();
+        private boolean forgotten;
+
+        HostLimit(AimdLimit limit) {
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * Semaphore whose permits can be taken away while they are held; the
+     * ones in use are then simply not given back.
+     */
+    private static final class FetchPermits extends Semaphore {
+
+        FetchPermits(int permits) {
+            super(permits);
+        }
+
+        void resize(int delta) {
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
+        }
+    }
+}
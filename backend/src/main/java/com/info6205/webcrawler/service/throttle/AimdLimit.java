@@ -0,0 +1,189 @@
+package com.info6205.webcrawler.service.throttle;
+
+/**
+ * Additive-increase, multiplicative-decrease limit on the fetches of one
+ * host or one whole crawl: how many may be in flight, and how long to wait
+ * between fetch starts.
+ *
+ * <p>Responses are judged a window at a time, a window being as many
+ * samples as fetches allowed in flight (at least {@link #MIN_WINDOW}), about
+ * one round trip's worth. A clean window adds one fetch in flight. When a
+ * window's mean latency exceeds the long-run mean by more than the
+ * tolerance, the concurrency shrinks by that gradient, to no less than the
+ * backoff factor. Overload (429, 503, timeouts) cuts it by the backoff
+ * factor, at most once a window.
+ *
+ * <p>Once concurrency is down to its floor, overload slows the rate instead:
+ * the delay between fetch starts doubles. Clean windows then win the rate
+ * back one fetch per second at a time before concurrency grows again.
+ */
+public final class AimdLimit {
+
+    public enum Adjustment {
+        NONE,
+        CONCURRENCY_UP,
+        CONCURRENCY_DOWN,
+        RATE_UP,
+        RATE_DOWN
+    }
+
+    static final int MIN_WINDOW = 5;
+    // Weight of each window's mean in the long-run latency
+    private static final double LONG_LATENCY_WEIGHT = 0.1;
+
+    private final int initialConcurrency;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final double tolerance;
+    private final double backoff;
+    private final double overloadShare;
+
+    private double limit;
+    private long delayMillis;
+    private double longLatencyNanos;
+    private int windowSamples;
+    private int windowOverloads;
+    private long windowLatencyNanos;
+    private int samplesSinceDecrease = Integer.MAX_VALUE;
+
+    /**
+     * @param minDelayMillis first delay between fetch starts once the rate is
+     *                       slowed down; a recovering rate drops the delay
+     *                       when it is back to this
+     * @param tolerance      how many times the long-run latency a window's
+     *                       mean may reach before the limit shrinks
+     * @param backoff        share of the concurrency kept after an overload
+     * @param overloadShare  share of a window's samples that must be overloaded
+     *                       to back off; 0 backs off at the first one
+     */
+    public AimdLimit(int initialConcurrency, int minConcurrency, int maxConcurrency, long minDelayMillis,
+            long maxDelayMillis, double tolerance, double backoff, double overloadShare) {
+        this.minConcurrency = Math.max(1, minConcurrency);
+        this.maxConcurrency = Math.max(this.minConcurrency, maxConcurrency);
+        this.initialConcurrency = Math.max(this.minConcurrency, Math.min(this.maxConcurrency, initialConcurrency));
+        this.minDelayMillis = Math.max(1, minDelayMillis);
+        this.maxDelayMillis = Math.max(this.minDelayMillis, maxDelayMillis);
+        this.tolerance = Math.max(1.0, tolerance);
+        this.backoff = Math.min(0.95, Math.max(0.05, backoff));
+        this.overloadShare = Math.max(0.0, overloadShare);
+        this.limit = this.initialConcurrency;
+    }
+
+    /**
+     * Records a response that took {@code latencyNanos}.
+     */
+    public synchronized Adjustment onResponse(long latencyNanos) {
+        windowLatencyNanos += Math.max(0, latencyNanos);
+        count();
+        return endOfWindow();
+    }
+
+    /**
+     * Records a fetch turned away or timed out because the other side had
+     * more than it could take.
+     */
+    public synchronized Adjustment onOverload() {
+        windowOverloads++;
+        count();
+        if (overloadShare == 0 && samplesSinceDecrease >= window()) {
+            return decrease(backoff, true);
+        }
+        return endOfWindow();
+    }
+
+    public synchronized int getConcurrency() {
+        return (int) limit;
+    }
+
+    /**
+     * Delay between fetch starts this limit asks for, 0 when it does not
+     * slow the rate.
+     */
+    public synchronized long getDelayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * True while the limit holds its scope below where it started.
+     */
+    public synchronized boolean isThrottled() {
+        return (int) limit < initialConcurrency || delayMillis > 0;
+    }
+
+    public int getInitialConcurrency() {
+        return initialConcurrency;
+    }
+
+    private void count() {
+        windowSamples++;
+        if (samplesSinceDecrease < Integer.MAX_VALUE) {
+            samplesSinceDecrease++;
+        }
+    }
+
+    private Adjustment endOfWindow() {
+        if (windowSamples < window()) {
+            return Adjustment.NONE;
+        }
+        int samples = windowSamples;
+        int overloads = windowOverloads;
+        long latency = windowLatencyNanos;
+        windowSamples = 0;
+        windowOverloads = 0;
+        windowLatencyNanos = 0;
+
+        if (overloads > 0) {
+            // An overloaded window never grows the limit
+            boolean backOff = overloadShare > 0 && overloads >= overloadShare * samples
+                    && samplesSinceDecrease >= window();
+            return backOff ? decrease(backoff, true) : Adjustment.NONE;
+        }
+        double mean = (double) latency / samples;
+        if (longLatencyNanos == 0) {
+            longLatencyNanos = mean;
+            return increase();
+        }
+        double gradient = longLatencyNanos * tolerance / Math.max(1.0, mean);
+        longLatencyNanos += LONG_LATENCY_WEIGHT * (mean - longLatencyNanos);
+        if (gradient < 1.0) {
+            return samplesSinceDecrease >= window() ? decrease(Math.max(backoff, gradient), false) : Adjustment.NONE;
+        }
+        return increase();
+    }
+
+    private Adjustment decrease(double factor, boolean overloaded) {
+        // Samples taken under the old limit don't count towards the next window
+        samplesSinceDecrease = 0;
+        windowSamples = 0;
+        windowOverloads = 0;
+        windowLatencyNanos = 0;
+        int before = (int) limit;
+        if (before > minConcurrency) {
+            limit = Math.max(minConcurrency, Math.min(limit * factor, before - 1));
+            return Adjustment.CONCURRENCY_DOWN;
+        }
+        if (overloaded && delayMillis < maxDelayMillis) {
+            delayMillis = Math.min(maxDelayMillis, Math.max(minDelayMillis, delayMillis * 2));
+            return Adjustment.RATE_DOWN;
+        }
+        return Adjustment.NONE;
+    }
+
+    private Adjustment increase() {
+        if (delayMillis > 0) {
+            // Additive on the rate: one more fetch start per second, until back to the first delay
+            long next = Math.round(1000.0 / (1000.0 / delayMillis + 1.0));
+            delayMillis = next <= minDelayMillis ? 0 : next;
+            return Adjustment.RATE_UP;
+        }
+        int before = (int) limit;
+        limit = Math.min(maxConcurrency, limit + 1);
+        return (int) limit > before ? Adjustment.CONCURRENCY_UP : Adjustment.NONE;
+    }
+
+    private int window() {
+        return Math.max(MIN_WINDOW, (int) limit);
+    }
+}
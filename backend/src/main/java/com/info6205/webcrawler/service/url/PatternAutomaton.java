@@ -0,0 +1,130 @@
+package com.info6205.webcrawler.service.url;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton that finds, in one pass over a string, the smallest
+ * value attached to any pattern occurring in it.
+ *
+ * <p>The automaton is compiled into a dense transition table over the
+ * characters that occur in the patterns, so the scan costs one array read
+ * per character no matter how many patterns there are. Characters that occur
+ * in no pattern all share class 0.
+ */
+final class PatternAutomaton {
+
+    static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final short[] charClass = new short[Character.MAX_VALUE + 1];
+    private final int classes;
+    private final int[] transitions;
+    private final int[] output;
+    private final int lowestValue;
+
+    /**
+     * @param patterns non-empty patterns
+     * @param values   value reported for each pattern
+     */
+    PatternAutomaton(List<String> patterns, int[] values) {
+        int nextClass = 1;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (charClass[c] == 0) {
+                    if (nextClass > Short.MAX_VALUE) {
+                        throw new IllegalArgumentException("Too many distinct pattern characters");
+                    }
+                    charClass[c] = (short) nextClass++;
+                }
+            }
+        }
+        this.classes = nextClass;
+
+        // Build the trie with sparse children first
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Integer> nodeValues = new ArrayList<>();
+        children.add(new HashMap<>());
+        nodeValues.add(NO_MATCH);
+        int lowest = NO_MATCH;
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int c = charClass[pattern.charAt(i)];
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    nodeValues.add(NO_MATCH);
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+            nodeValues.set(node, Math.min(nodeValues.get(node), values[p]));
+            lowest = Math.min(lowest, values[p]);
+        }
+        this.lowestValue = lowest;
+
+        int nodes = children.size();
+        this.transitions = new int[nodes * classes];
+        this.output = new int[nodes];
+        int[] fail = new int[nodes];
+        for (int node = 0; node < nodes; node++) {
+            output[node] = nodeValues.get(node);
+        }
+
+        // Breadth-first: fill missing transitions from the failure state and fold
+        // outputs along failure links, so each state reports every pattern ending there
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < classes; c++) {
+            Integer child = children.get(0).get(c);
+            if (child != null) {
+                transitions[c] = child;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            output[node] = Math.min(output[node], output[fail[node]]);
+            for (int c = 0; c < classes; c++) {
+                Integer child = children.get(node).get(c);
+                int fallback = transitions[fail[node] * classes + c];
+                if (child != null) {
+                    fail[child] = fallback;
+                    transitions[node * classes + c] = child;
+                    queue.add(child);
+                } else {
+                    transitions[node * classes + c] = fallback;
+                }
+            }
+        }
+    }
+
+    /**
+     * Smallest value of a pattern contained in {@code text}, or
+     * {@link #NO_MATCH}.
+     */
+    int minMatch(String text) {
+        int best = NO_MATCH;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * classes + charClass[text.charAt(i)]];
+            int value = output[state];
+            if (value < best) {
+                best = value;
+                if (best == lowestValue) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    int stateCount() {
+        return output.length;
+    }
+}
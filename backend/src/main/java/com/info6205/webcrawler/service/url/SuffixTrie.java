@@ -0,0 +1,54 @@
+package com.info6205.webcrawler.service.url;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trie over reversed patterns, walked from the end of a string, that finds
+ * the smallest value attached to any pattern the string ends with. The walk
+ * stops at the first character no pattern continues with, so a lookup
+ * touches at most as many characters as the longest pattern.
+ */
+final class SuffixTrie {
+
+    private final Node root = new Node();
+
+    SuffixTrie(List<String> patterns, int[] values) {
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            Node node = root;
+            for (int i = pattern.length() - 1; i >= 0; i--) {
+                node = node.children.computeIfAbsent(pattern.charAt(i), c -> new Node());
+            }
+            node.value = Math.min(node.value, values[p]);
+        }
+    }
+
+    int minMatch(String text) {
+        return minMatch(text, text.length());
+    }
+
+    /**
+     * Same as {@link #minMatch(String)} on the first {@code end} characters
+     * of {@code text}.
+     */
+    int minMatch(String text, int end) {
+        int best = PatternAutomaton.NO_MATCH;
+        Node node = root;
+        for (int i = end - 1; i >= 0; i--) {
+            node = node.children.get(text.charAt(i));
+            if (node == null) {
+                break;
+            }
+            best = Math.min(best, node.value);
+        }
+        return best;
+    }
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private int value = PatternAutomaton.NO_MATCH;
+    }
+}
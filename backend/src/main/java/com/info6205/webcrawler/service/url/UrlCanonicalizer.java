@@ -0,0 +1,152 @@
+package com.info6205.webcrawler.service.url;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Rewrites URLs into one canonical spelling, so variants of the same page are
+ * fetched and stored once. It
+ * <ul>
+ * <li>drops the {@code #fragment};</li>
+ * <li>lower-cases the scheme and host and drops a trailing dot on the host;</li>
+ * <li>drops the port when it is the scheme's default;</li>
+ * <li>resolves {@code .} and {@code ..} path segments, uses {@code /} for an
+ * empty path and optionally strips trailing slashes elsewhere;</li>
+ * <li>removes query parameters matching the strip rules (a rule ending in
+ * {@code *} matches by prefix, names compared case-insensitively) and
+ * optionally sorts the rest.</li>
+ * </ul>
+ * URLs that cannot be parsed only lose their fragment.
+ */
+public class UrlCanonicalizer {
+
+    public static final List<String> DEFAULT_STRIP_PARAMS = List.of(
+            "utm_*", "gclid", "fbclid", "msclkid", "mc_cid", "mc_eid", "_ga", "_hsenc", "_hsmi");
+
+    private final Set<String> exactParams = new HashSet<>();
+    private final List<String> paramPrefixes = new ArrayList<>();
+    private final boolean stripTrailingSlash;
+    private final boolean sortQuery;
+
+    public UrlCanonicalizer() {
+        this(DEFAULT_STRIP_PARAMS, true, true);
+    }
+
+    public UrlCanonicalizer(Collection<String> stripParams, boolean stripTrailingSlash, boolean sortQuery) {
+        for (String rule : stripParams) {
+            String name = rule.strip().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (name.endsWith("*")) {
+                paramPrefixes.add(name.substring(0, name.length() - 1));
+            } else {
+                exactParams.add(name);
+            }
+        }
+        this.stripTrailingSlash = stripTrailingSlash;
+        this.sortQuery = sortQuery;
+    }
+
+    public String canonicalize(String url) {
+        URI uri;
+        try {
+            uri = new URI(url).normalize();
+        } catch (URISyntaxException e) {
+            return withoutFragment(url);
+        }
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (scheme == null || host == null || uri.isOpaque()) {
+            return withoutFragment(url);
+        }
+
+        scheme = scheme.toLowerCase(Locale.ROOT);
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.endsWith(".") && host.length() > 1) {
+            host = host.substring(0, host.length() - 1);
+        }
+
+        StringBuilder canonical = new StringBuilder(url.length());
+        canonical.append(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            canonical.append(uri.getRawUserInfo()).append('@');
+        }
+        canonical.append(host);
+        int port = uri.getPort();
+        if (port != -1 && port != defaultPort(scheme)) {
+            canonical.append(':').append(port);
+        }
+
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        } else if (stripTrailingSlash) {
+            int end = path.length();
+            while (end > 1 && path.charAt(end - 1) == '/') {
+                end--;
+            }
+            path = path.substring(0, end);
+        }
+        canonical.append(path);
+
+        String query = canonicalQuery(uri.getRawQuery());
+        if (!query.isEmpty()) {
+            canonical.append('?').append(query);
+        }
+        return canonical.toString();
+    }
+
+    private String canonicalQuery(String query) {
+        if (query == null || query.isEmpty()) {
+            return "";
+        }
+        List<String> kept = new ArrayList<>();
+        for (String param : query.split("&")) {
+            if (!param.isEmpty() && !stripped(param)) {
+                kept.add(param);
+            }
+        }
+        if (sortQuery) {
+            Collections.sort(kept);
+        }
+        return String.join("&", kept);
+    }
+
+    private boolean stripped(String param) {
+        int equals = param.indexOf('=');
+        String name = (equals >= 0 ? param.substring(0, equals) : param).toLowerCase(Locale.ROOT);
+        if (exactParams.contains(name)) {
+            return true;
+        }
+        for (String prefix : paramPrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int defaultPort(String scheme) {
+        switch (scheme) {
+            case "http":
+                return 80;
+            case "https":
+                return 443;
+            default:
+                return -1;
+        }
+    }
+
+    private static String withoutFragment(String url) {
+        int hash = url.indexOf('#');
+        return hash >= 0 ? url.substring(0, hash) : url;
+    }
+}
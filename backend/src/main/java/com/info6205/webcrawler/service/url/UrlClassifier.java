@@ -0,0 +1,251 @@
+package com.info6205.webcrawler.service.url;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Assigns a crawl priority to a URL from an ordered list of rules, where the
+ * first rule that matches wins.
+ *
+ * <p>Rules are compiled once: every {@code contains} pattern goes into one
+ * Aho-Corasick automaton, every {@code suffix} or {@code extension} pattern
+ * into one reversed trie and every {@code host} pattern into another, each
+ * tagged with its rule's position. A URL is classified with a single pass
+ * over its characters plus short walks back from the ends of the URL and of
+ * its host, however many rules there are, and without allocating.
+ *
+ * <p>The rule format is described in {@code url-rules.txt}, which holds the
+ * default rules.
+ */
+public final class UrlClassifier {
+
+    /** Priority of URLs that must never be fetched. */
+    public static final int SKIP = Integer.MAX_VALUE;
+
+    private static final String DEFAULT_RULES = "/url-rules.txt";
+    private static volatile UrlClassifier defaults;
+
+    /**
+     * Report list a matching URL is added to.
+     */
+    public enum Record {
+        NONE, BLACKLIST, LOW_PRIORITY
+    }
+
+    /**
+     * Outcome of a classification. Instances are shared, one per rule.
+     */
+    public static final class Result {
+
+        private final int priority;
+        private final Record record;
+
+        Result(int priority, Record record) {
+            this.priority = priority;
+            this.record = record;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public Record getRecord() {
+            return record;
+        }
+    }
+
+    private final Result[] results;
+    private final Result defaultResult;
+    private final PatternAutomaton contains;
+    private final SuffixTrie suffixes;
+    private final SuffixTrie hosts;
+
+    private UrlClassifier(Result[] results, Result defaultResult, List<String> containsPatterns,
+            int[] containsRules, List<String> suffixPatterns, int[] suffixRules, List<String> hostPatterns,
+            int[] hostRules) {
+        this.results = results;
+        this.defaultResult = defaultResult;
+        this.contains = new PatternAutomaton(containsPatterns, containsRules);
+        this.suffixes = new SuffixTrie(suffixPatterns, suffixRules);
+        this.hosts = new SuffixTrie(hostPatterns, hostRules);
+    }
+
+    public Result classify(String url) {
+        int rule = Math.min(contains.minMatch(url), suffixes.minMatch(url));
+        int hostEnd = hostEnd(url);
+        if (hostEnd >= 0) {
+            rule = Math.min(rule, hosts.minMatch(url, hostEnd));
+        }
+        return rule == PatternAutomaton.NO_MATCH ? defaultResult : results[rule];
+    }
+
+    public int ruleCount() {
+        return results.length;
+    }
+
+    /**
+     * The rules bundled with the application.
+     */
+    public static UrlClassifier defaults() {
+        UrlClassifier classifier = defaults;
+        if (classifier == null) {
+            try (InputStream in = UrlClassifier.class.getResourceAsStream(DEFAULT_RULES)) {
+                if (in == null) {
+                    throw new IllegalStateException("Missing " + DEFAULT_RULES + " on the classpath");
+                }
+                classifier = parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            defaults = classifier;
+        }
+        return classifier;
+    }
+
+    public static UrlClassifier load(Path rulesFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(rulesFile, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    public static UrlClassifier parse(Reader source) throws IOException {
+        List<Result> results = new ArrayList<>();
+        Result defaultResult = new Result(10, Record.NONE);
+        List<String> containsPatterns = new ArrayList<>();
+        List<Integer> containsRules = new ArrayList<>();
+        List<String> suffixPatterns = new ArrayList<>();
+        List<Integer> suffixRules = new ArrayList<>();
+        List<String> hostPatterns = new ArrayList<>();
+        List<Integer> hostRules = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(source);
+        StringBuilder pending = new StringBuilder();
+        int lineNumber = 0;
+        int ruleStart = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.strip();
+            if (pending.length() == 0) {
+                ruleStart = lineNumber;
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+            }
+            if (trimmed.endsWith("\\")) {
+                pending.append(trimmed, 0, trimmed.length() - 1).append(' ');
+                continue;
+            }
+            pending.append(trimmed);
+            String[] tokens = pending.toString().strip().split("\\s+");
+            pending.setLength(0);
+
+            String match = tokens[0].toLowerCase(Locale.ROOT);
+            if (tokens.length < 2) {
+                throw new IllegalArgumentException("Rule on line " + ruleStart + " has no priority");
+            }
+            int priority = parsePriority(tokens[1], ruleStart);
+            if (match.equals("default")) {
+                defaultResult = new Result(priority, Record.NONE);
+                continue;
+            }
+
+            int first = 2;
+            Record record = Record.NONE;
+            if (tokens.length > 2 && tokens[2].equalsIgnoreCase("blacklist")) {
+                record = Record.BLACKLIST;
+                first = 3;
+            } else if (tokens.length > 2 && tokens[2].equalsIgnoreCase("low-priority")) {
+                record = Record.LOW_PRIORITY;
+                first = 3;
+            }
+            if (tokens.length <= first) {
+                throw new IllegalArgumentException("Rule on line " + ruleStart + " has no patterns");
+            }
+
+            int rule = results.size();
+            results.add(new Result(priority, record));
+            for (String pattern : Arrays.asList(tokens).subList(first, tokens.length)) {
+                switch (match) {
+                    case "contains":
+                        containsPatterns.add(pattern);
+                        containsRules.add(rule);
+                        break;
+                    case "suffix":
+                        suffixPatterns.add(pattern);
+                        suffixRules.add(rule);
+                        break;
+                    case "extension":
+                        suffixPatterns.add("." + pattern);
+                        suffixRules.add(rule);
+                        break;
+                    case "host":
+                        hostPatterns.add(pattern);
+                        hostRules.add(rule);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown match '" + tokens[0] + "' on line " + ruleStart);
+                }
+            }
+        }
+        if (pending.length() > 0) {
+            throw new IllegalArgumentException("Rule on line " + ruleStart + " ends with a continuation");
+        }
+
+        return new UrlClassifier(results.toArray(new Result[0]), defaultResult,
+                containsPatterns, toArray(containsRules), suffixPatterns, toArray(suffixRules), hostPatterns,
+                toArray(hostRules));
+    }
+
+    /**
+     * Index just past the host of {@code url}, before any port, or -1 if the
+     * URL has no {@code scheme://} authority.
+     */
+    static int hostEnd(String url) {
+        int start = url.indexOf("://");
+        if (start < 0) {
+            return -1;
+        }
+        int end = start + 3;
+        int port = -1;
+        for (; end < url.length(); end++) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            if (c == ':') {
+                port = end;
+            } else if (c == '@' || c == ']') {
+                // A colon before these was in the user info or an IPv6 address
+                port = -1;
+            }
+        }
+        return port >= 0 ? port : end;
+    }
+
+    private static int parsePriority(String token, int line) {
+        if (token.equalsIgnoreCase("skip")) {
+            return SKIP;
+        }
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad priority '" + token + "' on line " + line);
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -3,7 +3,7 @@ package com.info6205.webcrawler;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "graph.store=memory")
 class WebcrawlerApplicationTests {
 
 	@Test
@@ -0,0 +1,75 @@
+package com.info6205.webcrawler.controller;
+
+import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.ClusterService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ClusterController.class)
+public class ClusterControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ClusterService clusterService;
+
+    @Test
+    public void testForwardedLinksAreTakenOnceTheJobRuns() throws Exception {
+        when(clusterService.acceptLinks(eq("job-1"), anyList())).thenReturn(true);
+        String links = "[{\"url\":\"https://www.northeastern.edu/a\",\"depth\":2,\"priority\":1},"
+                + "{\"url\":\"https://www.northeastern.edu/b\",\"depth\":3,\"priority\":10}]";
+
+        mockMvc.perform(post("/api/cluster/jobs/job-1/links")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(links))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(2));
+        mockMvc.perform(post("/api/cluster/jobs/job-2/links")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(links))
+                .andExpect(status().isNotFound());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UrlTask>> received = ArgumentCaptor.forClass(List.class);
+        verify(clusterService).acceptLinks(eq("job-1"), received.capture());
+        assertEquals("https://www.northeastern.edu/b", received.getValue().get(1).getUrl());
+        assertEquals(3, received.getValue().get(1).getDepth());
+        assertEquals(10, received.getValue().get(1).getPriority());
+    }
+
+    @Test
+    public void testNodeStateAndStartWithoutCluster() throws Exception {
+        when(clusterService.partitionState("job-1")).thenReturn(Map.of("idle", true, "links_received", 4));
+        when(clusterService.partitionState("job-2")).thenReturn(null);
+        when(clusterService.submitCrawl("https://www.northeastern.edu/"))
+                .thenThrow(new IllegalStateException("No cluster configured in crawler.cluster.nodes"));
+
+        mockMvc.perform(get("/api/cluster/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.links_received").value(4));
+        mockMvc.perform(get("/api/cluster/jobs/job-2"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/cluster/start").param("startUrl", "https://www.northeastern.edu/"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("No cluster configured in crawler.cluster.nodes"));
+    }
+}
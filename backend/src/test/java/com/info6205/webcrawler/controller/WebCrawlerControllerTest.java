@@ -1,5 +1,7 @@
 package com.info6205.webcrawler.controller;
 
+import com.info6205.webcrawler.service.CrawlEventStream;
+import com.info6205.webcrawler.service.CrawlJob;
 import com.info6205.webcrawler.service.Neo4jService;
 import com.info6205.webcrawler.service.WebCrawlerService;
 import org.junit.jupiter.api.Test;
@@ -9,12 +11,20 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
-import java.util.Collections;
 import java.util.Map;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -31,16 +41,103 @@ public class WebCrawlerControllerTest {
     private Neo4jService neo4jService;
 
     @Test
-    public void testStartCrawl() throws Exception {
+    public void testStartCrawlReturnsJobAtOnce() throws Exception {
         String startUrl = "https://www.northeastern.edu/";
-        Map<String, Object> mockResponse = Collections.singletonMap("message", "Crawl started");
 
-        when(crawlerService.startCrawl(Mockito.eq(startUrl))).thenReturn(mockResponse);
+        when(crawlerService.submitCrawl(Mockito.eq(startUrl))).thenReturn(new CrawlJob("job-1", startUrl));
 
         mockMvc.perform(post("/api/crawler/start")
                         .param("startUrl", startUrl)
                         .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.job_id").value("job-1"))
+                .andExpect(jsonPath("$.status").value("queued"));
+    }
+
+    @Test
+    public void testJobEndpoints() throws Exception {
+        CrawlJob job = new CrawlJob("job-1", "https://www.northeastern.edu/");
+        when(crawlerService.getJob("job-1")).thenReturn(job);
+
+        mockMvc.perform(get("/api/crawler/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.start_url").value("https://www.northeastern.edu/"));
+        mockMvc.perform(get("/api/crawler/jobs/job-1/results"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value("queued"));
+        mockMvc.perform(get("/api/crawler/jobs/job-2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testInterimRanking() throws Exception {
+        Map<String, Object> mockResponse = Map.of("status", "success", "pages_ranked", 3);
+
+        when(crawlerService.getInterimRanking(10)).thenReturn(mockResponse);
+
+        mockMvc.perform(get("/api/crawler/ranks/interim").param("limit", "10"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.message").value("Crawl started"));
+                .andExpect(jsonPath("$.pages_ranked").value(3));
+    }
+
+    @Test
+    public void testRankingPage() throws Exception {
+        when(crawlerService.getRankingPage(null, 50, 25, 0.001)).thenReturn(Map.of("offset", 50, "total_pages", 800));
+        when(crawlerService.getRankingPage("job-2", 0, 50, 0.0)).thenReturn(null);
+
+        mockMvc.perform(get("/api/crawler/ranks")
+                        .param("offset", "50").param("limit", "25").param("minRank", "0.001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total_pages").value(800));
+        mockMvc.perform(get("/api/crawler/ranks").param("jobId", "job-2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testResumeWithoutCheckpoint() throws Exception {
+        when(crawlerService.submitResume(null)).thenThrow(new IllegalStateException("No crawl checkpoint to resume from"));
+
+        mockMvc.perform(post("/api/crawler/resume"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("No crawl checkpoint to resume from"));
+    }
+
+    @Test
+    public void testJobEventsAreFramedAsSseOrNdjson() throws Exception {
+        CrawlEventStream stream = mock(CrawlEventStream.class);
+        doAnswer(invocation -> {
+            CrawlEventStream.Sink sink = invocation.getArgument(0);
+            sink.send("page", Map.of("url", "https://www.northeastern.edu/"));
+            sink.send("end", Map.of("ranked", 0));
+            return null;
+        }).when(stream).writeTo(any());
+        when(crawlerService.openEventStream("job-1")).thenReturn(stream);
+
+        MvcResult sse = mockMvc.perform(get("/api/crawler/jobs/job-1/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(sse))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string("event: page\ndata: {\"url\":\"https://www.northeastern.edu/\"}\n\n"
+                        + "event: end\ndata: {\"ranked\":0}\n\n"));
+
+        MvcResult ndjson = mockMvc.perform(get("/api/crawler/jobs/job-1/events")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"event\":\"page\",\"url\":\"https://www.northeastern.edu/\"}\n"
+                        + "{\"event\":\"end\",\"ranked\":0}\n"));
+        verify(stream, Mockito.times(2)).close();
+
+        MvcResult unknown = mockMvc.perform(get("/api/crawler/jobs/job-2/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(unknown))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("No crawl job job-2"));
     }
 }
@@ -0,0 +1,166 @@
+package com.info6205.webcrawler.service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.cluster.ClusterTransport;
+import com.info6205.webcrawler.service.cluster.HashRing;
+import com.info6205.webcrawler.service.frontier.HostScheduler;
+import com.sun.net.httpserver.HttpServer;
+
+class ClusterServiceTest {
+
+    private static final int HOSTS = 6;
+    private static final int PAGES_PER_HOST = 6;
+
+    @Test
+    void testHostsAreCrawledByTheirOwnersAndRankedTogether() throws Exception {
+        List<HttpServer> servers = new ArrayList<>();
+        List<String> bases = new ArrayList<>();
+        Map<String, Integer> fetches = new ConcurrentHashMap<>();
+        for (int host = 0; host < HOSTS; host++) {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0." + (host + 1), 0), 0);
+            servers.add(server);
+            bases.add("http://127.0.0." + (host + 1) + ":" + server.getAddress().getPort());
+        }
+        for (int host = 0; host < HOSTS; host++) {
+            String base = bases.get(host);
+            String nextHost = bases.get((host + 1) % HOSTS);
+            servers.get(host).createContext("/", exchange -> {
+                fetches.merge(base + exchange.getRequestURI().getPath(), 1, Integer::sum);
+                int page = Integer.parseInt(exchange.getRequestURI().getPath().substring(1));
+                // The next page on this host and the same page on the next host
+                String body = "<html><body><a href='/" + (page + 1) % PAGES_PER_HOST + "'>next</a>"
+                        + "<a href='" + nextHost + "/" + page + "'>across</a></body></html>";
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/html");
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+                exchange.close();
+            });
+            servers.get(host).start();
+        }
+
+        List<String> nodes = List.of("node-a", "node-b", "node-c");
+        LoopbackTransport transport = new LoopbackTransport();
+        List<WebCrawlerService> crawlers = new ArrayList<>();
+        try {
+            for (String node : nodes) {
+                WebCrawlerService crawler = new WebCrawlerService(4, 50, 1000.0,
+                        new InMemoryGraphStore(""), new PageRankCalculator());
+                ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+                crawlers.add(crawler);
+                ClusterService cluster = new ClusterService(crawler, new PageRankCalculator());
+                ReflectionTestUtils.setField(cluster, "clusterNodes", String.join(",", nodes));
+                ReflectionTestUtils.setField(cluster, "self", node);
+                ReflectionTestUtils.setField(cluster, "transport", transport);
+                ReflectionTestUtils.setField(cluster, "batchSize", 2);
+                ReflectionTestUtils.setField(cluster, "flushIntervalMs", 20L);
+                ReflectionTestUtils.setField(cluster, "pollIntervalMs", 50L);
+                transport.nodes.put(node, cluster);
+            }
+
+            ClusterCrawl crawl = transport.nodes.get("node-b").submitCrawl(bases.get(0) + "/0");
+            Map<String, Object> result = assertTimeoutPreemptively(Duration.ofSeconds(60), crawl::awaitResult);
+
+            int pages = HOSTS * PAGES_PER_HOST;
+            assertEquals(CrawlJob.Status.SUCCEEDED, crawl.getStatus());
+            assertEquals(pages, result.get("total_urls_crawled"));
+            assertEquals(pages, ((List<?>) result.get("data")).size());
+            assertEquals(pages, fetches.size());
+            assertTrue(fetches.values().stream().allMatch(count -> count == 1), "fetches: " + fetches);
+
+            HashRing ring = new HashRing(nodes, 64);
+            for (String node : nodes) {
+                @SuppressWarnings("unchecked")
+                List<String> crawled = (List<String>) transport.nodes.get(node).partitionGraph(crawl.getId()).get("nodes");
+                for (String url : crawled) {
+                    assertEquals(node, ring.ownerOf(HostScheduler.hostOf(url)), url);
+                }
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> totals = (Map<String, Object>) result.get("totals");
+            assertEquals(totals.get("links_forwarded"), totals.get("links_received"));
+            assertTrue((Long) totals.get("links_forwarded") > 0);
+            assertEquals((long) pages, totals.get("urls_crawled"));
+        } finally {
+            transport.nodes.values().forEach(ClusterService::shutdown);
+            crawlers.forEach(WebCrawlerService::shutdown);
+            servers.forEach(server -> server.stop(0));
+        }
+    }
+
+    @Test
+    void testCrawlNeedsACluster() {
+        ClusterService cluster = new ClusterService(new WebCrawlerService(1, 1, 1.0,
+                new InMemoryGraphStore(""), new PageRankCalculator()), new PageRankCalculator());
+
+        assertEquals(false, cluster.isEnabled());
+        assertThrows(IllegalStateException.class, () -> cluster.submitCrawl("https://www.northeastern.edu/"));
+        ReflectionTestUtils.setField(cluster, "clusterNodes", "http://127.0.0.1:8081,http://127.0.0.1:8082");
+        ReflectionTestUtils.setField(cluster, "self", "http://127.0.0.1:8083");
+        assertThrows(IllegalStateException.class, () -> cluster.startPartition("job-1", "https://www.northeastern.edu/"));
+    }
+
+    /**
+     * Calls the other nodes' services directly instead of over HTTP.
+     */
+    private static final class LoopbackTransport implements ClusterTransport {
+
+        private final Map<String, ClusterService> nodes = new LinkedHashMap<>();
+
+        @Override
+        public void start(String node, String jobId, String startUrl) {
+            nodes.get(node).startPartition(jobId, startUrl);
+        }
+
+        @Override
+        public void sendLinks(String node, String jobId, List<UrlTask> links) throws IOException {
+            if (!nodes.get(node).acceptLinks(jobId, new ArrayList<>(links))) {
+                throw new IOException("Crawl job " + jobId + " has not started on " + node);
+            }
+        }
+
+        @Override
+        public Map<String, Object> state(String node, String jobId) throws IOException {
+            return found(nodes.get(node).partitionState(jobId), node);
+        }
+
+        @Override
+        public void stop(String node, String jobId) {
+            nodes.get(node).stopPartition(jobId);
+        }
+
+        @Override
+        public void cancel(String node, String jobId) {
+            nodes.get(node).cancelPartition(jobId);
+        }
+
+        @Override
+        public Map<String, Object> graph(String node, String jobId) throws IOException {
+            return found(nodes.get(node).partitionGraph(jobId), node);
+        }
+
+        private static Map<String, Object> found(Map<String, Object> answer, String node) throws IOException {
+            if (answer == null) {
+                throw new IOException("No such crawl job on " + node);
+            }
+            return answer;
+        }
+    }
+}
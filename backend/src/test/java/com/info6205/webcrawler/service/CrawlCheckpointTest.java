@@ -0,0 +1,105 @@
+package com.info6205.webcrawler.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.frontier.FrontierSnapshot;
+import com.info6205.webcrawler.service.frontier.HostScheduler;
+import com.info6205.webcrawler.service.frontier.SeenSet;
+import com.info6205.webcrawler.service.frontier.SeenSets;
+import com.info6205.webcrawler.service.frontier.SpillingFrontier;
+
+class CrawlCheckpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTripWithSpilledFrontier() throws Exception {
+        CrawlCheckpointStore store = new CrawlCheckpointStore(tempDir.resolve("checkpoints"), 2);
+        SeenSet seen = SeenSets.create(SeenSets.Type.FINGERPRINT, 100, 0.01, false);
+
+        try (SpillingFrontier frontier = new SpillingFrontier(tempDir.resolve("frontier"), 512, 0)) {
+            HostScheduler scheduler = new HostScheduler(0, 0, Comparator.comparingInt(UrlTask::getPriority),
+                    frontier, 4);
+            for (int i = 0; i < 200; i++) {
+                String url = "https://site" + (i % 7) + ".com/" + i;
+                seen.add(url);
+                scheduler.add(new UrlTask(url, 1 + i % 3, i % 2 == 0 ? 5 : 10));
+            }
+            // One task is in flight when the checkpoint is taken
+            UrlTask inFlight = scheduler.poll(1, TimeUnit.SECONDS, null);
+
+            Path staging = store.stage();
+            FrontierSnapshot snapshot = scheduler.snapshot(staging);
+            assertFalse(snapshot.getSegments().isEmpty());
+            store.commit(staging, new CrawlCheckpoint("https://site0.com/0", 1, 1, Instant.now(),
+                    snapshot, seen.copy()));
+
+            // Draining the live frontier deletes its segment files but not the checkpoint's links
+            while (scheduler.poll(10, TimeUnit.MILLISECONDS, null) != null) {
+                // drain
+            }
+            scheduler.release(inFlight);
+        }
+
+        CrawlCheckpoint restored = store.loadLatest();
+        assertNotNull(restored);
+        assertEquals("https://site0.com/0", restored.getStartUrl());
+        assertEquals(1, restored.getDispatched());
+        assertEquals(200, restored.getSeen().size());
+        assertTrue(restored.getSeen().contains("https://site3.com/3"));
+
+        List<UrlTask> tasks = new ArrayList<>();
+        restored.forEachTask(tasks::add);
+        assertEquals(200, tasks.size());
+        assertEquals(200, tasks.stream().map(UrlTask::getUrl).distinct().count());
+        UrlTask sample = tasks.stream().filter(t -> t.getUrl().equals("https://site4.com/11")).findFirst().get();
+        assertEquals(3, sample.getDepth());
+        assertEquals(10, sample.getPriority());
+    }
+
+    @Test
+    void testStoreKeepsNewestCheckpoints() throws IOException {
+        CrawlCheckpointStore store = new CrawlCheckpointStore(tempDir, 2);
+        assertNull(store.loadLatest());
+
+        for (int i = 1; i <= 3; i++) {
+            store.commit(store.stage(), new CrawlCheckpoint("https://a.com/", i, i, Instant.now(),
+                    FrontierSnapshot.empty(), SeenSets.create(SeenSets.Type.STRING, 10, 0.01, false)));
+        }
+
+        assertEquals(3, store.loadLatest().getDispatched());
+        try (Stream<Path> entries = Files.list(tempDir)) {
+            assertEquals(2, entries.count());
+        }
+    }
+
+    @Test
+    void testUnreadableCheckpointFallsBackToPrevious() throws IOException {
+        CrawlCheckpointStore store = new CrawlCheckpointStore(tempDir, 3);
+        store.commit(store.stage(), new CrawlCheckpoint("https://a.com/", 1, 1, Instant.now(),
+                FrontierSnapshot.empty(), SeenSets.create(SeenSets.Type.BLOOM, 10, 0.01, false)));
+        Path newest = store.commit(store.stage(), new CrawlCheckpoint("https://a.com/", 2, 2, Instant.now(),
+                FrontierSnapshot.empty(), SeenSets.create(SeenSets.Type.BLOOM, 10, 0.01, false)));
+        Files.write(newest.resolve(CrawlCheckpoint.STATE_FILE), new byte[]{1, 2, 3});
+
+        assertEquals(1, store.loadLatest().getDispatched());
+    }
+}
@@ -0,0 +1,39 @@
+package com.info6205.webcrawler.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class CrawlExecutorsTest {
+
+    @Test
+    void testParseMode() {
+        assertEquals(CrawlExecutors.Mode.FIXED, CrawlExecutors.parseMode(""));
+        assertEquals(CrawlExecutors.Mode.VIRTUAL, CrawlExecutors.parseMode(" Virtual "));
+    }
+
+    @Test
+    void testFixedModeUsesPoolSize() {
+        ExecutorService executor = CrawlExecutors.create(CrawlExecutors.Mode.FIXED, 6);
+        try {
+            assertEquals(6, ((ThreadPoolExecutor) executor).getCorePoolSize());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testVirtualModeRunsTasksOnAnyRuntime() throws InterruptedException {
+        ExecutorService executor = CrawlExecutors.create(CrawlExecutors.Mode.VIRTUAL, 1);
+        int[] ran = new int[1];
+        executor.execute(() -> ran[0]++);
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, ran[0]);
+    }
+}
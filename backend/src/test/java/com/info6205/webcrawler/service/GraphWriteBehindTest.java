@@ -0,0 +1,94 @@
+package com.info6205.webcrawler.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class GraphWriteBehindTest {
+
+    private final Neo4jService mockNeo4jService = mock(Neo4jService.class);
+    private final List<Integer> batchRows = new ArrayList<>();
+    private GraphWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writeBehind.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPagesAreWrittenInBoundedBatches() throws InterruptedException {
+        doAnswer(invocation -> {
+            Map<String, List<String>> linksByPage = invocation.getArgument(0);
+            int rows = linksByPage.values().stream().mapToInt(links -> 1 + links.size()).sum();
+            synchronized (batchRows) {
+                batchRows.add(rows);
+            }
+            return null;
+        }).when(mockNeo4jService).writeBatch(anyMap());
+        writeBehind = new GraphWriteBehind(mockNeo4jService, 10, 50, 100, 1);
+
+        for (int i = 0; i < 20; i++) {
+            writeBehind.enqueuePage("http://page" + i + ".com", List.of("http://a.com", "http://b.com"));
+        }
+        writeBehind.flush();
+
+        synchronized (batchRows) {
+            assertEquals(60, batchRows.stream().mapToInt(Integer::intValue).sum());
+            // Each page is 3 rows, so a batch stops growing once it reaches 10 rows
+            assertTrue(batchRows.stream().allMatch(rows -> rows <= 12));
+        }
+        assertEquals(0, writeBehind.getQueueDepth());
+        assertEquals(60L, writeBehind.getStats().get("rows_written"));
+    }
+
+    @Test
+    void testEnqueueBlocksWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(mockNeo4jService).writeBatch(anyMap());
+        writeBehind = new GraphWriteBehind(mockNeo4jService, 1, 10, 2, 1);
+
+        CountDownLatch enqueued = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 5; i++) {
+                    writeBehind.enqueuePage("http://page" + i + ".com", List.of());
+                }
+                enqueued.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        assertFalse(enqueued.await(300, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(enqueued.await(5, TimeUnit.SECONDS));
+        writeBehind.flush();
+    }
+
+    @Test
+    void testRanksAreFlushedThroughTheQueue() throws InterruptedException {
+        writeBehind = new GraphWriteBehind(mockNeo4jService, 100, 20, 10, 1);
+
+        writeBehind.enqueuePageRanks(Map.of("http://a.com", 0.6, "http://b.com", 0.4));
+        writeBehind.flush();
+
+        verify(mockNeo4jService).updatePageRank(anyMap());
+    }
+}
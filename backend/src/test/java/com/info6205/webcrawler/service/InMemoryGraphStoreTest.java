@@ -0,0 +1,128 @@
+package com.info6205.webcrawler.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InMemoryGraphStoreTest {
+
+    private final InMemoryGraphStore graphStore = new InMemoryGraphStore("");
+
+    @Test
+    void testGraphOnlyContainsLinksBetweenPages() {
+        graphStore.writeBatch(Map.of("http://a.com", List.of("http://b.com", "http://c.com")));
+        assertTrue(graphStore.getGraph().isEmpty());
+
+        graphStore.createNode("http://b.com");
+
+        assertEquals(Set.of("http://a.com", "http://b.com"), Set.copyOf(graphStore.getNodes()));
+        assertEquals(Map.of("http://a.com", List.of("http://b.com")), graphStore.getGraph());
+    }
+
+    @Test
+    void testDuplicateEdgesAreMerged() {
+        graphStore.createNode("http://a.com");
+        graphStore.createNode("http://b.com");
+        graphStore.addEdge("http://a.com", "http://b.com");
+        graphStore.addEdge("http://a.com", "http://b.com");
+        graphStore.writeBatch(Map.of("http://a.com", List.of("http://b.com")));
+
+        assertEquals(1, graphStore.getGraph().get("http://a.com").size());
+    }
+
+    @Test
+    void testPageRanksAreStoredForPagesOnly() {
+        graphStore.createNode("http://a.com");
+
+        graphStore.updatePageRank(Map.of("http://a.com", 0.7, "http://unknown.com", 0.3));
+
+        assertEquals(Map.of("http://a.com", 0.7), graphStore.getPageRanks());
+    }
+
+    @Test
+    void testClearGraph() {
+        graphStore.writeBatch(Map.of("http://a.com", List.of("http://a.com")));
+
+        graphStore.clearGraph();
+
+        assertTrue(graphStore.getNodes().isEmpty());
+        assertTrue(graphStore.getGraph().isEmpty());
+    }
+
+    @Test
+    void testPersistAndReload(@TempDir Path dir) {
+        String path = dir.resolve("graph.bin").toString();
+        InMemoryGraphStore persistent = new InMemoryGraphStore(path);
+        persistent.writeBatch(Map.of(
+                "http://a.com", List.of("http://b.com", "http://x.com"),
+                "http://b.com", List.of("http://a.com")
+        ));
+        persistent.updatePageRank(Map.of("http://a.com", 0.5, "http://b.com", 0.5));
+        persistent.persist();
+
+        InMemoryGraphStore reloaded = new InMemoryGraphStore(path);
+
+        assertEquals(Set.copyOf(persistent.getNodes()), Set.copyOf(reloaded.getNodes()));
+        assertEquals(persistent.getGraph(), reloaded.getGraph());
+        assertEquals(persistent.getPageRanks(), reloaded.getPageRanks());
+
+        // Links to pages stored after the reload still resolve
+        reloaded.createNode("http://x.com");
+        assertEquals(2, reloaded.getGraph().get("http://a.com").size());
+    }
+
+    @Test
+    void testRankUpdatesAreWrittenOnlyWhenPersisted(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("graph.bin");
+        InMemoryGraphStore persistent = new InMemoryGraphStore(path.toString());
+        persistent.writeBatch(Map.of("http://a.com", List.of("http://b.com")));
+
+        persistent.updatePageRank(Map.of("http://a.com", 1.0));
+        assertFalse(Files.exists(path));
+
+        // Concurrent persists take turns on the temporary file
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> persists = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                persists.add(threads.submit(persistent::persist));
+            }
+            for (Future<?> persist : persists) {
+                persist.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        assertEquals(Map.of("http://a.com", 1.0), new InMemoryGraphStore(path.toString()).getPageRanks());
+    }
+
+    @Test
+    void testChangedGraphIsPersistedPeriodically(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("graph.bin");
+        InMemoryGraphStore persistent = new InMemoryGraphStore(path.toString(), 20);
+        try {
+            persistent.writeBatch(Map.of("http://a.com", List.of("http://a.com")));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!Files.exists(path) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of("http://a.com"), new InMemoryGraphStore(path.toString()).getNodes());
+        } finally {
+            persistent.shutdown();
+        }
+    }
+}
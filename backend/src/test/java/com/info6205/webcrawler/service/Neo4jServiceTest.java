@@ -2,6 +2,7 @@ package com.info6205.webcrawler.service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -16,8 +17,11 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -27,6 +31,7 @@ import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.TransactionContext;
 import org.neo4j.driver.Values;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -170,19 +175,46 @@ class Neo4jServiceTest {
 
         // Use argument matchers for both arguments
         when(mockSession.run(
-                eq("MATCH (n:Page {url: $url}) SET n.pageRank = $rank"),
+                eq("UNWIND $ranks AS row MATCH (n:Page {url: row.url}) SET n.pageRank = row.rank"),
                 any(Map.class)
         )).thenReturn(mockResult);
 
         assertDoesNotThrow(() -> neo4jService.updatePageRank(pageRanks));
 
-        // Use argument matchers for verification
-        verify(mockSession, times(2)).run(
-                eq("MATCH (n:Page {url: $url}) SET n.pageRank = $rank"),
+        // All ranks go out in a single UNWIND statement
+        verify(mockSession, times(1)).run(
+                eq("UNWIND $ranks AS row MATCH (n:Page {url: row.url}) SET n.pageRank = row.rank"),
                 any(Map.class)
         );
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWriteBatch_NodesBeforeEdgesInOneTransaction() {
+        TransactionContext tx = mock(TransactionContext.class);
+        doAnswer(invocation -> {
+            ((Consumer<TransactionContext>) invocation.getArgument(0)).accept(tx);
+            return null;
+        }).when(mockSession).executeWriteWithoutResult(any(Consumer.class));
+
+        neo4jService.writeBatch(Map.of(
+                "http://a.com", List.of("http://b.com"),
+                "http://b.com", List.of()
+        ));
+
+        InOrder inOrder = inOrder(tx);
+        inOrder.verify(tx).run(
+                eq("UNWIND $urls AS url MERGE (n:Page {url: url}) ON CREATE SET n.visited = false"),
+                any(Map.class)
+        );
+        inOrder.verify(tx).run(
+                eq("UNWIND $edges AS edge MATCH (a:Page {url: edge.from}), (b:Page {url: edge.to}) "
+                        + "MERGE (a)-[:LINKS_TO]->(b)"),
+                any(Map.class)
+        );
+        verify(mockNeo4jDriver, times(1)).session();
+    }
+
     @Test
     void testClearGraph_Success() {
         assertDoesNotThrow(() -> neo4jService.clearGraph());
@@ -1,5 +1,6 @@
 package com.info6205.webcrawler.service;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -8,6 +9,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
+import com.info6205.webcrawler.service.pagerank.CsrGraph;
+
 class PageRankCalculatorTest {
 
     private final PageRankCalculator pageRankCalculator = new PageRankCalculator();
@@ -53,4 +56,75 @@ class PageRankCalculatorTest {
         int outDegree = pageRankCalculator.getOutDegree("A", graph);
         assertEquals(2, outDegree);
     }
+
+    @Test
+    void testCsrGraphStructure() {
+        Map<String, List<String>> graph = Map.of(
+                "A", List.of("B", "C", "B"),
+                "B", List.of("C", "X"),
+                "C", List.of("A")
+        );
+
+        CsrGraph csr = CsrGraph.build(List.of("A", "B", "C"), graph);
+
+        assertEquals(3, csr.size());
+        assertEquals(4, csr.edgeCount());
+        assertEquals(3, csr.outDegree(csr.indexOf("A")));
+        assertEquals(2, csr.outDegree(csr.indexOf("B")));
+        assertEquals(1, csr.inDegree(csr.indexOf("B")));
+        assertEquals(2, csr.inDegree(csr.indexOf("C")));
+        assertEquals(-1, csr.indexOf("X"));
+    }
+
+    @Test
+    void testCsrRanksMatchReferenceImplementation() {
+        List<String> nodes = List.of("A", "B", "C", "D", "E");
+        Map<String, List<String>> graph = Map.of(
+                "A", List.of("B", "C"),
+                "B", List.of("C"),
+                "C", List.of("A", "D"),
+                "D", List.of("A", "B", "E"),
+                "E", List.of("A")
+        );
+
+        Map<String, Double> expected = referencePageRank(nodes, graph);
+        Map<String, Double> actual = pageRankCalculator.computePageRank(nodes, graph);
+
+        assertEquals(expected.size(), actual.size());
+        for (String node : nodes) {
+            assertEquals(expected.get(node), actual.get(node), 1e-12);
+        }
+    }
+
+    @Test
+    void testEmptyGraph() {
+        assertTrue(pageRankCalculator.computePageRank(List.of(), Map.of()).isEmpty());
+    }
+
+    // The original map-based power iteration, kept here to pin the CSR engine's output
+    private Map<String, Double> referencePageRank(List<String> nodes, Map<String, List<String>> graph) {
+        Map<String, Double> ranks = new HashMap<>();
+        for (String node : nodes) {
+            ranks.put(node, 1.0 / nodes.size());
+        }
+        for (int iteration = 0; iteration < 20; iteration++) {
+            Map<String, Double> newRanks = new HashMap<>();
+            double diff = 0.0;
+            for (String node : nodes) {
+                double rankSum = 0.0;
+                for (String neighbor : pageRankCalculator.getInNeighbors(node, graph)) {
+                    rankSum += ranks.get(neighbor) / pageRankCalculator.getOutDegree(neighbor, graph);
+                }
+                newRanks.put(node, rankSum);
+                diff += Math.abs(rankSum - ranks.get(node));
+            }
+            ranks = newRanks;
+            if (diff < 1e-5) {
+                break;
+            }
+        }
+        double totalRank = ranks.values().stream().mapToDouble(Double::doubleValue).sum();
+        ranks.replaceAll((node, rank) -> rank / totalRank);
+        return ranks;
+    }
 }
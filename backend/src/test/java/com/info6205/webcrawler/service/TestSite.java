@@ -0,0 +1,126 @@
+package com.info6205.webcrawler.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local site for crawl tests. Every request is answered by one
+ * {@link Pages} function and recorded in {@link #fetched()}.
+ */
+final class TestSite implements AutoCloseable {
+
+    /**
+     * Answers the request for {@code uri}.
+     */
+    interface Pages {
+        Page answer(URI uri) throws Exception;
+    }
+
+    static final class Page {
+        final int status;
+        final String contentType;
+        final String body;
+        final String location;
+
+        Page(int status, String contentType, String body) {
+            this(status, contentType, body, null);
+        }
+
+        private Page(int status, String contentType, String body, String location) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.location = location;
+        }
+
+        /**
+         * This page with a Location header, for redirects.
+         */
+        Page withLocation(String location) {
+            return new Page(status, contentType, body, location);
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<String> fetched = Collections.synchronizedList(new ArrayList<>());
+
+    private TestSite(HttpServer server, Pages pages) {
+        this.server = server;
+        server.createContext("/", exchange -> {
+            URI uri = exchange.getRequestURI();
+            fetched.add(uri.toString());
+            Page page;
+            try {
+                page = pages.answer(uri);
+            } catch (Exception e) {
+                page = new Page(500, "text/plain", e.toString());
+            }
+            byte[] bytes = page.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", page.contentType);
+            if (page.location != null) {
+                exchange.getResponseHeaders().add("Location", page.location);
+            }
+            exchange.sendResponseHeaders(page.status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    static TestSite start(Pages pages) throws IOException {
+        return new TestSite(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0), pages);
+    }
+
+    /**
+     * Site serving the bodies of {@code site} by path, 404 for any other path.
+     */
+    static TestSite start(Map<String, String> site) throws IOException {
+        return start(uri -> site.containsKey(uri.getPath())
+                ? html(site.get(uri.getPath())) : new Page(404, "text/html", html("").body));
+    }
+
+    /**
+     * 200 HTML page with {@code body} as its body.
+     */
+    static Page html(String body) {
+        return new Page(200, "text/html", "<html><body>" + body + "</body></html>");
+    }
+
+    /**
+     * Base URL of the site, without a trailing slash.
+     */
+    String base() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Request URIs (path and query) in the order they arrived.
+     */
+    List<String> fetched() {
+        return fetched;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
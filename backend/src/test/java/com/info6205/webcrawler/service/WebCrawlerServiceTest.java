@@ -1,17 +1,43 @@
 package com.info6205.webcrawler.service;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyMap;
 import org.mockito.InjectMocks;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.frontier.FrontierSnapshot;
+import com.info6205.webcrawler.service.frontier.SeenSet;
+import com.info6205.webcrawler.service.frontier.SeenSets;
+import com.info6205.webcrawler.service.url.UrlCanonicalizer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 class WebCrawlerServiceTest {
 
@@ -51,10 +77,20 @@ class WebCrawlerServiceTest {
     // }
     @Test
     void testCalculatePriority() {
-        int priority = webCrawlerService.calculatePriority("https://www.northeastern.edu/");
+        int priority = webCrawlerService.calculatePriority("https://www.example.com/");
         assertEquals(10, priority); // Default priority
     }
 
+    @Test
+    void testEduStartUrlKeepsHighPriorityOnceCanonical() {
+        // The canonical start URL gains a trailing slash, which must not hide its .edu host
+        UrlCanonicalizer canonicalizer = ReflectionTestUtils.invokeMethod(webCrawlerService, "newCanonicalizer");
+        String startUrl = canonicalizer.canonicalize("https://www.northeastern.edu");
+
+        assertEquals("https://www.northeastern.edu/", startUrl);
+        assertEquals(1, webCrawlerService.calculatePriority(startUrl));
+    }
+
     // @Test
     // void testProcessUrl() {
     //     UrlTask task = new UrlTask("https://www.northeastern.edu/", 0, 10);
@@ -65,17 +101,21 @@ class WebCrawlerServiceTest {
     @Test
     void testBlacklistPriority() {
         // Test if a blacklisted URL is assigned the maximum priority
-        int priority = webCrawlerService.calculatePriority("https://www.facebook.com");
+        CrawlJob job = new CrawlJob("job", "https://www.northeastern.edu/");
+        int priority = webCrawlerService.calculatePriority(job, "https://www.facebook.com");
         assertEquals(Integer.MAX_VALUE, priority);
-        assertEquals(true, webCrawlerService.blacklistedUrlsList.contains("https://www.facebook.com"));
+        assertEquals(Set.of("https://www.facebook.com"), job.blacklistedUrls);
     }
 
     @Test
     void testLowPriorityForImages() {
         // Test if an image URL is assigned a low priority
-        int priority = webCrawlerService.calculatePriority("https://www.example.com/image.jpg");
+        CrawlJob job = new CrawlJob("job", "https://www.northeastern.edu/");
+        int priority = webCrawlerService.calculatePriority(job, "https://www.example.com/image.jpg");
         assertEquals(20, priority);
-        assertEquals(true, webCrawlerService.lowPriorityUrlsList.contains("https://www.example.com/image.jpg"));
+        assertEquals(Set.of("https://www.example.com/image.jpg"), job.lowPriorityUrls);
+        assertEquals(Map.of("count", 1, "urls", List.of("https://www.example.com/image.jpg")),
+                job.toStatus().get("low_priority_urls"));
     }
 
     @Test
@@ -131,15 +171,45 @@ class WebCrawlerServiceTest {
         assertEquals(2, ((List<?>) response.get("data")).size());
     }
 
+    @Test
+    void testRankingIsServedWithoutRecomputing() {
+        when(mockNeo4jService.getNodes()).thenReturn(List.of("https://a.example/", "https://b.example/"));
+        when(mockNeo4jService.getGraph()).thenReturn(Map.of(
+                "https://a.example/", List.of("https://b.example/", "https://c.example/"),
+                "https://b.example/", List.of("https://c.example/")
+        ));
+        when(mockPageRankCalculator.computePageRank(anyList(), anyMap())).thenReturn(Map.of(
+                "https://a.example/", 0.2,
+                "https://b.example/", 0.3,
+                "https://c.example/", 0.5
+        ));
+        ReflectionTestUtils.setField(webCrawlerService, "rankingResponseLimit", 2);
+        assertEquals(null, webCrawlerService.getRankingPage(null, 0, 10, 0.0));
+
+        Map<String, Object> response = webCrawlerService.calculatePageRankResponse();
+        assertEquals(List.of(
+                Map.of("url", "https://c.example/", "rank", 0.5, "in_degree", 2),
+                Map.of("url", "https://b.example/", "rank", 0.3, "in_degree", 1)), response.get("data"));
+
+        Map<String, Object> page = webCrawlerService.getRankingPage(null, 1, 10, 0.25);
+        assertEquals(3, page.get("total_pages"));
+        assertEquals(2, page.get("matching_pages"));
+        assertEquals(List.of(Map.of("url", "https://b.example/", "rank", 0.3, "in_degree", 1, "position", 2)),
+                page.get("data"));
+        verify(mockPageRankCalculator, times(1)).computePageRank(anyList(), anyMap());
+    }
+
     @Test
     void testNoDuplicateBlacklistedEntries() {
         // Test blacklisting of the same URL multiple times
-        webCrawlerService.calculatePriority("https://www.facebook.com");
-        webCrawlerService.calculatePriority("https://www.facebook.com");
+        CrawlJob job = new CrawlJob("job", "https://www.northeastern.edu/");
+        webCrawlerService.calculatePriority(job, "https://www.facebook.com");
+        webCrawlerService.calculatePriority(job, "https://www.facebook.com");
 
-        // Assert that the blacklisted URL is only added once
-        assertEquals(1, webCrawlerService.blacklistedUrlsList.stream()
-                .filter(url -> url.equals("https://www.facebook.com")).count());
+        // Assert that the blacklisted URL is only added once, and only to this job
+        assertEquals(Map.of("count", 1, "urls", List.of("https://www.facebook.com")),
+                job.toStatus().get("blacklisted_urls"));
+        assertEquals(Set.of(), new CrawlJob("other", "https://www.northeastern.edu/").blacklistedUrls);
     }
 
     // @Test
@@ -153,4 +223,499 @@ class WebCrawlerServiceTest {
     //     // Verify thread pool shutdown
     //     assertEquals(true, webCrawlerService.threadPool.isShutdown());
     // }
+
+    @Test
+    void testStartCrawlOnLocalSiteTerminates() throws Exception {
+        try (TestSite site = TestSite.start(Map.of(
+                "/", "<a href='/one'>1</a><a href='/two'>2</a>",
+                "/one", "<a href='/two'>2</a><a href='/'>home</a>",
+                "/two", "<a href='/one'>1</a>"))) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "executionMode", "virtual");
+            ReflectionTestUtils.setField(crawler, "maxInFlight", 8);
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base() + "/"));
+
+            assertEquals("success", response.get("status"));
+            assertEquals(3, response.get("total_urls_crawled"));
+        }
+    }
+
+    @Test
+    void testStageMetricsAreRecorded() throws Exception {
+        try (TestSite site = TestSite.start(Map.of(
+                "/", "<a href='/one'>1</a><a href='/missing'>gone</a>",
+                "/one", "<a href='/'>home</a>"))) {
+            MeterRegistry registry = new SimpleMeterRegistry();
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "meterRegistry", registry);
+            ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> crawler.startCrawl(site.base() + "/"));
+
+            assertEquals(3, registry.get("crawler.fetch").timer().count());
+            assertEquals(3, registry.get("crawler.ratelimit.wait").timer().count());
+            assertEquals(2, registry.get("crawler.parse").timer().count());
+            assertEquals(2, registry.get("crawler.classify").timer().count());
+            assertEquals(2, registry.get("crawler.graph.write").timer().count());
+            assertEquals(3.0, registry.get("crawler.pages.fetched").counter().count());
+            assertEquals(1.0, registry.get("crawler.errors").tag("type", "http_4xx").counter().count());
+            assertEquals(true, registry.get("crawler.bytes.downloaded").counter().count() > 0);
+            assertEquals(0.0, registry.get("crawler.tasks.inflight").gauge().value());
+            crawler.shutdown();
+        }
+    }
+
+    @Test
+    void testAdaptiveThrottleBacksOffAHostAnswering429() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        List<Integer> statuses = Collections.synchronizedList(new ArrayList<>());
+        // Every page links to all 40, so pages turned away never cut the crawl short
+        StringBuilder links = new StringBuilder();
+        for (int page = 0; page < 40; page++) {
+            links.append("<a href='/").append(page).append("'>").append(page).append("</a>");
+        }
+        try (TestSite site = TestSite.start(uri -> {
+            // Takes one request at a time and turns away any beyond it
+            int status = inFlight.incrementAndGet() > 1 ? 429 : 200;
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            statuses.add(status);
+            return new TestSite.Page(status, "text/html", TestSite.html(links.toString()).body);
+        })) {
+            MeterRegistry registry = new SimpleMeterRegistry();
+            WebCrawlerService crawler = new WebCrawlerService(8, 100, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "meterRegistry", registry);
+            ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+            ReflectionTestUtils.setField(crawler, "perHostInFlight", 4);
+            ReflectionTestUtils.setField(crawler, "maxPages", 40);
+            ReflectionTestUtils.setField(crawler, "adaptiveEnabled", true);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> crawler.startCrawl(site.base() + "/0"));
+
+            assertEquals(40, statuses.size());
+            assertTrue(registry.get("crawler.adaptive.adjustments").tag("scope", "host")
+                    .tag("control", "concurrency").tag("direction", "down").counter().count() >= 1);
+            // Down to one fetch in flight, only the probe for a second one after each clean window is turned away
+            long turnedAway = statuses.subList(20, 40).stream().filter(status -> status == 429).count();
+            assertTrue(turnedAway <= 5, "statuses: " + statuses);
+            crawler.shutdown();
+        }
+    }
+
+    @Test
+    void testPagesInFlightAtMaxPagesAreStillProcessed() throws Exception {
+        try (TestSite site = TestSite.start(uri -> {
+            // Slow enough that the last pages of the budget are still on their way when dispatch stops
+            String path = uri.getPath().equals("/") ? "" : uri.getPath();
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                body.append("<a href='").append(path).append('/').append(i).append("'>x</a>");
+            }
+            Thread.sleep(200);
+            return TestSite.html(body.toString());
+        })) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 10, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "maxPages", 20);
+            ReflectionTestUtils.setField(crawler, "maxInFlight", 16);
+            ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base()));
+
+            assertEquals(20, site.fetched().size());
+            assertEquals(20, response.get("total_urls_crawled"));
+        }
+    }
+
+    @Test
+    void testResumeCrawlKeepsGraphAndSkipsFetchedPages(@TempDir Path checkpointDir) throws Exception {
+        try (TestSite site = TestSite.start(uri -> TestSite.html("<a href='/'>home</a><a href='/one'>1</a>"))) {
+            String base = site.base();
+            // State as if the crawl died after fetching / and /one, with /two still queued
+            InMemoryGraphStore store = new InMemoryGraphStore("");
+            store.writeBatch(Map.of(base + "/", List.of(base + "/one", base + "/two"),
+                    base + "/one", List.of(base + "/")));
+            SeenSet seen = SeenSets.create(SeenSets.Type.FINGERPRINT, 10, 0.01, false);
+            List.of("/", "/one", "/two").forEach(path -> seen.add(base + path));
+            FrontierSnapshot frontier = new FrontierSnapshot(
+                    new ArrayList<>(List.of(new UrlTask(base + "/two", 1, 10))), new ArrayList<>());
+            CrawlCheckpointStore checkpoints = new CrawlCheckpointStore(checkpointDir, 2);
+            checkpoints.commit(checkpoints.stage(),
+                    new CrawlCheckpoint(base + "/", 2, 2, Instant.now(), frontier, seen));
+
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0, store, new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "checkpointDir", checkpointDir.toString());
+            ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+
+            CrawlJob job = crawler.submitResume(null);
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30), job::awaitResult);
+
+            assertEquals(List.of("/two"), site.fetched());
+            assertEquals(3, response.get("total_urls_crawled"));
+            assertEquals(3, job.toStatus().get("urls_crawled"));
+        }
+    }
+
+    @Test
+    void testResumeWithoutCheckpointFails() {
+        assertThrows(IllegalStateException.class, () -> webCrawlerService.resumeCrawl());
+    }
+
+    @Test
+    void testUrlVariantsAreFetchedOnce() throws Exception {
+        int[] port = new int[1];
+        try (TestSite site = TestSite.start(uri -> TestSite.html(uri.getPath().equals("/")
+                ? "<a href='/one'>1</a><a href='/one/'>1</a><a href='/one#top'>1</a>"
+                        + "<a href='/one?utm_source=home'>1</a><a href='HTTP://127.0.0.1:" + port[0] + "/one'>1</a>"
+                : ""))) {
+            port[0] = site.port();
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+            ReflectionTestUtils.setField(crawler, "canonicalStripTrailingSlash", true);
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base()));
+
+            assertEquals(List.of("/", "/one"), site.fetched());
+            assertEquals(2, response.get("total_urls_crawled"));
+            assertEquals(3L, response.get("fetches_saved_by_canonicalization"));
+        }
+    }
+
+    @Test
+    void testLearnedNonHtmlDirectoryIsNotFetched() throws Exception {
+        StringBuilder downloads = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            downloads.append("<a href='/downloads/file").append(i).append("'>f</a>");
+        }
+        try (TestSite site = TestSite.start(uri -> uri.getPath().startsWith("/downloads/")
+                ? new TestSite.Page(200, "application/octet-stream", "binary")
+                : TestSite.html(uri.getPath().equals("/") ? downloads.toString() : ""))) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            // One fetch at a time, so each response is recorded before the next is dispatched
+            ReflectionTestUtils.setField(crawler, "perHostInFlight", 1);
+            ReflectionTestUtils.setField(crawler, "contentLearningMinSamples", 2);
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base()));
+
+            assertEquals(2, site.fetched().stream().filter(path -> path.startsWith("/downloads/")).count());
+            assertEquals(1, response.get("total_urls_crawled"));
+        }
+    }
+
+    @Test
+    void testNearDuplicatePagesAreNotExpanded() throws Exception {
+        String article = String.join(" ", Collections.nCopies(20,
+                "The research center will study coastal resilience and renewable energy markets."));
+        try (TestSite site = TestSite.start(uri -> TestSite.html(switch (uri.getPath()) {
+            case "/" -> "<a href='/article?sort=date'>a</a><a href='/article?sort=rating'>b</a>";
+            // Same text under both sort orders, each copy linking somewhere new
+            case "/article" -> "<p>" + article + "</p><a href='/comments-" + uri.getQuery().substring(5) + "'>more</a>";
+            default -> "";
+        }))) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "perHostInFlight", 1);
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base()));
+
+            List<String> fetched = site.fetched();
+            assertEquals(1, fetched.stream().filter(path -> path.startsWith("/comments-")).count(), fetched.toString());
+            assertEquals(1L, response.get("near_duplicate_pages"));
+            assertEquals(0.5, response.get("near_duplicate_rate"));
+        }
+    }
+
+    @Test
+    void testLinksToACollapsedDuplicateFoundLaterCountForTheOriginal() throws Exception {
+        String article = String.join(" ", Collections.nCopies(20,
+                "The research center will study coastal resilience and renewable energy markets."));
+        try (TestSite site = TestSite.start(uri -> TestSite.html(switch (uri.getPath()) {
+            case "/" -> "<a href='/article?sort=date'>a</a><a href='/list'>list</a>";
+            // Stored before its link's target turns out to be a duplicate
+            case "/list" -> "<a href='/article?sort=rating'>b</a>";
+            case "/article" -> "<p>" + article + "</p><a href='/'>home</a>";
+            default -> "";
+        }))) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "perHostInFlight", 1);
+            ReflectionTestUtils.setField(crawler, "dedupCollapse", true);
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base()));
+
+            assertEquals(1L, response.get("near_duplicate_pages"));
+            assertEquals(3, response.get("total_urls_crawled"));
+            Map<?, ?> original = ((List<?>) response.get("data")).stream()
+                    .map(row -> (Map<?, ?>) row)
+                    .filter(row -> ((String) row.get("url")).contains("/article"))
+                    .findFirst().orElseThrow();
+            assertEquals(site.base() + "/article?sort=date", original.get("url"));
+            assertEquals(2, original.get("in_degree"));
+        }
+    }
+
+    @Test
+    void testTrailingSlashRedirectIsFollowed() throws Exception {
+        try (TestSite site = TestSite.start(uri -> switch (uri.getPath()) {
+            case "/" -> TestSite.html("<a href='/about'>about</a>");
+            case "/about" -> new TestSite.Page(301, "text/html", "").withLocation("/about/");
+            // Relative to the directory the redirect points at
+            case "/about/" -> TestSite.html("<a href='team'>team</a>");
+            case "/about/team" -> TestSite.html("<a href='/'>home</a>");
+            default -> new TestSite.Page(404, "text/html", "");
+        })) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 4, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base()));
+
+            List<String> fetched = site.fetched();
+            assertEquals(true, fetched.contains("/about/"), fetched.toString());
+            assertEquals(true, fetched.contains("/about/team"), fetched.toString());
+            assertEquals(4, response.get("total_urls_crawled"));
+        }
+    }
+
+    @Test
+    void testRobotsDisallowedPathsAreNotFetched() throws Exception {
+        try (TestSite site = TestSite.start(uri -> switch (uri.getPath()) {
+            case "/robots.txt" -> new TestSite.Page(200, "text/plain",
+                    "User-agent: *\nDisallow: /private/\nAllow: /private/press\nCrawl-delay: 0.01\n");
+            case "/" -> TestSite.html("<a href='/private/a'>a</a><a href='/private/b'>b</a>"
+                    + "<a href='/private/press'>press</a><a href='/public'>public</a>");
+            default -> TestSite.html("<a href='/private/c'>c</a>");
+        })) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base()));
+
+            List<String> fetched = site.fetched();
+            assertEquals(1, fetched.stream().filter(path -> path.equals("/robots.txt")).count());
+            assertEquals(List.of(), fetched.stream()
+                    .filter(path -> path.startsWith("/private/") && !path.equals("/private/press")).toList());
+            assertEquals(3, response.get("total_urls_crawled"));
+        }
+    }
+
+    @Test
+    void testLinksToHostsNeverVisitedFetchNoRobots() throws Exception {
+        try (TestSite other = TestSite.start(uri -> TestSite.html("<a href='/'>home</a>"));
+             TestSite site = TestSite.start(uri -> switch (uri.getPath()) {
+                 case "/robots.txt" -> new TestSite.Page(404, "text/plain", "");
+                 default -> TestSite.html("<a href='" + other.base() + "/x'>other</a>");
+             })) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "maxPages", 1);
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base()));
+            // A robots.txt download started for the link would land shortly after
+            Thread.sleep(200);
+
+            assertEquals(1, response.get("total_urls_crawled"));
+            assertEquals(List.of(), other.fetched());
+        }
+    }
+
+    @Test
+    void testRedirectTargetsAreQueuedLikeLinks() throws Exception {
+        try (TestSite site = TestSite.start(uri -> switch (uri.getPath()) {
+            case "/robots.txt" -> new TestSite.Page(200, "text/plain", "User-agent: *\nDisallow: /private/\n");
+            case "/" -> TestSite.html("<a href='/old'>old</a><a href='/gone'>gone</a><a href='/new'>new</a>");
+            case "/old" -> new TestSite.Page(301, "text/html", "").withLocation("/new");
+            case "/gone" -> new TestSite.Page(302, "text/html", "").withLocation("/private/secret");
+            default -> TestSite.html("<a href='/'>home</a>");
+        })) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> crawler.startCrawl(site.base()));
+
+            List<String> fetched = site.fetched();
+            assertEquals(false, fetched.contains("/private/secret"), fetched.toString());
+            assertEquals(1, fetched.stream().filter("/new"::equals).count());
+            assertEquals(4, response.get("total_urls_crawled"));
+            assertEquals(true, ((List<?>) response.get("data")).stream()
+                    .anyMatch(row -> (site.base() + "/new").equals(((Map<?, ?>) row).get("url"))));
+        }
+    }
+
+    @Test
+    void testConcurrentJobsKeepTheirOwnState() throws Exception {
+        // Both sites have the same paths, so shared state would mix them up
+        Map<String, String> pages = Map.of(
+                "/", "<a href='/one'>1</a><a href='/two'>2</a>",
+                "/one", "<a href='/two'>2</a>",
+                "/two", "<a href='/'>home</a>");
+        try (TestSite first = TestSite.start(pages); TestSite second = TestSite.start(pages)) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "jobsMaxInFlight", 2);
+
+            List<String> bases = List.of(first.base(), second.base());
+            List<CrawlJob> jobs = List.of(crawler.submitCrawl(bases.get(0)), crawler.submitCrawl(bases.get(1)));
+            for (int i = 0; i < jobs.size(); i++) {
+                CrawlJob job = jobs.get(i);
+                Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30), job::awaitResult);
+                assertEquals(CrawlJob.Status.SUCCEEDED, job.getStatus());
+                assertEquals(3, response.get("total_urls_crawled"));
+                String base = bases.get(i);
+                assertEquals(3, ((List<?>) response.get("data")).size());
+                assertEquals(true, ((List<?>) response.get("data")).stream()
+                        .allMatch(row -> ((String) ((Map<?, ?>) row).get("url")).startsWith(base)));
+            }
+            assertEquals(2, crawler.getJobs().size());
+        }
+    }
+
+    @Test
+    void testJobsCrawlingTheSameSiteRankOnlyThePagesTheyFetched() throws Exception {
+        CountDownLatch otherDone = new CountDownLatch(1);
+        try (TestSite site = TestSite.start(uri -> TestSite.html(switch (uri.getPath()) {
+            case "/a" -> {
+                // Held until the other crawl has stored and ranked /x
+                otherDone.await(30, TimeUnit.SECONDS);
+                yield "<a href='/x'>x</a>";
+            }
+            default -> "<a href='/a'>a</a>";
+        }))) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "jobsMaxInFlight", 2);
+            ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+            // The first crawl queues /x but has no fetch left for it
+            ReflectionTestUtils.setField(crawler, "maxPages", 1);
+
+            CrawlJob first = crawler.submitCrawl(site.base() + "/a");
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                while (!site.fetched().contains("/a")) {
+                    Thread.sleep(10);
+                }
+            });
+            CrawlJob second = crawler.submitCrawl(site.base() + "/x");
+            Map<String, Object> secondResponse = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    second::awaitResult);
+            otherDone.countDown();
+            Map<String, Object> firstResponse = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    first::awaitResult);
+
+            assertEquals(1, secondResponse.get("total_urls_crawled"));
+            assertEquals(1, firstResponse.get("total_urls_crawled"));
+            assertEquals(1, site.fetched().stream().filter("/x"::equals).count());
+        }
+    }
+
+    @Test
+    void testCancelledJobStopsDispatching() throws Exception {
+        try (TestSite site = TestSite.start(uri -> {
+            // Every page links to five new ones, so the crawl never runs out of work
+            String path = uri.getPath().equals("/") ? "" : uri.getPath();
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < 5; i++) {
+                body.append("<a href='").append(path).append('/').append(i).append("'>x</a>");
+            }
+            Thread.sleep(20);
+            return TestSite.html(body.toString());
+        })) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 20, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "maxPages", 0);
+            ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+
+            CrawlJob job = crawler.submitCrawl(site.base());
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                while (site.fetched().size() < 10) {
+                    Thread.sleep(10);
+                }
+            });
+            assertEquals(true, crawler.cancelJob(job.getId()));
+
+            Map<String, Object> response = assertTimeoutPreemptively(Duration.ofSeconds(30), job::awaitResult);
+            int fetchedAtEnd = site.fetched().size();
+            Thread.sleep(200);
+
+            assertEquals(CrawlJob.Status.CANCELLED, job.getStatus());
+            assertEquals("cancelled", response.get("status"));
+            assertEquals(fetchedAtEnd, site.fetched().size());
+            assertEquals(false, crawler.cancelJob(job.getId()));
+        }
+    }
+
+    @Test
+    void testEventStreamFollowsCrawlThenRanking() throws Exception {
+        Map<String, String> pages = Map.of(
+                "/", "<a href='/one'>1</a><a href='/two'>2</a>",
+                "/one", "<a href='/two'>2</a>",
+                "/two", "<a href='/'>home</a>");
+        CountDownLatch subscribed = new CountDownLatch(1);
+        try (TestSite site = TestSite.start(uri -> {
+            // Hold the first fetch until the stream is open, so it sees every page
+            subscribed.await(10, TimeUnit.SECONDS);
+            return TestSite.html(pages.getOrDefault(uri.getPath(), ""));
+        })) {
+            WebCrawlerService crawler = new WebCrawlerService(4, 3, 1000.0,
+                    new InMemoryGraphStore(""), new PageRankCalculator());
+            ReflectionTestUtils.setField(crawler, "robotsEnabled", false);
+            ReflectionTestUtils.setField(crawler, "eventStatsIntervalMs", 50L);
+
+            CrawlJob job = crawler.submitCrawl(site.base() + "/");
+            List<String> events = new ArrayList<>();
+            List<Map<String, Object>> pageEvents = new ArrayList<>();
+            List<Map<String, Object>> ranks = new ArrayList<>();
+            try (CrawlEventStream stream = crawler.openEventStream(job.getId())) {
+                subscribed.countDown();
+                assertTimeoutPreemptively(Duration.ofSeconds(30), () -> stream.writeTo(new CrawlEventStream.Sink() {
+                    @Override
+                    public void send(String event, Map<String, Object> data) {
+                        events.add(event);
+                        if (event.equals("page")) {
+                            pageEvents.add(data);
+                        } else if (event.equals("rank")) {
+                            ranks.add(data);
+                        }
+                    }
+
+                    @Override
+                    public void flush() {
+                    }
+                }));
+            }
+
+            assertEquals("job", events.get(0));
+            assertEquals(3, pageEvents.size());
+            assertEquals(3, events.stream().filter("edges"::equals).count());
+            assertEquals(true, pageEvents.stream().allMatch(page -> "parsed".equals(page.get("outcome"))));
+            assertEquals(true, events.contains("stats"));
+            int finished = events.indexOf("finished");
+            assertEquals(true, finished > events.lastIndexOf("page"));
+            assertEquals("summary", events.get(finished + 1));
+            assertEquals(3, ranks.size());
+            assertEquals(1, ranks.get(0).get("position"));
+            assertEquals(job.getResult().get("data"), ranks.stream().map(rank -> {
+                Map<String, Object> row = new HashMap<>(rank);
+                row.remove("position");
+                return row;
+            }).toList());
+            assertEquals("end", events.get(events.size() - 1));
+            assertEquals(false, job.hasEventStreams());
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.info6205.webcrawler.service.cluster;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class HashRingTest {
+
+    private static final List<String> NODES = List.of("http://10.0.0.1:8080", "http://10.0.0.2:8080",
+            "http://10.0.0.3:8080");
+
+    @Test
+    void testHostsAreSpreadEvenlyAndOwnedAlike() {
+        HashRing ring = new HashRing(NODES, 64);
+        HashRing sameNodesReordered = new HashRing(List.of(NODES.get(2), NODES.get(0), NODES.get(1)), 64);
+        Map<String, Integer> hostsPerNode = new HashMap<>();
+        for (int i = 0; i < 30000; i++) {
+            String host = "host-" + i + ".example.com";
+            String owner = ring.ownerOf(host);
+            assertEquals(owner, sameNodesReordered.ownerOf(host));
+            hostsPerNode.merge(owner, 1, Integer::sum);
+        }
+
+        assertEquals(3, hostsPerNode.size());
+        for (int hosts : hostsPerNode.values()) {
+            assertTrue(hosts > 7000 && hosts < 13000, "hosts per node: " + hostsPerNode);
+        }
+    }
+
+    @Test
+    void testAddingANodeOnlyMovesHostsToIt() {
+        HashRing before = new HashRing(NODES, 64);
+        String added = "http://10.0.0.4:8080";
+        HashRing after = new HashRing(List.of(NODES.get(0), NODES.get(1), NODES.get(2), added), 64);
+        int moved = 0;
+        for (int i = 0; i < 30000; i++) {
+            String host = "host-" + i + ".example.com";
+            if (!before.ownerOf(host).equals(after.ownerOf(host))) {
+                assertEquals(added, after.ownerOf(host));
+                moved++;
+            }
+        }
+
+        // About a quarter of the hosts go to the new node, and none move between the old ones
+        assertTrue(moved > 4500 && moved < 10500, "moved: " + moved);
+    }
+}
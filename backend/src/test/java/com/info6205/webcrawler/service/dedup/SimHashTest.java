@@ -0,0 +1,100 @@
+package com.info6205.webcrawler.service.dedup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimHashTest {
+
+    private static final String ARTICLE = "The university announced on Monday that its new research center will "
+            + "focus on climate modelling, coastal resilience and the economics of renewable energy. The center "
+            + "brings together faculty from engineering, public policy and the sciences, and it will offer "
+            + "graduate fellowships starting next fall. Officials said the building will open to the public in "
+            + "the spring, with lecture halls, laboratories and a data visualization studio on the ground floor. "
+            + "Students interested in joining research teams can apply through the graduate school website.";
+
+    @Test
+    void testNearDuplicateTextsAreClose() {
+        // Same article under another sort order, upper-cased by a print stylesheet
+        long original = of(ARTICLE + " Comments sorted by date");
+        long printView = of(ARTICLE.toUpperCase() + " Comments sorted by rating");
+        long other = of("Tickets for the home basketball game against LaSalle go on sale this week at the box "
+                + "office and online. Season ticket holders keep their seats, and students get in free with a "
+                + "valid ID. Doors open an hour before tipoff and the first thousand fans receive a t-shirt. "
+                + "Parking is available in the west garage, and shuttles run from the main campus every ten "
+                + "minutes. The game will also be streamed live on the conference network for fans at home.");
+
+        assertTrue(SimHash.distance(original, printView) <= 3,
+                "distance " + SimHash.distance(original, printView));
+        assertTrue(SimHash.distance(original, other) > 10, "distance " + SimHash.distance(original, other));
+    }
+
+    @Test
+    void testPiecesAndWhitespaceDoNotMatter() {
+        SimHash pieces = new SimHash();
+        byte[] first = "Hello, brave new".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "  world of cafés!".getBytes(StandardCharsets.UTF_8);
+        pieces.update(first, 0, first.length);
+        pieces.update(second, 0, second.length);
+
+        assertEquals(of("hello brave new world of cafés"), pieces.value());
+        assertEquals(of("HELLO,  brave\nnew -- world of cafés"), pieces.value());
+        assertEquals(4, pieces.shingleCount());
+    }
+
+    @Test
+    void testIndexFindsFingerprintsWithinDistance() {
+        SimHashIndex index = new SimHashIndex(3);
+        long fingerprint = 0x0123456789abcdefL;
+
+        assertNull(index.findOrAdd(fingerprint, "https://a.example/"));
+        assertEquals("https://a.example/", index.findOrAdd(fingerprint ^ 0b1011L << 40, "https://b.example/"));
+        assertNull(index.findOrAdd(fingerprint ^ 0xfL, "https://c.example/"));
+        assertEquals(2, index.size());
+        assertThrows(IllegalArgumentException.class, () -> new SimHashIndex(16));
+    }
+
+    @Test
+    void testIndexAgreesWithPairwiseComparison() {
+        Random random = new Random(7);
+        List<Long> seen = new ArrayList<>();
+        SimHashIndex index = new SimHashIndex(4);
+        for (int i = 0; i < 3000; i++) {
+            long fingerprint = seen.isEmpty() || random.nextBoolean() ? random.nextLong()
+                    : flipBits(seen.get(random.nextInt(seen.size())), random.nextInt(8), random);
+            boolean expected = false;
+            for (long earlier : seen) {
+                expected |= SimHash.distance(earlier, fingerprint) <= 4;
+            }
+            String match = index.findOrAdd(fingerprint, Long.toString(fingerprint));
+            assertEquals(expected, match != null, "fingerprint " + i);
+            if (match == null) {
+                seen.add(fingerprint);
+            } else {
+                assertTrue(SimHash.distance(Long.parseLong(match), fingerprint) <= 4);
+            }
+        }
+    }
+
+    private static long flipBits(long fingerprint, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            fingerprint ^= 1L << random.nextInt(64);
+        }
+        return fingerprint;
+    }
+
+    private static long of(String text) {
+        SimHash simHash = new SimHash();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        simHash.update(bytes, 0, bytes.length);
+        return simHash.value();
+    }
+}
@@ -0,0 +1,56 @@
+package com.info6205.webcrawler.service.fetch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentTypeLearnerTest {
+
+    @Test
+    void testPatternsOfUrl() {
+        assertArrayEquals(new String[] {"cdn.example.com/media/", "cdn.example.com *.jpg"},
+                ContentTypeLearner.patternsOf("https://CDN.example.com/media/2024/photo.JPG?size=large"));
+        assertArrayEquals(new String[] {null, "example.com *.pdf"},
+                ContentTypeLearner.patternsOf("https://example.com/report.pdf"));
+        assertArrayEquals(new String[] {"example.com/docs/", null},
+                ContentTypeLearner.patternsOf("https://example.com/docs/intro#v1.2"));
+        assertArrayEquals(new String[] {null, null}, ContentTypeLearner.patternsOf("https://example.com"));
+        assertNull(ContentTypeLearner.patternsOf("mailto:someone@example.com"));
+    }
+
+    @Test
+    void testLearnsAfterMinSamples() {
+        ContentTypeLearner learner = new ContentTypeLearner(3, 100);
+        learner.record("https://example.com/files/a.pdf", false);
+        learner.record("https://example.com/files/b.pdf", false);
+        assertFalse(learner.isNonHtml("https://example.com/files/c.pdf"));
+
+        learner.record("https://example.com/files/c.pdf", false);
+        assertTrue(learner.isNonHtml("https://example.com/files/d.docx"));
+        assertTrue(learner.isNonHtml("https://example.com/other/e.pdf"));
+        assertFalse(learner.isNonHtml("https://example.com/other/e.html"));
+        assertFalse(learner.isNonHtml("https://other.example.com/files/a.pdf"));
+        assertEquals(2, learner.learnedCount());
+    }
+
+    @Test
+    void testHtmlResponseRulesPatternOut() {
+        ContentTypeLearner learner = new ContentTypeLearner(2, 100);
+        learner.record("https://example.com/media/a.png", false);
+        learner.record("https://example.com/media/index.php", true);
+        learner.record("https://example.com/media/b.png", false);
+        learner.record("https://example.com/media/c.png", false);
+
+        // The directory served HTML once, but .png never has
+        assertFalse(learner.isNonHtml("https://example.com/media/gallery"));
+        assertTrue(learner.isNonHtml("https://example.com/media/d.png"));
+
+        learner.record("https://example.com/media/e.png", true);
+        assertFalse(learner.isNonHtml("https://example.com/media/d.png"));
+        assertEquals(0, learner.learnedCount());
+    }
+}
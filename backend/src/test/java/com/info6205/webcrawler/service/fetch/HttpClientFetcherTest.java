@@ -0,0 +1,271 @@
+package com.info6205.webcrawler.service.fetch;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClientFetcherTest {
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private String base;
+    // Client address:port of every request to /page, one per connection
+    private final Set<String> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger bodiesAbandoned = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverThreads);
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+        server.createContext("/page", exchange -> {
+            connections.add(exchange.getRemoteAddress().toString());
+            respond(exchange, 200, "text/html; charset=ISO-8859-1", "<a href='/x'>café</a>"
+                    .getBytes(StandardCharsets.ISO_8859_1));
+        });
+        server.createContext("/moved", exchange -> {
+            exchange.getResponseHeaders().add("Location", base + "/page");
+            respond(exchange, 301, "text/html", new byte[0]);
+        });
+        server.createContext("/missing", exchange -> respond(exchange, 404, "text/html", "gone".getBytes()));
+        server.createContext("/large", exchange -> {
+            byte[] body = new byte[1 << 20];
+            Arrays.fill(body, (byte) 'a');
+            respond(exchange, 200, "text/html", body);
+        });
+        server.createContext("/large-chunked", exchange -> {
+            byte[] body = new byte[1 << 20];
+            Arrays.fill(body, (byte) 'a');
+            exchange.getResponseHeaders().add("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException e) {
+                bodiesAbandoned.incrementAndGet();
+            }
+        });
+        server.createContext("/video.mp4", exchange -> {
+            byte[] chunk = new byte[64 * 1024];
+            exchange.getResponseHeaders().add("Content-Type", "video/mp4");
+            exchange.sendResponseHeaders(200, 0);
+            // Chunked and effectively endless: only a client that stops reading finishes this fetch
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 100_000; i++) {
+                    out.write(chunk);
+                }
+            } catch (IOException e) {
+                bodiesAbandoned.incrementAndGet();
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "text/html", "late".getBytes());
+        });
+        server.createContext("/trickle", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, 0);
+            // Headers at once, then a byte every 100 ms for far longer than the read timeout
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 100; i++) {
+                    out.write('a');
+                    out.flush();
+                    Thread.sleep(100);
+                }
+            } catch (IOException e) {
+                bodiesAbandoned.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void testFetchReturnsBodyAndHeaders() throws Exception {
+        FetchResult result = fetcher(1 << 20).fetch(base + "/page").get(5, TimeUnit.SECONDS);
+
+        assertEquals(200, result.getStatus());
+        assertTrue(result.isSuccess());
+        assertEquals(base + "/page", result.getUrl());
+        assertEquals("ISO-8859-1", result.getCharset());
+        assertArrayEquals("<a href='/x'>café</a>".getBytes(StandardCharsets.ISO_8859_1), result.getBody());
+        assertFalse(result.isTruncated());
+    }
+
+    @Test
+    void testReportsRedirectsUnlessAskedToFollowThem() throws Exception {
+        FetchResult redirect = fetcher(1 << 20).fetch(base + "/moved").get(5, TimeUnit.SECONDS);
+        assertEquals(301, redirect.getStatus());
+        assertTrue(redirect.isRedirect());
+        assertEquals(base + "/page", redirect.getLocation());
+
+        Fetcher following = new HttpClientFetcher(Duration.ofSeconds(2), Duration.ofSeconds(2), 1 << 20, "test",
+                null, true);
+        FetchResult result = following.fetch(base + "/moved").get(5, TimeUnit.SECONDS);
+        assertEquals(200, result.getStatus());
+        assertEquals(base + "/page", result.getUrl());
+    }
+
+    @Test
+    void testErrorStatusCompletesNormally() throws Exception {
+        FetchResult result = fetcher(1 << 20).fetch(base + "/missing").get(5, TimeUnit.SECONDS);
+
+        assertEquals(404, result.getStatus());
+        assertFalse(result.isSuccess());
+    }
+
+    @Test
+    void testBodyIsCutOffAtLimit() throws Exception {
+        // No Content-Length, so the gate cannot reject it up front
+        FetchResult result = fetcher(4096).fetch(base + "/large-chunked").get(5, TimeUnit.SECONDS);
+
+        assertNull(result.getRejection());
+        assertEquals(4096, result.getBody().length);
+        assertTrue(result.isTruncated());
+    }
+
+    @Test
+    void testNonHtmlBodyIsNotDownloaded() throws Exception {
+        FetchResult result = fetcher(1 << 20).fetch(base + "/video.mp4").get(5, TimeUnit.SECONDS);
+
+        assertEquals(200, result.getStatus());
+        assertEquals(ContentGate.Rejection.NOT_HTML, result.getRejection());
+        assertEquals(0, result.getBody().length);
+        // The server notices the connection went away while it is still sending
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bodiesAbandoned.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, bodiesAbandoned.get());
+    }
+
+    @Test
+    void testDeclaredOversizedBodyIsNotDownloaded() throws Exception {
+        FetchResult result = fetcher(4096).fetch(base + "/large").get(5, TimeUnit.SECONDS);
+        assertEquals(ContentGate.Rejection.TOO_LARGE, result.getRejection());
+        assertEquals(0, result.getBody().length);
+
+        // Without the gate the body is read up to the limit instead
+        Fetcher ungated = new HttpClientFetcher(Duration.ofSeconds(2), Duration.ofSeconds(2), 4096, "test", null);
+        FetchResult truncated = ungated.fetch(base + "/large").get(5, TimeUnit.SECONDS);
+        assertNull(truncated.getRejection());
+        assertTrue(truncated.isTruncated());
+    }
+
+    @Test
+    void testReadTimeoutFailsTheFetch() {
+        Fetcher fetcher = new HttpClientFetcher(Duration.ofSeconds(1), Duration.ofMillis(200), 1 << 20, "test");
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> fetcher.fetch(base + "/slow").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(HttpTimeoutException.class, e.getCause());
+    }
+
+    @Test
+    void testSlowBodyTimesOutAndIsAbandoned() throws Exception {
+        Fetcher fetcher = new HttpClientFetcher(Duration.ofSeconds(1), Duration.ofMillis(300), 1 << 20, "test");
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> fetcher.fetch(base + "/trickle").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(HttpTimeoutException.class, e.getCause());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bodiesAbandoned.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, bodiesAbandoned.get());
+    }
+
+    @Test
+    void testConcurrentFetchesReuseConnections() throws Exception {
+        Fetcher fetcher = fetcher(1 << 20);
+        // Sequential requests should all go over one kept-alive connection
+        for (int i = 0; i < 20; i++) {
+            fetcher.fetch(base + "/page").get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(connections.size() < 20, "expected pooled connections, saw " + connections.size());
+
+        CompletableFuture<?>[] fetches = new CompletableFuture<?>[50];
+        for (int i = 0; i < fetches.length; i++) {
+            fetches[i] = fetcher.fetch(base + "/page");
+        }
+        CompletableFuture.allOf(fetches).get(10, TimeUnit.SECONDS);
+        for (CompletableFuture<?> fetch : fetches) {
+            assertEquals(200, ((FetchResult) fetch.get()).getStatus());
+        }
+    }
+
+    @Test
+    void testJsoupFetcherReturnsSameResult() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            FetchResult redirect = new JsoupFetcher(executor, 5000, 1 << 20, "test")
+                    .fetch(base + "/moved").get(5, TimeUnit.SECONDS);
+            assertEquals(base + "/page", redirect.getLocation());
+
+            FetchResult result = new JsoupFetcher(executor, 5000, 1 << 20, "test")
+                    .fetch(base + "/page").get(5, TimeUnit.SECONDS);
+            assertEquals(200, result.getStatus());
+            assertEquals(base + "/page", result.getUrl());
+            assertEquals("ISO-8859-1", result.getCharset());
+            assertFalse(result.isTruncated());
+
+            FetchResult video = new JsoupFetcher(executor, 5000, 1 << 20, "test")
+                    .fetch(base + "/video.mp4").get(5, TimeUnit.SECONDS);
+            assertEquals(ContentGate.Rejection.NOT_HTML, video.getRejection());
+            assertEquals(0, video.getBody().length);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Fetcher fetcher(long maxBodyBytes) {
+        return new HttpClientFetcher(Duration.ofSeconds(2), Duration.ofSeconds(2), maxBodyBytes, "test");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
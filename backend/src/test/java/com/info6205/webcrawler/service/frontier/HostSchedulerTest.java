@@ -0,0 +1,200 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+class HostSchedulerTest {
+
+    private static final Comparator<UrlTask> BY_PRIORITY = Comparator.comparingInt(UrlTask::getPriority);
+
+    @Test
+    void testTasksOfOneHostComeOutInPriorityOrder() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(0, 0, BY_PRIORITY);
+        scheduler.add(new UrlTask("https://a.com/low", 1, 20));
+        scheduler.add(new UrlTask("https://a.com/high", 1, 1));
+
+        assertEquals("https://a.com/high", scheduler.poll(1, TimeUnit.SECONDS, null).getUrl());
+        assertEquals("https://a.com/low", scheduler.poll(1, TimeUnit.SECONDS, null).getUrl());
+        assertTrue(scheduler.isEmpty());
+    }
+
+    @Test
+    void testSlowHostDoesNotBlockOtherHosts() throws InterruptedException {
+        // One fetch per second per host
+        HostScheduler scheduler = new HostScheduler(1.0, 0, BY_PRIORITY);
+        scheduler.add(new UrlTask("https://slow.com/1", 1, 10));
+        scheduler.add(new UrlTask("https://slow.com/2", 1, 10));
+        scheduler.add(new UrlTask("https://fast.com/1", 1, 10));
+
+        long start = System.nanoTime();
+        UrlTask first = scheduler.poll(1, TimeUnit.SECONDS, null);
+        UrlTask second = scheduler.poll(1, TimeUnit.SECONDS, null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertTrue(!HostScheduler.hostOf(first.getUrl()).equals(HostScheduler.hostOf(second.getUrl())));
+        assertTrue(elapsedMillis < 500, "took " + elapsedMillis + " ms");
+
+        // The second slow.com task has to wait for the host's interval
+        assertNull(scheduler.poll(200, TimeUnit.MILLISECONDS, null));
+        assertNotNull(scheduler.poll(2, TimeUnit.SECONDS, null));
+    }
+
+    @Test
+    void testRateLimitWaitIsRecordedPerTask() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(5.0, 0, BY_PRIORITY);
+        List<Long> waits = new ArrayList<>();
+        scheduler.setRateLimitWaitRecorder(waits::add);
+        scheduler.add(new UrlTask("https://a.com/1", 1, 10));
+        scheduler.add(new UrlTask("https://a.com/2", 1, 10));
+
+        assertNotNull(scheduler.poll(1, TimeUnit.SECONDS, null));
+        assertNotNull(scheduler.poll(1, TimeUnit.SECONDS, null));
+
+        assertEquals(2, waits.size());
+        assertEquals(0L, waits.get(0));
+        // The second task waited out most of the host's 200 ms interval
+        assertTrue(waits.get(1) >= TimeUnit.MILLISECONDS.toNanos(150), waits.get(1) + " ns");
+    }
+
+    @Test
+    void testHostConcurrencyLimit() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(0, 1, BY_PRIORITY);
+        scheduler.add(new UrlTask("https://a.com/1", 1, 10));
+        scheduler.add(new UrlTask("https://a.com/2", 1, 10));
+
+        UrlTask first = scheduler.poll(1, TimeUnit.SECONDS, null);
+        assertNull(scheduler.poll(100, TimeUnit.MILLISECONDS, null));
+
+        scheduler.release(first);
+        assertNotNull(scheduler.poll(1, TimeUnit.SECONDS, null));
+    }
+
+    @Test
+    void testRejectedTasksDoNotUseTheHostSlot() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(1.0, 0, BY_PRIORITY);
+        scheduler.add(new UrlTask("https://a.com/visited", 1, 1));
+        scheduler.add(new UrlTask("https://a.com/new", 1, 2));
+
+        UrlTask task = scheduler.poll(1, TimeUnit.SECONDS, candidate -> !candidate.getUrl().endsWith("visited"));
+
+        assertEquals("https://a.com/new", task.getUrl());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void testHostDelayOverride() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(0, 0, BY_PRIORITY);
+        scheduler.setHostDelay("a.com", 300);
+        scheduler.add(new UrlTask("https://a.com/1", 1, 10));
+        scheduler.add(new UrlTask("https://a.com/2", 1, 10));
+
+        assertNotNull(scheduler.poll(1, TimeUnit.SECONDS, null));
+        assertNull(scheduler.poll(100, TimeUnit.MILLISECONDS, null));
+        assertNotNull(scheduler.poll(1, TimeUnit.SECONDS, null));
+    }
+
+    @Test
+    void testHostBackoffSlowsAHostUntilLifted() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(0, 0, BY_PRIORITY);
+        scheduler.setHostBackoff("a.com", 300);
+        for (int i = 0; i < 3; i++) {
+            scheduler.add(new UrlTask("https://a.com/" + i, 1, 10));
+        }
+
+        assertNotNull(scheduler.poll(1, TimeUnit.SECONDS, null));
+        assertNull(scheduler.poll(100, TimeUnit.MILLISECONDS, null));
+        assertNotNull(scheduler.poll(1, TimeUnit.SECONDS, null));
+        scheduler.setHostBackoff("a.com", 0);
+        // The fetch already scheduled keeps its time, the ones after it don't wait
+        assertNotNull(scheduler.poll(1, TimeUnit.SECONDS, null));
+    }
+
+    @Test
+    void testIdleHostsAreForgottenOnceTheirIntervalEnds() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(20.0, 0, BY_PRIORITY);
+        scheduler.add(new UrlTask("https://a.com/1", 1, 10));
+
+        UrlTask task = scheduler.poll(1, TimeUnit.SECONDS, null);
+        assertNotNull(task);
+        // Released within its 50 ms interval, so a.com is still remembered
+        scheduler.release(task);
+        assertEquals(1, scheduler.hostCount());
+
+        Thread.sleep(80);
+        assertNull(scheduler.poll(10, TimeUnit.MILLISECONDS, null));
+        assertEquals(0, scheduler.hostCount());
+    }
+
+    @Test
+    void testHostOf() {
+        assertEquals("www.example.com", HostScheduler.hostOf("https://WWW.Example.com/path?q=1"));
+        assertEquals("not a url", HostScheduler.hostOf("not a url"));
+    }
+
+    @Test
+    void testFrontierBoundsHostQueuesAndKeepsPriorityOrder() throws InterruptedException {
+        InMemoryFrontier frontier = new InMemoryFrontier();
+        HostScheduler scheduler = new HostScheduler(0, 0, BY_PRIORITY, frontier, 2);
+        scheduler.add(new UrlTask("https://a.com/1", 1, 10));
+        scheduler.add(new UrlTask("https://b.com/1", 1, 10));
+        scheduler.add(new UrlTask("https://c.com/low", 1, 20));
+        scheduler.add(new UrlTask("https://c.com/high", 1, 1));
+
+        assertEquals(4, scheduler.size());
+        assertEquals(2, frontier.size());
+
+        scheduler.poll(1, TimeUnit.SECONDS, null);
+        scheduler.poll(1, TimeUnit.SECONDS, null);
+        // The best task waiting in the frontier moves up first
+        assertEquals("https://c.com/high", scheduler.poll(1, TimeUnit.SECONDS, null).getUrl());
+        assertEquals("https://c.com/low", scheduler.poll(1, TimeUnit.SECONDS, null).getUrl());
+        assertTrue(scheduler.isEmpty());
+    }
+
+    @Test
+    void testTasksLostToAnUnreadableSegmentAreNoLongerPending(@TempDir Path dir)
+            throws IOException, InterruptedException {
+        Path frontierDir = dir.resolve("frontier");
+        try (SpillingFrontier frontier = new SpillingFrontier(frontierDir, 0, 0)) {
+            HostScheduler scheduler = new HostScheduler(0, 0, BY_PRIORITY, frontier, 2);
+            for (int i = 0; i < 10; i++) {
+                scheduler.add(new UrlTask("https://a.com/" + i, 1, 10));
+            }
+            assertEquals(10, scheduler.size());
+
+            // A checkpoint closes the segment being written; then all but its first record is lost
+            scheduler.snapshot(dir.resolve("checkpoint"));
+            Path segment;
+            try (Stream<Path> files = Files.list(frontierDir)) {
+                segment = files.findFirst().orElseThrow();
+            }
+            Files.write(segment, Arrays.copyOf(Files.readAllBytes(segment), 30));
+
+            int polled = 0;
+            while (scheduler.poll(100, TimeUnit.MILLISECONDS, null) != null) {
+                polled++;
+            }
+            assertEquals(3, polled);
+            assertEquals(7, frontier.getDroppedCount());
+            assertTrue(scheduler.isEmpty());
+        }
+    }
+}
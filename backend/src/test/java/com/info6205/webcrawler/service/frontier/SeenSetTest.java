@@ -0,0 +1,143 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class SeenSetTest {
+
+    private static List<SeenSet> allSets(int expectedUrls) {
+        return List.of(new StringSeenSet(),
+                new FingerprintSeenSet(expectedUrls),
+                new BloomSeenSet(expectedUrls, 0.01, false),
+                new BloomSeenSet(expectedUrls, 0.01, true));
+    }
+
+    @Test
+    void testAddReportsOnlyFirstSighting() {
+        for (SeenSet seen : allSets(1000)) {
+            assertFalse(seen.contains("https://a.com/"));
+            assertTrue(seen.add("https://a.com/"));
+            assertFalse(seen.add("https://a.com/"));
+            assertTrue(seen.contains("https://a.com/"));
+            assertEquals(1, seen.size(), seen.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void testNoFalseNegativesWhileGrowing() {
+        // Ten times the expected size forces table resizes and extra Bloom filters
+        for (SeenSet seen : allSets(1000)) {
+            for (int i = 0; i < 10_000; i++) {
+                seen.add("https://site.com/page/" + i);
+            }
+            for (int i = 0; i < 10_000; i++) {
+                assertTrue(seen.contains("https://site.com/page/" + i), seen.getClass().getSimpleName());
+            }
+        }
+    }
+
+    @Test
+    void testBloomFalsePositiveRateStaysNearTarget() {
+        BloomSeenSet seen = new BloomSeenSet(1000, 0.01, false);
+        for (int i = 0; i < 20_000; i++) {
+            seen.add("https://site.com/page/" + i);
+        }
+        assertTrue(seen.filterCount() > 1);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (seen.contains("https://other.org/item/" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 20_000 * 0.02, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testCompactSetsUseLessMemoryThanStrings() {
+        SeenSet strings = new StringSeenSet();
+        SeenSet fingerprints = new FingerprintSeenSet(50_000);
+        SeenSet bloom = new BloomSeenSet(50_000, 0.01, false);
+        for (int i = 0; i < 50_000; i++) {
+            String url = "https://www.example.com/articles/2024/some-long-slug-" + i;
+            strings.add(url);
+            fingerprints.add(url);
+            bloom.add(url);
+        }
+        assertTrue(fingerprints.memoryBytes() * 4 < strings.memoryBytes());
+        assertTrue(bloom.memoryBytes() < fingerprints.memoryBytes());
+    }
+
+    @Test
+    void testConcurrentAddsOfSameUrlSucceedOnce() throws Exception {
+        for (SeenSet seen : allSets(1000)) {
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(pool.submit(() -> {
+                    int added = 0;
+                    for (int i = 0; i < 5_000; i++) {
+                        if (seen.add("https://shared.com/" + i)) {
+                            added++;
+                        }
+                    }
+                    return added;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get();
+            }
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+
+            // Bloom false positives can only lower the count
+            assertTrue(total <= 5_000, seen.getClass().getSimpleName());
+            assertTrue(total >= 4_950, seen.getClass().getSimpleName() + ": " + total);
+        }
+    }
+
+    @Test
+    void testParseType() {
+        assertEquals(SeenSets.Type.FINGERPRINT, SeenSets.parseType(null));
+        assertEquals(SeenSets.Type.BLOOM, SeenSets.parseType(" bloom "));
+        assertTrue(SeenSets.create(SeenSets.Type.STRING, 10, 0.01, false) instanceof StringSeenSet);
+    }
+
+    @Test
+    void testCopyAndSerializationRoundTrip() throws IOException {
+        for (SeenSet seen : allSets(100)) {
+            for (int i = 0; i < 2_000; i++) {
+                seen.add("https://site.com/" + i);
+            }
+            SeenSet copy = seen.copy();
+            seen.add("https://site.com/after-copy");
+            assertFalse(copy.contains("https://site.com/after-copy"));
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            SeenSets.write(copy, new DataOutputStream(bytes));
+            SeenSet restored = SeenSets.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+            assertEquals(copy.getClass(), restored.getClass());
+            assertEquals(copy.size(), restored.size());
+            for (int i = 0; i < 2_000; i++) {
+                assertTrue(restored.contains("https://site.com/" + i), restored.getClass().getSimpleName());
+            }
+            assertFalse(restored.add("https://site.com/7"));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.info6205.webcrawler.service.frontier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.info6205.webcrawler.entity.UrlTask;
+
+class SpillingFrontierTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSpilledTasksComeBackInPriorityAndFifoOrder() throws IOException {
+        // Room for only a handful of tasks on the heap
+        try (SpillingFrontier frontier = new SpillingFrontier(tempDir, 1024, 0)) {
+            for (int i = 0; i < 500; i++) {
+                frontier.add(new UrlTask("https://a.com/low/" + i, 2, 10));
+                frontier.add(new UrlTask("https://a.com/high/" + i, 1, 1));
+            }
+            assertTrue(frontier.getSpilledCount() > 900);
+            assertTrue(frontier.getHotBytes() <= 1024);
+            assertEquals(1000, frontier.size());
+
+            for (int i = 0; i < 500; i++) {
+                UrlTask task = frontier.poll();
+                assertEquals("https://a.com/high/" + i, task.getUrl());
+                assertEquals(1, task.getDepth());
+            }
+            for (int i = 0; i < 500; i++) {
+                assertEquals("https://a.com/low/" + i, frontier.poll().getUrl());
+            }
+            assertNull(frontier.poll());
+            assertEquals(0, frontier.getDiskBytes());
+            assertEquals(0, countFiles());
+        }
+    }
+
+    @Test
+    void testInterleavedAddAndPollKeepsEveryTask() throws IOException {
+        try (SpillingFrontier frontier = new SpillingFrontier(tempDir, 2048, 0)) {
+            int added = 0;
+            int polled = 0;
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < 40; i++) {
+                    frontier.add(new UrlTask("https://b.com/" + added++, 1, 10));
+                }
+                for (int i = 0; i < 30; i++) {
+                    assertEquals("https://b.com/" + polled++, frontier.poll().getUrl());
+                }
+            }
+            while (frontier.poll() != null) {
+                polled++;
+            }
+            assertEquals(added, polled);
+        }
+    }
+
+    @Test
+    void testDiskBudgetDropsOverflow() throws IOException {
+        try (SpillingFrontier frontier = new SpillingFrontier(tempDir, 0, 200)) {
+            int accepted = 0;
+            for (int i = 0; i < 50; i++) {
+                if (frontier.add(new UrlTask("https://c.com/" + i, 1, 10))) {
+                    accepted++;
+                }
+            }
+            assertTrue(accepted < 50);
+            assertEquals(50 - accepted, frontier.getDroppedCount());
+            assertEquals(accepted, frontier.size());
+        }
+    }
+
+    @Test
+    void testClearRemovesSegmentFiles() throws IOException {
+        SpillingFrontier frontier = new SpillingFrontier(tempDir, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            frontier.add(new UrlTask("https://d.com/" + i, 1, i % 3));
+        }
+        assertTrue(countFiles() > 0);
+        frontier.clear();
+        assertTrue(frontier.isEmpty());
+        assertFalse(frontier.poll() != null);
+        assertEquals(0, countFiles());
+        frontier.close();
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.info6205.webcrawler.service.pagerank;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class IncrementalPageRankTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testMatchesFullSolveOnCrawlOrder() {
+        Random random = new Random(11);
+        int size = 300;
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            nodes.add("https://example.com/" + i);
+        }
+        Map<String, List<String>> graph = new HashMap<>();
+        IncrementalPageRank ranker = new IncrementalPageRank(0.85, 1e-7);
+        for (String node : nodes) {
+            Set<String> links = new LinkedHashSet<>();
+            int degree = random.nextInt(6);
+            for (int j = 0; j < degree; j++) {
+                links.add(nodes.get(random.nextInt(size)));
+            }
+            // Links that never become pages must not count as edges
+            links.add("https://elsewhere.org/" + random.nextInt(1000));
+            graph.put(node, new ArrayList<>(links));
+            ranker.addPage(node, links);
+        }
+
+        double[] expected = new ParallelPageRankSolver(0.85, 1e-12, 500, pool)
+                .solve(CsrGraph.build(nodes, graph)).getRanks();
+        Map<String, Double> actual = ranker.snapshot();
+
+        assertEquals(size, actual.size());
+        double l1 = 0.0;
+        for (int i = 0; i < size; i++) {
+            l1 += Math.abs(expected[i] - actual.get(nodes.get(i)));
+        }
+        assertTrue(l1 < 1e-4, "L1 error " + l1);
+    }
+
+    @Test
+    void testPendingLinksAttachWhenTargetArrives() {
+        IncrementalPageRank ranker = new IncrementalPageRank(0.85, 1e-9);
+        ranker.addPage("A", List.of("B"));
+        ranker.addPage("C", List.of("B"));
+        ranker.addPage("B", List.of());
+
+        Map<String, Double> ranks = ranker.snapshot();
+
+        assertEquals(3, ranks.size());
+        assertTrue(ranks.get("B") > ranks.get("A"));
+        assertEquals(ranks.get("A"), ranks.get("C"), 1e-9);
+        assertEquals(1.0, ranks.values().stream().mapToDouble(Double::doubleValue).sum(), 1e-9);
+    }
+
+    @Test
+    void testTopReturnsBestFirst() {
+        IncrementalPageRank ranker = new IncrementalPageRank(0.85, 1e-9);
+        ranker.addPage("hub", List.of("a", "b", "c"));
+        ranker.addPage("a", List.of("hub"));
+        ranker.addPage("b", List.of("hub"));
+        ranker.addPage("c", List.of("hub"));
+
+        Map<String, Double> top = ranker.top(2);
+
+        assertEquals(2, top.size());
+        assertEquals("hub", top.keySet().iterator().next());
+    }
+
+    @Test
+    void testWarmStartFromIncrementalRanks() {
+        Random random = new Random(5);
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            nodes.add("n" + i);
+        }
+        Map<String, List<String>> graph = new HashMap<>();
+        IncrementalPageRank ranker = new IncrementalPageRank(0.85, 1e-5);
+        for (String node : nodes) {
+            List<String> links = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                String target = nodes.get(random.nextInt(nodes.size()));
+                if (!links.contains(target)) {
+                    links.add(target);
+                }
+            }
+            graph.put(node, links);
+            ranker.addPage(node, links);
+        }
+        CsrGraph csr = CsrGraph.build(nodes, graph);
+        double[] initial = new double[csr.size()];
+        Map<String, Double> snapshot = ranker.snapshot();
+        for (int i = 0; i < csr.size(); i++) {
+            initial[i] = snapshot.get(csr.url(i));
+        }
+        ParallelPageRankSolver solver = new ParallelPageRankSolver(0.85, 1e-8, 200, pool);
+
+        int cold = solver.solve(csr).getIterations();
+        int warm = solver.solve(csr, initial).getIterations();
+
+        assertTrue(warm < cold / 2, "warm " + warm + " vs cold " + cold);
+    }
+}
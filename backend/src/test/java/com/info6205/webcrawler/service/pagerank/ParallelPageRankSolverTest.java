@@ -0,0 +1,120 @@
+package com.info6205.webcrawler.service.pagerank;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelPageRankSolverTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testCycleIsUniform() {
+        CsrGraph csr = CsrGraph.build(List.of("A", "B", "C"), Map.of(
+                "A", List.of("B"),
+                "B", List.of("C"),
+                "C", List.of("A")
+        ));
+
+        PageRankResult result = new ParallelPageRankSolver(0.85, 1e-10, 100, pool).solve(csr);
+
+        for (double rank : result.getRanks()) {
+            assertEquals(1.0 / 3, rank, 1e-9);
+        }
+        assertTrue(result.isConverged());
+    }
+
+    @Test
+    void testDanglingMassIsRedistributed() {
+        // B and C are dangling; with damping d, A = (1-d)/3 + d*(B + C)/3
+        CsrGraph csr = CsrGraph.build(List.of("A", "B", "C"), Map.of(
+                "A", List.of("B", "C")
+        ));
+
+        PageRankResult result = new ParallelPageRankSolver(0.85, 1e-12, 200, pool).solve(csr);
+        double[] ranks = result.getRanks();
+
+        assertEquals(1.0, ranks[0] + ranks[1] + ranks[2], 1e-9);
+        assertEquals(ranks[1], ranks[2], 1e-12);
+        assertEquals(0.15 / 3 + 0.85 * (ranks[1] + ranks[2]) / 3, ranks[0], 1e-9);
+    }
+
+    @Test
+    void testParallelMatchesSingleThread() {
+        CsrGraph csr = randomGraph(2_000, 8, 42);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            double[] expected = new ParallelPageRankSolver(0.85, 1e-10, 200, single).solve(csr).getRanks();
+            double[] actual = new ParallelPageRankSolver(0.85, 1e-10, 200, pool).solve(csr).getRanks();
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], actual[i], 1e-12);
+            }
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void testIterationCapAndResidualReported() {
+        CsrGraph csr = randomGraph(500, 5, 7);
+
+        PageRankResult capped = new ParallelPageRankSolver(0.85, 1e-15, 3, pool).solve(csr);
+
+        assertEquals(3, capped.getIterations());
+        assertTrue(capped.getResidual() > 0);
+        assertTrue(!capped.isConverged());
+    }
+
+    @Test
+    void testWarmStartNeedsFewerIterations() {
+        CsrGraph csr = randomGraph(1_000, 6, 3);
+        ParallelPageRankSolver solver = new ParallelPageRankSolver(0.85, 1e-9, 200, pool);
+
+        PageRankResult cold = solver.solve(csr);
+        PageRankResult warm = solver.solve(csr, cold.getRanks());
+
+        assertTrue(warm.getIterations() < cold.getIterations());
+    }
+
+    @Test
+    void testPartitionsCoverAllNodes() {
+        CsrGraph csr = randomGraph(100, 4, 1);
+
+        int[] bounds = ParallelPageRankSolver.partition(csr, 8);
+
+        assertEquals(0, bounds[0]);
+        assertEquals(100, bounds[bounds.length - 1]);
+        for (int i = 1; i < bounds.length; i++) {
+            assertTrue(bounds[i] >= bounds[i - 1]);
+        }
+    }
+
+    private static CsrGraph randomGraph(int size, int maxOutDegree, long seed) {
+        Random random = new Random(seed);
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            nodes.add("https://example.com/" + i);
+        }
+        Map<String, List<String>> graph = new HashMap<>();
+        for (String node : nodes) {
+            int degree = random.nextInt(maxOutDegree + 1);
+            for (int j = 0; j < degree; j++) {
+                graph.computeIfAbsent(node, k -> new ArrayList<>()).add(nodes.get(random.nextInt(size)));
+            }
+        }
+        return CsrGraph.build(nodes, graph);
+    }
+}
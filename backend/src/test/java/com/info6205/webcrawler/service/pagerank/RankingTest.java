@@ -0,0 +1,87 @@
+package com.info6205.webcrawler.service.pagerank;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class RankingTest {
+
+    @Test
+    void testInDegreesCountEachLinkingPageOnce() {
+        List<String> nodes = List.of("a", "b", "c");
+        Map<String, List<String>> graph = Map.of(
+                "a", List.of("b", "c", "b"),
+                "b", List.of("c", "outside"),
+                "c", List.of("a"),
+                // Not a crawled page, so its links are not counted
+                "d", List.of("a", "b"));
+        Ranking ranking = Ranking.build("job-1", Map.of("a", 0.3, "b", 0.2, "c", 0.5), nodes, graph);
+
+        List<Map<String, Object>> rows = ranking.rows(0, 10, 0.0);
+
+        assertEquals(List.of("c", "a", "b"), rows.stream().map(row -> row.get("url")).toList());
+        assertEquals(List.of(2, 1, 1), rows.stream().map(row -> row.get("in_degree")).toList());
+        assertEquals("job-1", ranking.getJobId());
+    }
+
+    @Test
+    void testTopAndPagesMatchAFullSort() {
+        Random random = new Random(5);
+        Map<String, Double> ranks = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            ranks.put("https://example.com/" + i, random.nextDouble());
+        }
+        Ranking ranking = Ranking.build(null, ranks, List.of(), Map.of());
+        List<String> sorted = new ArrayList<>(ranks.keySet());
+        sorted.sort(Comparator.comparingDouble(ranks::get).reversed());
+
+        int[] top = ranking.top(25);
+        String[] topUrls = new String[top.length];
+        for (int i = 0; i < top.length; i++) {
+            topUrls[i] = ranking.url(top[i]);
+        }
+        assertArrayEquals(sorted.subList(0, 25).toArray(), topUrls);
+        assertEquals(1000, ranking.top(5000).length);
+
+        List<Map<String, Object>> page = ranking.rows(100, 20, 0.0);
+        assertEquals(sorted.subList(100, 120), page.stream().map(row -> row.get("url")).toList());
+
+        double minRank = ranks.get(sorted.get(109));
+        page = ranking.rows(100, 20, minRank);
+        assertEquals(10, page.size());
+        assertEquals(110, ranking.countAtLeast(minRank));
+        assertTrue(ranking.rows(2000, 20, 0.0).isEmpty());
+    }
+
+    @Test
+    void testPagesOverTiedRanksNeitherRepeatNorSkip() {
+        // Pages without in-links all get the same rank, so most ranks are tied
+        Map<String, Double> ranks = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            ranks.put("https://example.com/" + i, (double) (i % 3));
+        }
+        Ranking ranking = Ranking.build(null, ranks, List.of(), Map.of());
+
+        Set<Object> seen = new HashSet<>();
+        double previous = Double.POSITIVE_INFINITY;
+        for (int offset = 0; offset < 200; offset += 10) {
+            for (Map<String, Object> row : ranking.rows(offset, 10, 0.0)) {
+                assertTrue(seen.add(row.get("url")), "repeated " + row.get("url"));
+                double rank = (double) row.get("rank");
+                assertTrue(rank <= previous);
+                previous = rank;
+            }
+        }
+        assertEquals(200, seen.size());
+    }
+}
@@ -0,0 +1,96 @@
+package com.info6205.webcrawler.service.parse;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import org.jsoup.internal.StringUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingLinkExtractorTest {
+
+    private static final String PAGE_URL = "https://www.example.edu/dept/index.html";
+
+    static final List<String> SAMPLE_PAGES = List.of(
+            "<html><body><a href=\"/about\">About</a> <a href='news/today?x=1&amp;y=2'>News</a>"
+                    + "<A HREF=https://other.example.org/Path>Other</A><a>no href</a><a href>self</a>"
+                    + "<a href=\"#top\">top</a><a href=\"?page=2\">next</a></body></html>",
+            "<html><head><title><a href=/not-a-link></title>"
+                    + "<script>document.write('<a href=\"/in-script\">x</a>');</script>"
+                    + "<style>a[href=\"/in-style\"] {}</style></head>"
+                    + "<body><!-- <a href=\"/commented\">old</a> --><textarea><a href=/typed></textarea>"
+                    + "<a href=\"/after\" href=\"/duplicate\">after</a><a\nclass=x\thref = \"/spaced\" >s</a>"
+                    + "</body></html>",
+            "<html><head><a href=\"early\">before base</a><base href=\"https://cdn.example.net/root/\">"
+                    + "<base href=\"/ignored/\"></head><body><a href=\"page\">p</a><a href=\"/abs\">a</a>"
+                    + "<a href=\"//proto.example.com/x\">x</a></body></html>",
+            "<p>1 < 2 and <3 <br/><a href=unquoted/path/>u</a><a href=\"mailto:a@b.c\">m</a>"
+                    + "<a href=\"javascript:void(0)\">j</a><a href=\" /trimmed \">t</a>"
+                    + "<a href=\"&#x2F;hex&#47;dec\">e</a><a href=\"/caf&eacute;\">c</a>",
+            "<!DOCTYPE html><?xml version=\"1.0\"?><svg><a href=\"/svg-link\"/></svg>"
+                    + "<abbr href=\"/not-anchor\">x</abbr><area href=\"/map\"><a href=\"/last\"");
+
+    private final LinkExtractor streaming = new StreamingLinkExtractor();
+    private final LinkExtractor jsoup = new JsoupLinkExtractor();
+
+    @Test
+    void testMatchesJsoupOnSamplePages() throws Exception {
+        for (String page : SAMPLE_PAGES) {
+            byte[] body = page.getBytes(StandardCharsets.UTF_8);
+            assertEquals(jsoup.extractLinks(body, "UTF-8", PAGE_URL), streaming.extractLinks(body, "UTF-8", PAGE_URL),
+                    page);
+        }
+    }
+
+    @Test
+    void testResolverMatchesJsoup() {
+        List<String> bases = List.of(PAGE_URL, "https://www.example.edu", "https://www.example.edu/a/b/",
+                "http://host:8080/x/y.html?q=1#frag", "https://www.example.edu/a b/c", "not a url");
+        List<String> hrefs = List.of("", "/", "page", "sub/page.html", "/root", "//other.org/x", "?q=2", "#f",
+                "./here", "../up", "../../../../too-far", "a/./b/../c", "/x/..", "/x/.", "..", ".", ".well-known/x",
+                "a/b/..?x=/./y#../z", "https://Other.example.org/P?Q#R", "http://x.org/a/../b", "HTTP://x.org",
+                "mailto:a@b.c", "javascript:void(0)", "tel:+1", "a:b/c", "/path with space", " /trimmed ",
+                "caf\u00e9", "a\\b", "/a//../b", "?", "#", "//");
+        for (String base : bases) {
+            HrefResolver resolver = new HrefResolver(base);
+            for (String href : hrefs) {
+                assertEquals(StringUtil.resolve(base, href), resolver.resolve(href), base + " + " + href);
+            }
+        }
+    }
+
+    @Test
+    void testBaseHrefAppliesToEveryLink() throws Exception {
+        Set<String> links = streaming.extractLinks(SAMPLE_PAGES.get(2).getBytes(StandardCharsets.UTF_8), null,
+                PAGE_URL);
+
+        assertEquals(Set.of("https://cdn.example.net/root/early", "https://cdn.example.net/root/page",
+                "https://cdn.example.net/abs", "https://proto.example.com/x"), links);
+    }
+
+    @Test
+    void testSkipsCommentsAndRawText() throws Exception {
+        Set<String> links = streaming.extractLinks(SAMPLE_PAGES.get(1).getBytes(StandardCharsets.UTF_8), null,
+                PAGE_URL);
+
+        assertEquals(Set.of("https://www.example.edu/after", "https://www.example.edu/spaced"), links);
+    }
+
+    @Test
+    void testDecodesWithHeaderMetaOrBomCharset() throws Exception {
+        String page = "<html><head><meta charset=\"windows-1252\"></head><body><a href=\"/caf\u00e9\">c</a></body></html>";
+        Set<String> expected = Set.of("https://www.example.edu/caf\u00e9");
+        Charset windows1252 = Charset.forName("windows-1252");
+
+        assertEquals(expected, streaming.extractLinks(page.getBytes(windows1252), null, PAGE_URL));
+        assertEquals(expected, streaming.extractLinks(page.getBytes(windows1252), "windows-1252", PAGE_URL));
+        assertEquals(jsoup.extractLinks(page.getBytes(windows1252), null, PAGE_URL),
+                streaming.extractLinks(page.getBytes(windows1252), null, PAGE_URL));
+
+        byte[] utf16 = ("\ufeff" + page.replace("windows-1252", "utf-16")).getBytes(StandardCharsets.UTF_16BE);
+        assertEquals(expected, streaming.extractLinks(utf16, null, PAGE_URL));
+    }
+}
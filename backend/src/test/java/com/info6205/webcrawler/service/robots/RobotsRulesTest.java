@@ -0,0 +1,122 @@
+package com.info6205.webcrawler.service.robots;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.info6205.webcrawler.service.fetch.FetchResult;
+
+class RobotsRulesTest {
+
+    @Test
+    void testLongestMatchWinsAndAllowWinsTies() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /private
+                Allow: /private/public
+                Disallow: /a
+                Allow: /a
+                Disallow:
+                """, "WebKrawler");
+
+        assertTrue(rules.isAllowed("https://example.com/"));
+        assertTrue(rules.isAllowed("https://example.com"));
+        assertFalse(rules.isAllowed("https://example.com/private"));
+        assertFalse(rules.isAllowed("https://example.com/private-notes?x=1"));
+        assertTrue(rules.isAllowed("https://example.com/private/public/page"));
+        assertTrue(rules.isAllowed("https://example.com/a/b"));
+        assertEquals(4, rules.ruleCount());
+    }
+
+    @Test
+    void testWildcardsAndEndAnchor() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /*.pdf$
+                Disallow: /*?sessionid=
+                Disallow: /search
+                Allow: /search*/about
+                """, "WebKrawler");
+
+        assertFalse(rules.isAllowed("https://example.com/files/report.pdf"));
+        assertTrue(rules.isAllowed("https://example.com/files/report.pdf?page=2"));
+        assertFalse(rules.isAllowed("https://example.com/cart?sessionid=42"));
+        assertFalse(rules.isAllowed("https://example.com/search/results"));
+        assertTrue(rules.isAllowed("https://example.com/search/help/about"));
+        assertTrue(rules.isAllowed("https://example.com/docs#/search"));
+    }
+
+    @Test
+    void testAgentGroupSelection() {
+        String robotsTxt = """
+                # everyone else
+                User-agent: *
+                Disallow: /
+                Crawl-delay: 10
+
+                User-agent: OtherBot
+                User-agent: webkrawler/2.0
+                Disallow: /tmp/
+                Crawl-delay: 1.5
+                Sitemap: https://example.com/sitemap.xml
+                """;
+
+        RobotsRules ours = RobotsRules.parse(robotsTxt, "WebKrawler");
+        assertTrue(ours.isAllowed("https://example.com/page"));
+        assertFalse(ours.isAllowed("https://example.com/tmp/x"));
+        assertEquals(1500, ours.getCrawlDelayMillis());
+
+        RobotsRules others = RobotsRules.parse(robotsTxt, "SomeoneElse");
+        assertFalse(others.isAllowed("https://example.com/page"));
+        assertEquals(10000, others.getCrawlDelayMillis());
+
+        assertTrue(RobotsRules.parse("<html><body>Not found</body></html>", "WebKrawler")
+                .isAllowed("https://example.com/page"));
+    }
+
+    @Test
+    void testCacheFetchesOncePerOriginAndMapsStatuses() {
+        AtomicInteger fetches = new AtomicInteger();
+        CompletableFuture<FetchResult> pending = new CompletableFuture<>();
+        RobotsCache cache = new RobotsCache(url -> {
+            fetches.incrementAndGet();
+            return switch (url) {
+                case "https://slow.example.com/robots.txt" -> pending;
+                case "https://missing.example.com/robots.txt" ->
+                        CompletableFuture.completedFuture(new FetchResult(url, 404, "text/html", new byte[0], false));
+                case "https://down.example.com/robots.txt" ->
+                        CompletableFuture.completedFuture(new FetchResult(url, 503, "text/html", new byte[0], false));
+                default -> CompletableFuture.failedFuture(new IOException("connection refused"));
+            };
+        }, "WebKrawler", Duration.ofHours(1), 100);
+
+        // Looking up rules that are not here never starts a download
+        assertNull(cache.getIfLoaded("https://slow.example.com/a"));
+        assertEquals(0, fetches.get());
+
+        CompletableFuture<RobotsRules> slow = cache.rulesFor("https://slow.example.com/a");
+        assertNull(cache.getIfLoaded("https://SLOW.example.com/b"));
+        assertSame(slow, cache.rulesFor("https://SLOW.example.com/b"));
+        pending.complete(new FetchResult("https://slow.example.com/robots.txt", 200, "text/plain",
+                "User-agent: *\nDisallow: /b".getBytes(), false));
+        assertTrue(cache.getIfLoaded("https://slow.example.com/a").isAllowed("https://slow.example.com/a"));
+        assertFalse(cache.rulesFor("https://slow.example.com/b").join().isAllowed("https://slow.example.com/b"));
+
+        assertSame(RobotsRules.ALLOW_ALL, cache.rulesFor("https://missing.example.com/x").join());
+        assertSame(RobotsRules.DISALLOW_ALL, cache.rulesFor("https://down.example.com/x").join());
+        assertSame(RobotsRules.DISALLOW_ALL, cache.rulesFor("https://unreachable.example.com/x").join());
+        assertSame(RobotsRules.DISALLOW_ALL, cache.getIfLoaded("https://down.example.com/y"));
+        assertSame(RobotsRules.ALLOW_ALL, cache.getIfLoaded("mailto:someone@example.com"));
+        assertEquals(4, fetches.get());
+        assertEquals(4, cache.size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.info6205.webcrawler.service.throttle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.Test;
+
+import com.info6205.webcrawler.entity.UrlTask;
+import com.info6205.webcrawler.service.frontier.HostScheduler;
+
+class AdaptiveThrottleTest {
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void testA429HostLosesConcurrencyAndGetsItBack() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(0, 2, Comparator.comparingInt(UrlTask::getPriority));
+        List<String> adjustments = new ArrayList<>();
+        AdaptiveThrottle throttle = newThrottle(scheduler, 8, adjustments);
+        for (int i = 0; i < 4; i++) {
+            scheduler.add(new UrlTask("https://a.com/" + i, 1, 10));
+            scheduler.add(new UrlTask("https://b.com/" + i, 1, 10));
+        }
+
+        throttle.onResponse("a.com", LATENCY, 429);
+        assertEquals(List.of("host:CONCURRENCY_DOWN"), adjustments);
+        assertEquals(1, throttle.getThrottledHosts());
+        // One host's 429 leaves the crawl-wide limit alone
+        assertEquals(8, throttle.getConcurrency());
+        assertEquals(8, throttle.getPermits().availablePermits());
+
+        List<String> hosts = new ArrayList<>();
+        UrlTask task;
+        while ((task = scheduler.poll(100, TimeUnit.MILLISECONDS, null)) != null) {
+            hosts.add(HostScheduler.hostOf(task.getUrl()));
+        }
+        assertEquals(1, hosts.stream().filter("a.com"::equals).count());
+        assertEquals(2, hosts.stream().filter("b.com"::equals).count());
+
+        for (int i = 0; i < AimdLimit.MIN_WINDOW; i++) {
+            throttle.onResponse("a.com", LATENCY, 200);
+        }
+        assertEquals("host:CONCURRENCY_UP", adjustments.get(adjustments.size() - 1));
+        assertEquals(0, throttle.getThrottledHosts());
+    }
+
+    @Test
+    void testTimeoutsAcrossTheCrawlShrinkItsPermits() {
+        HostScheduler scheduler = new HostScheduler(10.0, 2, Comparator.comparingInt(UrlTask::getPriority));
+        List<String> adjustments = new ArrayList<>();
+        AdaptiveThrottle throttle = newThrottle(scheduler, 8, adjustments);
+
+        // A window of 8 with a quarter of it timing out, on different hosts
+        for (int i = 0; i < 6; i++) {
+            throttle.onResponse("host-" + i + ".com", LATENCY, 200);
+        }
+        throttle.onTimeout("host-6.com");
+        throttle.onTimeout("host-7.com");
+
+        assertEquals(4, throttle.getConcurrency());
+        assertEquals(4, throttle.getPermits().availablePermits());
+        assertEquals(1, adjustments.stream().filter("global:CONCURRENCY_DOWN"::equals).count());
+    }
+
+    @Test
+    void testHeldPermitsAreNotGivenBackWhenTheLimitShrinks() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(0, 0, Comparator.comparingInt(UrlTask::getPriority));
+        AdaptiveThrottle throttle = newThrottle(scheduler, 8, new ArrayList<>());
+        throttle.getPermits().acquire(6);
+
+        for (int i = 0; i < 6; i++) {
+            throttle.onResponse("host-" + i + ".com", LATENCY, 200);
+        }
+        throttle.onTimeout("host-6.com");
+        throttle.onTimeout("host-7.com");
+
+        // Six fetches still hold permits of a limit that is now four
+        assertEquals(-2, throttle.getPermits().availablePermits());
+        assertFalse(throttle.getPermits().tryAcquire());
+        throttle.getPermits().release(6);
+        assertEquals(4, throttle.getPermits().availablePermits());
+    }
+
+    @Test
+    void testIdleHostsAreForgottenWithTheirOverrides() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(0, 2, Comparator.comparingInt(UrlTask::getPriority));
+        AimdLimit global = new AimdLimit(8, 1, 8, 100, 30000, 2.0, 0.5, 0.2);
+        AdaptiveThrottle throttle = new AdaptiveThrottle(scheduler, 10.0, global,
+                () -> new AimdLimit(2, 1, 2, 100, 30000, 2.0, 0.5, 0), (scope, adjustment) -> { }, 50);
+
+        throttle.onResponse("a.com", LATENCY, 429);
+        assertEquals(1, throttle.getThrottledHosts());
+        assertEquals(1, scheduler.hostCount());
+
+        Thread.sleep(100);
+        throttle.onResponse("b.com", LATENCY, 200);
+        assertEquals(1, throttle.getHostCount());
+        assertEquals(0, throttle.getThrottledHosts());
+        // The override of a.com is lifted, so the scheduler forgets it too
+        assertEquals(0, scheduler.hostCount());
+    }
+
+    private static AdaptiveThrottle newThrottle(HostScheduler scheduler, int concurrency, List<String> adjustments) {
+        AimdLimit global = new AimdLimit(concurrency, 1, concurrency, 100, 30000, 2.0, 0.5, 0.2);
+        return new AdaptiveThrottle(scheduler, 10.0, global,
+                () -> new AimdLimit(2, 1, 2, 100, 30000, 2.0, 0.5, 0),
+                (scope, adjustment) -> adjustments.add(scope + ":" + adjustment));
+    }
+}
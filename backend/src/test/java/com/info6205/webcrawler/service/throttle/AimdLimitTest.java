@@ -0,0 +1,113 @@
+package com.info6205.webcrawler.service.throttle;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.info6205.webcrawler.service.throttle.AimdLimit.Adjustment;
+
+class AimdLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    void testCleanWindowsAddOneUpToTheMaximum() {
+        AimdLimit limit = new AimdLimit(4, 1, 6, 100, 30000, 2.0, 0.5, 0);
+
+        assertEquals(Adjustment.CONCURRENCY_UP, respond(limit, FAST, AimdLimit.MIN_WINDOW));
+        assertEquals(5, limit.getConcurrency());
+        assertEquals(Adjustment.CONCURRENCY_UP, respond(limit, FAST, AimdLimit.MIN_WINDOW));
+        assertEquals(Adjustment.NONE, respond(limit, FAST, 6));
+        assertEquals(6, limit.getConcurrency());
+        assertFalse(limit.isThrottled());
+    }
+
+    @Test
+    void testOverloadHalvesConcurrencyOnceAWindowThenSlowsTheRate() {
+        AimdLimit limit = new AimdLimit(8, 1, 8, 100, 1000, 2.0, 0.5, 0);
+
+        assertEquals(Adjustment.CONCURRENCY_DOWN, limit.onOverload());
+        assertEquals(4, limit.getConcurrency());
+        // The 429s of fetches already in flight don't count again
+        for (int i = 0; i < AimdLimit.MIN_WINDOW - 1; i++) {
+            assertEquals(Adjustment.NONE, limit.onOverload());
+        }
+        assertEquals(Adjustment.CONCURRENCY_DOWN, limit.onOverload());
+        assertEquals(2, limit.getConcurrency());
+        overloadAfterAWindow(limit, Adjustment.CONCURRENCY_DOWN);
+        assertEquals(1, limit.getConcurrency());
+
+        overloadAfterAWindow(limit, Adjustment.RATE_DOWN);
+        assertEquals(100, limit.getDelayMillis());
+        overloadAfterAWindow(limit, Adjustment.RATE_DOWN);
+        assertEquals(200, limit.getDelayMillis());
+        for (int i = 0; i < 3; i++) {
+            overloadAfterAWindow(limit, Adjustment.RATE_DOWN);
+        }
+        assertEquals(1000, limit.getDelayMillis());
+        assertTrue(limit.isThrottled());
+
+        // The rate comes back a fetch per second at a time: 1, 2, ... 9 per second, then no delay
+        for (int rate = 2; rate < 10; rate++) {
+            assertEquals(Adjustment.RATE_UP, respond(limit, FAST, AimdLimit.MIN_WINDOW));
+            assertEquals(Math.round(1000.0 / rate), limit.getDelayMillis());
+        }
+        assertEquals(Adjustment.RATE_UP, respond(limit, FAST, AimdLimit.MIN_WINDOW));
+        assertEquals(0, limit.getDelayMillis());
+        assertEquals(Adjustment.CONCURRENCY_UP, respond(limit, FAST, AimdLimit.MIN_WINDOW));
+        assertEquals(2, limit.getConcurrency());
+    }
+
+    @Test
+    void testRisingLatencyShrinksConcurrencyButNotTheRate() {
+        AimdLimit limit = new AimdLimit(10, 1, 10, 100, 30000, 2.0, 0.5, 0);
+        respond(limit, FAST, 10);
+
+        // Latency ten times the usual: the gradient is 0.2, held to the backoff factor
+        assertEquals(Adjustment.CONCURRENCY_DOWN, respond(limit, SLOW, 10));
+        assertEquals(5, limit.getConcurrency());
+        // Within the tolerance nothing shrinks
+        assertEquals(Adjustment.CONCURRENCY_UP, respond(limit, FAST * 3 / 2, AimdLimit.MIN_WINDOW));
+
+        AimdLimit floor = new AimdLimit(1, 1, 1, 100, 30000, 2.0, 0.5, 0);
+        respond(floor, FAST, AimdLimit.MIN_WINDOW);
+        assertEquals(Adjustment.NONE, respond(floor, SLOW, AimdLimit.MIN_WINDOW));
+        assertEquals(0, floor.getDelayMillis());
+    }
+
+    @Test
+    void testSharedOverloadNeedsItsShareOfAWindow() {
+        AimdLimit limit = new AimdLimit(10, 2, 10, 100, 30000, 2.0, 0.5, 0.3);
+
+        // 2 timeouts in a window of 10 are below the share
+        respond(limit, FAST, 8);
+        limit.onOverload();
+        assertEquals(Adjustment.NONE, limit.onOverload());
+        assertEquals(10, limit.getConcurrency());
+
+        respond(limit, FAST, 7);
+        limit.onOverload();
+        limit.onOverload();
+        assertEquals(Adjustment.CONCURRENCY_DOWN, limit.onOverload());
+        assertEquals(5, limit.getConcurrency());
+    }
+
+    private static Adjustment respond(AimdLimit limit, long latencyNanos, int samples) {
+        Adjustment last = Adjustment.NONE;
+        for (int i = 0; i < samples; i++) {
+            last = limit.onResponse(latencyNanos);
+        }
+        return last;
+    }
+
+    private static void overloadAfterAWindow(AimdLimit limit, Adjustment expected) {
+        for (int i = 0; i < AimdLimit.MIN_WINDOW - 1; i++) {
+            limit.onOverload();
+        }
+        assertEquals(expected, limit.onOverload());
+    }
+}
@@ -0,0 +1,65 @@
+package com.info6205.webcrawler.service.url;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The linear-scan priority logic {@link UrlClassifier} replaced, kept as a
+ * reference for equivalence tests. The blacklist is read from the bundled
+ * rules file.
+ */
+final class LegacyUrlPriority {
+
+    private final Set<String> blacklist;
+
+    LegacyUrlPriority(Set<String> blacklist) {
+        this.blacklist = blacklist;
+    }
+
+    static LegacyUrlPriority fromDefaultRules() throws IOException {
+        try (InputStream in = LegacyUrlPriority.class.getResourceAsStream("/url-rules.txt")) {
+            Set<String> blacklist = new LinkedHashSet<>();
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (line.startsWith("    http")) {
+                    blacklist.add(line.strip().replace(" \\", ""));
+                }
+            }
+            return new LegacyUrlPriority(blacklist);
+        }
+    }
+
+    int size() {
+        return blacklist.size();
+    }
+
+    int priority(String url) {
+        for (String blacklistedUrl : blacklist) {
+            if (url.contains(blacklistedUrl)) {
+                return Integer.MAX_VALUE;
+            }
+        }
+        if (url.contains(".onion")) {
+            return Integer.MAX_VALUE;
+        }
+        if (url.matches(".*\\.(jpg|jpeg|png|gif|bmp|mp4|avi|mkv|mov|wmv|flv|webm)$")) {
+            return 20;
+        }
+        if (url.contains("facebook.com") || url.contains("twitter.com") || url.contains("instagram.com")
+                || url.contains("tiktok.com")) {
+            return 20;
+        }
+        if (url.contains("ad") || url.contains("ads") || url.contains("tracker") || url.contains("banner")) {
+            return 20;
+        }
+        if (url.endsWith(".edu") || url.endsWith(".gov")) {
+            return 1;
+        }
+        if (url.contains("research") || url.contains("science")) {
+            return 5;
+        }
+        return 10;
+    }
+}
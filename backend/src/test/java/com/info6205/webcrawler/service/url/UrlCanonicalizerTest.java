@@ -0,0 +1,60 @@
+package com.info6205.webcrawler.service.url;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+class UrlCanonicalizerTest {
+
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer();
+
+    @Test
+    void testVariantsCollapseToOneUrl() {
+        List<String> variants = List.of(
+                "https://www.northeastern.edu/about",
+                "https://www.northeastern.edu/about/",
+                "https://www.northeastern.edu/about#history",
+                "HTTPS://WWW.Northeastern.EDU/about",
+                "https://www.northeastern.edu:443/about",
+                "https://www.northeastern.edu./about",
+                "https://www.northeastern.edu/news/../about",
+                "https://www.northeastern.edu/about?utm_source=twitter&utm_medium=social",
+                "https://www.northeastern.edu/about/?fbclid=abc#top");
+        for (String variant : variants) {
+            assertEquals("https://www.northeastern.edu/about", canonicalizer.canonicalize(variant), variant);
+        }
+    }
+
+    @Test
+    void testRootPathAndPorts() {
+        assertEquals("http://example.com/", canonicalizer.canonicalize("http://example.com"));
+        assertEquals("http://example.com/", canonicalizer.canonicalize("http://example.com:80/"));
+        assertEquals("http://example.com:8080/", canonicalizer.canonicalize("http://example.com:8080"));
+        assertEquals("https://example.com:80/", canonicalizer.canonicalize("https://example.com:80/"));
+    }
+
+    @Test
+    void testQueryParametersAreFilteredAndSorted() {
+        assertEquals("https://a.com/search?page=2&q=java",
+                canonicalizer.canonicalize("https://a.com/search?q=java&UTM_Campaign=x&page=2&gclid=1"));
+        assertEquals("https://a.com/list", canonicalizer.canonicalize("https://a.com/list?utm_source=a&"));
+        // Path case is significant and must be kept
+        assertEquals("https://a.com/CaseSensitive", canonicalizer.canonicalize("https://a.com/CaseSensitive"));
+    }
+
+    @Test
+    void testConfigurableRules() {
+        UrlCanonicalizer custom = new UrlCanonicalizer(List.of("sessionid", "ref_*"), false, false);
+        assertEquals("https://a.com/dir/?z=1&a=2",
+                custom.canonicalize("https://a.com/dir/?z=1&sessionid=9&ref_src=x&a=2"));
+        assertEquals("https://a.com/dir/?utm_source=x", custom.canonicalize("https://a.com/dir/?utm_source=x"));
+    }
+
+    @Test
+    void testUnparseableUrlsOnlyLoseFragment() {
+        assertEquals("https://a.com/bad path", canonicalizer.canonicalize("https://a.com/bad path#x"));
+        assertEquals("https://under_score.example.com/X/",
+                canonicalizer.canonicalize("https://under_score.example.com/X/#frag"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.info6205.webcrawler.service.url;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class UrlClassifierTest {
+
+    static final List<String> SAMPLE_URLS = List.of(
+            "https://www.northeastern.edu",
+            "https://www.northeastern.edu/",
+            "https://www.facebook.com/northeastern",
+            "https://m.facebook.com/x",
+            "https://www.example.com/image.jpg",
+            "https://www.example.com/image.JPG",
+            "https://www.example.com/video.webm?x=1",
+            "https://www.example.com/research/labs",
+            "https://www.example.com/science",
+            "https://www.example.com/download/ads",
+            "https://www.example.com/headline",
+            "http://abcdefghijklmnop.onion/",
+            "https://www.ffupdate.org/page",
+            "https://geo.northeastern.edu/blog/country/hong-kong/",
+            "https://www.ftc.gov",
+            "https://www.whitehouse.gov",
+            "https://cs.mit.edu",
+            "https://www.example.com/",
+            "https://www.google.com/maps",
+            "https://www.example.com/banner.png",
+            "https://twitter.com/neu",
+            "https://www.example.com/tracker",
+            "https://www.example.com/page.edu.html");
+
+    @Test
+    void testDefaultRulesMatchLegacyLogic() throws IOException {
+        LegacyUrlPriority legacy = LegacyUrlPriority.fromDefaultRules();
+        assertEquals(96, legacy.size());
+        UrlClassifier classifier = UrlClassifier.defaults();
+        for (String url : SAMPLE_URLS) {
+            // .edu and .gov now match on the host, which the legacy logic missed once a path followed it
+            int expected = url.equals("https://www.northeastern.edu/") ? 1 : legacy.priority(url);
+            assertEquals(expected, classifier.classify(url).getPriority(), url);
+        }
+    }
+
+    @Test
+    void testHostRulesIgnoreWhatFollowsTheHost() throws IOException {
+        UrlClassifier classifier = UrlClassifier.parse(new StringReader(String.join("\n",
+                "host 1 .edu",
+                "default 7")));
+
+        assertEquals(1, classifier.classify("https://www.northeastern.edu").getPriority());
+        assertEquals(1, classifier.classify("https://www.northeastern.edu/").getPriority());
+        assertEquals(1, classifier.classify("https://user:pw@cs.mit.edu:8443/a?b#c").getPriority());
+        assertEquals(7, classifier.classify("https://www.example.com/page.edu").getPriority());
+        assertEquals(7, classifier.classify("mailto:someone@mit.edu").getPriority());
+    }
+
+    @Test
+    void testFirstMatchingRuleWins() throws IOException {
+        UrlClassifier classifier = UrlClassifier.parse(new StringReader(String.join("\n",
+                "# comment",
+                "contains 3 low-priority promo",
+                "suffix 1 .edu",
+                "extension skip blacklist \\",
+                "    exe \\",
+                "    zip",
+                "default 7")));
+
+        assertEquals(3, classifier.classify("https://promo.mit.edu").getPriority());
+        assertEquals(UrlClassifier.Record.LOW_PRIORITY, classifier.classify("https://promo.mit.edu").getRecord());
+        assertEquals(1, classifier.classify("https://mit.edu").getPriority());
+        assertEquals(UrlClassifier.SKIP, classifier.classify("https://a.com/setup.exe").getPriority());
+        assertEquals(UrlClassifier.Record.BLACKLIST, classifier.classify("https://a.com/x.zip").getRecord());
+        // "zip" without the dot is not an extension
+        assertEquals(7, classifier.classify("https://a.com/zip").getPriority());
+        assertEquals(UrlClassifier.Record.NONE, classifier.classify("https://a.com/zip").getRecord());
+    }
+
+    @Test
+    void testOverlappingContainsPatterns() throws IOException {
+        // "she" ends inside "ushers", and "hers" overlaps it: both must be found in one pass
+        UrlClassifier classifier = UrlClassifier.parse(new StringReader(String.join("\n",
+                "contains 1 hers",
+                "contains 2 she",
+                "contains 3 he")));
+
+        assertEquals(1, classifier.classify("ushers").getPriority());
+        assertEquals(2, classifier.classify("ushe").getPriority());
+        assertEquals(3, classifier.classify("the").getPriority());
+        assertEquals(10, classifier.classify("xyz").getPriority());
+    }
+
+    @Test
+    void testRejectsMalformedRules() {
+        assertThrows(IllegalArgumentException.class,
+                () -> UrlClassifier.parse(new StringReader("matches 1 foo")));
+        assertThrows(IllegalArgumentException.class,
+                () -> UrlClassifier.parse(new StringReader("contains high foo")));
+        assertThrows(IllegalArgumentException.class,
+                () -> UrlClassifier.parse(new StringReader("contains 1 blacklist")));
+    }
+}